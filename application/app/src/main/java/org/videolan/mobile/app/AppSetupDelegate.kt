@@ -47,6 +47,7 @@ import org.videolan.resources.AppContextProvider
 import org.videolan.resources.VLCInstance
 import org.videolan.resources.util.startRemoteAccess
 import org.videolan.tools.AppScope
+import org.videolan.tools.ArtworkLoader
 import org.videolan.tools.KEY_ENABLE_REMOTE_ACCESS
 import org.videolan.tools.KEY_INCOGNITO
 import org.videolan.tools.KEY_PERSISTENT_INCOGNITO
@@ -59,6 +60,7 @@ import org.videolan.vlc.util.DialogDelegate
 import org.videolan.vlc.util.NetworkConnectionManager
 import org.videolan.vlc.util.VersionMigration
 import org.videolan.vlc.widget.MiniPlayerAppWidgetProvider
+import java.io.File
 
 interface AppDelegate {
     val appContextProvider : AppContextProvider
@@ -75,6 +77,7 @@ class AppSetupDelegate : AppDelegate,
     @TargetApi(Build.VERSION_CODES.O)
     override fun Application.setupApplication() {
         appContextProvider.init(this)
+        ArtworkLoader.setDiskCacheDirectory(File(cacheDir, "artwork"))
         NotificationHelper.createNotificationChannels(this)
 
         // Service loaders
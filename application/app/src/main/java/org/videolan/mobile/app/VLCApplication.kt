@@ -62,7 +62,7 @@ class VLCApplication : MultiDexApplication(), Dialog.Callbacks by DialogDelegate
     override fun onTrimMemory(level: Int) {
         super.onTrimMemory(level)
         Log.w(TAG, "onTrimMemory, level: $level")
-        BitmapCache.clear()
+        BitmapCache.trimMemory(level)
         ArtworkProvider.clear()
     }
 }
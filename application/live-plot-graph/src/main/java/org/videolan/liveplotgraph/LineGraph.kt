@@ -25,15 +25,26 @@
 package org.videolan.liveplotgraph
 
 import android.graphics.Paint
+import android.graphics.Path
 import org.videolan.tools.dp
 
-data class LineGraph(val index: Int, val title: String, val color: Int, val data: HashMap<Long, Float> = HashMap()) {
+/**
+ * A line of the [PlotView]
+ *
+ * @param capacity the maximum number of points kept in [data]
+ * @param unit the unit of the values, displayed in the legend and the grid
+ */
+data class LineGraph(val index: Int, val title: String, val color: Int, val capacity: Int = DEFAULT_CAPACITY, val unit: String = "kb/s") {
+    val data = TimeSeries(capacity)
+    internal val path = Path()
+
     val paint: Paint by lazy {
         val p = Paint()
         p.color = color
         p.strokeWidth = 2.dp.toFloat()
         p.isAntiAlias = true
         p.style = Paint.Style.STROKE
+        p.strokeJoin = Paint.Join.ROUND
         p
     }
 
@@ -41,4 +52,8 @@ data class LineGraph(val index: Int, val title: String, val color: Int, val data
         if (other is LineGraph && other.index == index) return true
         return super.equals(other)
     }
+
+    companion object {
+        const val DEFAULT_CAPACITY = 30
+    }
 }
\ No newline at end of file
@@ -43,10 +43,16 @@ class PlotView : FrameLayout {
         p
     }
     val data = ArrayList<LineGraph>()
-    private val maxsY = ArrayList<Float>()
-    private val maxsX = ArrayList<Long>()
-    private val minsX = ArrayList<Long>()
     private var color: Int = 0xFFFFFF
+
+    /**
+     * Maximum duration displayed, in ms. The older points of the lines are removed. 0 for no limit but the lines capacity
+     */
+    var window: Long = 0L
+        set(value) {
+            field = value
+            data.forEach { it.data.window = value }
+        }
     private var listeners = ArrayList<PlotViewDataChangeListener>()
 
     constructor(context: Context) : super(context) {
@@ -68,6 +74,7 @@ class PlotView : FrameLayout {
             val a = context.theme.obtainStyledAttributes(attrs, R.styleable.LPGPlotView, 0, defStyle)
             try {
                 color = a.getInt(R.styleable.LPGPlotView_lpg_color, 0xFFFFFF)
+                window = a.getInt(R.styleable.LPGPlotView_lpg_window, 0).toLong()
             } catch (e: Exception) {
                 Log.w("", e.message, e)
             } finally {
@@ -76,21 +83,18 @@ class PlotView : FrameLayout {
         }
     }
 
-    fun addData(index: Int, value: Pair<Long, Float>) {
-        data.forEach { lineGraph ->
-            if (lineGraph.index == index) {
-                lineGraph.data[value.first] = value.second
-                if (lineGraph.data.size > 30) {
-                    lineGraph.data.remove(lineGraph.data.toSortedMap().firstKey())
-                }
-                invalidate()
-                val listenerValue = ArrayList<Pair<LineGraph, String>>(data.size)
-                data.forEach { line ->
-                    listenerValue.add(Pair(line, "${String.format("%.0f", line.data[line.data.keys.maxOrNull()])} kb/s"))
-                }
-                listeners.forEach { it.onDataChanged(listenerValue) }
-            }
+    fun addData(index: Int, value: Pair<Long, Float>) = addData(index, value.first, value.second)
+
+    fun addData(index: Int, timestamp: Long, value: Float) {
+        val lineGraph = data.firstOrNull { it.index == index } ?: return
+        lineGraph.data.add(timestamp, value)
+        invalidate()
+        if (listeners.isEmpty()) return
+        val listenerValue = ArrayList<Pair<LineGraph, String>>(data.size)
+        data.forEach { line ->
+            listenerValue.add(Pair(line, "${String.format("%.0f", line.data.lastValue)} ${line.unit}"))
         }
+        listeners.forEach { it.onDataChanged(listenerValue) }
     }
 
     fun addListener(listener: PlotViewDataChangeListener) {
@@ -100,24 +104,16 @@ class PlotView : FrameLayout {
     override fun onDraw(canvas: Canvas) {
         super.onDraw(canvas)
 
-        maxsY.clear()
-        maxsX.clear()
-        minsX.clear()
-
-        data.forEach {
-            maxsY.add(it.data.maxByOrNull { it.value }?.value ?: 0f)
-        }
-        val maxY = maxsY.maxOrNull() ?: 0f
-
-        data.forEach {
-            maxsX.add(it.data.maxByOrNull { it.key }?.key ?: 0L)
-        }
-        val maxX = maxsX.maxOrNull() ?: 0L
-
+        var maxY = 0f
+        var minX = Long.MAX_VALUE
+        var maxX = Long.MIN_VALUE
         data.forEach {
-            minsX.add(it.data.minByOrNull { it.key }?.key ?: 0L)
+            if (it.data.isEmpty()) return@forEach
+            maxY = maxOf(maxY, it.data.max)
+            minX = minOf(minX, it.data.firstTimestamp)
+            maxX = maxOf(maxX, it.data.lastTimestamp)
         }
-        val minX = minsX.minOrNull() ?: 0L
+        if (minX > maxX) return
 
         drawLines(maxY, minX, maxX, canvas)
         drawGrid(canvas, maxY, minX, maxX)
@@ -127,14 +123,15 @@ class PlotView : FrameLayout {
         canvas?.let {
             if (maxY <= 0F) return
             //            it.drawText("0", 10F, it.height.toFloat() - 2.dp, textPaint)
-            it.drawText("${String.format("%.0f", maxY)} kb/s", 10F, 10.dp.toFloat(), textPaint)
+            val unit = data.firstOrNull()?.unit ?: ""
+            it.drawText("${String.format("%.0f", maxY)} $unit", 10F, 10.dp.toFloat(), textPaint)
 
             var center = maxY / 2
             center = getRoundedByUnit(center)
             if (BuildConfig.DEBUG) Log.d(this::class.java.simpleName, "Center: $center")
             val centerCoord = measuredHeight * ((maxY - center) / maxY)
             it.drawLine(0f, centerCoord, measuredWidth.toFloat(), centerCoord, textPaint)
-            it.drawText("${String.format("%.0f", center)} kb/s", 10F, centerCoord - 2.dp, textPaint)
+            it.drawText("${String.format("%.0f", center)} $unit", 10F, centerCoord - 2.dp, textPaint)
 
             //timestamps
 
@@ -156,20 +153,23 @@ class PlotView : FrameLayout {
         return (round(number / (10.0.pow(lengthX.toDouble()))) * (10.0.pow(lengthX.toDouble()))).toFloat()
     }
 
-    private fun drawLines(maxY: Float, minX: Long, maxX: Long, canvas: Canvas?) {
+    /**
+     * Draws each line as a single path, built from the points of its series which are already in chronological order
+     */
+    private fun drawLines(maxY: Float, minX: Long, maxX: Long, canvas: Canvas) {
+        if (maxY <= 0F || maxX <= minX) return
+        val xScale = measuredWidth / (maxX - minX).toFloat()
+        val yScale = measuredHeight / maxY
         data.forEach { line ->
-            var initialPoint: Pair<Float, Float>? = null
-            line.data.toSortedMap().forEach { point ->
-                if (initialPoint == null) {
-                    initialPoint = getCoordinates(point, maxY, minX, maxX, measuredWidth, measuredHeight)
-                } else {
-                    val currentPoint = getCoordinates(point, maxY, minX, maxX, measuredWidth, measuredHeight)
-                    currentPoint.let {
-                        canvas?.drawLine(initialPoint!!.first, initialPoint!!.second, it.first, it.second, line.paint)
-                        initialPoint = it
-                    }
-                }
+            val series = line.data
+            if (series.size < 2) return@forEach
+            line.path.rewind()
+            for (i in 0 until series.size) {
+                val x = (series.timestampAt(i) - minX) * xScale
+                val y = (maxY - series.valueAt(i)) * yScale
+                if (i == 0) line.path.moveTo(x, y) else line.path.lineTo(x, y)
             }
+            canvas.drawPath(line.path, line.paint)
         }
     }
 
@@ -225,15 +225,16 @@ class PlotView : FrameLayout {
 //
 //    }
 
-    private fun getCoordinates(point: Map.Entry<Long, Float>, maxY: Float, minX: Long, maxX: Long, measuredWidth: Int, measuredHeight: Int): Pair<Float, Float> = Pair((measuredWidth * ((point.key - minX).toDouble() / (maxX - minX).toDouble())).toFloat(), measuredHeight * ((maxY - point.value) / maxY))
     fun clear() {
         data.forEach {
             it.data.clear()
         }
+        invalidate()
     }
 
     fun addLine(lineGraph: LineGraph) {
         if (!data.contains(lineGraph)) {
+            if (window > 0L) lineGraph.data.window = window
             data.add(lineGraph)
         }
     }
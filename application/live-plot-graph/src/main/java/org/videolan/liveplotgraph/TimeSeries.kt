@@ -0,0 +1,161 @@
+/*
+ * ************************************************************************
+ *  TimeSeries.kt
+ * *************************************************************************
+ * Copyright © 2026 VLC authors and VideoLAN
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston MA 02110-1301, USA.
+ * **************************************************************************
+ *
+ *
+ */
+
+package org.videolan.liveplotgraph
+
+/**
+ * Fixed capacity time series, stored in a ring buffer of primitive timestamps and values.
+ *
+ * The points are expected in chronological order: a point older than the last one is dropped, and a point with
+ * the same timestamp replaces it. When the series is full, or when a point gets older than the [window],
+ * the oldest points are removed.
+ * The minimum and maximum values are maintained while adding and removing points, with monotonic queues
+ * of the points sequence numbers, so that reading them doesn't iterate the series.
+ *
+ * @param capacity the maximum number of points
+ * @param window the maximum duration between the first and the last points, 0 for no limit
+ */
+class TimeSeries(val capacity: Int, var window: Long = 0L) {
+    private val timestamps = LongArray(capacity)
+    private val values = FloatArray(capacity)
+
+    // Sequence number of the first point: the point at index i is stored at (first + i) % capacity
+    private var first = 0L
+    var size = 0
+        private set
+
+    private val minQueue = SequenceQueue(capacity)
+    private val maxQueue = SequenceQueue(capacity)
+
+    init {
+        require(capacity > 0) { "Capacity must be positive" }
+    }
+
+    val min: Float
+        get() = if (size == 0) 0f else valueOf(minQueue.first())
+
+    val max: Float
+        get() = if (size == 0) 0f else valueOf(maxQueue.first())
+
+    val firstTimestamp: Long
+        get() = if (size == 0) 0L else timestampAt(0)
+
+    val lastTimestamp: Long
+        get() = if (size == 0) 0L else timestampAt(size - 1)
+
+    val lastValue: Float
+        get() = if (size == 0) 0f else valueAt(size - 1)
+
+    fun isEmpty() = size == 0
+
+    fun timestampAt(index: Int) = timestamps[slot(first + index)]
+
+    fun valueAt(index: Int) = values[slot(first + index)]
+
+    fun add(timestamp: Long, value: Float) {
+        if (size > 0) {
+            val last = lastTimestamp
+            if (timestamp < last) return
+            if (timestamp == last) {
+                values[slot(first + size - 1)] = value
+                // The replaced value may have evicted values which are now the extremes
+                rebuildQueues()
+                return
+            }
+        }
+        if (size == capacity) removeFirst()
+        val sequence = first + size
+        timestamps[slot(sequence)] = timestamp
+        values[slot(sequence)] = value
+        ++size
+        while (!minQueue.isEmpty() && valueOf(minQueue.last()) >= value) minQueue.removeLast()
+        minQueue.add(sequence)
+        while (!maxQueue.isEmpty() && valueOf(maxQueue.last()) <= value) maxQueue.removeLast()
+        maxQueue.add(sequence)
+        if (window > 0L) while (size > 1 && timestamp - timestampAt(0) > window) removeFirst()
+    }
+
+    fun clear() {
+        first = 0L
+        size = 0
+        minQueue.clear()
+        maxQueue.clear()
+    }
+
+    private fun removeFirst() {
+        if (minQueue.first() == first) minQueue.removeFirst()
+        if (maxQueue.first() == first) maxQueue.removeFirst()
+        ++first
+        --size
+    }
+
+    private fun rebuildQueues() {
+        minQueue.clear()
+        maxQueue.clear()
+        for (sequence in first until first + size) {
+            val value = valueOf(sequence)
+            while (!minQueue.isEmpty() && valueOf(minQueue.last()) >= value) minQueue.removeLast()
+            minQueue.add(sequence)
+            while (!maxQueue.isEmpty() && valueOf(maxQueue.last()) <= value) maxQueue.removeLast()
+            maxQueue.add(sequence)
+        }
+    }
+
+    private fun valueOf(sequence: Long) = values[slot(sequence)]
+
+    private fun slot(sequence: Long) = (sequence % capacity).toInt()
+
+    /**
+     * Double ended queue of sequence numbers, in a ring buffer
+     */
+    private class SequenceQueue(private val capacity: Int) {
+        private val sequences = LongArray(capacity)
+        private var head = 0
+        private var count = 0
+
+        fun isEmpty() = count == 0
+
+        fun first() = sequences[head]
+
+        fun last() = sequences[(head + count - 1) % capacity]
+
+        fun add(sequence: Long) {
+            sequences[(head + count) % capacity] = sequence
+            ++count
+        }
+
+        fun removeFirst() {
+            head = (head + 1) % capacity
+            --count
+        }
+
+        fun removeLast() {
+            --count
+        }
+
+        fun clear() {
+            head = 0
+            count = 0
+        }
+    }
+}
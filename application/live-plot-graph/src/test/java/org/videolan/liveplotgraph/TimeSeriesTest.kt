@@ -0,0 +1,86 @@
+/*
+ * ************************************************************************
+ *  TimeSeriesTest.kt
+ * *************************************************************************
+ * Copyright © 2026 VLC authors and VideoLAN
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston MA 02110-1301, USA.
+ * **************************************************************************
+ *
+ *
+ */
+
+package org.videolan.liveplotgraph
+
+import org.junit.Assert.assertEquals
+import org.junit.Test
+
+class TimeSeriesTest {
+
+    @Test
+    fun whenFull_checkOldestPointsAreEvicted() {
+        val series = TimeSeries(3)
+        for (i in 0L until 5L) series.add(i * 100, i.toFloat())
+        assertEquals(3, series.size)
+        assertEquals(200L, series.firstTimestamp)
+        assertEquals(400L, series.lastTimestamp)
+        assertEquals(listOf(2f, 3f, 4f), (0 until series.size).map { series.valueAt(it) })
+    }
+
+    @Test
+    fun whenPointsAreEvicted_checkMinAndMaxFollowTheWindow() {
+        val series = TimeSeries(4)
+        val values = floatArrayOf(5f, 1f, 8f, 3f, 2f, 7f, 0f, 4f, 6f, 6f, 9f, 1f)
+        for ((i, value) in values.withIndex()) {
+            series.add(i.toLong(), value)
+            val expected = values.slice(maxOf(0, i - 3)..i)
+            assertEquals(expected.minOrNull()!!, series.min)
+            assertEquals(expected.maxOrNull()!!, series.max)
+        }
+    }
+
+    @Test
+    fun whenWindowIsSet_checkOlderPointsAreRemoved() {
+        val series = TimeSeries(100, window = 1000L)
+        for (i in 0L..20L) series.add(i * 250, if (i == 0L) 100f else 1f)
+        assertEquals(5, series.size)
+        assertEquals(4000L, series.firstTimestamp)
+        assertEquals(1f, series.max)
+    }
+
+    @Test
+    fun whenTimestampIsRepeated_checkPointIsReplaced() {
+        val series = TimeSeries(10)
+        series.add(0L, 1f)
+        series.add(10L, 50f)
+        series.add(10L, 2f)
+        series.add(5L, 80f)
+        assertEquals(2, series.size)
+        assertEquals(2f, series.lastValue)
+        assertEquals(2f, series.max)
+    }
+
+    @Test
+    fun whenReplacedPointHadEvictedExtremes_checkMinAndMaxAreRestored() {
+        val series = TimeSeries(10)
+        series.add(0L, 5f)
+        series.add(1L, 8f)
+        series.add(1L, 2f)
+        assertEquals(5f, series.max)
+        assertEquals(2f, series.min)
+        series.add(1L, 9f)
+        assertEquals(9f, series.max)
+        assertEquals(5f, series.min)
+    }
+}
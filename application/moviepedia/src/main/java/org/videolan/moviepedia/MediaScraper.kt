@@ -25,165 +25,207 @@
 package org.videolan.moviepedia
 
 import android.content.Context
-import android.net.Uri
+import android.os.SystemClock
+import android.util.Log
 import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.Job
 import kotlinx.coroutines.launch
 import org.videolan.medialibrary.interfaces.Medialibrary
 import org.videolan.medialibrary.interfaces.media.MediaWrapper
+import org.videolan.moviepedia.database.MoviePediaDatabase
 import org.videolan.moviepedia.database.models.*
 import org.videolan.moviepedia.models.resolver.ResolverMedia
 import org.videolan.moviepedia.models.resolver.ResolverMediaType
+import org.videolan.moviepedia.models.resolver.ResolverPerson
 import org.videolan.moviepedia.repository.*
 import org.videolan.resources.AppContextProvider
 import org.videolan.resources.interfaces.IndexingListener
 import org.videolan.tools.AppScope
+import org.videolan.tools.Settings
 import org.videolan.tools.getLocaleLanguages
+import org.videolan.tools.putSingle
+
+private const val TAG = "VLC/MediaScraper"
+private const val KEY_SCRAPING_CHECKPOINT = "moviepedia_scraping_checkpoint"
 
 object MediaScraper {
     val mediaResolverApi: MediaResolverApi by lazy {
         MoviepediaApiRepository.getInstance()
     }
 
-    fun indexMedialib(context: Context) = AppScope.launch(Dispatchers.IO) {
-        val medias = Medialibrary.getInstance().getPagedVideos(Medialibrary.SORT_DEFAULT, false, true, false, 1000, 0)
-
-        val filesToIndex = HashMap<Long, Uri>()
-        medias.forEach {
-            if (it.getMetaLong(MediaWrapper.META_METADATA_RETRIEVED) != 1L)
-                filesToIndex[it.id] = it.uri
-        }
-        val results = try {
-            mediaResolverApi.searchMediaBatch(filesToIndex)
-        } catch (e: Exception) {
-            return@launch
-        }
-        medias.forEach { media ->
-            media?.setLongMeta(MediaWrapper.META_METADATA_RETRIEVED, 1L)
-        }
-        results.forEach { result ->
-            result.getMedia()?.let {
-                val media = medias.find { it.id == result.getId() }
-                try {
-                    saveMediaMetadata(context, media, it, retrieveCast = false, removePersonOrphans = false)
-                } catch (e: Exception) {
-                    media?.setLongMeta(251, 0L)
-                }
-            }
-        }
-        removePersonOrphans(context)
+    private var indexingJob: Job? = null
+
+    @Synchronized
+    fun indexMedialib(context: Context): Job {
+        indexingJob?.let { if (it.isActive) return it }
+        return AppScope.launch(Dispatchers.IO) {
+            val start = SystemClock.elapsedRealtime()
+            val completed = ScrapingPipeline(mediaResolverApi, MedialibrarySource(context), MetadataStore(context)).run()
+            Log.d(TAG, "Library scraped in ${SystemClock.elapsedRealtime() - start} ms, completed: $completed")
+            removePersonOrphans(context)
+        }.also { indexingJob = it }
     }
 
     private fun removePersonOrphans(context: Context) {
-        //Remove orphans
-        val allPersons = PersonRepository.getInstance(context).getAll()
-        val allPersonJoins = MediaPersonRepository.getInstance(context).getAll()
-        val personsToRemove = allPersons.filter { person -> allPersonJoins.any { personJoin -> person.moviepediaId == personJoin.personId }.not() }
-        PersonRepository.getInstance(context).deleteAll(personsToRemove)
+        val start = SystemClock.elapsedRealtime()
+        val removed = PersonRepository.getInstance(context).deleteOrphans()
+        Log.d(TAG, "$removed orphan persons removed in ${SystemClock.elapsedRealtime() - start} ms")
     }
 
     suspend fun saveMediaMetadata(context: Context, media: MediaWrapper?, item: ResolverMedia, retrieveCast: Boolean = true, removePersonOrphans: Boolean = true) {
-        val type = when (item.mediaType()) {
-            ResolverMediaType.TV_EPISODE -> MediaMetadataType.TV_EPISODE
-            ResolverMediaType.MOVIE -> MediaMetadataType.MOVIE
-            else -> MediaMetadataType.TV_SHOW
+        val languages = context.getLocaleLanguages()
+        val entries = fetchShows(context, listOf(item), languages) + MetadataEntry(media?.id, item, languages)
+        saveEntries(context, entries)
+
+        if (retrieveCast) {
+            entries.forEach { retrieveCasting(context, it.metadata) }
         }
 
+        if (removePersonOrphans) removePersonOrphans(context)
+    }
+
+    /**
+     * Retrieves the shows of the [items] episodes which are not in the database yet
+     */
+    private suspend fun fetchShows(context: Context, items: List<ResolverMedia>, languages: List<String>): List<MetadataEntry> {
         val mediaMetadataRepository = MediaMetadataRepository.getInstance(context)
+        return items.asSequence()
+                .filter { it.mediaType() == ResolverMediaType.TV_EPISODE }
+                .map { it.showId() }
+                .distinct()
+                .filter { mediaMetadataRepository.getTvshow(it) == null }
+                .toList()
+                .map { MetadataEntry(null, mediaResolverApi.getMedia(it), languages) }
+    }
 
-        val show: String? = when (item.mediaType()) {
-            ResolverMediaType.TV_EPISODE -> {
-                //check if show already exists
-                var moviepediaId = mediaMetadataRepository.getTvshow(item.showId())?.metadata?.moviepediaId
-                if (moviepediaId == null) {
-                    //show doesn't exist, let's retrieve it
-                    val tvShowResult = mediaResolverApi.getMedia(item.showId())
-                    saveMediaMetadata(context, null, tvShowResult, retrieveCast, removePersonOrphans)
-                    moviepediaId = item.showId()
+    /**
+     * Saves the metadata and their images, in a single transaction.
+     * The shows have to be before their episodes.
+     */
+    private fun saveEntries(context: Context, entries: List<MetadataEntry>) {
+        val mediaMetadataRepository = MediaMetadataRepository.getInstance(context)
+        MoviePediaDatabase.getInstance(context).runInTransaction {
+            entries.forEach { entry ->
+                val oldImages = entry.metadata.mlId?.let { mediaMetadataRepository.getMetadata(it) }?.images
+                mediaMetadataRepository.addMetadataImmediate(entry.metadata)
+                //delete old images
+                oldImages?.let {
+                    val urls = entry.images.mapTo(HashSet()) { image -> image.url }
+                    mediaMetadataRepository.deleteImages(it.filter { image -> image.url !in urls })
                 }
-                moviepediaId
+                mediaMetadataRepository.addImagesImmediate(entry.images)
             }
-            else -> null
-        }
-
-        val languages = context.getLocaleLanguages()
-        val mediaMetadata = MediaMetadata(
-                item.mediaId(),
-                media?.id,
-                type,
-                item.title(),
-                item.summary(),
-                item.genres(),
-                item.date(),
-                item.countries(), item.season(), item.episode(), item.imageUri(languages).toString(), item.backdropUri(languages).toString(), show, false)
-
-        val oldMediaMetadata = if (media != null) mediaMetadataRepository.getMetadata(media.id) else null
-        val oldImages = oldMediaMetadata?.images
-
-        mediaMetadataRepository.addMetadataImmediate(mediaMetadata)
-
-        val images = ArrayList<MediaImage>()
-        item.getBackdrops(languages)?.forEach {
-            images.add(MediaImage(item.getImageUriFromPath(it.path()), mediaMetadata.moviepediaId, MediaImageType.BACKDROP, it.language()))
-        }
-        item.getPosters(languages)?.forEach {
-            images.add(MediaImage(item.getImageUriFromPath(it.path()), mediaMetadata.moviepediaId, MediaImageType.POSTER, it.language()))
         }
-        //delete old images
-        oldImages?.let {
-            mediaMetadataRepository.deleteImages(it.filter { images.any { newImage -> it.url == newImage.url }.not() })
-        }
-        mediaMetadataRepository.addImagesImmediate(images)
-
-        if (retrieveCast) {
-            retrieveCasting(context, mediaMetadata)
-        }
-
-        if (removePersonOrphans) removePersonOrphans(context)
     }
 
     suspend fun retrieveCasting(context: Context, mediaMetadata: MediaMetadata) {
         val personRepo = PersonRepository.getInstance(context)
+        val mediaPersonRepo = MediaPersonRepository.getInstance(context)
+        val persons = ArrayList<Person>()
         val personsToAdd = ArrayList<MediaPersonJoin>()
+        fun addPersons(resolverPersons: List<ResolverPerson>, type: PersonType) = resolverPersons.forEach { person ->
+            val personEntity = Person(person.personId(), person.name(), person.image())
+            persons.add(personEntity)
+            personsToAdd.add(MediaPersonJoin(mediaMetadata.moviepediaId, personEntity.moviepediaId, type))
+        }
 
+        val start = SystemClock.elapsedRealtime()
         val castResult = mediaResolverApi.getMediaCast(mediaMetadata.moviepediaId)
-        castResult.actors().forEach { person ->
-            val actorEntity = Person(person.personId(), person.name(), person.image())
-            personRepo.addPersonImmediate(actorEntity)
-            personsToAdd.add(MediaPersonJoin(mediaMetadata.moviepediaId, actorEntity.moviepediaId, PersonType.ACTOR))
-
+        val fetched = SystemClock.elapsedRealtime()
+        addPersons(castResult.actors(), PersonType.ACTOR)
+        addPersons(castResult.directors(), PersonType.DIRECTOR)
+        addPersons(castResult.writers(), PersonType.WRITER)
+        addPersons(castResult.musicians(), PersonType.MUSICIAN)
+        addPersons(castResult.producers(), PersonType.PRODUCER)
+        mediaMetadata.hasCast = true
+        MoviePediaDatabase.getInstance(context).runInTransaction {
+            personRepo.addPersonsImmediate(persons)
+            mediaPersonRepo.removeAllFor(mediaMetadata.moviepediaId)
+            mediaPersonRepo.addPersons(personsToAdd)
+            MediaMetadataRepository.getInstance(context).addMetadataImmediate(mediaMetadata)
         }
-        castResult.directors().forEach { person ->
-            val actorEntity = Person(person.personId(), person.name(), person.image())
-            personRepo.addPersonImmediate(actorEntity)
-            personsToAdd.add(MediaPersonJoin(mediaMetadata.moviepediaId, actorEntity.moviepediaId, PersonType.DIRECTOR))
+        Log.d(TAG, "Cast of ${mediaMetadata.moviepediaId}: ${persons.size} persons fetched in ${fetched - start} ms, saved in ${SystemClock.elapsedRealtime() - fetched} ms")
+    }
 
+    val indexListener = object : IndexingListener {
+            override fun onIndexingDone() {
+                indexMedialib(AppContextProvider.appContext)
+            }
         }
-        castResult.writers().forEach { person ->
-            val actorEntity = Person(person.personId(), person.name(), person.image())
-            personRepo.addPersonImmediate(actorEntity)
-            personsToAdd.add(MediaPersonJoin(mediaMetadata.moviepediaId, actorEntity.moviepediaId, PersonType.WRITER))
+
+    private class MetadataEntry(mlId: Long?, item: ResolverMedia, languages: List<String>) {
+        val metadata: MediaMetadata
+        val images = ArrayList<MediaImage>()
+
+        init {
+            val type = when (item.mediaType()) {
+                ResolverMediaType.TV_EPISODE -> MediaMetadataType.TV_EPISODE
+                ResolverMediaType.MOVIE -> MediaMetadataType.MOVIE
+                else -> MediaMetadataType.TV_SHOW
+            }
+            val show = if (item.mediaType() == ResolverMediaType.TV_EPISODE) item.showId() else null
+            metadata = MediaMetadata(
+                    item.mediaId(),
+                    mlId,
+                    type,
+                    item.title(),
+                    item.summary(),
+                    item.genres(),
+                    item.date(),
+                    item.countries(), item.season(), item.episode(), item.imageUri(languages).toString(), item.backdropUri(languages).toString(), show, false)
+            item.getBackdrops(languages)?.forEach {
+                images.add(MediaImage(item.getImageUriFromPath(it.path()), metadata.moviepediaId, MediaImageType.BACKDROP, it.language()))
+            }
+            item.getPosters(languages)?.forEach {
+                images.add(MediaImage(item.getImageUriFromPath(it.path()), metadata.moviepediaId, MediaImageType.POSTER, it.language()))
+            }
         }
-        castResult.musicians().forEach { person ->
-            val actorEntity = Person(person.personId(), person.name(), person.image())
-            personRepo.addPersonImmediate(actorEntity)
-            personsToAdd.add(MediaPersonJoin(mediaMetadata.moviepediaId, actorEntity.moviepediaId, PersonType.MUSICIAN))
+    }
 
+    /**
+     * Pages the videos of the medialibrary by insertion date, so that the new ones don't shift the checkpoint
+     */
+    private class MedialibrarySource(context: Context) : ScrapingPipeline.Library {
+        private val settings = Settings.getInstance(context)
+        private val medias = HashMap<Long, MediaWrapper>()
+
+        override var checkpoint: Int
+            get() = settings.getInt(KEY_SCRAPING_CHECKPOINT, 0)
+            set(value) = settings.putSingle(KEY_SCRAPING_CHECKPOINT, value)
+
+        override fun getVideos(offset: Int, count: Int): List<ScrapingPipeline.Item> {
+            medias.clear()
+            return Medialibrary.getInstance().getPagedVideos(Medialibrary.SORT_INSERTIONDATE, false, true, false, count, offset).map { media ->
+                medias[media.id] = media
+                ScrapingPipeline.Item(media.id, media.uri, media.getMetaLong(MediaWrapper.META_METADATA_RETRIEVED) == 1L)
+            }
         }
-        castResult.producers().forEach { person ->
-            val actorEntity = Person(person.personId(), person.name(), person.image())
-            personRepo.addPersonImmediate(actorEntity)
-            personsToAdd.add(MediaPersonJoin(mediaMetadata.moviepediaId, actorEntity.moviepediaId, PersonType.PRODUCER))
 
+        override fun setRetrieved(ids: Collection<Long>) {
+            ids.forEach { medias[it]?.setLongMeta(MediaWrapper.META_METADATA_RETRIEVED, 1L) }
         }
-        MediaPersonRepository.getInstance(context).removeAllFor(mediaMetadata.moviepediaId)
-        MediaPersonRepository.getInstance(context).addPersons(personsToAdd)
-        mediaMetadata.hasCast = true
-        MediaMetadataRepository.getInstance(context).addMetadataImmediate(mediaMetadata)
     }
 
-    val indexListener = object : IndexingListener {
-            override fun onIndexingDone() {
-                indexMedialib(AppContextProvider.appContext)
+    /**
+     * Saves the results of a batch in a single transaction, after retrieving the missing shows
+     */
+    private class MetadataStore(private val context: Context) : ScrapingPipeline.Store {
+        private val languages = context.getLocaleLanguages()
+
+        override suspend fun save(results: List<ScrapingPipeline.Result>): Collection<Long> {
+            val shows = ArrayList<MetadataEntry>()
+            val failedShows = HashSet<String>()
+            results.map { it.media }.filter { it.mediaType() == ResolverMediaType.TV_EPISODE }.distinctBy { it.showId() }.forEach { episode ->
+                try {
+                    shows.addAll(fetchShows(context, listOf(episode), languages))
+                } catch (e: Exception) {
+                    Log.w(TAG, "Unable to retrieve the show ${episode.showId()}", e)
+                    failedShows.add(episode.showId())
+                }
             }
+            val failed = results.filter { it.media.mediaType() == ResolverMediaType.TV_EPISODE && it.media.showId() in failedShows }.mapTo(HashSet()) { it.id }
+            saveEntries(context, shows + results.filter { it.id !in failed }.map { MetadataEntry(it.id, it.media, languages) })
+            return failed
         }
+    }
 }
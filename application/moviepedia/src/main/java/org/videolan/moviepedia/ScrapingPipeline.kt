@@ -0,0 +1,139 @@
+/*
+ * ************************************************************************
+ *  ScrapingPipeline.kt
+ * *************************************************************************
+ * Copyright © 2026 VLC authors and VideoLAN
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston MA 02110-1301, USA.
+ * **************************************************************************
+ *
+ *
+ */
+
+package org.videolan.moviepedia
+
+import android.net.Uri
+import android.os.SystemClock
+import android.util.Log
+import kotlinx.coroutines.async
+import kotlinx.coroutines.coroutineScope
+import kotlinx.coroutines.sync.Semaphore
+import kotlinx.coroutines.sync.withPermit
+import org.videolan.moviepedia.models.resolver.ResolverBatchResult
+import org.videolan.moviepedia.models.resolver.ResolverMedia
+import org.videolan.moviepedia.repository.MediaResolverApi
+
+private const val TAG = "VLC/ScrapingPipeline"
+
+/**
+ * Scrapes the whole library, a page at a time.
+ *
+ * The videos of a page which haven't been scraped yet are sent to the [api] in batches, with at most [maxInFlight]
+ * concurrent requests. The results of each batch are saved at once by the [store].
+ * The offset of the next page is saved as a checkpoint after each page, so that an interrupted run continues where
+ * it stopped. It goes back to the start once the whole library has been scraped.
+ */
+class ScrapingPipeline(
+        private val api: MediaResolverApi,
+        private val library: Library,
+        private val store: Store,
+        private val pageSize: Int = PAGE_SIZE,
+        private val batchSize: Int = BATCH_SIZE,
+        private val maxInFlight: Int = MAX_IN_FLIGHT) {
+
+    class Item(val id: Long, val uri: Uri, val retrieved: Boolean)
+
+    class Result(val id: Long, val media: ResolverMedia)
+
+    interface Library {
+        /**
+         * The offset of the next page to scrape
+         */
+        var checkpoint: Int
+
+        /**
+         * @return the videos from [offset], in a stable order where the new ones are added at the end
+         */
+        fun getVideos(offset: Int, count: Int): List<Item>
+
+        fun setRetrieved(ids: Collection<Long>)
+    }
+
+    interface Store {
+        /**
+         * Saves the results of a batch, in a single transaction
+         *
+         * @return the ids of the media which couldn't be saved, to scrape them again on the next run
+         */
+        suspend fun save(results: List<Result>): Collection<Long>
+    }
+
+    /**
+     * @return true if the whole library has been scraped, false if the run stopped on an error
+     */
+    suspend fun run(): Boolean {
+        val semaphore = Semaphore(maxInFlight)
+        var offset = library.checkpoint
+        while (true) {
+            val start = SystemClock.elapsedRealtime()
+            val page = library.getVideos(offset, pageSize)
+            val batches = page.filter { !it.retrieved }.chunked(batchSize)
+            val loaded = SystemClock.elapsedRealtime()
+            val completed = coroutineScope {
+                batches.map { batch ->
+                    async {
+                        semaphore.withPermit {
+                            try {
+                                api.searchMediaBatch(batch.associateTo(HashMap()) { it.id to it.uri })
+                            } catch (e: Exception) {
+                                Log.w(TAG, "Unable to search the batch of ${batch.size} media", e)
+                                null
+                            }
+                        }
+                    }
+                }.mapIndexed { index, request -> request.await()?.let { save(batches[index], it) } ?: false }
+            }
+            Log.d(TAG, "Page at $offset: ${page.size} media loaded in ${loaded - start} ms, ${batches.size} batches scraped in ${SystemClock.elapsedRealtime() - loaded} ms")
+            // Retry the page from the next run
+            if (!completed.all { it }) return false
+            offset += page.size
+            if (page.size < pageSize) break
+            library.checkpoint = offset
+        }
+        library.checkpoint = 0
+        return true
+    }
+
+    private suspend fun save(batch: List<Item>, results: List<ResolverBatchResult>): Boolean {
+        val items = batch.associateBy { it.id }
+        val found = results.mapNotNull { result ->
+            val media = result.getMedia() ?: return@mapNotNull null
+            if (items.containsKey(result.getId())) Result(result.getId(), media) else null
+        }
+        return try {
+            val failed = store.save(found)
+            library.setRetrieved(items.keys - failed.toSet())
+            true
+        } catch (e: Exception) {
+            Log.w(TAG, "Unable to save the batch of ${found.size} results", e)
+            false
+        }
+    }
+
+    companion object {
+        const val PAGE_SIZE = 500
+        const val BATCH_SIZE = 100
+        const val MAX_IN_FLIGHT = 3
+    }
+}
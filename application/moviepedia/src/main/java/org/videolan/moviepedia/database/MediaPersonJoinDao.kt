@@ -29,6 +29,7 @@ import androidx.room.Dao
 import androidx.room.Insert
 import androidx.room.OnConflictStrategy
 import androidx.room.Query
+import androidx.room.Upsert
 import org.videolan.moviepedia.database.models.MediaPersonJoin
 import org.videolan.moviepedia.database.models.Person
 import org.videolan.moviepedia.database.models.PersonType
@@ -41,6 +42,9 @@ interface MediaPersonJoinDao {
     @Insert(onConflict = OnConflictStrategy.REPLACE)
     fun insertPersons(persons: List<MediaPersonJoin>)
 
+    @Upsert
+    fun upsertPersons(persons: List<MediaPersonJoin>)
+
     @Query("DELETE FROM media_person_join WHERE mediaId = :moviepediaId")
     fun removeAllFor(moviepediaId: String)
 
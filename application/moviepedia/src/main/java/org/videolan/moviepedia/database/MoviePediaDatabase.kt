@@ -35,7 +35,7 @@ import org.videolan.tools.SingletonHolder
 
 private const val DB_NAME = "moviepedia_database"
 
-@Database(entities = [MediaMetadata::class, Person::class, MediaPersonJoin::class, MediaImage::class], version = 1, exportSchema = false)
+@Database(entities = [MediaMetadata::class, Person::class, MediaPersonJoin::class, MediaImage::class], version = 2, exportSchema = false)
 @TypeConverters(Converters::class)
 abstract class MoviePediaDatabase: RoomDatabase() {
     abstract fun mediaMetadataDao(): MediaMetadataDao
@@ -47,7 +47,14 @@ abstract class MoviePediaDatabase: RoomDatabase() {
     companion object : SingletonHolder<MoviePediaDatabase, Context>({ buildDatabase(it.applicationContext) })
 }
 
+private val migration_1_2 = object : Migration(1, 2) {
+    override fun migrate(db: SupportSQLiteDatabase) {
+        // Used by the orphan persons sweep and the foreign key checks
+        db.execSQL("CREATE INDEX IF NOT EXISTS index_media_person_join_personId ON media_person_join (personId)")
+    }
+}
+
 private fun buildDatabase(context: Context) = Room.databaseBuilder(
         context.applicationContext,
         MoviePediaDatabase::class.java, DB_NAME
-).build()
+).addMigrations(migration_1_2).build()
@@ -52,6 +52,9 @@ interface PersonDao {
     @Insert(onConflict = OnConflictStrategy.REPLACE)
     fun insert(person: Person)
 
+    @Upsert
+    fun upsertAll(persons: List<Person>)
+
     @Delete
     fun deleteAll(person: List<Person>)
 
@@ -60,4 +63,12 @@ interface PersonDao {
 
     @Query("SELECT * from media_metadata_person")
     fun getAll(): List<Person>
+
+    /**
+     * Deletes the persons which are not linked to any media anymore
+     *
+     * @return the number of deleted persons
+     */
+    @Query("DELETE FROM media_metadata_person WHERE NOT EXISTS (SELECT 1 FROM media_person_join WHERE media_person_join.personId = media_metadata_person.moviepedia_id)")
+    fun deleteOrphans(): Int
 }
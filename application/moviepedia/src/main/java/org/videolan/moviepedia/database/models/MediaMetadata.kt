@@ -121,6 +121,7 @@ fun MediaMetadataWithImages.tvEpisodeSubtitle(): String {
 
 @Entity(tableName = MEDIA_METADATA_PERSON_JOIN_TABLE_NAME,
         primaryKeys = ["mediaId", "personId", "type"],
+        indices = [Index("personId")],
         foreignKeys = [ForeignKey(entity = MediaMetadata::class,
                 parentColumns = arrayOf("moviepedia_id"),
                 childColumns = arrayOf("mediaId")), ForeignKey(entity = Person::class,
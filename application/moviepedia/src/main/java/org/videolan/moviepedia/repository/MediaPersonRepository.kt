@@ -56,7 +56,7 @@ import org.videolan.moviepedia.database.models.PersonType
 
 class MediaPersonRepository(private val mediaPersonActorJoinDao: MediaPersonJoinDao) : IOScopedObject() {
 
-    fun addPersons(mediaPersons: List<MediaPersonJoin>) = mediaPersonActorJoinDao.insertPersons(mediaPersons)
+    fun addPersons(mediaPersons: List<MediaPersonJoin>) = mediaPersonActorJoinDao.upsertPersons(mediaPersons)
     fun removeAllFor(moviepediaId: String) = mediaPersonActorJoinDao.removeAllFor(moviepediaId)
 
     fun getAll() = mediaPersonActorJoinDao.getAll()
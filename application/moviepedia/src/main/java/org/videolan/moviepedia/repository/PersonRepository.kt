@@ -60,9 +60,13 @@ class PersonRepository(private val personDao: PersonDao) : IOScopedObject() {
 
     fun addPersonImmediate(person: Person) = personDao.insert(person)
 
+    fun addPersonsImmediate(persons: List<Person>) = personDao.upsertAll(persons)
+
     fun getAll() = personDao.getAll()
 
     fun deleteAll(personsToRemove: List<Person>) = personDao.deleteAll(personsToRemove)
 
+    fun deleteOrphans() = personDao.deleteOrphans()
+
     companion object : SingletonHolder<PersonRepository, Context>({ PersonRepository(MoviePediaDatabase.getInstance(it).personDao()) })
 }
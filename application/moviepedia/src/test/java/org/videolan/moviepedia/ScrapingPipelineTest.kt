@@ -0,0 +1,172 @@
+package org.videolan.moviepedia
+
+import android.net.Uri
+import kotlinx.coroutines.delay
+import kotlinx.coroutines.runBlocking
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import org.robolectric.annotation.Config
+import org.videolan.moviepedia.models.resolver.ResolverBatchResult
+import org.videolan.moviepedia.models.resolver.ResolverCasting
+import org.videolan.moviepedia.models.resolver.ResolverImage
+import org.videolan.moviepedia.models.resolver.ResolverMedia
+import org.videolan.moviepedia.models.resolver.ResolverMediaType
+import org.videolan.moviepedia.models.resolver.ResolverResult
+import org.videolan.moviepedia.repository.MediaResolverApi
+import java.util.Date
+import java.util.concurrent.atomic.AtomicInteger
+
+@RunWith(RobolectricTestRunner::class)
+@Config(manifest = Config.NONE)
+class ScrapingPipelineTest {
+
+    @Test
+    fun whenScraping_allPagesAreBatchedAndSaved() = runBlocking {
+        val library = FakeLibrary(25)
+        val api = FakeResolverApi()
+        val store = FakeStore()
+
+        assertTrue(ScrapingPipeline(api, library, store, pageSize = 10, batchSize = 4).run())
+
+        assertEquals((0L until 25L).toSet(), library.retrieved)
+        assertEquals((0L until 25L).toList(), store.saved.sorted())
+        // 3 batches for each full page, 2 for the last one
+        assertEquals(8, api.batches.size)
+        assertTrue(api.batches.all { it.size <= 4 })
+        assertEquals(0, library.checkpoint)
+    }
+
+    @Test
+    fun whenScraping_retrievedMediaAreSkipped() = runBlocking {
+        val library = FakeLibrary(10).apply { retrieved.addAll(0L until 5L) }
+        val api = FakeResolverApi()
+
+        assertTrue(ScrapingPipeline(api, library, FakeStore(), pageSize = 10, batchSize = 10).run())
+
+        assertEquals(listOf((5L until 10L).toSet()), api.batches)
+    }
+
+    @Test
+    fun whenScraping_unresolvedMediaAreRetrieved() = runBlocking {
+        val library = FakeLibrary(6)
+        val api = FakeResolverApi(unresolved = setOf(1L, 3L))
+        val store = FakeStore()
+
+        assertTrue(ScrapingPipeline(api, library, store).run())
+
+        assertEquals(listOf(0L, 2L, 4L, 5L), store.saved.sorted())
+        assertEquals((0L until 6L).toSet(), library.retrieved)
+    }
+
+    @Test
+    fun whenScraping_concurrentRequestsAreBounded() = runBlocking {
+        val api = FakeResolverApi(latency = 20L)
+
+        assertTrue(ScrapingPipeline(api, FakeLibrary(50), FakeStore(), pageSize = 50, batchSize = 2, maxInFlight = 3).run())
+
+        assertEquals(25, api.batches.size)
+        assertEquals(3, api.maxInFlight)
+    }
+
+    @Test
+    fun whenAPageFails_theNextRunResumesFromIt() = runBlocking {
+        val library = FakeLibrary(30)
+        val api = FakeResolverApi(failing = 15L)
+
+        assertFalse(ScrapingPipeline(api, library, FakeStore(), pageSize = 10, batchSize = 5).run())
+        assertEquals(10, library.checkpoint)
+        assertEquals((0L until 10L).toSet() + (10L until 15L), library.retrieved)
+
+        val resumedApi = FakeResolverApi()
+        assertTrue(ScrapingPipeline(resumedApi, library, FakeStore(), pageSize = 10, batchSize = 5).run())
+        assertTrue(resumedApi.batches.flatten().all { it >= 10L })
+        assertEquals((0L until 30L).toSet(), library.retrieved)
+        assertEquals(0, library.checkpoint)
+    }
+
+    @Test
+    fun whenSavingFails_mediaAreScrapedAgain() = runBlocking {
+        val library = FakeLibrary(4)
+
+        assertTrue(ScrapingPipeline(FakeResolverApi(), library, FakeStore(failing = setOf(2L))).run())
+
+        assertEquals(setOf(0L, 1L, 3L), library.retrieved)
+    }
+
+    private class FakeLibrary(size: Int) : ScrapingPipeline.Library {
+        val ids = (0L until size.toLong()).toList()
+        val retrieved = HashSet<Long>()
+        override var checkpoint = 0
+
+        override fun getVideos(offset: Int, count: Int) = ids.drop(offset).take(count).map {
+            ScrapingPipeline.Item(it, Uri.parse("file:///sdcard/Movies/$it.mkv"), it in retrieved)
+        }
+
+        override fun setRetrieved(ids: Collection<Long>) {
+            retrieved.addAll(ids)
+        }
+    }
+
+    private class FakeStore(private val failing: Set<Long> = emptySet()) : ScrapingPipeline.Store {
+        val saved = ArrayList<Long>()
+
+        override suspend fun save(results: List<ScrapingPipeline.Result>): Collection<Long> {
+            results.forEach { if (it.id !in failing) saved.add(it.id) }
+            return results.map { it.id }.filter { it in failing }
+        }
+    }
+
+    private class FakeResolverApi(private val unresolved: Set<Long> = emptySet(), private val failing: Long = -1L, private val latency: Long = 0L) : MediaResolverApi() {
+        val batches = ArrayList<Set<Long>>()
+        private val inFlight = AtomicInteger()
+        var maxInFlight = 0
+
+        override suspend fun searchMediaBatch(filesToIndex: HashMap<Long, Uri>): List<ResolverBatchResult> {
+            synchronized(batches) {
+                batches.add(filesToIndex.keys.toSet())
+                maxInFlight = maxOf(maxInFlight, inFlight.incrementAndGet())
+            }
+            try {
+                if (latency > 0L) delay(latency)
+                if (failing in filesToIndex.keys) throw IllegalStateException("Network error")
+                return filesToIndex.keys.map { id ->
+                    object : ResolverBatchResult() {
+                        override fun getId() = id
+                        override fun getMedia() = if (id in unresolved) null else FakeMedia(id)
+                    }
+                }
+            } finally {
+                inFlight.decrementAndGet()
+            }
+        }
+
+        override suspend fun getMedia(showId: String): ResolverMedia = throw UnsupportedOperationException()
+        override suspend fun searchTitle(query: String): ResolverResult = throw UnsupportedOperationException()
+        override suspend fun getMediaCast(resolverId: String): ResolverCasting = throw UnsupportedOperationException()
+        override suspend fun searchMedia(uri: Uri): ResolverResult = throw UnsupportedOperationException()
+    }
+
+    private class FakeMedia(private val id: Long) : ResolverMedia() {
+        override fun mediaType() = ResolverMediaType.MOVIE
+        override fun showId() = ""
+        override fun mediaId() = "movie-$id"
+        override fun title() = "Movie $id"
+        override fun summary() = ""
+        override fun genres() = ""
+        override fun date(): Date? = null
+        override fun countries() = ""
+        override fun season(): Int? = null
+        override fun episode(): Int? = null
+        override fun year(): String? = null
+        override fun imageUri(languages: List<String>): Uri? = null
+        override fun backdropUri(languages: List<String>): Uri? = null
+        override fun getBackdrops(languages: List<String>): List<ResolverImage>? = null
+        override fun getPosters(languages: List<String>): List<ResolverImage>? = null
+        override fun getImageUriFromPath(path: String) = path
+        override fun getCardSubtitle(): String? = null
+    }
+}
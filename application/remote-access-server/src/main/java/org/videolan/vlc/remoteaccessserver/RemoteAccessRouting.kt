@@ -51,8 +51,10 @@ import io.ktor.server.application.call
 import io.ktor.server.auth.authenticate
 import io.ktor.server.http.content.staticFiles
 import io.ktor.server.plugins.origin
+import io.ktor.server.request.contentLength
 import io.ktor.server.request.receiveMultipart
 import io.ktor.server.request.receiveParameters
+import io.ktor.server.request.receiveStream
 import io.ktor.server.response.header
 import io.ktor.server.response.respond
 import io.ktor.server.response.respondBytes
@@ -62,13 +64,12 @@ import io.ktor.server.response.respondText
 import io.ktor.server.routing.Route
 import io.ktor.server.routing.get
 import io.ktor.server.routing.post
+import io.ktor.server.routing.put
 import kotlinx.coroutines.CoroutineScope
 import kotlinx.coroutines.Dispatchers
-import kotlinx.coroutines.TimeoutCancellationException
 import kotlinx.coroutines.delay
 import kotlinx.coroutines.launch
 import kotlinx.coroutines.withContext
-import kotlinx.coroutines.withTimeout
 import org.videolan.medialibrary.MLServiceLocator
 import org.videolan.medialibrary.interfaces.Medialibrary
 import org.videolan.medialibrary.interfaces.media.Album
@@ -112,6 +113,7 @@ import org.videolan.vlc.gui.helpers.FeedbackUtil
 import org.videolan.vlc.gui.helpers.VectorDrawableUtil
 import org.videolan.vlc.gui.helpers.getBitmapFromDrawable
 import org.videolan.vlc.gui.helpers.getColoredBitmapFromColor
+import org.videolan.vlc.gui.helpers.MedialibraryUtils
 import org.videolan.vlc.media.MediaUtils
 import org.videolan.vlc.media.PlaylistManager
 import org.videolan.vlc.media.ResumeStatus
@@ -122,11 +124,17 @@ import org.videolan.vlc.providers.medialibrary.sanitizeGroups
 import org.videolan.vlc.remoteaccessserver.RemoteAccessServer.Companion.getServerFiles
 import org.videolan.vlc.remoteaccessserver.RemoteAccessServer.PlayerStatus
 import org.videolan.vlc.remoteaccessserver.RemoteAccessSession.verifyLogin
+import org.videolan.vlc.remoteaccessserver.utils.ArtworkCache
+import org.videolan.vlc.remoteaccessserver.utils.ListPage
 import org.videolan.vlc.remoteaccessserver.utils.MediaZipUtils
+import org.videolan.vlc.remoteaccessserver.utils.UploadStore
+import org.videolan.vlc.remoteaccessserver.utils.respondJsonList
 import org.videolan.vlc.remoteaccessserver.utils.serveAudios
 import org.videolan.vlc.remoteaccessserver.utils.servePlaylists
 import org.videolan.vlc.remoteaccessserver.utils.serveSearch
 import org.videolan.vlc.remoteaccessserver.utils.serveVideos
+import org.videolan.vlc.remoteaccessserver.websockets.HEADER_EVENT_SEQUENCE
+import org.videolan.vlc.remoteaccessserver.websockets.PlaybackEventLog
 import org.videolan.vlc.remoteaccessserver.websockets.RemoteAccessWebSockets
 import org.videolan.vlc.remoteaccessserver.websockets.WSIncomingMessage
 import org.videolan.vlc.util.FileUtils
@@ -161,6 +169,14 @@ private const val TAG = "VLC/HttpSharingServer"
  */
 fun Route.setupRouting(appContext: Context, scope: CoroutineScope) {
     val settings = Settings.getInstance(appContext)
+    val uploads = UploadStore(File("${AndroidDevices.MediaFolders.EXTERNAL_PUBLIC_DOWNLOAD_DIRECTORY_URI.path}/uploads"), { name, received, total ->
+        RemoteAccessWebSockets.sendToAll(RemoteAccessServer.UploadProgress(name, received, total))
+    }) { file ->
+        // Index the uploaded media
+        val folder = file.parentFile?.toUri()?.toString() ?: return@UploadStore
+        if (MedialibraryUtils.isScanned(folder)) Medialibrary.getInstance().reload(folder) else MedialibraryUtils.addDir(folder, appContext)
+    }
+    scope.launch(Dispatchers.IO) { uploads.purge() }
     staticFiles("", File(getServerFiles(appContext)))
     //the client is requesting a new code.
     // if the formparameters "challenge" is sent. Remove the corresponding code
@@ -220,7 +236,7 @@ fun Route.setupRouting(appContext: Context, scope: CoroutineScope) {
             call.respondText("Failed to load index.html")
         }
     }
-    // Upload a file to the device
+    // Upload a file to the device, streamed to disk
     post("/upload-media") {
         verifyLogin(settings)
         var fileDescription = ""
@@ -233,21 +249,50 @@ fun Route.setupRouting(appContext: Context, scope: CoroutineScope) {
                     fileDescription = part.value
                 }
                 is PartData.FileItem -> {
-                    File("${AndroidDevices.MediaFolders.EXTERNAL_PUBLIC_DOWNLOAD_DIRECTORY_URI.path}/uploads").mkdirs()
                     fileName = part.originalFileName as String
-                    val fileBytes = part.streamProvider().readBytes()
-                    val file = File("${AndroidDevices.MediaFolders.EXTERNAL_PUBLIC_DOWNLOAD_DIRECTORY_URI.path}/uploads/$fileName")
-                    if (file.canonicalFile.parent?.startsWith(File("${AndroidDevices.MediaFolders.EXTERNAL_PUBLIC_DOWNLOAD_DIRECTORY_URI.path}/uploads").absolutePath) != true) {
+                    if (uploads.fileOf(fileName) == null) {
+                        part.dispose()
                         call.respond(HttpStatusCode.Unauthorized)
-                        throw (IllegalStateException("${file.canonicalFile.parent} is not a valid path"))
+                        throw (IllegalStateException("$fileName is not a valid path"))
                     }
-                    file.writeBytes(fileBytes)
+                    part.streamProvider().use { uploads.receive(fileName, it) }
                 }
                 else -> {}
             }
+            part.dispose()
         }
         call.respondText("$fileDescription is uploaded to 'uploads/$fileName'")
     }
+    // Get the number of bytes already received for a chunked upload, to resume it
+    get("/upload-media/status") {
+        verifyLogin(settings)
+        val name = call.request.queryParameters["name"]
+        val size = call.request.queryParameters["size"]?.toLongOrNull()
+        if (name == null || size == null || uploads.fileOf(name) == null) {
+            call.respond(HttpStatusCode.BadRequest)
+            return@get
+        }
+        val received = withContext(Dispatchers.IO) { uploads.received(name, size) }
+        call.respondJson(convertToJson(RemoteAccessServer.UploadProgress(name, received, size)))
+    }
+    // Upload a chunk of a file, appended at the offset where the previous chunks ended
+    put("/upload-media/chunk") {
+        verifyLogin(settings)
+        val name = call.request.queryParameters["name"]
+        val offset = call.request.queryParameters["offset"]?.toLongOrNull()
+        val size = call.request.queryParameters["size"]?.toLongOrNull()
+        if (name == null || offset == null || size == null || offset < 0L || offset > size || uploads.fileOf(name) == null) {
+            call.respond(HttpStatusCode.BadRequest)
+            return@put
+        }
+        try {
+            val received = call.receiveStream().use { uploads.receiveChunk(name, it, offset, size) }
+            call.respondJson(convertToJson(RemoteAccessServer.UploadProgress(name, received, size)))
+        } catch (e: UploadStore.UploadException) {
+            // The client has to resume from the offset we have
+            call.respondJson(convertToJson(RemoteAccessServer.UploadProgress(name, e.offset, size)), HttpStatusCode.Conflict)
+        }
+    }
     // Download a log file
     get("/download-logfile") {
         verifyLogin(settings)
@@ -461,73 +506,73 @@ fun Route.setupRouting(appContext: Context, scope: CoroutineScope) {
                 call.respond(HttpStatusCode.Forbidden)
                 return@get
             }
+            val page = ListPage.from(call.request.queryParameters)
+            if (page == null) {
+                call.respond(HttpStatusCode.BadRequest)
+                return@get
+            }
             val grouping = call.request.queryParameters["grouping"]?.toInt() ?: 0
             val groupId = call.request.queryParameters["group"]?.toLong() ?: 0L
             val folderId = call.request.queryParameters["folder"]?.toLong() ?: 0L
-            var groupTitle = ""
-            val videos = appContext.getFromMl {
-                if (groupId != 0L) {
-                    val result = getVideoGroup(groupId)?.let { group ->
-                        groupTitle = group.title
-                        group.media(Medialibrary.SORT_DEFAULT, false, false, false, group.mediaCount(), 0)
-                    }
-                    result
-                } else if (folderId != 0L) {
-                val result = getFolder(Folder.TYPE_FOLDER_VIDEO, folderId)?.let { folder ->
-                    groupTitle = folder.title
-                    folder.media(Folder.TYPE_FOLDER_VIDEO, Medialibrary.SORT_DEFAULT, false, false, false, folder.mediaCount(Folder.TYPE_FOLDER_VIDEO), 0)
-                }
-                result
-            } else when (grouping) {
-                    0 -> getVideos(Medialibrary.SORT_DEFAULT, false, false, false)
-                    1 -> getFolders(Folder.TYPE_FOLDER_VIDEO, Medialibrary.SORT_DEFAULT, false, false, false, 100000, 0)
-                    else -> getVideoGroups(Medialibrary.SORT_DEFAULT, false, false, false, 100000, 0).sanitizeGroups()
+            // The items and their count come from the same queries: the groups are sanitized one for one
+            val (group, folder, total) = appContext.getFromMl {
+                val group = if (groupId != 0L) getVideoGroup(groupId) else null
+                val folder = if (folderId != 0L) getFolder(Folder.TYPE_FOLDER_VIDEO, folderId) else null
+                val total = when {
+                    group != null -> group.mediaCount()
+                    folder != null -> folder.mediaCount(Folder.TYPE_FOLDER_VIDEO)
+                    grouping == 0 -> videoCount
+                    grouping == 1 -> getFoldersCount(Folder.TYPE_FOLDER_VIDEO)
+                    else -> getVideoGroupsCount(null)
                 }
+                Triple(group, folder, total)
             }
-            if (videos == null) {
+            if ((groupId != 0L && group == null) || (folderId != 0L && folder == null)) {
                 call.respond(HttpStatusCode.NotFound)
                 return@get
             }
-
-            val list = ArrayList<RemoteAccessServer.PlayQueueItem>(videos.size)
-            videos.forEach { video ->
-                when (video) {
-                    is MediaWrapper->list.add(video.toPlayQueueItem())
-                    is Folder -> list.add(video.toPlayQueueItem(appContext))
-                    is VideoGroup -> list.add(video.toPlayQueueItem(appContext))
+            val groupTitle = group?.title ?: folder?.title ?: ""
+            call.respondJsonList(page, total, groupTitle) { nbItems, offset ->
+                appContext.getFromMl {
+                    val videos = when {
+                        group != null -> group.media(Medialibrary.SORT_DEFAULT, false, false, false, nbItems, offset).toList()
+                        folder != null -> folder.media(Folder.TYPE_FOLDER_VIDEO, Medialibrary.SORT_DEFAULT, false, false, false, nbItems, offset).toList()
+                        grouping == 0 -> getPagedVideos(Medialibrary.SORT_DEFAULT, false, false, false, nbItems, offset).toList()
+                        grouping == 1 -> getFolders(Folder.TYPE_FOLDER_VIDEO, Medialibrary.SORT_DEFAULT, false, false, false, nbItems, offset).toList()
+                        else -> getVideoGroups(Medialibrary.SORT_DEFAULT, false, false, false, nbItems, offset).sanitizeGroups()
+                    }
+                    videos.mapNotNull { video ->
+                        when (video) {
+                            is MediaWrapper -> video.toPlayQueueItem()
+                            is Folder -> video.toPlayQueueItem(appContext)
+                            is VideoGroup -> video.toPlayQueueItem(appContext)
+                            else -> null
+                        }
+                    }
                 }
-
             }
-            val result = RemoteAccessServer.VideoListResult(list, groupTitle)
-            call.respondJson(convertToJson(result))
         }
         get("/longpolling") {
-            //Empty the queue if needed
-            if (RemoteAccessWebSockets.messageQueue.isNotEmpty()) {
-                val queue = mutableListOf<RemoteAccessServer.WSMessage>().apply {
-                    RemoteAccessWebSockets.messageQueue.drainTo(this)
-                }
-                call.respondJson(convertToJson(queue))
-                return@get
-            }
-            //block the request until a message is received
-            // The 3 second timeout is to avoid blocking forever
-            try {
-                val message = withTimeout(3000) { RemoteAccessWebSockets.onPlaybackEventChannel.receive() }
-                if (message.type == RemoteAccessServer.WSMessageType.BROWSER_DESCRIPTION) {
-                    call.respondJson(convertToJson(listOf(message)))
-                    return@get
-                }
-            } catch (e: TimeoutCancellationException) {
-                // Fall through to the next block of code
-            }
-            val remoteAccessServer = RemoteAccessServer.getInstance(appContext)
-            val messages = listOfNotNull(
-                remoteAccessServer.generatePlayQueue(),
-                PlayerStatus(PlaylistManager.showAudioPlayer.value == true),
-                remoteAccessServer.generateNowPlaying()
-            )
-            call.respondJson(convertToJson(messages))
+            val since = call.request.queryParameters["since"]?.toLongOrNull()
+            val delta = if (since != null) {
+                // Only send the messages published after the last one received by the client
+                PlaybackEventLog.await(since, 3000)
+            } else {
+                // Clients without sequence number get the whole state, after waiting for a message for 3 seconds at most,
+                // and the browser descriptions published while waiting. The state is only sent to this client.
+                val start = PlaybackEventLog.sequence
+                PlaybackEventLog.await(start, 3000)
+                val remoteAccessServer = RemoteAccessServer.getInstance(appContext)
+                PlaybackEventLog.wholeState(start, listOfNotNull(
+                    remoteAccessServer.generatePlayQueue(),
+                    PlayerStatus(PlaylistManager.showAudioPlayer.value == true),
+                    remoteAccessServer.generateNowPlaying()
+                ))
+            }
+            val json = delta.json
+            PlaybackEventLog.onSent(call.request.origin.remoteHost, json)
+            call.response.header(HEADER_EVENT_SEQUENCE, delta.sequence)
+            call.respondJson(json)
         }
         // Manage playback events
         get("/playback-event") {
@@ -555,13 +600,15 @@ fun Route.setupRouting(appContext: Context, scope: CoroutineScope) {
                 call.respond(HttpStatusCode.Forbidden)
                 return@get
             }
-            val albums = appContext.getFromMl { getAlbums(false, false) }
-
-            val list = ArrayList<RemoteAccessServer.PlayQueueItem>(albums.size)
-            albums.forEach { album ->
-                list.add(album.toPlayQueueItem())
+            val page = ListPage.from(call.request.queryParameters)
+            if (page == null) {
+                call.respond(HttpStatusCode.BadRequest)
+                return@get
+            }
+            val total = appContext.getFromMl { albumsCount }
+            call.respondJsonList(page, total) { nbItems, offset ->
+                appContext.getFromMl { getPagedAlbums(Medialibrary.SORT_DEFAULT, false, false, false, nbItems, offset).map { album -> album.toPlayQueueItem() } }
             }
-            call.respondJson(convertToJson(list))
         }
         // List of all the artists
         get("/artist-list") {
@@ -570,13 +617,15 @@ fun Route.setupRouting(appContext: Context, scope: CoroutineScope) {
                 call.respond(HttpStatusCode.Forbidden)
                 return@get
             }
-            val artists = appContext.getFromMl { getArtists(settings.getBoolean(KEY_ARTISTS_SHOW_ALL, false), false, false) }
-
-            val list = ArrayList<RemoteAccessServer.PlayQueueItem>(artists.size)
-            artists.forEach { artist ->
-                list.add(artist.toPlayQueueItem(appContext))
+            val page = ListPage.from(call.request.queryParameters)
+            if (page == null) {
+                call.respond(HttpStatusCode.BadRequest)
+                return@get
+            }
+            val total = appContext.getFromMl { getArtistsCount(settings.getBoolean(KEY_ARTISTS_SHOW_ALL, false)) }
+            call.respondJsonList(page, total) { nbItems, offset ->
+                appContext.getFromMl { getPagedArtists(settings.getBoolean(KEY_ARTISTS_SHOW_ALL, false), Medialibrary.SORT_DEFAULT, false, false, false, nbItems, offset).map { artist -> artist.toPlayQueueItem(appContext) } }
             }
-            call.respondJson(convertToJson(list))
         }
         // List of all the audio tracks
         get("/track-list") {
@@ -585,13 +634,15 @@ fun Route.setupRouting(appContext: Context, scope: CoroutineScope) {
                 call.respond(HttpStatusCode.Forbidden)
                 return@get
             }
-            val tracks = appContext.getFromMl { getAudio(Medialibrary.SORT_DEFAULT, false, false, false) }
-
-            val list = ArrayList<RemoteAccessServer.PlayQueueItem>(tracks.size)
-            tracks.forEach { track ->
-                list.add(track.toPlayQueueItem(defaultArtist = appContext.getString(R.string.unknown_artist)))
+            val page = ListPage.from(call.request.queryParameters)
+            if (page == null) {
+                call.respond(HttpStatusCode.BadRequest)
+                return@get
+            }
+            val total = appContext.getFromMl { audioCount }
+            call.respondJsonList(page, total) { nbItems, offset ->
+                appContext.getFromMl { getPagedAudio(Medialibrary.SORT_DEFAULT, false, false, false, nbItems, offset).map { track -> track.toPlayQueueItem(defaultArtist = appContext.getString(R.string.unknown_artist)) } }
             }
-            call.respondJson(convertToJson(list))
         }
         // List of all the audio genres
         get("/genre-list") {
@@ -600,13 +651,15 @@ fun Route.setupRouting(appContext: Context, scope: CoroutineScope) {
                 call.respond(HttpStatusCode.Forbidden)
                 return@get
             }
-            val genres = appContext.getFromMl { getGenres(false, false) }
-
-            val list = ArrayList<RemoteAccessServer.PlayQueueItem>(genres.size)
-            genres.forEach { genre ->
-                list.add(genre.toPlayQueueItem(appContext))
+            val page = ListPage.from(call.request.queryParameters)
+            if (page == null) {
+                call.respond(HttpStatusCode.BadRequest)
+                return@get
+            }
+            val total = appContext.getFromMl { genresCount }
+            call.respondJsonList(page, total) { nbItems, offset ->
+                appContext.getFromMl { getPagedGenres(Medialibrary.SORT_DEFAULT, false, false, false, nbItems, offset).map { genre -> genre.toPlayQueueItem(appContext) } }
             }
-            call.respondJson(convertToJson(list))
         }
         // Get an album details
         get("/album") {
@@ -715,33 +768,33 @@ fun Route.setupRouting(appContext: Context, scope: CoroutineScope) {
             }
             if (BuildConfig.DEBUG) Log.d(this::class.java.simpleName, "mediaId: $mediaId, mediaType: $mediaType, playlists: $playlists")
 
-            val medias = appContext.getFromMl {
+            // Only the ids are needed: the single media and the whole library lists are not loaded as MediaWrappers
+            val mediaIds = appContext.getFromMl {
                when (mediaType) {
-                    "album" -> getAlbum(mediaId).tracks
-                    "artist" -> getArtist(mediaId).tracks
-                    "genre" -> getGenre(mediaId).tracks
+                    "album" -> getAlbum(mediaId).tracks?.toIds()
+                    "artist" -> getArtist(mediaId).tracks?.toIds()
+                    "genre" -> getGenre(mediaId).tracks?.toIds()
                     "video-group" -> {
                         val group = getVideoGroup(mediaId)
-                        group.media(Medialibrary.SORT_DEFAULT, false, false, false, group.mediaCount(), 0)
+                        group.media(Medialibrary.SORT_DEFAULT, false, false, false, group.mediaCount(), 0)?.toIds()
                     }
                     "video-folder" -> {
                         val folder = getFolder(Folder.TYPE_FOLDER_VIDEO, mediaId)
-                        folder.media(Folder.TYPE_FOLDER_VIDEO, Medialibrary.SORT_DEFAULT, false, false, false, folder.mediaCount(Folder.TYPE_FOLDER_VIDEO), 0)
+                        folder.media(Folder.TYPE_FOLDER_VIDEO, Medialibrary.SORT_DEFAULT, false, false, false, folder.mediaCount(Folder.TYPE_FOLDER_VIDEO), 0)?.toIds()
                     }
-                    else -> arrayOf(getMedia(mediaId))
+                    "video-list" -> getVideoIds(Medialibrary.SORT_DEFAULT, false, false, false, 0, 0)
+                    "track-list" -> getAudioIds(Medialibrary.SORT_DEFAULT, false, false, false, 0, 0)
+                    else -> longArrayOf(mediaId)
                 }
-            } ?: run {
+            }
+            if (mediaIds.isNullOrEmpty()) {
                 call.respond(HttpStatusCode.NoContent)
                 return@post
             }
             appContext.getFromMl {
                 playlists.forEach {
-                    val playlist = getPlaylist(it.toLong(), true, false)
-                    medias.forEach {
-                        playlist.append(it.id)
-                    }
+                    getPlaylist(it.toLong(), true, false)?.append(mediaIds)
                 }
-
             }
 
             call.respondText("")
@@ -771,13 +824,15 @@ fun Route.setupRouting(appContext: Context, scope: CoroutineScope) {
                 call.respond(HttpStatusCode.Forbidden)
                 return@get
             }
-            val playlists = appContext.getFromMl { getPlaylists(Playlist.Type.All, false) }
-
-            val list = ArrayList<RemoteAccessServer.PlayQueueItem>(playlists.size)
-            playlists.forEach { playlist ->
-                list.add(playlist.toPlayQueueItem(appContext))
+            val page = ListPage.from(call.request.queryParameters)
+            if (page == null) {
+                call.respond(HttpStatusCode.BadRequest)
+                return@get
+            }
+            val total = appContext.getFromMl { playlistsCount }
+            call.respondJsonList(page, total) { nbItems, offset ->
+                appContext.getFromMl { getPagedPlaylists(Playlist.Type.All, Medialibrary.SORT_DEFAULT, false, false, false, nbItems, offset).map { playlist -> playlist.toPlayQueueItem(appContext) } }
             }
-            call.respondJson(convertToJson(list))
         }
         // Search media
         get("/search") {
@@ -1100,7 +1155,15 @@ fun Route.setupRouting(appContext: Context, scope: CoroutineScope) {
             val type = call.request.queryParameters["type"]
             val id = call.request.queryParameters["id"]
             type?.let { type ->
-
+                if (type !in arrayOf("browser", "video-group", "video-folder", "artist", "album", "genre")) {
+                    // All the tracks: compare their ids to the play queue before loading them
+                    val ids = appContext.getFromMl { getAudioIds(Medialibrary.SORT_DEFAULT, false, false, false, 0, 0) }
+                    val queue = RemoteAccessServer.getInstance(appContext).service?.playlistManager?.getMediaList()
+                    if (ids.isNotEmpty() && queue != null && queue.size == ids.size && queue.indices.all { queue[it].id == ids[it] }) {
+                        call.respond(HttpStatusCode.OK)
+                        return@get
+                    }
+                }
                 val medias = if (type == "browser") {
                     val path = call.request.queryParameters["path"] ?: kotlin.run {
                         call.respond(HttpStatusCode.NotFound)
@@ -1352,13 +1415,21 @@ fun Route.setupRouting(appContext: Context, scope: CoroutineScope) {
         get("/artwork") {
             var type = call.request.queryParameters["type"]
             val isBig = type?.endsWith("_big") == true
+            val artworkCache = ArtworkCache.getInstance(appContext)
+            val cacheKey = artworkCache.keyOf(type, call.request.queryParameters["id"], call.request.queryParameters["artwork"])
+            cacheKey?.let { key ->
+                artworkCache.get(key)?.let {
+                    call.respondArtwork(it)
+                    return@get
+                }
+            }
             if (type in arrayOf("folder", "network", "folder_big", "network_big")) {
                 call.request.queryParameters["artwork"]?.let { artworkUrl ->
                     if (artworkUrl.startsWith("http")) {
                         val bmp = HttpImageLoader.downloadBitmap(artworkUrl)
                         if (bmp != null) {
                             BitmapUtil.encodeImage(bmp, true)?.let {
-                                call.respondBytes(ContentType.Image.PNG) { it }
+                                call.respondArtwork(artworkCache, cacheKey, ContentType.Image.PNG, it)
                                 return@get
                             }
                         }
@@ -1367,7 +1438,7 @@ fun Route.setupRouting(appContext: Context, scope: CoroutineScope) {
                 val size = if (isBig) 256 else 54
                 BitmapUtil.encodeImage(BitmapUtil.vectorToBitmap(appContext, if (isBig) R.drawable.ic_folder_big else  R.drawable.ic_folder,
                     size, size), true)?.let {
-                    call.respondBytes(ContentType.Image.PNG) { it }
+                    call.respondArtwork(artworkCache, cacheKey, ContentType.Image.PNG, it)
                     return@get
                 }
             }
@@ -1379,13 +1450,13 @@ fun Route.setupRouting(appContext: Context, scope: CoroutineScope) {
                         val bmp = ThumbnailsProvider.getVideoGroupThumbnail(group, 512)
                         if (bmp != null) {
                             BitmapUtil.encodeImage(bmp, true)?.let {
-                                call.respondBytes(ContentType.Image.PNG) { it }
+                                call.respondArtwork(artworkCache, cacheKey, ContentType.Image.PNG, it)
                                 return@get
                             }
                         }
                 }
                 BitmapUtil.encodeImage(BitmapUtil.vectorToBitmap(appContext,  if (isBig) R.drawable.ic_folder_big else  R.drawable.ic_folder, 256, 256), true)?.let {
-                    call.respondBytes(ContentType.Image.PNG) { it }
+                    call.respondArtwork(artworkCache, cacheKey, ContentType.Image.PNG, it)
                     return@get
                 }
             }
@@ -1397,43 +1468,43 @@ fun Route.setupRouting(appContext: Context, scope: CoroutineScope) {
                         val bmp = ThumbnailsProvider.getFolderThumbnail(folder, 512)
                         if (bmp != null) {
                             BitmapUtil.encodeImage(bmp, true)?.let {
-                                call.respondBytes(ContentType.Image.PNG) { it }
+                                call.respondArtwork(artworkCache, cacheKey, ContentType.Image.PNG, it)
                                 return@get
                             }
                         }
                 }
                 BitmapUtil.encodeImage(BitmapUtil.vectorToBitmap(appContext,  if (type.endsWith("_big")) R.drawable.ic_folder_big else  R.drawable.ic_folder, 256, 256), true)?.let {
-                    call.respondBytes(ContentType.Image.PNG) { it }
+                    call.respondArtwork(artworkCache, cacheKey, ContentType.Image.PNG, it)
                     return@get
                 }
             }
             if (type == "new-stream" || type == "new-stream_big") {
                 BitmapUtil.encodeImage(BitmapUtil.vectorToBitmap(appContext, if (type.endsWith("_big")) R.drawable.ic_remote_stream_add_big else R.drawable.ic_remote_stream_add, 256, 256), true)?.let {
-                    call.respondBytes(ContentType.Image.PNG) { it }
+                    call.respondArtwork(artworkCache, cacheKey, ContentType.Image.PNG, it)
                     return@get
                 }
             }
             if (type == "file") {
                 BitmapUtil.encodeImage(BitmapUtil.vectorToBitmap(appContext, R.drawable.ic_unknown, 256, 256), true)?.let {
-                    call.respondBytes(ContentType.Image.PNG) { it }
+                    call.respondArtwork(artworkCache, cacheKey, ContentType.Image.PNG, it)
                     return@get
                 }
             }
             if (type == "file_big") {
                 BitmapUtil.encodeImage(BitmapUtil.vectorToBitmap(appContext, R.drawable.ic_unknown_big, 256, 256), true)?.let {
-                    call.respondBytes(ContentType.Image.PNG) { it }
+                    call.respondArtwork(artworkCache, cacheKey, ContentType.Image.PNG, it)
                     return@get
                 }
             }
             if (type == "subtitle") {
                 BitmapUtil.encodeImage(BitmapUtil.vectorToBitmap(appContext, R.drawable.ic_subtitles, 256, 256), true)?.let {
-                    call.respondBytes(ContentType.Image.PNG) { it }
+                    call.respondArtwork(artworkCache, cacheKey, ContentType.Image.PNG, it)
                     return@get
                 }
             }
             if (type == "subtitle_big") {
                 BitmapUtil.encodeImage(BitmapUtil.vectorToBitmap(appContext, R.drawable.ic_subtitles, 512, 512), true)?.let {
-                    call.respondBytes(ContentType.Image.PNG) { it }
+                    call.respondArtwork(artworkCache, cacheKey, ContentType.Image.PNG, it)
                     return@get
                 }
             }
@@ -1463,9 +1534,8 @@ fun Route.setupRouting(appContext: Context, scope: CoroutineScope) {
                            .appendQueryParameter(ArtworkProvider.BIG_VARIANT, bigVariant)
                            .appendQueryParameter(ArtworkProvider.REMOTE_ACCESS, "1")
                             .build())
-                    cr.openInputStream(uri)?.let { inputStream ->
-                        call.respondBytes(ContentType.Image.JPEG) { inputStream.toByteArray() }
-                        inputStream.close()
+                    cr.openInputStream(uri)?.use { inputStream ->
+                        call.respondArtwork(artworkCache, cacheKey, ContentType.Image.JPEG, inputStream.toByteArray())
                         return@get
                     }
                 }
@@ -1474,8 +1544,9 @@ fun Route.setupRouting(appContext: Context, scope: CoroutineScope) {
                 artworkMrl?.let { coverArt ->
                     AudioUtil.readCoverBitmap(Uri.decode(coverArt), 512)?.let { bitmap ->
                         BitmapUtil.convertBitmapToByteArray(bitmap)?.let {
-
-                            call.respondBytes(ContentType.Image.JPEG) { it }
+                            // the current media cover is only cached when explicitly requested
+                            val key = if (call.request.queryParameters["artwork"] != null) cacheKey else null
+                            call.respondArtwork(artworkCache, key, ContentType.Image.JPEG, it)
                             return@get
                         }
                     }
@@ -1485,7 +1556,7 @@ fun Route.setupRouting(appContext: Context, scope: CoroutineScope) {
                 RemoteAccessServer.getInstance(appContext).service?.currentMediaWrapper?.let {
                     ThumbnailsProvider.getVideoThumbnail(it, 512)?.let {
                         BitmapUtil.encodeImage(it)?.let {
-                            call.respondBytes(ContentType.Image.PNG) { it }
+                            call.respondArtwork(artworkCache, null, ContentType.Image.PNG, it)
                             return@get
                         }
                     }
@@ -1495,8 +1566,7 @@ fun Route.setupRouting(appContext: Context, scope: CoroutineScope) {
                 appContext.getBitmapFromDrawable(R.drawable.ic_no_media, 512, 512)?.let {
 
                     BitmapUtil.encodeImage(it, true)?.let {
-
-                        call.respondBytes(ContentType.Image.PNG) { it }
+                        call.respondArtwork(artworkCache, null, ContentType.Image.PNG, it)
                         return@get
                     }
                 }
@@ -1508,6 +1578,26 @@ fun Route.setupRouting(appContext: Context, scope: CoroutineScope) {
     }
 }
 
+/**
+ * Responds with an artwork, storing it in the [ArtworkCache] if [key] is not null
+ */
+private suspend fun ApplicationCall.respondArtwork(cache: ArtworkCache, key: String?, contentType: ContentType, bytes: ByteArray) {
+    if (key == null) {
+        response.header(HttpHeaders.CacheControl, "no-cache")
+        respondBytes(contentType) { bytes }
+    } else respondArtwork(cache.put(key, contentType.toString(), bytes))
+}
+
+/**
+ * Responds with a cached artwork, or with a 304 if the client already has it
+ */
+private suspend fun ApplicationCall.respondArtwork(entry: ArtworkCache.Entry) {
+    response.header(HttpHeaders.ETag, entry.etag)
+    response.header(HttpHeaders.CacheControl, entry.cacheControl)
+    if (entry.matches(request.headers[HttpHeaders.IfNoneMatch])) respond(HttpStatusCode.NotModified)
+    else respondBytes(ContentType.parse(entry.contentType)) { entry.bytes }
+}
+
 val attempts:ArrayList<Pair<String, Long>> = arrayListOf()
 private suspend fun isFlooding(appContext: Context, ip:String): Boolean {
     val now = System.currentTimeMillis()
@@ -1722,6 +1812,8 @@ fun Genre.toPlayQueueItem(appContext: Context) = RemoteAccessServer.PlayQueueIte
 fun Playlist.toPlayQueueItem(appContext: Context) = RemoteAccessServer.PlayQueueItem(id, title, appContext.resources.getQuantityString(R.plurals.track_quantity, tracksCount, tracksCount), 0, artworkMrl
         ?: "", false, "", favorite = isFavorite)
 
+private fun Array<MediaWrapper>.toIds() = LongArray(size) { this[it].id }
+
 fun MediaWrapper.toPlayQueueItem(defaultArtist: String = "") = RemoteAccessServer.PlayQueueItem(id, title, artistName?.ifEmpty { defaultArtist } ?: defaultArtist, length, artworkMrl
         ?: "", false, generateResolutionClass(width, height) ?: "", progress = time, played = seen > 0, favorite = isFavorite, path = uri.toString())
 
@@ -121,6 +121,8 @@ import org.videolan.vlc.PlaybackService.Companion.playerSleepTime
 import org.videolan.vlc.gui.DialogActivity
 import org.videolan.vlc.media.PlaylistManager
 import org.videolan.vlc.remoteaccessserver.ssl.SecretGenerator
+import org.videolan.vlc.remoteaccessserver.utils.ArtworkCache
+import org.videolan.vlc.remoteaccessserver.websockets.PlaybackEventLog
 import org.videolan.vlc.remoteaccessserver.websockets.RemoteAccessWebSockets
 import org.videolan.vlc.remoteaccessserver.websockets.RemoteAccessWebSockets.setupWebSockets
 import org.videolan.vlc.util.FileUtils
@@ -242,6 +244,8 @@ class RemoteAccessServer(private val context: Context) : PlaybackService.Callbac
         Settings.getInstance(context).putSingle(
             KEY_REMOTE_ACCESS_LAST_STATE_STOPPED, false)
         clearFileDownloads()
+        // Listen to the thumbnail events as soon as possible to keep the artwork cache valid
+        ArtworkCache.getInstance(context)
         Log.i(TAG, "Server connecting")
         _serverStatus.postValue(ServerStatus.CONNECTING)
         scope.launch {
@@ -335,6 +339,8 @@ class RemoteAccessServer(private val context: Context) : PlaybackService.Callbac
         clearFileDownloads()
         Log.i(TAG, "Server stopping")
         _serverStatus.postValue(ServerStatus.STOPPING)
+        if (BuildConfig.DEBUG) Log.d(TAG, "Bytes sent to the clients: ${PlaybackEventLog.bytesSent()}")
+        PlaybackEventLog.clear()
         withContext(Dispatchers.IO) {
             RemoteAccessWebSockets.closeAllSessions()
             if (::engine.isInitialized) engine.stop()
@@ -1027,6 +1033,7 @@ class RemoteAccessServer(private val context: Context) : PlaybackService.Callbac
     data class PlaybackControlForbidden(val forbidden: Boolean = true): WSMessage(WSMessageType.PLAYBACK_CONTROL_FORBIDDEN)
     data class GenericError(val text: String): WSMessage(WSMessageType.ERROR)
     data class NetworkShares(val shares: List<PlayQueueItem>): WSMessage(WSMessageType.NETWORK_SHARES)
+    data class UploadProgress(val name: String, val received: Long, val total: Long, val done: Boolean = total in 0..received): WSMessage(WSMessageType.UPLOAD_PROGRESS)
     data class SearchResults(val albums: List<PlayQueueItem>, val artists: List<PlayQueueItem>, val genres: List<PlayQueueItem>, val playlists: List<PlayQueueItem>, val videos: List<PlayQueueItem>, val tracks: List<PlayQueueItem>)
     data class BreadcrumbItem(val title: String, val path: String)
     data class BrowsingResult(val content: List<PlayQueueItem>, val breadcrumb: List<BreadcrumbItem>)
@@ -1078,6 +1085,8 @@ class RemoteAccessServer(private val context: Context) : PlaybackService.Callbac
         @Json(name = "error")
         ERROR,
         @Json(name = "network-shares")
-        NETWORK_SHARES
+        NETWORK_SHARES,
+        @Json(name = "upload-progress")
+        UPLOAD_PROGRESS
     }
 }
\ No newline at end of file
@@ -0,0 +1,352 @@
+/*
+ * ************************************************************************
+ *  ArtworkCache.kt
+ * *************************************************************************
+ * Copyright © 2026 VLC authors and VideoLAN
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston MA 02110-1301, USA.
+ * **************************************************************************
+ *
+ *
+ */
+
+package org.videolan.vlc.remoteaccessserver.utils
+
+import android.content.Context
+import android.util.Log
+import android.util.LruCache
+import androidx.annotation.WorkerThread
+import androidx.lifecycle.Observer
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.delay
+import kotlinx.coroutines.launch
+import org.videolan.medialibrary.EventTools
+import org.videolan.medialibrary.interfaces.Medialibrary
+import org.videolan.medialibrary.interfaces.media.MediaWrapper
+import org.videolan.tools.AppScope
+import org.videolan.tools.SingletonHolder
+import java.io.DataInputStream
+import java.io.DataOutputStream
+import java.io.File
+import java.io.IOException
+import java.security.MessageDigest
+
+private const val TAG = "VLC/ArtworkCache"
+private const val MAGIC = 0x564C4143 // VLAC
+private const val MEMORY_BUDGET = 8 * 1024 * 1024
+private const val DISK_BUDGET = 64L * 1024 * 1024
+private const val STATIC_MAX_AGE = 365 * 24 * 3600
+private const val DOWNLOAD_MAX_AGE = 24 * 3600
+private const val INVALIDATION_DELAY = 2000L
+
+const val ARTWORK_KIND_MEDIA = "media"
+const val ARTWORK_KIND_VIDEO = "video"
+const val ARTWORK_KIND_ALBUM = "album"
+const val ARTWORK_KIND_ARTIST = "artist"
+const val ARTWORK_KIND_GENRE = "genre"
+const val ARTWORK_KIND_PLAYLIST = "playlist"
+const val ARTWORK_KIND_VIDEO_GROUP = "video-group"
+const val ARTWORK_KIND_VIDEO_FOLDER = "video-folder"
+
+/**
+ * Kinds computed from the medialibrary content: their artwork can change and has to be invalidated
+ */
+private val MEDIALIBRARY_KINDS = arrayOf(ARTWORK_KIND_MEDIA, ARTWORK_KIND_VIDEO, ARTWORK_KIND_ALBUM, ARTWORK_KIND_ARTIST,
+        ARTWORK_KIND_GENRE, ARTWORK_KIND_PLAYLIST, ARTWORK_KIND_VIDEO_GROUP, ARTWORK_KIND_VIDEO_FOLDER)
+private val STATIC_KINDS = arrayOf("folder", "network", "new-stream", "file", "subtitle")
+
+/**
+ * Memory and disk LRU cache of the encoded images served by the remote access `/artwork` route.
+ *
+ * Entries are keyed by kind, id, size variant and artwork url, and carry an ETag computed from their content
+ * so that the browsers can revalidate them with If-None-Match.
+ * The medialibrary entries are invalidated on thumbnail events and medialibrary updates. The updates without ids
+ * invalidate a whole kind, at most once every [INVALIDATION_DELAY] ms as they come in bursts during a scan.
+ * As these events are missed while the cache is not alive, the medialibrary entries saved on disk by a previous
+ * instance are dropped. The browsers have to revalidate the medialibrary entries on each use, so that they see
+ * the invalidations.
+ */
+class ArtworkCache(context: Context) : Medialibrary.MediaCb, Medialibrary.AlbumsCb, Medialibrary.ArtistsCb,
+        Medialibrary.GenresCb, Medialibrary.PlaylistsCb, Medialibrary.MediaGroupCb, Medialibrary.FoldersCb {
+
+    class Entry(val key: String, val contentType: String, val etag: String, val bytes: ByteArray) {
+        val cacheControl: String
+            get() {
+                val (kind, id, _, artwork) = key.split('|', limit = 4)
+                return when {
+                    id.isEmpty() && artwork.isEmpty() -> "public, max-age=$STATIC_MAX_AGE, immutable"
+                    kind in STATIC_KINDS -> "public, max-age=$DOWNLOAD_MAX_AGE"
+                    else -> "no-cache"
+                }
+            }
+
+        /**
+         * @param ifNoneMatch the If-None-Match request header
+         * @return true if the client already has this entry
+         */
+        fun matches(ifNoneMatch: String?) = ifNoneMatch?.split(',')?.any {
+            val tag = it.trim().removePrefix("W/")
+            tag == "*" || tag == etag
+        } ?: false
+    }
+
+    private val memory = object : LruCache<String, Entry>(MEMORY_BUDGET) {
+        override fun sizeOf(key: String, value: Entry) = value.bytes.size
+    }
+    private val directory = File(context.cacheDir, "remote_artwork")
+    private var diskSize = 0L
+    private val pendingKinds = HashSet<String>()
+
+    private val thumbnailObserver = Observer<MediaWrapper?> { media ->
+        if (media == null) return@Observer
+        AppScope.launch(Dispatchers.IO) { invalidate(listOf(ARTWORK_KIND_MEDIA, ARTWORK_KIND_VIDEO), longArrayOf(media.id)) }
+        scheduleInvalidation(ARTWORK_KIND_VIDEO_GROUP)
+        scheduleInvalidation(ARTWORK_KIND_VIDEO_FOLDER)
+    }
+
+    init {
+        Medialibrary.getInstance().apply {
+            addMediaCb(this@ArtworkCache)
+            addAlbumsCb(this@ArtworkCache)
+            addArtistsCb(this@ArtworkCache)
+            addGenreCb(this@ArtworkCache)
+            addPlaylistCb(this@ArtworkCache)
+            addMediaGroupCb(this@ArtworkCache)
+            addFoldersCb(this@ArtworkCache)
+        }
+        AppScope.launch(Dispatchers.Main) { EventTools.getInstance().lastThumb.observeForever(thumbnailObserver) }
+        AppScope.launch(Dispatchers.IO) {
+            synchronized(directory) {
+                directory.mkdirs()
+                // Computed from scratch as the entries put before the scan are also listed
+                var size = 0L
+                directory.listFiles()?.forEach { file ->
+                    if (file.name.substringBefore('_') in MEDIALIBRARY_KINDS) file.delete()
+                    else size += file.length()
+                }
+                diskSize = size
+            }
+        }
+    }
+
+    /**
+     * Computes the cache key of an `/artwork` request
+     *
+     * @return the key, or null if the response depends on the current playback and cannot be cached
+     */
+    fun keyOf(type: String?, id: String?, artwork: String?): String? {
+        val variant = if (type?.endsWith("_big") == true) "big" else "small"
+        val kind = kindOf(type)
+        if (id == null && artwork == null && kind in MEDIALIBRARY_KINDS && kind != ARTWORK_KIND_VIDEO_GROUP && kind != ARTWORK_KIND_VIDEO_FOLDER) return null
+        return "$kind|${id ?: ""}|$variant|${artwork ?: ""}"
+    }
+
+    /**
+     * Gets an entry from the memory cache, or from the disk cache if it has been evicted from memory
+     */
+    fun get(key: String): Entry? {
+        memory.get(key)?.let { return it }
+        val entry = synchronized(directory) {
+            val file = fileOf(key)
+            if (!file.exists()) return null
+            try {
+                DataInputStream(file.inputStream().buffered()).use { input ->
+                    if (input.readInt() != MAGIC || input.readUTF() != key) return null
+                    val contentType = input.readUTF()
+                    val etag = input.readUTF()
+                    val bytes = ByteArray(input.readInt())
+                    input.readFully(bytes)
+                    file.setLastModified(System.currentTimeMillis())
+                    Entry(key, contentType, etag, bytes)
+                }
+            } catch (e: IOException) {
+                Log.w(TAG, "Unable to read $key", e)
+                diskSize -= file.length()
+                file.delete()
+                return null
+            }.also {
+                // Under the lock, so that an invalidation can't happen between the read and the insertion
+                memory.put(key, it)
+            }
+        }
+        return entry
+    }
+
+    /**
+     * Stores an encoded image in the memory and disk caches
+     *
+     * @return the new entry
+     */
+    fun put(key: String, contentType: String, bytes: ByteArray): Entry {
+        val entry = Entry(key, contentType, etagOf(bytes), bytes)
+        memory.put(key, entry)
+        synchronized(directory) {
+            val file = fileOf(key)
+            val tmp = File(directory, "${file.name}.tmp")
+            try {
+                directory.mkdirs()
+                DataOutputStream(tmp.outputStream().buffered()).use { output ->
+                    output.writeInt(MAGIC)
+                    output.writeUTF(key)
+                    output.writeUTF(contentType)
+                    output.writeUTF(entry.etag)
+                    output.writeInt(bytes.size)
+                    output.write(bytes)
+                }
+                diskSize -= file.length()
+                if (!tmp.renameTo(file)) throw IOException("Unable to rename ${tmp.name}")
+                diskSize += file.length()
+                if (diskSize > DISK_BUDGET) trim()
+            } catch (e: IOException) {
+                Log.w(TAG, "Unable to write $key", e)
+                tmp.delete()
+            }
+        }
+        return entry
+    }
+
+    /**
+     * Drops the entries of all the size variants of the [ids] of several [kinds], listing the directory once.
+     * The files are deleted first so that a concurrent [get] cannot reload a stale entry in memory.
+     */
+    @WorkerThread
+    fun invalidate(kinds: List<String>, ids: LongArray) {
+        val prefixes = HashSet<String>(kinds.size * ids.size)
+        val keys = HashSet<String>(kinds.size * ids.size)
+        for (kind in kinds) for (id in ids) {
+            prefixes.add("${kind}_${id}_")
+            keys.add("$kind|$id|")
+        }
+        synchronized(directory) {
+            directory.listFiles()?.forEach { file ->
+                // The file names are kind_id_hash
+                val name = file.name
+                val prefixEnd = name.indexOf('_', name.indexOf('_') + 1)
+                if (prefixEnd != -1 && name.substring(0, prefixEnd + 1) in prefixes) {
+                    diskSize -= file.length()
+                    file.delete()
+                }
+            }
+        }
+        memory.snapshot().keys.forEach { key ->
+            val prefixEnd = key.indexOf('|', key.indexOf('|') + 1)
+            if (prefixEnd != -1 && key.substring(0, prefixEnd + 1) in keys) memory.remove(key)
+        }
+    }
+
+    /**
+     * Drops all the entries of a kind
+     */
+    @WorkerThread
+    fun invalidateKind(kind: String) {
+        deleteFiles("${kind}_")
+        memory.snapshot().keys.forEach { if (it.startsWith("$kind|")) memory.remove(it) }
+    }
+
+    /**
+     * Invalidates a kind after [INVALIDATION_DELAY] ms, merging the requests received in the meantime
+     */
+    private fun scheduleInvalidation(kind: String) {
+        synchronized(pendingKinds) { if (!pendingKinds.add(kind)) return }
+        AppScope.launch(Dispatchers.IO) {
+            delay(INVALIDATION_DELAY)
+            synchronized(pendingKinds) { pendingKinds.remove(kind) }
+            invalidateKind(kind)
+        }
+    }
+
+    private fun deleteFiles(prefix: String) = synchronized(directory) {
+        directory.listFiles()?.forEach { file ->
+            if (file.name.startsWith(prefix)) {
+                diskSize -= file.length()
+                file.delete()
+            }
+        }
+    }
+
+    /**
+     * Deletes the least recently used files until the disk cache uses 3/4 of its budget
+     */
+    private fun trim() {
+        val files = directory.listFiles()?.sortedBy { it.lastModified() } ?: return
+        for (file in files) {
+            if (diskSize <= DISK_BUDGET * 3 / 4) break
+            diskSize -= file.length()
+            file.delete()
+        }
+    }
+
+    private fun fileOf(key: String): File {
+        val (kind, id) = key.split('|', limit = 3)
+        return File(directory, "${kind}_${id}_${sha1(key.toByteArray()).substring(0, 24)}")
+    }
+
+    private fun kindOf(type: String?) = when (val kind = type?.removeSuffix("_big")) {
+        null -> ARTWORK_KIND_MEDIA
+        in MEDIALIBRARY_KINDS, in STATIC_KINDS -> kind
+        else -> ARTWORK_KIND_MEDIA
+    }
+
+    private fun etagOf(bytes: ByteArray) = "\"${sha1(bytes).substring(0, 16)}\""
+
+    private fun sha1(bytes: ByteArray) = MessageDigest.getInstance("SHA-1").digest(bytes).joinToString("") { "%02x".format(it) }
+
+    override fun onMediaAdded() {}
+
+    override fun onMediaModified() {}
+
+    override fun onMediaDeleted(id: LongArray) {
+        AppScope.launch(Dispatchers.IO) { invalidate(listOf(ARTWORK_KIND_MEDIA, ARTWORK_KIND_VIDEO), id) }
+    }
+
+    override fun onMediaConvertedToExternal(id: LongArray) = onMediaDeleted(id)
+
+    override fun onAlbumsAdded() {}
+
+    override fun onAlbumsModified() = scheduleInvalidation(ARTWORK_KIND_ALBUM)
+
+    override fun onAlbumsDeleted() = scheduleInvalidation(ARTWORK_KIND_ALBUM)
+
+    override fun onArtistsAdded() {}
+
+    override fun onArtistsModified() = scheduleInvalidation(ARTWORK_KIND_ARTIST)
+
+    override fun onArtistsDeleted() = scheduleInvalidation(ARTWORK_KIND_ARTIST)
+
+    override fun onGenresAdded() {}
+
+    override fun onGenresModified() = scheduleInvalidation(ARTWORK_KIND_GENRE)
+
+    override fun onGenresDeleted() = scheduleInvalidation(ARTWORK_KIND_GENRE)
+
+    override fun onPlaylistsAdded() {}
+
+    override fun onPlaylistsModified() = scheduleInvalidation(ARTWORK_KIND_PLAYLIST)
+
+    override fun onPlaylistsDeleted() = scheduleInvalidation(ARTWORK_KIND_PLAYLIST)
+
+    override fun onMediaGroupsAdded() {}
+
+    override fun onMediaGroupsModified() = scheduleInvalidation(ARTWORK_KIND_VIDEO_GROUP)
+
+    override fun onMediaGroupsDeleted() = scheduleInvalidation(ARTWORK_KIND_VIDEO_GROUP)
+
+    override fun onFoldersAdded() {}
+
+    override fun onFoldersModified() = scheduleInvalidation(ARTWORK_KIND_VIDEO_FOLDER)
+
+    override fun onFoldersDeleted() = scheduleInvalidation(ARTWORK_KIND_VIDEO_FOLDER)
+
+    companion object : SingletonHolder<ArtworkCache, Context>({ ArtworkCache(it.applicationContext) })
+}
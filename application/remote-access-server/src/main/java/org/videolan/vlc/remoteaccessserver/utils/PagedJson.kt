@@ -0,0 +1,117 @@
+/*
+ * ************************************************************************
+ *  PagedJson.kt
+ * *************************************************************************
+ * Copyright © 2026 VLC authors and VideoLAN
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston MA 02110-1301, USA.
+ * **************************************************************************
+ *
+ *
+ */
+
+package org.videolan.vlc.remoteaccessserver.utils
+
+import com.squareup.moshi.JsonAdapter
+import com.squareup.moshi.JsonWriter
+import com.squareup.moshi.Moshi
+import io.ktor.http.ContentType
+import io.ktor.http.Parameters
+import io.ktor.server.application.ApplicationCall
+import io.ktor.server.response.header
+import io.ktor.server.response.respondOutputStream
+import okio.buffer
+import okio.sink
+import org.videolan.vlc.remoteaccessserver.RemoteAccessServer
+
+/**
+ * Number of items loaded from the medialibrary at once while streaming a list
+ */
+private const val CHUNK_SIZE = 200
+const val MAX_PAGE_SIZE = 5000
+const val HEADER_NEXT_CURSOR = "X-Next-Cursor"
+const val HEADER_TOTAL_COUNT = "X-Total-Count"
+
+private val playQueueItemAdapter: JsonAdapter<RemoteAccessServer.PlayQueueItem> by lazy {
+    Moshi.Builder().build().adapter(RemoteAccessServer.PlayQueueItem::class.java)
+}
+
+/**
+ * Page of a list requested with the `cursor` and `count` query parameters.
+ * The cursor is opaque for the clients: they only send back the [HEADER_NEXT_CURSOR] value of the previous page.
+ * Without a `count`, the whole list is sent, as the web app expects.
+ *
+ * @property offset the index of the first item of the page
+ * @property count the maximum number of items of the page
+ */
+class ListPage(val offset: Int, val count: Int) {
+
+    /**
+     * @return the cursor of the page following this one, or null if this page reaches the end of a list of [total] items
+     */
+    fun nextCursor(total: Int) = if (count != Int.MAX_VALUE && offset + count < total) (offset + count).toString(36) else null
+
+    companion object {
+        /**
+         * @return the requested page, or null if the parameters are invalid
+         */
+        fun from(parameters: Parameters): ListPage? {
+            val offset = parameters["cursor"]?.let { it.toIntOrNull(36) ?: return null } ?: 0
+            val count = parameters["count"]?.let { it.toIntOrNull() ?: return null }?.coerceAtMost(MAX_PAGE_SIZE) ?: Int.MAX_VALUE
+            if (offset < 0 || count <= 0) return null
+            return ListPage(offset, count)
+        }
+    }
+}
+
+/**
+ * Streams a list of [RemoteAccessServer.PlayQueueItem] to the response channel, loading it chunk by chunk
+ * so that neither the medialibrary items nor the JSON string of a large list have to be kept in memory.
+ * The pagination state is sent in the [HEADER_TOTAL_COUNT] and [HEADER_NEXT_CURSOR] headers to keep the body format.
+ *
+ * The paged queries skip the items they can't load, so a chunk can be shorter than requested: the offsets always
+ * move by the requested size to stay aligned with the medialibrary ones. When the first chunk is expected to reach
+ * the end of the list, the total is the number of items actually sent.
+ *
+ * @param page the page to send
+ * @param total the total number of items of the list, counted from the same source as the [loader] items
+ * @param title if not null, the list is wrapped in an object with this `item` field, as [RemoteAccessServer.VideoListResult]
+ * @param loader loads and converts [CHUNK_SIZE] items at most from an offset, in a single medialibrary call
+ */
+suspend fun ApplicationCall.respondJsonList(page: ListPage, total: Int, title: String? = null, loader: suspend (nbItems: Int, offset: Int) -> List<RemoteAccessServer.PlayQueueItem>) {
+    var nbItems = minOf(CHUNK_SIZE, page.count)
+    var items = if (page.offset < total) loader(nbItems, page.offset) else emptyList()
+    val count = if (page.offset + nbItems >= total) minOf(total, page.offset + items.size) else total
+    response.header(HEADER_TOTAL_COUNT, count)
+    page.nextCursor(count)?.let { response.header(HEADER_NEXT_CURSOR, it) }
+    respondOutputStream(ContentType.Application.Json) {
+        JsonWriter.of(sink().buffer()).use { writer ->
+            if (title != null) writer.beginObject().name("content")
+            writer.beginArray()
+            var offset = page.offset
+            var remaining = page.count
+            while (true) {
+                items.forEach { playQueueItemAdapter.toJson(writer, it) }
+                writer.flush()
+                offset += nbItems
+                remaining -= nbItems
+                if (remaining <= 0 || offset >= count) break
+                nbItems = minOf(CHUNK_SIZE, remaining)
+                items = loader(nbItems, offset)
+            }
+            writer.endArray()
+            if (title != null) writer.name("item").value(title).endObject()
+        }
+    }
+}
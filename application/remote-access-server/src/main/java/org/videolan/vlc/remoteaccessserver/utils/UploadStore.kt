@@ -0,0 +1,180 @@
+/*
+ * ************************************************************************
+ *  UploadStore.kt
+ * *************************************************************************
+ * Copyright © 2026 VLC authors and VideoLAN
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston MA 02110-1301, USA.
+ * **************************************************************************
+ *
+ *
+ */
+
+package org.videolan.vlc.remoteaccessserver.utils
+
+import android.os.SystemClock
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.NonCancellable
+import kotlinx.coroutines.sync.Mutex
+import kotlinx.coroutines.sync.withLock
+import kotlinx.coroutines.withContext
+import java.io.File
+import java.io.FileOutputStream
+import java.io.IOException
+import java.io.InputStream
+import java.util.concurrent.atomic.AtomicLong
+
+private const val BUFFER_SIZE = 64 * 1024
+private const val PROGRESS_INTERVAL = 1000L
+private const val PART_EXPIRY = 24 * 60 * 60 * 1000L
+
+/**
+ * Receives the uploaded files in the [directory], streaming them to disk with a bounded buffer.
+ *
+ * A file is written to a hidden temporary file, named after its name and size, and renamed once complete.
+ * The temporary file of a chunked upload is kept when it is interrupted: its size is the offset the client can resume
+ * from by sending the following chunks. It is deleted by [purge] if the upload isn't resumed within [PART_EXPIRY] ms.
+ *
+ * @param onProgress called with the file name, the received and the total bytes, -1 if unknown, when the file is
+ * complete and otherwise at most every [PROGRESS_INTERVAL] ms for all the uploads
+ * @param onComplete called with the received file
+ * @param clock the time source of the progress throttling, in ms
+ */
+class UploadStore(private val directory: File, private val onProgress: suspend (name: String, received: Long, total: Long) -> Unit,
+                  private val clock: () -> Long = SystemClock::elapsedRealtime, private val onComplete: suspend (File) -> Unit) {
+
+    class UploadException(val offset: Long, message: String) : IOException(message)
+
+    private class FileLock {
+        val mutex = Mutex()
+        var users = 0
+    }
+
+    private val locks = HashMap<String, FileLock>()
+    private val lastProgress = AtomicLong(-PROGRESS_INTERVAL)
+
+    /**
+     * @return the destination file of [name], or null if it would be outside of the upload directory
+     */
+    fun fileOf(name: String): File? {
+        val file = File(directory, name)
+        return file.takeIf { it.name.isNotEmpty() && !it.name.startsWith(".") && it.canonicalFile.parentFile == directory.canonicalFile }
+    }
+
+    /**
+     * @return the number of bytes already received for the upload of [name], of [total] bytes
+     */
+    fun received(name: String, total: Long): Long {
+        val file = fileOf(name) ?: return 0L
+        if (file.exists() && file.length() == total) return total
+        return partOf(file, total).length()
+    }
+
+    /**
+     * Deletes the temporary files of the uploads not resumed for [PART_EXPIRY] ms
+     */
+    fun purge(now: Long = System.currentTimeMillis()) {
+        directory.listFiles { file -> file.name.startsWith(".") && file.name.endsWith(".part") }?.forEach {
+            if (now - it.lastModified() > PART_EXPIRY) it.delete()
+        }
+    }
+
+    /**
+     * Writes a whole file, of an unknown size. It can't be resumed, so nothing is kept if it fails.
+     */
+    suspend fun receive(name: String, input: InputStream): File {
+        val file = fileOf(name) ?: throw IllegalArgumentException("$name is not a valid path")
+        return withLock(file) {
+            val part = partOf(file, -1L)
+            try {
+                write(name, part, input, 0L, -1L)
+                complete(part, file)
+            } catch (e: Exception) {
+                withContext(NonCancellable + Dispatchers.IO) { part.delete() }
+                throw e
+            }
+        }
+    }
+
+    /**
+     * Appends a chunk to the upload of [name]
+     *
+     * @param offset the position of the chunk in the file, which must be the number of bytes already received
+     * @param total the size of the whole file
+     * @return the number of bytes received
+     * @throws UploadException if [offset] doesn't match the received bytes
+     */
+    suspend fun receiveChunk(name: String, input: InputStream, offset: Long, total: Long): Long {
+        val file = fileOf(name) ?: throw IllegalArgumentException("$name is not a valid path")
+        return withLock(file) {
+            val part = partOf(file, total)
+            val received = withContext(Dispatchers.IO) {
+                if (offset == 0L) purge()
+                part.length()
+            }
+            if (offset != received) throw UploadException(received, "Expected offset $received, got $offset")
+            val size = write(name, part, input, offset, total)
+            if (size > total) {
+                withContext(Dispatchers.IO) { part.delete() }
+                throw UploadException(0L, "Received $size bytes of $total")
+            }
+            if (size == total) complete(part, file)
+            size
+        }
+    }
+
+    private suspend fun write(name: String, part: File, input: InputStream, offset: Long, total: Long) = withContext(Dispatchers.IO) {
+        directory.mkdirs()
+        var written = offset
+        FileOutputStream(part, offset > 0L).use { output ->
+            val buffer = ByteArray(BUFFER_SIZE)
+            var read = input.read(buffer)
+            while (read >= 0) {
+                output.write(buffer, 0, read)
+                written += read
+                // Shared by all the uploads and chunks, so that they don't flood the clients
+                val now = clock()
+                val last = lastProgress.get()
+                if (now - last >= PROGRESS_INTERVAL && lastProgress.compareAndSet(last, now)) onProgress(name, written, total)
+                read = input.read(buffer)
+            }
+        }
+        written
+    }
+
+    private suspend fun complete(part: File, file: File): File {
+        val renamed = withContext(Dispatchers.IO) {
+            file.delete()
+            part.renameTo(file)
+        }
+        if (!renamed) throw IOException("Unable to rename ${part.name} to ${file.name}")
+        onProgress(file.name, file.length(), file.length())
+        onComplete(file)
+        return file
+    }
+
+    /**
+     * Runs [block] with the lock of [file], which is forgotten once nobody holds or waits for it
+     */
+    private suspend fun <T> withLock(file: File, block: suspend () -> T): T {
+        val lock = synchronized(locks) { locks.getOrPut(file.path) { FileLock() }.also { it.users++ } }
+        try {
+            return lock.mutex.withLock { block() }
+        } finally {
+            synchronized(locks) { if (--lock.users == 0) locks.remove(file.path) }
+        }
+    }
+
+    private fun partOf(file: File, total: Long) = File(file.parentFile, ".${file.name}.$total.part")
+}
@@ -0,0 +1,159 @@
+/*
+ * ************************************************************************
+ *  PlaybackEventLog.kt
+ * *************************************************************************
+ * Copyright © 2026 VLC authors and VideoLAN
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston MA 02110-1301, USA.
+ * **************************************************************************
+ *
+ *
+ */
+
+package org.videolan.vlc.remoteaccessserver.websockets
+
+import kotlinx.coroutines.flow.MutableStateFlow
+import kotlinx.coroutines.flow.first
+import kotlinx.coroutines.withTimeoutOrNull
+import okio.utf8Size
+import org.videolan.vlc.remoteaccessserver.RemoteAccessServer.WSMessage
+import org.videolan.vlc.remoteaccessserver.RemoteAccessServer.WSMessageType
+import org.videolan.vlc.remoteaccessserver.convertToJson
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.AtomicLong
+
+private const val LOG_SIZE = 128
+const val HEADER_EVENT_SEQUENCE = "X-Event-Sequence"
+
+/**
+ * Messages describing a state: only the last one matters, and sending the same one again is useless
+ */
+private val STATE_TYPES = arrayOf(WSMessageType.NOW_PLAYING, WSMessageType.PLAY_QUEUE, WSMessageType.VOLUME,
+        WSMessageType.PLAYER_STATUS, WSMessageType.NETWORK_SHARES)
+
+/**
+ * Versioned log of the messages sent to the remote access clients.
+ *
+ * Each message is serialized once and gets a sequence number. A state message identical to the previous one of
+ * its type is dropped, so the periodic play queue and now playing updates only reach the clients when they change.
+ * Long polling clients send the last sequence number they received and only get the messages published since,
+ * keeping the last one of each type except for the browser descriptions which are all kept.
+ * The browser descriptions are events answering a browse request: they are not part of the whole state sent to
+ * the new clients, so that they are delivered once.
+ */
+object PlaybackEventLog {
+
+    class Entry(val sequence: Long, val type: WSMessageType, val json: String)
+
+    class Delta(val sequence: Long, val entries: List<Entry>) {
+        val json: String
+            get() = entries.joinToString(",", "[", "]") { it.json }
+    }
+
+    private val entries = ArrayDeque<Entry>(LOG_SIZE)
+    private val lastStates = HashMap<WSMessageType, Entry>()
+    private val lastSequence = MutableStateFlow(0L)
+    private val bytesSent = ConcurrentHashMap<String, AtomicLong>()
+
+    /**
+     * Sequence number of the last published message
+     */
+    val sequence: Long
+        get() = lastSequence.value
+
+    /**
+     * Adds a message to the log
+     *
+     * @return the new entry, or null if the message doesn't change the state
+     */
+    fun publish(message: WSMessage): Entry? {
+        val json = convertToJson(message)
+        synchronized(this) {
+            if (message.type in STATE_TYPES && lastStates[message.type]?.json == json) return null
+            val entry = Entry(lastSequence.value + 1, message.type, json)
+            if (entries.size == LOG_SIZE) entries.removeFirst()
+            entries.addLast(entry)
+            if (message.type in STATE_TYPES) lastStates[message.type] = entry
+            lastSequence.value = entry.sequence
+            return entry
+        }
+    }
+
+    /**
+     * @param since the last sequence number received by the client, -1 to get the whole state
+     * @param eventsSince the browser descriptions are only sent if published after it. By default, the same as [since]
+     * or none for the whole state.
+     * @return the messages published after [since]
+     */
+    @Synchronized
+    fun after(since: Long, eventsSince: Long = if (since < 0) lastSequence.value else since): Delta {
+        val result = ArrayList<Entry>()
+        val types = HashSet<WSMessageType>()
+        // Keep the last message of each type, browsing to the oldest one
+        for (entry in entries.asReversed()) {
+            if (entry.sequence <= since && entry.sequence <= eventsSince) break
+            if (entry.type == WSMessageType.BROWSER_DESCRIPTION) {
+                if (entry.sequence > eventsSince) result.add(entry)
+            } else if (entry.sequence > since && types.add(entry.type)) result.add(entry)
+        }
+        // The messages published before the oldest one of the log are lost: send the state instead
+        if (entries.isEmpty() || entries.first().sequence > since + 1) lastStates.values.forEach {
+            if (it.sequence > since && it.type !in types) result.add(it)
+        }
+        result.sortBy { it.sequence }
+        return Delta(lastSequence.value, result)
+    }
+
+    /**
+     * Builds the whole state for a single client, without publishing [states] to the log and the other clients
+     *
+     * @param eventsSince the browser descriptions are only sent if published after it
+     * @param states the current state messages, replacing the logged ones of their types
+     */
+    fun wholeState(eventsSince: Long, states: List<WSMessage>): Delta {
+        val fresh = states.map { Entry(0L, it.type, convertToJson(it)) }
+        val types = fresh.mapTo(HashSet()) { it.type }
+        val delta = after(-1, eventsSince)
+        return Delta(delta.sequence, delta.entries.filter { it.type !in types } + fresh.map { Entry(delta.sequence, it.type, it.json) })
+    }
+
+    /**
+     * Waits up to [timeout] ms for a message after [since]
+     *
+     * @return the messages published after [since], empty if nothing happened
+     */
+    suspend fun await(since: Long, timeout: Long): Delta {
+        withTimeoutOrNull(timeout) { lastSequence.first { it > since } }
+        return after(since)
+    }
+
+    /**
+     * Counts the bytes of a message sent to a client
+     */
+    fun onSent(client: String, json: String) {
+        bytesSent.getOrPut(client) { AtomicLong() }.addAndGet(json.utf8Size())
+    }
+
+    /**
+     * @return the number of bytes sent to each client
+     */
+    fun bytesSent(): Map<String, Long> = bytesSent.mapValues { it.value.get() }
+
+    @Synchronized
+    fun clear() {
+        entries.clear()
+        lastStates.clear()
+        bytesSent.clear()
+    }
+}
@@ -31,6 +31,7 @@ import android.support.v4.media.session.PlaybackStateCompat
 import android.util.Log
 import androidx.annotation.MainThread
 import com.squareup.moshi.Moshi
+import io.ktor.server.plugins.origin
 import io.ktor.server.routing.Routing
 import io.ktor.server.websocket.WebSocketServerSession
 import io.ktor.server.websocket.webSocket
@@ -38,7 +39,6 @@ import io.ktor.websocket.Frame
 import io.ktor.websocket.close
 import io.ktor.websocket.readText
 import kotlinx.coroutines.Dispatchers
-import kotlinx.coroutines.channels.Channel
 import kotlinx.coroutines.launch
 import kotlinx.coroutines.withContext
 import org.videolan.medialibrary.Tools
@@ -55,14 +55,11 @@ import org.videolan.vlc.remoteaccessserver.websockets.IncomingMessageType.*
 import java.util.Calendar
 import java.util.Collections
 import java.util.concurrent.ConcurrentHashMap
-import java.util.concurrent.LinkedBlockingQueue
 import java.util.concurrent.atomic.AtomicInteger
 
 object RemoteAccessWebSockets {
     private const val TAG = "VLC/HttpSharingServerWS"
 
-    val onPlaybackEventChannel = Channel<RemoteAccessServer.WSMessage>()
-    val messageQueue: LinkedBlockingQueue<RemoteAccessServer.WSMessage> = LinkedBlockingQueue()
     private val webSocketSessions: MutableMap<Int, WebSocketServerSession> = ConcurrentHashMap()
     private val tickets: MutableList<WSAuthTicket> = Collections.synchronizedList(mutableListOf())
     private val sessionIds = AtomicInteger(0)
@@ -73,6 +70,11 @@ object RemoteAccessWebSockets {
             try {
                 webSocketSessions[sessionId] = this
                 if (BuildConfig.DEBUG) Log.d(TAG, "WebSockets: Started session: $sessionId")
+                // Send the current state, the following messages will only be sent on change
+                PlaybackEventLog.after(-1).entries.forEach { entry ->
+                    send(Frame.Text(entry.json))
+                    PlaybackEventLog.onSent(call.request.origin.remoteHost, entry.json)
+                }
                 val moshi = Moshi.Builder().build().adapter(WSIncomingMessage::class.java)
                 // Handle a WebSocket session
                 for (frame in incoming) {
@@ -300,14 +302,19 @@ object RemoteAccessWebSockets {
         return ticket.id
     }
 
+    /**
+     * Publish a message in the [PlaybackEventLog] and send it to all the websocket sessions.
+     * A state message identical to the previous one is not sent again.
+     *
+     * @param messageObj the message to send
+     */
    suspend fun sendToAll(messageObj: RemoteAccessServer.WSMessage) {
-       val message = convertToJson(messageObj)
-       addToQueue(messageObj)
-       onPlaybackEventChannel.trySend(messageObj)
+       val message = PlaybackEventLog.publish(messageObj)?.json ?: return
        if (BuildConfig.DEBUG) Log.d(TAG, "WebSockets: sendToAll called on ${webSocketSessions.size} sessions with message '$message'")
        webSocketSessions.forEach { (sessionId, session) ->
            try {
                session.send(Frame.Text(message))
+               PlaybackEventLog.onSent(session.call.request.origin.remoteHost, message)
            } catch (e: Exception) {
                webSocketSessions.remove(sessionId)?.close()
                if (BuildConfig.DEBUG) Log.d(TAG, "WebSockets: Exception caught. Session removed and closed: $sessionId", e)
@@ -315,20 +322,6 @@ object RemoteAccessWebSockets {
        }
    }
 
-    /**
-     * Add a message to the queue and remove duplicates if needed
-     *
-     * @param wsMessage the message to send
-     */
-    private fun addToQueue(wsMessage: RemoteAccessServer.WSMessage) {
-        when (wsMessage.type) {
-            // Duplicate browser description messages are OK
-            RemoteAccessServer.WSMessageType.BROWSER_DESCRIPTION -> {}
-            else -> messageQueue.removeIf { it.type == wsMessage.type }
-        }
-        messageQueue.add(wsMessage)
-    }
-
     suspend fun closeAllSessions() {
         if (BuildConfig.DEBUG) Log.d(TAG, "WebSockets: Closing ${webSocketSessions.size} sessions")
         webSocketSessions.forEach { (sessionId, session) ->
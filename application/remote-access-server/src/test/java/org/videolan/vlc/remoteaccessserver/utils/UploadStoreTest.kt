@@ -0,0 +1,149 @@
+/*
+ * ************************************************************************
+ *  UploadStoreTest.kt   
+ * *************************************************************************
+ * Copyright © 2026 VLC authors and VideoLAN
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston MA 02110-1301, USA.
+ * **************************************************************************
+ *
+ *
+ */
+
+package org.videolan.vlc.remoteaccessserver.utils
+
+import kotlinx.coroutines.async
+import kotlinx.coroutines.runBlocking
+import org.junit.Assert.assertArrayEquals
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertTrue
+import org.junit.Assert.fail
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+import java.io.ByteArrayInputStream
+import java.io.File
+import java.io.IOException
+import java.io.InputStream
+
+class UploadStoreTest {
+    @get:Rule
+    val folder = TemporaryFolder()
+
+    private var time = 0L
+    private val progress = ArrayList<Triple<String, Long, Long>>()
+    private val completed = ArrayList<File>()
+
+    private fun createStore() = UploadStore(folder.root, { name, received, total -> progress.add(Triple(name, received, total)) }, { time }) { completed.add(it) }
+
+    private fun content(size: Int) = ByteArray(size) { it.toByte() }
+
+    private fun parts() = folder.root.listFiles { file -> file.name.endsWith(".part") }.orEmpty()
+
+    @Test
+    fun whenPathIsOutsideOfDirectory_checkItIsRejected() {
+        val store = createStore()
+        assertNull(store.fileOf("../file.mp4"))
+        assertNull(store.fileOf(".hidden.mp4"))
+        assertEquals(File(folder.root, "file.mp4"), store.fileOf("file.mp4"))
+    }
+
+    @Test
+    fun whenChunksAreReceived_checkFileIsComplete() = runBlocking {
+        val store = createStore()
+        val data = content(1000)
+        assertEquals(400L, store.receiveChunk("file.mp4", ByteArrayInputStream(data, 0, 400), 0L, 1000L))
+        assertEquals(400L, store.received("file.mp4", 1000L))
+        assertTrue(completed.isEmpty())
+        assertEquals(1000L, store.receiveChunk("file.mp4", ByteArrayInputStream(data, 400, 600), 400L, 1000L))
+        assertEquals(1000L, store.received("file.mp4", 1000L))
+        assertArrayEquals(data, File(folder.root, "file.mp4").readBytes())
+        assertEquals(listOf(File(folder.root, "file.mp4")), completed)
+        assertEquals(Triple("file.mp4", 1000L, 1000L), progress.last())
+        assertTrue(parts().isEmpty())
+    }
+
+    @Test
+    fun whenOffsetIsWrong_checkReceivedOffsetIsReturned() = runBlocking {
+        val store = createStore()
+        store.receiveChunk("file.mp4", ByteArrayInputStream(content(400)), 0L, 1000L)
+        try {
+            store.receiveChunk("file.mp4", ByteArrayInputStream(content(400)), 800L, 1000L)
+            fail()
+        } catch (e: UploadStore.UploadException) {
+            assertEquals(400L, e.offset)
+        }
+        assertEquals(400L, store.received("file.mp4", 1000L))
+    }
+
+    @Test
+    fun whenProgressIsFrequent_checkItIsThrottled() = runBlocking {
+        val store = createStore()
+        for (i in 0 until 10) store.receiveChunk("file.mp4", ByteArrayInputStream(content(100)), i * 100L, 2000L)
+        assertEquals(1, progress.size)
+        time += 1000L
+        store.receiveChunk("other.mp4", ByteArrayInputStream(content(100)), 0L, 2000L)
+        assertEquals(Triple("other.mp4", 100L, 2000L), progress.last())
+        assertEquals(2, progress.size)
+    }
+
+    @Test
+    fun whenWholeFileIsReceived_checkProgressTotalIsUnknown() = runBlocking {
+        val store = createStore()
+        val file = store.receive("file.mp4", ByteArrayInputStream(content(1000)))
+        assertEquals(1000L, file.length())
+        assertEquals(Triple("file.mp4", 1000L, -1L), progress.first())
+        assertEquals(Triple("file.mp4", 1000L, 1000L), progress.last())
+    }
+
+    @Test
+    fun whenWholeFileFails_checkNothingIsKept() = runBlocking {
+        val store = createStore()
+        val failing = object : InputStream() {
+            var count = 0
+            override fun read() = if (count++ < 100) 0 else throw IOException("Connection lost")
+        }
+        try {
+            store.receive("file.mp4", failing)
+            fail()
+        } catch (e: IOException) {
+        }
+        assertTrue(parts().isEmpty())
+        assertFalse(File(folder.root, "file.mp4").exists())
+    }
+
+    @Test
+    fun whenUploadIsAbandoned_checkItIsPurged() = runBlocking {
+        val store = createStore()
+        store.receiveChunk("old.mp4", ByteArrayInputStream(content(100)), 0L, 1000L)
+        store.receiveChunk("recent.mp4", ByteArrayInputStream(content(100)), 0L, 1000L)
+        val now = System.currentTimeMillis()
+        parts().first { it.name.startsWith(".old") }.setLastModified(now - 2 * 24 * 60 * 60 * 1000L)
+        store.purge(now)
+        assertEquals(0L, store.received("old.mp4", 1000L))
+        assertEquals(100L, store.received("recent.mp4", 1000L))
+    }
+
+    @Test
+    fun whenChunksAreConcurrent_checkOnlyOneIsAppended() = runBlocking {
+        val store = createStore()
+        val results = (0 until 5).map {
+            async { runCatching { store.receiveChunk("file.mp4", ByteArrayInputStream(content(100)), 0L, 1000L) } }
+        }.map { it.await() }
+        assertEquals(1, results.count { it.isSuccess })
+        assertEquals(100L, store.received("file.mp4", 1000L))
+    }
+}
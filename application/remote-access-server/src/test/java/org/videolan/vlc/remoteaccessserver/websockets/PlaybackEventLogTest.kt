@@ -0,0 +1,130 @@
+/*
+ * ************************************************************************
+ *  PlaybackEventLogTest.kt
+ * *************************************************************************
+ * Copyright © 2026 VLC authors and VideoLAN
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston MA 02110-1301, USA.
+ * **************************************************************************
+ *
+ *
+ */
+
+package org.videolan.vlc.remoteaccessserver.websockets
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNotNull
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Test
+import org.videolan.vlc.remoteaccessserver.RemoteAccessServer
+import org.videolan.vlc.remoteaccessserver.RemoteAccessServer.WSMessageType
+
+class PlaybackEventLogTest {
+
+    @Before
+    fun clearLog() = PlaybackEventLog.clear()
+
+    private fun PlaybackEventLog.Delta.types() = entries.map { it.type }
+
+    @Test
+    fun whenStateIsPublishedTwice_checkItIsDropped() {
+        assertNotNull(PlaybackEventLog.publish(RemoteAccessServer.Volume(10)))
+        assertNull(PlaybackEventLog.publish(RemoteAccessServer.Volume(10)))
+        assertNotNull(PlaybackEventLog.publish(RemoteAccessServer.Volume(20)))
+        // Events are never deduplicated
+        assertNotNull(PlaybackEventLog.publish(RemoteAccessServer.MLRefreshNeeded()))
+        assertNotNull(PlaybackEventLog.publish(RemoteAccessServer.MLRefreshNeeded()))
+    }
+
+    @Test
+    fun whenClientSendsSequence_checkOnlyNewerMessagesAreSent() {
+        PlaybackEventLog.publish(RemoteAccessServer.Volume(10))
+        val since = PlaybackEventLog.sequence
+        PlaybackEventLog.publish(RemoteAccessServer.PlayerStatus(true))
+        val delta = PlaybackEventLog.after(since)
+        assertEquals(PlaybackEventLog.sequence, delta.sequence)
+        assertEquals(listOf(WSMessageType.PLAYER_STATUS), delta.types())
+        assertTrue(PlaybackEventLog.after(PlaybackEventLog.sequence).entries.isEmpty())
+    }
+
+    @Test
+    fun whenTypeIsPublishedSeveralTimes_checkOnlyTheLastOneIsSent() {
+        val since = PlaybackEventLog.sequence
+        PlaybackEventLog.publish(RemoteAccessServer.Volume(10))
+        PlaybackEventLog.publish(RemoteAccessServer.PlayerStatus(true))
+        val last = PlaybackEventLog.publish(RemoteAccessServer.Volume(20))!!
+        val delta = PlaybackEventLog.after(since)
+        assertEquals(listOf(WSMessageType.PLAYER_STATUS, WSMessageType.VOLUME), delta.types())
+        assertEquals(last.json, delta.entries.last().json)
+        assertEquals("[${delta.entries.joinToString(",") { it.json }}]", delta.json)
+    }
+
+    @Test
+    fun whenBrowserDescriptionsArePublished_checkTheyAreAllSentOnce() {
+        val since = PlaybackEventLog.sequence
+        PlaybackEventLog.publish(RemoteAccessServer.BrowserDescription("/a", "1"))
+        PlaybackEventLog.publish(RemoteAccessServer.BrowserDescription("/b", "2"))
+        assertEquals(2, PlaybackEventLog.after(since).entries.size)
+        assertTrue(PlaybackEventLog.after(PlaybackEventLog.sequence).entries.isEmpty())
+    }
+
+    @Test
+    fun whenWholeStateIsRequested_checkOldBrowserDescriptionsAreNotSent() {
+        PlaybackEventLog.publish(RemoteAccessServer.Volume(10))
+        repeat(10) { PlaybackEventLog.publish(RemoteAccessServer.BrowserDescription("/$it", "$it")) }
+        PlaybackEventLog.publish(RemoteAccessServer.PlayerStatus(false))
+        val delta = PlaybackEventLog.after(-1)
+        assertEquals(listOf(WSMessageType.VOLUME, WSMessageType.PLAYER_STATUS), delta.types())
+    }
+
+    @Test
+    fun whenWholeStateIsRequestedAfterWaiting_checkNewBrowserDescriptionsAreSent() {
+        repeat(10) { PlaybackEventLog.publish(RemoteAccessServer.BrowserDescription("/$it", "$it")) }
+        val start = PlaybackEventLog.sequence
+        PlaybackEventLog.publish(RemoteAccessServer.Volume(10))
+        PlaybackEventLog.publish(RemoteAccessServer.BrowserDescription("/new", "new"))
+        val delta = PlaybackEventLog.after(-1, start)
+        assertEquals(listOf(WSMessageType.VOLUME, WSMessageType.BROWSER_DESCRIPTION), delta.types())
+        assertTrue(delta.entries.last().json.contains("/new"))
+    }
+
+    @Test
+    fun whenWholeStateIsBuilt_checkItIsNotPublished() {
+        PlaybackEventLog.publish(RemoteAccessServer.Volume(10))
+        PlaybackEventLog.publish(RemoteAccessServer.PlayerStatus(false))
+        val start = PlaybackEventLog.sequence
+        PlaybackEventLog.publish(RemoteAccessServer.BrowserDescription("/new", "new"))
+        val sequence = PlaybackEventLog.sequence
+        val delta = PlaybackEventLog.wholeState(start, listOf(RemoteAccessServer.PlayerStatus(true)))
+        assertEquals(sequence, PlaybackEventLog.sequence)
+        assertEquals(sequence, delta.sequence)
+        assertEquals(listOf(WSMessageType.VOLUME, WSMessageType.BROWSER_DESCRIPTION, WSMessageType.PLAYER_STATUS), delta.types())
+        assertTrue(delta.entries.last().json.contains("true"))
+        // The logged state is unchanged
+        assertTrue(PlaybackEventLog.after(-1).entries.last().json.contains("false"))
+    }
+
+    @Test
+    fun whenClientIsTooFarBehind_checkStateIsSent() {
+        PlaybackEventLog.publish(RemoteAccessServer.Volume(10))
+        val since = PlaybackEventLog.sequence
+        PlaybackEventLog.publish(RemoteAccessServer.PlayerStatus(true))
+        repeat(200) { PlaybackEventLog.publish(RemoteAccessServer.MLRefreshNeeded()) }
+        // The volume predates the client sequence, the player status was evicted from the log
+        val delta = PlaybackEventLog.after(since)
+        assertEquals(listOf(WSMessageType.PLAYER_STATUS, WSMessageType.ML_REFRESH_NEEDED), delta.types())
+    }
+}
@@ -67,9 +67,13 @@ val ACTION_REMOTE_GENERIC = "remote.".buildPkgString()
 @JvmField val CUSTOM_ACTION_SPEED = "speed".buildPkgString()
 @JvmField val CUSTOM_ACTION_REPEAT = "repeat".buildPkgString()
 @JvmField val CUSTOM_ACTION_REWIND = "rewind".buildPkgString()
+@JvmField val CUSTOM_ACTION_LOAD_MEDIA_LIST = "load_media_list".buildPkgString()
+@JvmField val CUSTOM_ACTION_GET_PLAY_QUEUE = "get_play_queue".buildPkgString()
 @JvmField val EXTRA_CUSTOM_ACTION_ID = "EXTRA_CUSTOM_ACTION_ID".buildPkgString()
 @JvmField val EXTRA_SEEK_DELAY = "EXTRA_CUSTOM_ACTION_ID".buildPkgString()
 @JvmField val EXTRA_RELATIVE_MEDIA_ID = "EXTRA_RELATIVE_MEDIA_ID".buildPkgString()
+@JvmField val EXTRA_MEDIA_LIST = "EXTRA_MEDIA_LIST".buildPkgString()
+@JvmField val EXTRA_MEDIA_LIST_POSITION = "EXTRA_MEDIA_LIST_POSITION".buildPkgString()
 const val PLAYLIST_TYPE_AUDIO = 0
 const val PLAYLIST_TYPE_VIDEO = 1
 const val PLAYLIST_TYPE_ALL = 2
@@ -16,15 +16,20 @@ import android.os.Build
 import android.os.Build.VERSION.SDK_INT
 import android.os.Bundle
 import android.os.Parcelable
+import android.os.SharedMemory
+import android.system.OsConstants
 import android.util.Log
 import androidx.core.content.ContextCompat
 import androidx.lifecycle.LiveData
 import androidx.lifecycle.Observer
 import kotlinx.coroutines.*
+import org.videolan.medialibrary.MediaWrapperCodec
 import org.videolan.medialibrary.interfaces.Medialibrary
+import org.videolan.medialibrary.interfaces.media.MediaWrapper
 import org.videolan.resources.*
 import org.videolan.tools.*
 import java.io.File
+import java.io.IOException
 import kotlin.coroutines.resume
 
 
@@ -188,6 +193,60 @@ inline fun <reified T : Parcelable> Bundle.parcelableArray(key: String): Array<T
     else -> @Suppress("DEPRECATION", "UNCHECKED_CAST") (getParcelableArray(key) as Array<T>)
 }
 
+/**
+ * Lists encoded above this size go through a [SharedMemory] region, keeping the binder transaction well below
+ * its 1MB buffer shared by all the transactions in flight
+ */
+private const val MEDIA_LIST_SHARED_MEMORY_THRESHOLD = 256 * 1024
+
+/**
+ * Put a media list in a [Bundle] with the compact [MediaWrapperCodec] format instead of parceling each media
+ *
+ * @param key the extra key
+ * @param list the media to store
+ * @param useReferences write the medialibrary media as references, they will be resolved when reading the list
+ * @param allowFileDescriptors use a [SharedMemory] region for large lists. Only for bundles sent through a direct
+ * binder call: intents, fragment arguments and saved states cannot carry file descriptors
+ */
+fun Bundle.putMediaList(key: String, list: List<MediaWrapper>, useReferences: Boolean = false, allowFileDescriptors: Boolean = false) {
+    val bytes = MediaWrapperCodec.encode(list, useReferences)
+    if (allowFileDescriptors && SDK_INT >= 27 && bytes.size > MEDIA_LIST_SHARED_MEMORY_THRESHOLD) {
+        val memory = SharedMemory.create(key, bytes.size)
+        val buffer = memory.mapReadWrite()
+        try {
+            buffer.put(bytes)
+        } finally {
+            SharedMemory.unmap(buffer)
+        }
+        memory.setProtect(OsConstants.PROT_READ)
+        putParcelable(key, memory)
+    } else putByteArray(key, bytes)
+}
+
+/**
+ * Retrieve a media list stored with [putMediaList]
+ * Lists stored with references query the medialibrary, do not call it from the main thread in that case.
+ *
+ * @param key the extra key
+ * @return the media list, or null if there is none or it cannot be read
+ */
+fun Bundle.mediaList(key: String): List<MediaWrapper>? {
+    val bytes = getByteArray(key) ?: if (SDK_INT >= 27) parcelable<SharedMemory>(key)?.use { memory ->
+        val buffer = memory.mapReadOnly()
+        try {
+            ByteArray(buffer.remaining()).also { buffer.get(it) }
+        } finally {
+            SharedMemory.unmap(buffer)
+        }
+    } else null
+    return try {
+        bytes?.let { MediaWrapperCodec.decode(it) }
+    } catch (e: IOException) {
+        Log.e("MediaList", "Unable to read media list $key", e)
+        null
+    }
+}
+
 /**
  * Use the new API to stop the foreground state of a service
  *
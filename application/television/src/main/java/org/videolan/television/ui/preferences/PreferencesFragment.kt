@@ -57,6 +57,7 @@ import org.videolan.vlc.gui.PinCodeReason
 import org.videolan.vlc.gui.SecondaryActivity
 import org.videolan.vlc.gui.dialogs.ConfirmPreferenceChangeDialog
 import org.videolan.vlc.gui.dialogs.PermissionListDialog
+import org.videolan.vlc.media.PlaylistManager
 
 @TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR1)
 class PreferencesFragment : BasePreferenceFragment(), SharedPreferences.OnSharedPreferenceChangeListener {
@@ -139,6 +140,7 @@ class PreferencesFragment : BasePreferenceFragment(), SharedPreferences.OnShared
                                 .remove(KEY_CURRENT_MEDIA)
                                 .remove(KEY_CURRENT_MEDIA_RESUME)
                                 .apply()
+                        PlaylistManager.deleteSavedQueues()
                         activity.setResult(RESULT_RESTART)
                         audioResumePref.isChecked = false
                     }
@@ -154,6 +156,7 @@ class PreferencesFragment : BasePreferenceFragment(), SharedPreferences.OnShared
                         .remove(KEY_CURRENT_MEDIA_RESUME)
                         .remove(KEY_CURRENT_MEDIA)
                         .apply()
+                PlaylistManager.deleteSavedQueues(audio = false)
                 val activity = activity
                 activity?.setResult(RESULT_RESTART)
                 return true
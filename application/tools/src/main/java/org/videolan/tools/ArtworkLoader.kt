@@ -0,0 +1,245 @@
+/*
+ * ************************************************************************
+ *  ArtworkLoader.kt
+ * *************************************************************************
+ * Copyright © 2026 VLC authors and VideoLAN
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston MA 02110-1301, USA.
+ * **************************************************************************
+ *
+ *
+ */
+
+package org.videolan.tools
+
+import android.graphics.Bitmap
+import android.graphics.BitmapFactory
+import android.util.Log
+import androidx.annotation.WorkerThread
+import kotlinx.coroutines.CompletableDeferred
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.runBlocking
+import kotlinx.coroutines.withContext
+import java.io.ByteArrayOutputStream
+import java.io.File
+import java.io.IOException
+import java.net.HttpURLConnection
+import java.net.URL
+import java.security.MessageDigest
+
+/**
+ * Loads the artwork images through the memory and disk tiers.
+ *
+ * - The decoded bitmaps are kept in the [BitmapCache], by path and width bucket: a request is served by the
+ *   variant of its bucket or by a larger one, so that a cover isn't decoded again for each view width.
+ * - The downloaded images are kept encoded on disk, and decoded from a single download.
+ * - Concurrent requests of the same variant are coalesced: only the first one decodes, the others wait for its result,
+ *   suspending when they come from a coroutine.
+ */
+object ArtworkLoader {
+    private const val TAG = "VLC/ArtworkLoader"
+    private val BUCKETS = intArrayOf(64, 128, 256, 512, 1024, 2048)
+    private const val MAX_DOWNLOAD_SIZE = 10 * 1024 * 1024
+    private const val MAX_DISK_CACHE_SIZE = 32L * 1024 * 1024
+
+    private val inFlight = HashMap<String, CompletableDeferred<Bitmap?>>()
+    @Volatile private var diskCacheDirectory: File? = null
+
+    /**
+     * Sets the directory of the downloaded images. Without it, the images are downloaded for each memory cache miss.
+     */
+    fun setDiskCacheDirectory(directory: File) {
+        diskCacheDirectory = directory
+    }
+
+    /**
+     * @return the width the bitmaps requested with [width] are decoded at, 0 for the original size
+     */
+    fun bucket(width: Int) = if (width <= 0) 0 else BUCKETS.firstOrNull { it >= width } ?: width
+
+    /**
+     * @return the cached bitmap of [path] for [width], or of a larger width
+     */
+    fun getCached(path: String?, width: Int): Bitmap? {
+        val key = path?.removeFileScheme()?.takeIf { it.isNotEmpty() } ?: return null
+        val bucket = bucket(width)
+        BitmapCache.getBitmapFromMemCache(variantKey(key, bucket))?.let { return it }
+        if (bucket == 0) return null
+        for (larger in BUCKETS) if (larger > bucket) BitmapCache.getBitmapFromMemCache(variantKey(key, larger))?.let { return it }
+        return null
+    }
+
+    fun put(path: String?, width: Int, bitmap: Bitmap?) {
+        val key = path?.removeFileScheme()?.takeIf { it.isNotEmpty() } ?: return
+        BitmapCache.addBitmapToMemCache(variantKey(key, bucket(width)), bitmap)
+    }
+
+    /**
+     * Gets the bitmap of [path] from the memory cache, or decodes it with [decode] once for all the concurrent requests
+     *
+     * @param decode decodes the bitmap for the bucket width it receives
+     */
+    @WorkerThread
+    fun load(path: String, width: Int, decode: (width: Int) -> Bitmap?): Bitmap? {
+        getCached(path, width)?.let { return it }
+        val bucket = bucket(width)
+        val key = variantKey(path.removeFileScheme(), bucket)
+        val (request, owner) = claim(key)
+        return if (owner) decodeOnce(key, request) { decode(bucket) } else runBlocking { request.await() }
+    }
+
+    /**
+     * Suspending version of [load]: the concurrent requests suspend until the first one has decoded the bitmap on an IO thread
+     */
+    suspend fun loadAsync(path: String, width: Int, decode: (width: Int) -> Bitmap?): Bitmap? {
+        getCached(path, width)?.let { return it }
+        val bucket = bucket(width)
+        val key = variantKey(path.removeFileScheme(), bucket)
+        val (request, owner) = claim(key)
+        return if (owner) withContext(Dispatchers.IO) { decodeOnce(key, request) { decode(bucket) } } else request.await()
+    }
+
+    /**
+     * @return the pending request of [key], and whether it has just been created by this caller, which must decode it
+     */
+    private fun claim(key: String): Pair<CompletableDeferred<Bitmap?>, Boolean> = synchronized(inFlight) {
+        inFlight[key]?.let { return it to false }
+        CompletableDeferred<Bitmap?>().also { inFlight[key] = it } to true
+    }
+
+    private inline fun decodeOnce(key: String, request: CompletableDeferred<Bitmap?>, decode: () -> Bitmap?): Bitmap? {
+        var result: Bitmap? = null
+        try {
+            result = decode()?.also { BitmapCache.addBitmapToMemCache(key, it) }
+            return result
+        } finally {
+            synchronized(inFlight) { inFlight.remove(key) }
+            request.complete(result)
+        }
+    }
+
+    /**
+     * Decodes the image file at [path], subsampled to be at least [width] wide
+     */
+    @WorkerThread
+    fun decodeFile(path: String, width: Int) = decode(width) { BitmapFactory.decodeFile(path, it) }
+
+    /**
+     * Decodes an encoded image, subsampled to be at least [width] wide
+     */
+    fun decodeBytes(bytes: ByteArray, width: Int) = decode(width) { BitmapFactory.decodeByteArray(bytes, 0, bytes.size, it) }
+
+    /**
+     * Reads the image bounds, then decodes it into a bitmap of the [BitmapCache] reuse pool if there's one of the right size
+     */
+    private inline fun decode(width: Int, decoder: (BitmapFactory.Options) -> Bitmap?): Bitmap? {
+        val options = BitmapFactory.Options().apply { inJustDecodeBounds = true }
+        decoder(options)
+        if (options.outWidth <= 0 || options.outHeight <= 0) return null
+        options.inJustDecodeBounds = false
+        options.inSampleSize = sampleSize(options.outWidth, width)
+        val sampledWidth = (options.outWidth + options.inSampleSize - 1) / options.inSampleSize
+        val sampledHeight = (options.outHeight + options.inSampleSize - 1) / options.inSampleSize
+        val reusable = BitmapCache.getReusableBitmap(sampledWidth, sampledHeight, options.inPreferredConfig)
+        if (reusable != null) {
+            options.inMutable = true
+            options.inBitmap = reusable
+            try {
+                decoder(options)?.let { return it }
+            } catch (e: IllegalArgumentException) {
+                // The pooled bitmap can't be reused for this image
+            }
+            BitmapCache.addReusableBitmap(reusable)
+            options.inBitmap = null
+        }
+        return decoder(options)
+    }
+
+    /**
+     * Downloads the image at [url], or reads it from the disk cache, and decodes it for [width]
+     */
+    @WorkerThread
+    fun loadRemote(url: String, width: Int) = load(url, width) { bucket -> getRemoteBytes(url)?.let { decodeBytes(it, bucket) } }
+
+    suspend fun downloadBitmap(url: String, width: Int) = loadAsync(url, width) { bucket -> getRemoteBytes(url)?.let { decodeBytes(it, bucket) } }
+
+    private fun sampleSize(imageWidth: Int, width: Int): Int {
+        var sampleSize = 1
+        if (width > 0) while (imageWidth / (sampleSize * 2) >= width) sampleSize *= 2
+        return sampleSize
+    }
+
+    private fun variantKey(key: String, bucket: Int) = "$key@$bucket"
+
+    @WorkerThread
+    private fun getRemoteBytes(url: String): ByteArray? {
+        val file = diskCacheDirectory?.let { File(it, sha1(url)) }
+        if (file?.exists() == true) try {
+            return file.readBytes().also { file.setLastModified(System.currentTimeMillis()) }
+        } catch (e: IOException) {
+            file.delete()
+        }
+        val bytes = download(url) ?: return null
+        if (file != null) try {
+            if (file.parentFile?.exists() == true || file.parentFile?.mkdirs() == true) {
+                val tmp = File(file.parentFile, "${file.name}.tmp")
+                tmp.writeBytes(bytes)
+                if (!tmp.renameTo(file)) tmp.delete()
+                trimDiskCache(file.parentFile!!)
+            }
+        } catch (e: IOException) {
+            Log.w(TAG, "Unable to cache $url", e)
+        }
+        return bytes
+    }
+
+    private fun download(imageUrl: String): ByteArray? {
+        var urlConnection: HttpURLConnection? = null
+        return try {
+            urlConnection = URL(imageUrl).openConnection() as HttpURLConnection
+            urlConnection.inputStream.use { input ->
+                val output = ByteArrayOutputStream(urlConnection.contentLength.takeIf { it in 1..MAX_DOWNLOAD_SIZE } ?: 16 * 1024)
+                val buffer = ByteArray(8 * 1024)
+                var read = input.read(buffer)
+                while (read >= 0) {
+                    output.write(buffer, 0, read)
+                    if (output.size() > MAX_DOWNLOAD_SIZE) throw IOException("Image too large: $imageUrl")
+                    read = input.read(buffer)
+                }
+                output.toByteArray()
+            }
+        } catch (e: IOException) {
+            Log.e(TAG, e.message, e)
+            null
+        } catch (e: IllegalArgumentException) {
+            Log.e(TAG, e.message, e)
+            null
+        } finally {
+            urlConnection?.disconnect()
+        }
+    }
+
+    private fun trimDiskCache(directory: File) {
+        val files = directory.listFiles() ?: return
+        var size = files.sumOf { it.length() }
+        if (size <= MAX_DISK_CACHE_SIZE) return
+        for (file in files.sortedBy { it.lastModified() }) {
+            if (size <= MAX_DISK_CACHE_SIZE * 3 / 4) break
+            size -= file.length()
+            file.delete()
+        }
+    }
+
+    private fun sha1(value: String) = MessageDigest.getInstance("SHA-1").digest(value.toByteArray()).joinToString("") { "%02x".format(it) }
+}
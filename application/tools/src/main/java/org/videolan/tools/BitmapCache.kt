@@ -44,14 +44,30 @@
 
 package org.videolan.tools
 
+import android.content.ComponentCallbacks2
 import android.graphics.Bitmap
 import android.util.Log
 import android.util.LruCache
 import videolan.org.commontools.BuildConfig
 
+/**
+ * Memory cache of the decoded bitmaps, within a budget of 20% of the heap.
+ *
+ * It also holds a pool of mutable bitmaps which are known to be unused, to be decoded into
+ * with [android.graphics.BitmapFactory.Options.inBitmap] instead of allocating new ones.
+ * The cached bitmaps may still be displayed when they are evicted, so they never go to the pool:
+ * only the temporary bitmaps released with [addReusableBitmap] do.
+ */
 object BitmapCache {
     private const val TAG = "VLC/BitmapCache"
     private val memCache: LruCache<String, Bitmap>
+    private val reusePool: ReusePool
+
+    private var hits = 0
+    private var misses = 0
+    private var evictions = 0
+    private var poolHits = 0
+    private var poolMisses = 0
 
     init {
 
@@ -64,31 +80,146 @@ object BitmapCache {
         memCache = object : LruCache<String, Bitmap>(cacheSize.toInt()) {
 
             override fun sizeOf(key: String, value: Bitmap): Int {
-                return value.rowBytes * value.height
+                return value.allocationByteCount
+            }
+
+            override fun entryRemoved(evicted: Boolean, key: String, oldValue: Bitmap, newValue: Bitmap?) {
+                if (evicted) ++evictions
             }
         }
+        reusePool = ReusePool(cacheSize / 5)
     }
 
     @Synchronized
     fun getBitmapFromMemCache(key: String?): Bitmap? {
         if (key == null) return null
         val b = memCache.get(key)
-        if (b == null) {
-            memCache.remove(key)
+        if (b == null || b.isRecycled) {
+            if (b != null) memCache.remove(key)
+            ++misses
             return null
         }
+        ++hits
         return b
     }
 
     @Synchronized
     fun addBitmapToMemCache(key: String?, bitmap: Bitmap?) {
-        if (key != null && bitmap != null && getBitmapFromMemCache(key) == null) {
+        if (key != null && bitmap != null && memCache.get(key)?.takeUnless { it.isRecycled } == null) {
             memCache.put(key, bitmap)
         }
     }
 
+    /**
+     * Gives a bitmap which is not used anymore to the reuse pool. It must not be cached nor displayed.
+     */
+    @Synchronized
+    fun addReusableBitmap(bitmap: Bitmap?) {
+        if (bitmap == null || !bitmap.isMutable || bitmap.isRecycled) return
+        reusePool.put(bitmap)
+    }
+
+    /**
+     * @param exact only return a bitmap of [width]x[height], for drawing into it instead of decoding
+     * @return a bitmap of the pool which can be decoded into for an image of [width]x[height], or null
+     */
+    @Synchronized
+    fun getReusableBitmap(width: Int, height: Int, config: Bitmap.Config?, exact: Boolean = false): Bitmap? {
+        if (width <= 0 || height <= 0) return null
+        val bitmap = reusePool.get(width, height, config ?: Bitmap.Config.ARGB_8888, exact)
+        if (bitmap == null) ++poolMisses else ++poolHits
+        return bitmap
+    }
+
     @Synchronized
     fun clear() {
         memCache.evictAll()
+        reusePool.clear()
+    }
+
+    /**
+     * Releases memory according to the [ComponentCallbacks2] trim [level]
+     */
+    @Synchronized
+    fun trimMemory(level: Int) {
+        when {
+            // No artwork is displayed anymore once the UI is hidden
+            level >= ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL -> clear()
+            level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW -> {
+                memCache.trimToSize(memCache.maxSize() / 2)
+                reusePool.clear()
+            }
+            else -> reusePool.clear()
+        }
+        if (BuildConfig.DEBUG) Log.i(TAG, "Trimmed for level $level: ${getStats()}")
+    }
+
+    @Synchronized
+    fun getStats() = Stats(hits, misses, evictions, poolHits, poolMisses, memCache.size().toLong(), reusePool.size)
+
+    data class Stats(val hits: Int, val misses: Int, val evictions: Int, val poolHits: Int, val poolMisses: Int, val cacheBytes: Long, val poolBytes: Long) {
+        override fun toString() = "hits: $hits, misses: $misses, evictions: $evictions, pool hits: $poolHits, pool misses: $poolMisses, cache: ${cacheBytes.readableSize()}, pool: ${poolBytes.readableSize()}"
+    }
+
+    /**
+     * Reusable bitmaps, by config and dimensions. A bitmap can be decoded into when its allocation is large enough
+     * so an exact size match is tried first, then the smallest bitmap of the same config which fits.
+     * The least recently added bitmaps are dropped when the pool exceeds [maxSize] bytes.
+     */
+    private class ReusePool(private val maxSize: Long) {
+        private val bitmaps = LinkedHashMap<Long, ArrayDeque<Bitmap>>()
+        var size = 0L
+            private set
+
+        fun put(bitmap: Bitmap) {
+            val bytes = bitmap.allocationByteCount
+            if (bytes > maxSize) return
+            bitmaps.getOrPut(key(bitmap.width, bitmap.height, bitmap.config)) { ArrayDeque() }.addLast(bitmap)
+            size += bytes
+            while (size > maxSize) {
+                val oldest = bitmaps.entries.first()
+                oldest.value.removeFirst().let { size -= it.allocationByteCount }
+                if (oldest.value.isEmpty()) bitmaps.remove(oldest.key)
+            }
+        }
+
+        fun get(width: Int, height: Int, config: Bitmap.Config, exact: Boolean): Bitmap? {
+            take(key(width, height, config))?.let { return it }
+            if (exact) return null
+            val needed = width.toLong() * height * bytesPerPixel(config)
+            var best: Long? = null
+            var bestBytes = Int.MAX_VALUE
+            for ((key, queue) in bitmaps) {
+                val candidate = queue.first()
+                val bytes = candidate.allocationByteCount
+                // Don't waste a much larger bitmap for a small image
+                if (candidate.config == config && bytes >= needed && bytes < bestBytes && bytes <= needed * 4) {
+                    best = key
+                    bestBytes = bytes
+                }
+            }
+            return best?.let { take(it) }
+        }
+
+        fun clear() {
+            bitmaps.clear()
+            size = 0L
+        }
+
+        private fun take(key: Long): Bitmap? {
+            val queue = bitmaps[key] ?: return null
+            val bitmap = queue.removeLast()
+            if (queue.isEmpty()) bitmaps.remove(key)
+            size -= bitmap.allocationByteCount
+            return bitmap.takeUnless { it.isRecycled }
+        }
+
+        private fun key(width: Int, height: Int, config: Bitmap.Config?) = (width.toLong() shl 32) or (height.toLong() shl 8) or (config?.ordinal?.toLong() ?: 0xFF)
+
+        private fun bytesPerPixel(config: Bitmap.Config) = when (config) {
+            Bitmap.Config.ALPHA_8 -> 1
+            Bitmap.Config.RGB_565, Bitmap.Config.ARGB_4444 -> 2
+            else -> if (config.name == "RGBA_F16") 8 else 4
+        }
     }
 }
@@ -50,6 +50,7 @@ import org.videolan.medialibrary.interfaces.media.MediaWrapper
 import org.videolan.medialibrary.media.MediaLibraryItem
 import org.videolan.resources.VLCInstance
 import org.videolan.resources.util.getFromMl
+import org.videolan.tools.BitmapCache
 import org.videolan.tools.removeFileScheme
 import org.videolan.vlc.gui.helpers.AudioUtil
 import org.videolan.vlc.gui.helpers.BitmapUtil
@@ -157,12 +158,12 @@ class ArtworkProvider : ContentProvider() {
         if (path == null) return null
         val image = getOrPutImage(path) {
             runBlocking(Dispatchers.IO) {
-                var bitmap = AudioUtil.readCoverBitmap(path, width)
-                if (bitmap != null) bitmap = padSquare(bitmap)
+                val cover = AudioUtil.readCoverBitmap(path, width)
+                var bitmap = cover?.let { padSquare(it) }
                 if (bitmap == null) bitmap = ctx.getBitmapFromDrawable(R.drawable.ic_no_media, width, width)
                 return@runBlocking BitmapUtil.encodeImage(bitmap, ENABLE_TRACING){
                     getTimestamp()
-                }
+                }.also { if (cover != null && bitmap !== cover) BitmapCache.addReusableBitmap(bitmap) }
             }
         }
         return getPFDFromByteArray(image)
@@ -250,6 +251,7 @@ class ArtworkProvider : ContentProvider() {
             runBlocking(Dispatchers.IO) {
                 var bitmap = if (mw != null) ThumbnailsProvider.obtainBitmap(mw, width) else null
                 if (bitmap == null) bitmap = readEmbeddedArtwork(mw, width)
+                val cover = bitmap
                 if (padSquare && bitmap != null) bitmap = padSquare(bitmap)
                 if (bitmap == null) {
                     bitmap = ctx.getBitmapFromDrawable(fallbackIcon
@@ -262,9 +264,14 @@ class ArtworkProvider : ContentProvider() {
                         bitmap = bmp
                     }
                 }
+                val padded = bitmap.takeIf { cover != null && it !== cover }
                 if (nonTransparent) bitmap = removeTransparency(bitmap)
                 return@runBlocking BitmapUtil.encodeImage(bitmap, ENABLE_TRACING) {
                     getTimestamp()
+                }.also {
+                    // The padded copy of the cover is only used for the encoding
+                    BitmapCache.addReusableBitmap(padded)
+                    if (nonTransparent) BitmapCache.addReusableBitmap(bitmap)
                 }
             }
         }
@@ -434,7 +441,9 @@ class ArtworkProvider : ContentProvider() {
         val maxSize = max(width, height)
         val x = ((height - width) / 2f).coerceAtLeast(0f)
         val y = ((width - height) / 2f).coerceAtLeast(0f)
-        val dst = Bitmap.createBitmap(maxSize, maxSize, Bitmap.Config.ARGB_8888)
+        val dst = BitmapCache.getReusableBitmap(maxSize, maxSize, Bitmap.Config.ARGB_8888, exact = true)
+                ?.apply { eraseColor(Color.TRANSPARENT) }
+                ?: Bitmap.createBitmap(maxSize, maxSize, Bitmap.Config.ARGB_8888)
         val c = Canvas(dst)
         c.drawBitmap(src, x, y, null)
         return dst
@@ -550,25 +559,32 @@ class ArtworkProvider : ContentProvider() {
         const val SHUFFLE = "shuffle"
         const val SHUFFLE_ALL = "shuffle_all"
 
-        //Used to store webp encoded bitmap of the currently playing artwork
-        private val memCache: LruCache<String, ByteArray> = LruCache<String, ByteArray>(if (Build.VERSION.SDK_INT == 33) 2 else 1)
+        //Used to store the webp encoded bitmaps of the recently requested artworks, within a byte budget
+        private const val ENCODED_CACHE_SIZE = 4 * 1024 * 1024
+        private val memCache = object : LruCache<String, ByteArray>(ENCODED_CACHE_SIZE) {
+            override fun sizeOf(key: String, value: ByteArray) = value.size
+        }
+
+        /**
+         * Locks of the images being encoded: the requests of the same image wait for the first one,
+         * while the other images are encoded concurrently.
+         */
+        private val pendingImages = HashMap<String, Any>()
 
-        @Synchronized
         fun clear() {
             memCache.evictAll()
         }
 
-        @Synchronized
         fun getOrPutImage(key: String, defaultValue: () -> ByteArray?): ByteArray? {
-            val value = memCache.get(key)
-            return if (value == null) {
-                val answer = defaultValue()
-                if (answer != null) {
-                    memCache.put(key, answer)
-                    answer
-                } else null
-            } else {
-                value
+            memCache.get(key)?.let { return it }
+            val lock = synchronized(pendingImages) { pendingImages.getOrPut(key) { Any() } }
+            try {
+                synchronized(lock) {
+                    memCache.get(key)?.let { return it }
+                    return defaultValue()?.also { memCache.put(key, it) }
+                }
+            } finally {
+                synchronized(pendingImages) { if (pendingImages[key] === lock) pendingImages.remove(key) }
             }
         }
 
@@ -51,26 +51,51 @@ import org.videolan.tools.getContextWithLocale
 import org.videolan.vlc.gui.DebugLogActivity
 import org.videolan.vlc.gui.helpers.FeedbackUtil
 import org.videolan.vlc.gui.helpers.NotificationHelper
+import org.videolan.vlc.util.LogRingBuffer
 import java.io.BufferedWriter
 import java.io.FileNotFoundException
 import java.io.FileOutputStream
 import java.io.IOException
 import java.io.OutputStreamWriter
-import java.util.LinkedList
+import java.util.concurrent.atomic.AtomicBoolean
 
 class DebugLogService : Service(), Logcat.Callback, Runnable {
 
     private var logcat: Logcat? = null
-    private val logList = LinkedList<String>()
+    private val logs = LogRingBuffer(MAX_LINES)
     private var saveThread: Thread? = null
     private val callbacks = RemoteCallbackList<IDebugLogServiceCallback>()
     private val binder = DebugLogServiceStub(this)
 
+    /**
+     * The lines are delivered to the callbacks by batches, at most every [DELIVERY_INTERVAL] ms
+     */
+    private val deliveryHandler = Handler(Looper.getMainLooper())
+    private val deliveryScheduled = AtomicBoolean()
+    // Sequence number of the next line to deliver, only accessed from the delivery handler
+    private var delivered = 0L
+    private val deliver = Runnable {
+        deliveryScheduled.set(false)
+        if (callbacks.registeredCallbackCount == 0) {
+            delivered = logs.written
+            return@Runnable
+        }
+        val batch = ArrayList<String>()
+        delivered = logs.read(delivered, MAX_BATCH) { batch.add(it) }
+        if (batch.isNotEmpty()) sendMessage(MSG_ONLOGS, null, batch)
+        if (delivered < logs.written) scheduleDelivery()
+    }
+
     override fun onCreate() {
         super.onCreate()
         if (AndroidUtil.isOOrLater) forceForeground()
     }
 
+    override fun onDestroy() {
+        deliveryHandler.removeCallbacksAndMessages(null)
+        super.onDestroy()
+    }
+
     override fun attachBaseContext(newBase: Context?) {
         super.attachBaseContext(newBase?.getContextWithLocale(AppContextProvider.locale))
     }
@@ -110,7 +135,7 @@ class DebugLogService : Service(), Logcat.Callback, Runnable {
     }
 
     @Synchronized
-    private fun sendMessage(what: Int, str: String?) {
+    private fun sendMessage(what: Int, str: String?, lines: List<String> = emptyList()) {
         var i = callbacks.beginBroadcast()
         while (i > 0) {
             i--
@@ -119,9 +144,9 @@ class DebugLogService : Service(), Logcat.Callback, Runnable {
                 when (what) {
                     MSG_STOPPED -> cb.onStopped()
                     MSG_STARTED -> {
-                        cb.onStarted(logList)
+                        cb.onStarted(lines)
                     }
-                    MSG_ONLOG -> cb.onLog(str)
+                    MSG_ONLOGS -> cb.onLogs(lines)
                     MSG_SAVED -> cb.onSaved(str != null, str)
                 }
             } catch (e: RemoteException) {
@@ -131,12 +156,27 @@ class DebugLogService : Service(), Logcat.Callback, Runnable {
         callbacks.finishBroadcast()
     }
 
-    @Synchronized
+    /**
+     * Called from the logcat thread: the line is only stored, and delivered with the next batch
+     */
     override fun onLog(log: String) {
-        if (logList.size > MAX_LINES)
-            logList.removeAt(0)
-        logList.add(log)
-        sendMessage(MSG_ONLOG, log)
+        logs.add(log)
+        scheduleDelivery()
+    }
+
+    private fun scheduleDelivery() {
+        if (deliveryScheduled.compareAndSet(false, true)) deliveryHandler.postDelayed(deliver, DELIVERY_INTERVAL)
+    }
+
+    /**
+     * Sends the current lines to the callbacks, the following ones will be delivered by batches
+     */
+    private fun sendStarted() {
+        deliveryHandler.post {
+            val lines = ArrayList<String>(logs.size)
+            delivered = logs.read(0L) { lines.add(it) }
+            sendMessage(MSG_STARTED, null, lines)
+        }
     }
 
     @TargetApi(Build.VERSION_CODES.O)
@@ -176,7 +216,7 @@ class DebugLogService : Service(), Logcat.Callback, Runnable {
         logcat!!.start(this)
 
         launchForeground(Intent(this, DebugLogService::class.java))
-        sendMessage(MSG_STARTED, null)
+        sendStarted()
     }
 
     fun stop() {
@@ -191,9 +231,8 @@ class DebugLogService : Service(), Logcat.Callback, Runnable {
         stopSelf()
     }
 
-    @Synchronized
     fun clear() {
-        logList.clear()
+        logs.clear()
     }
 
     /* saveThread */
@@ -210,12 +249,11 @@ class DebugLogService : Service(), Logcat.Callback, Runnable {
             fos = FileOutputStream(filename)
             output = OutputStreamWriter(fos)
             bw = BufferedWriter(output)
-            synchronized(this) {
-                bw.write(FeedbackUtil.generateUsefulInfo(this))
-                for (line in logList) {
-                    bw.write(line)
-                    bw.newLine()
-                }
+            bw.write(FeedbackUtil.generateUsefulInfo(this))
+            // Written straight from the ring buffer, while the logcat thread keeps adding lines
+            logs.read(0L) { line ->
+                bw.write(line)
+                bw.newLine()
             }
         } catch (e: FileNotFoundException) {
 
@@ -255,7 +293,7 @@ class DebugLogService : Service(), Logcat.Callback, Runnable {
     private fun registerCallback(cb: IDebugLogServiceCallback?) {
         if (cb != null) {
             callbacks.register(cb)
-            sendMessage(if (logcat != null) MSG_STARTED else MSG_STOPPED, null)
+            if (logcat != null) sendStarted() else sendMessage(MSG_STOPPED, null)
         }
     }
 
@@ -286,8 +324,8 @@ class DebugLogService : Service(), Logcat.Callback, Runnable {
             }
 
             @Throws(RemoteException::class)
-            override fun onLog(msg: String) {
-                handler.post { callback.onLog(msg) }
+            override fun onLogs(msgs: List<String>) {
+                handler.post { callback.onLogs(msgs) }
             }
 
             @Throws(RemoteException::class)
@@ -322,6 +360,11 @@ class DebugLogService : Service(), Logcat.Callback, Runnable {
             fun onStarted(logList: List<String>)
             fun onStopped()
             fun onLog(msg: String)
+
+            /**
+             * Called with the lines logged since the previous batch
+             */
+            fun onLogs(msgs: List<String>) = msgs.forEach { onLog(it) }
             fun onSaved(success: Boolean, path: String)
         }
 
@@ -410,9 +453,11 @@ class DebugLogService : Service(), Logcat.Callback, Runnable {
 
         private const val MSG_STARTED = 0
         private const val MSG_STOPPED = 1
-        private const val MSG_ONLOG = 2
+        private const val MSG_ONLOGS = 2
         private const val MSG_SAVED = 3
 
         private const val MAX_LINES = 20000
+        private const val MAX_BATCH = 500
+        private const val DELIVERY_INTERVAL = 100L
     }
 }
\ No newline at end of file
@@ -39,6 +39,7 @@ import androidx.lifecycle.lifecycleScope
 import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.isActive
 import kotlinx.coroutines.launch
+import kotlinx.coroutines.withContext
 import org.videolan.medialibrary.Tools
 import org.videolan.medialibrary.interfaces.Medialibrary
 import org.videolan.medialibrary.interfaces.media.MediaWrapper
@@ -46,13 +47,17 @@ import org.videolan.medialibrary.interfaces.media.Playlist
 import org.videolan.resources.AndroidDevices
 import org.videolan.resources.CUSTOM_ACTION_BOOKMARK
 import org.videolan.resources.CUSTOM_ACTION_FAST_FORWARD
+import org.videolan.resources.CUSTOM_ACTION_LOAD_MEDIA_LIST
 import org.videolan.resources.CUSTOM_ACTION_REPEAT
 import org.videolan.resources.CUSTOM_ACTION_REWIND
 import org.videolan.resources.CUSTOM_ACTION_SHUFFLE
 import org.videolan.resources.CUSTOM_ACTION_SPEED
+import org.videolan.resources.EXTRA_MEDIA_LIST
+import org.videolan.resources.EXTRA_MEDIA_LIST_POSITION
 import org.videolan.resources.EXTRA_RELATIVE_MEDIA_ID
 import org.videolan.resources.MEDIALIBRARY_PAGE_SIZE
 import org.videolan.resources.util.getFromMl
+import org.videolan.resources.util.mediaList
 import org.videolan.resources.util.parcelable
 import org.videolan.tools.KEY_IGNORE_HEADSET_MEDIA_BUTTON_PRESSES
 import org.videolan.tools.KEY_PLAYBACK_SPEED_AUDIO_GLOBAL
@@ -266,6 +271,11 @@ internal class MediaSessionCallback(private val playbackService: PlaybackService
                 PlaybackStateCompat.REPEAT_MODE_ONE -> PlaybackStateCompat.REPEAT_MODE_NONE
                 else -> PlaybackStateCompat.REPEAT_MODE_NONE
             }
+            CUSTOM_ACTION_LOAD_MEDIA_LIST -> if (extras != null) playbackService.lifecycleScope.launch {
+                // References are resolved with medialibrary queries
+                val mediaList = withContext(Dispatchers.IO) { extras.mediaList(EXTRA_MEDIA_LIST) }
+                if (!mediaList.isNullOrEmpty()) loadMedia(mediaList, extras.getInt(EXTRA_MEDIA_LIST_POSITION))
+            }
         }
     }
 
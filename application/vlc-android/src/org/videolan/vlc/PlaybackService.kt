@@ -45,7 +45,6 @@ import android.os.Bundle
 import android.os.IBinder
 import android.os.PowerManager
 import android.support.v4.media.MediaBrowserCompat
-import android.support.v4.media.MediaDescriptionCompat
 import android.support.v4.media.MediaMetadataCompat
 import android.support.v4.media.session.MediaSessionCompat
 import android.support.v4.media.session.PlaybackStateCompat
@@ -114,6 +113,7 @@ import org.videolan.resources.AppContextProvider
 import org.videolan.resources.CUSTOM_ACTION
 import org.videolan.resources.CUSTOM_ACTION_BOOKMARK
 import org.videolan.resources.CUSTOM_ACTION_FAST_FORWARD
+import org.videolan.resources.CUSTOM_ACTION_GET_PLAY_QUEUE
 import org.videolan.resources.CUSTOM_ACTION_REPEAT
 import org.videolan.resources.CUSTOM_ACTION_REWIND
 import org.videolan.resources.CUSTOM_ACTION_SHUFFLE
@@ -133,7 +133,6 @@ import org.videolan.resources.VLCOptions
 import org.videolan.resources.WEARABLE_RESERVE_SLOT_SKIP_TO_NEXT
 import org.videolan.resources.WEARABLE_RESERVE_SLOT_SKIP_TO_PREV
 import org.videolan.resources.WEARABLE_SHOW_CUSTOM_ACTION
-import org.videolan.resources.util.VLCCrashHandler
 import org.videolan.resources.util.getFromMl
 import org.videolan.resources.util.launchForeground
 import org.videolan.resources.util.registerReceiverCompat
@@ -161,7 +160,6 @@ import org.videolan.tools.SHOW_SEEK_IN_COMPACT_NOTIFICATION
 import org.videolan.tools.Settings
 import org.videolan.tools.formatRateString
 import org.videolan.tools.getContextWithLocale
-import org.videolan.tools.getResourceUri
 import org.videolan.tools.markBidi
 import org.videolan.tools.readableSize
 import org.videolan.vlc.gui.AudioPlayerContainerActivity
@@ -175,10 +173,12 @@ import org.videolan.vlc.gui.preferences.PreferencesActivity
 import org.videolan.vlc.gui.video.PopupManager
 import org.videolan.vlc.gui.video.VideoPlayerActivity
 import org.videolan.vlc.media.MediaSessionBrowser
+import org.videolan.vlc.media.MediaSessionQueue
 import org.videolan.vlc.media.MediaUtils
 import org.videolan.vlc.media.NO_LENGTH_PROGRESS_MAX
 import org.videolan.vlc.media.PlayerController
 import org.videolan.vlc.media.PlaylistManager
+import org.videolan.vlc.media.TrackInfoCache
 import org.videolan.vlc.util.AccessControl
 import org.videolan.vlc.util.FlagSet
 import org.videolan.vlc.util.LifecycleAwareScheduler
@@ -188,7 +188,6 @@ import org.videolan.vlc.util.PlaybackAction
 import org.videolan.vlc.util.RendererLiveData
 import org.videolan.vlc.util.SchedulerCallback
 import org.videolan.vlc.util.TextUtils
-import org.videolan.vlc.util.ThumbnailsProvider
 import org.videolan.vlc.util.Util
 import org.videolan.vlc.util.VLCAudioFocusHelper
 import org.videolan.vlc.util.awaitMedialibraryStarted
@@ -222,7 +221,7 @@ class PlaybackService : MediaBrowserServiceCompat(), LifecycleOwner, CoroutineSc
     internal lateinit var settings: SharedPreferences
     private val binder = LocalBinder()
     internal lateinit var medialibrary: Medialibrary
-    private lateinit var artworkMap: MutableMap<String, Uri>
+    private lateinit var mediaQueue: MediaSessionQueue
 
     private val callbacks = mutableListOf<Callback>()
     private val subtitleMessage = ArrayDeque<Pair<String,Long>>(1)
@@ -265,6 +264,13 @@ class PlaybackService : MediaBrowserServiceCompat(), LifecycleOwner, CoroutineSc
     private var popupManager: PopupManager? = null
 
     private val mediaFactory = FactoryManager.getFactory(IMediaFactory.factoryId) as IMediaFactory
+    // The single audio track of the media, if they have only one
+    private val trackInfoCache = TrackInfoCache(this) { mediaWrapper ->
+        val media = mediaFactory.getFromUri(VLCInstance.getInstance(this), mediaWrapper.uri).apply { parse() }
+        val tracks = media.getAudioTracks()
+        media.release()
+        tracks.singleOrNull()
+    }
     private lateinit var carConnection: CarConnection
 
     /**
@@ -552,39 +558,21 @@ class PlaybackService : MediaBrowserServiceCompat(), LifecycleOwner, CoroutineSc
         }
     }
 
-    suspend fun trackInfo(): String? {
-        val mediaWrapper = playlistManager.getCurrentMedia() ?: return null
-        val media = withContext(Dispatchers.IO) {
-            val libVlc = VLCInstance.getInstance(this@PlaybackService)
-            mediaFactory.getFromUri(libVlc, mediaWrapper.uri).apply { parse() }
-        }
-        val tracks = media.getAudioTracks()
-        media.release()
-        return if (tracks.size == 1) tracks.first().formatTrackInfoString(this) else null
-    }
+    suspend fun trackInfo() = trackInfo(playlistManager.getCurrentMedia())
 
-    suspend fun prevTrackInfo(): String? {
-        val mediaWrapper = playlistManager.getPrevMedia() ?: return null
-        val media = withContext(Dispatchers.IO) {
-            val libVlc = VLCInstance.getInstance(this@PlaybackService)
-            mediaFactory.getFromUri(libVlc, mediaWrapper.uri).apply { parse() }
-        }
-        val tracks = media.getAudioTracks()
-        media.release()
-        return if (tracks.size == 1) tracks.first().formatTrackInfoString(this) else null
-    }
+    suspend fun prevTrackInfo() = trackInfo(playlistManager.getPrevMedia())
 
-    suspend fun nextTrackInfo(): String? {
-        val mediaWrapper = playlistManager.getNextMedia() ?: return null
-        val media = withContext(Dispatchers.IO) {
-            val libVlc = VLCInstance.getInstance(this@PlaybackService)
-            mediaFactory.getFromUri(libVlc, mediaWrapper.uri).apply { parse() }
-        }
-        val tracks = media.getAudioTracks()
-        media.release()
-        return if (tracks.size == 1) tracks.first().formatTrackInfoString(this) else null
+    suspend fun nextTrackInfo() = trackInfo(playlistManager.getNextMedia())
+
+    private suspend fun trackInfo(media: MediaWrapper?): String? {
+        return trackInfoCache.get(media ?: return null)?.formatTrackInfoString(this)
     }
 
+    /**
+     * Parses the audio tracks of the [medias] in the background, for [trackInfo]
+     */
+    fun prefetchTrackInfo(medias: List<MediaWrapper>) = trackInfoCache.prefetch(medias.filter { it.type == MediaWrapper.TYPE_AUDIO })
+
     fun IMedia.AudioTrack.formatTrackInfoString(context: Context): String {
         val trackInfo = mutableListOf<String>()
         if (bitrate > 0)
@@ -745,7 +733,7 @@ class PlaybackService : MediaBrowserServiceCompat(), LifecycleOwner, CoroutineSc
         Util.checkCpuCompatibility(this)
 
         medialibrary = Medialibrary.getInstance()
-        artworkMap = HashMap<String, Uri>()
+        mediaQueue = MediaSessionQueue(this).also { playlistManager.addMediaListEventListener(it) }
 
         browserCallback = MediaBrowserCallback(this)
         browserCallback.registerCallback {
@@ -922,6 +910,8 @@ class PlaybackService : MediaBrowserServiceCompat(), LifecycleOwner, CoroutineSc
         stop(systemExit = true)
 
         unregisterReceiver(receiver)
+        trackInfoCache.clear()
+        playlistManager.removeMediaListEventListener(mediaQueue)
         playlistManager.onServiceDestroyed()
     }
 
@@ -1233,8 +1223,7 @@ class PlaybackService : MediaBrowserServiceCompat(), LifecycleOwner, CoroutineSc
                     else -> {
                         //The media id may be 0 on resume
                         val mw = getFromMl { findMedia(media) }
-                        val mediaId = MediaSessionBrowser.generateMediaId(mw)
-                        artworkMap[mediaId] ?: ArtworkProvider.buildMediaUri(ctx, mw)
+                        mediaQueue.artworkUri(mw) ?: ArtworkProvider.buildMediaUri(ctx, mw)
                     }
                 }
                 bob.putString(MediaMetadataCompat.METADATA_KEY_ALBUM_ART_URI, albumArtUri.toString())
@@ -1530,24 +1519,6 @@ class PlaybackService : MediaBrowserServiceCompat(), LifecycleOwner, CoroutineSc
 
     private fun updateMediaQueue() = lifecycleScope.launch(start = CoroutineStart.UNDISPATCHED) {
         if (!this@PlaybackService::mediaSession.isInitialized) initMediaSession()
-        artworkMap = HashMap<String, Uri>().also {
-            val ctx = this@PlaybackService
-            val artworkToUriCache = HashMap<String, Uri>()
-            for (media in playlistManager.getMediaList()) {
-                try {
-                    val artworkMrl = media.artworkMrl
-                    if (!artworkMrl.isNullOrEmpty() && isPathValid(artworkMrl)) {
-                        val artworkUri = artworkToUriCache.getOrPut(artworkMrl) { ArtworkProvider.buildMediaUri(ctx, media) }
-                        val key = MediaSessionBrowser.generateMediaId(media)
-                        it[key] = artworkUri
-                    }
-                } catch (e: java.lang.NullPointerException) {
-                    Log.e("PlaybackService", "Caught NullPointerException", e)
-                    VLCCrashHandler.saveLog(e, "NullPointerException in PlaybackService updateMediaQueue")
-                }
-            }
-            artworkToUriCache.clear()
-        }
         updateMediaQueueSlidingWindow(true)
     }
 
@@ -1581,35 +1552,8 @@ class PlaybackService : MediaBrowserServiceCompat(), LifecycleOwner, CoroutineSc
 
     private fun buildQueue(mediaList: List<MediaWrapper>, fromIndex: Int = 0, toIndex: Int = mediaList.size) = lifecycleScope.launch(start = CoroutineStart.UNDISPATCHED) {
         if (!this@PlaybackService.lifecycle.currentState.isAtLeast(Lifecycle.State.CREATED)) return@launch
-        val ctx = this@PlaybackService
-        val queue = withContext(Dispatchers.Default) {
-            ArrayList<MediaSessionCompat.QueueItem>(toIndex - fromIndex).also {
-                for ((position, media) in mediaList.subList(fromIndex, toIndex).withIndex()) {
-                    val title: String? = media.nowPlaying ?: media.title
-                    val mediaId = MediaSessionBrowser.generateMediaId(media)
-                    val iconUri = when {
-                        isSchemeHttpOrHttps(media.artworkMrl) -> {
-                            //ArtworkProvider will cache remote images
-                            ArtworkProvider.buildUri(ctx, Uri.Builder()
-                                    .appendPath(ArtworkProvider.REMOTE)
-                                    .appendQueryParameter(ArtworkProvider.PATH, media.artworkMrl)
-                                    .build())
-                        }
-                        ThumbnailsProvider.isMediaVideo(media) -> ArtworkProvider.buildMediaUri(ctx, media)
-                        else -> artworkMap[mediaId] ?: ctx.resources.getResourceUri(R.drawable.ic_auto_nothumb)
-                    }
-                    val mediaDesc = MediaDescriptionCompat.Builder()
-                            .setTitle(title)
-                            .setSubtitle(MediaUtils.getMediaArtist(ctx, media))
-                            .setDescription(MediaUtils.getMediaAlbum(ctx, media))
-                            .setIconUri(iconUri)
-                            .setMediaUri(media.uri)
-                            .setMediaId(mediaId)
-                            .build()
-                    it.add(MediaSessionCompat.QueueItem(mediaDesc, (fromIndex + position).toLong()))
-                }
-            }
-        }
+        // Only the media added or modified since the previous update are described
+        val queue = withContext(Dispatchers.Default) { mediaQueue.build(mediaList, fromIndex, toIndex) }
         mediaSession.setQueue(queue)
     }
 
@@ -1979,6 +1923,16 @@ class PlaybackService : MediaBrowserServiceCompat(), LifecycleOwner, CoroutineSc
         }
     }
 
+    override fun onCustomAction(action: String, extras: Bundle?, result: Result<Bundle>) {
+        if (action != CUSTOM_ACTION_GET_PLAY_QUEUE) return super.onCustomAction(action, extras, result)
+        result.detach()
+        val queue = playlistManager.getMediaList()
+        val position = playlistManager.currentIndex
+        lifecycleScope.launch(Dispatchers.IO) {
+            result.sendResult(MediaSessionBrowser.buildPlayQueue(queue, position))
+        }
+    }
+
     /**
      * Start the loop that checks for the sleep timer consumption
      */
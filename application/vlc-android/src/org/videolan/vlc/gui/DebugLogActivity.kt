@@ -146,6 +146,12 @@ class DebugLogActivity : AppCompatActivity(), DebugLogService.Client.Callback {
         setOptionsButtonsEnabled(true)
     }
 
+    override fun onLogs(msgs: List<String>) {
+        logList.addAll(msgs)
+        if (::logAdapter.isInitialized) logAdapter.notifyDataSetChanged()
+        setOptionsButtonsEnabled(true)
+    }
+
     override fun onSaved(success: Boolean, path: String) {
         if (success) {
             if (AndroidDevices.isAndroidTv)
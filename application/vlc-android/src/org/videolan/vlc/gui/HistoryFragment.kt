@@ -199,6 +199,7 @@ class HistoryFragment : MediaBrowserFragment<HistoryModel>(), IRefreshable, IHis
         mediaLibrary.clearHistory(Medialibrary.HISTORY_TYPE_GLOBAL)
         viewModel.clearHistory()
         Settings.getInstance(requireActivity()).edit().remove(KEY_AUDIO_LAST_PLAYLIST).remove(KEY_MEDIA_LAST_PLAYLIST).apply()
+        PlaylistManager.deleteSavedQueues()
     }
 
     override fun onCreateActionMode(mode: ActionMode, menu: Menu): Boolean {
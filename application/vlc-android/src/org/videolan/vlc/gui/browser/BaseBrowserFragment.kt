@@ -268,6 +268,13 @@ abstract class BaseBrowserFragment : MediaBrowserFragment<BrowserModel>(), IRefr
         layoutManager = LinearLayoutManager(activity)
         binding.networkList.layoutManager = layoutManager
         binding.networkList.adapter = adapter
+        binding.networkList.addOnScrollListener(object : RecyclerView.OnScrollListener() {
+            override fun onScrolled(recyclerView: RecyclerView, dx: Int, dy: Int) {
+                (recyclerView.layoutManager as? LinearLayoutManager)?.let {
+                    viewModel.provider.setVisibleRange(it.findFirstVisibleItemPosition(), it.findLastVisibleItemPosition())
+                }
+            }
+        })
         registerSwiperRefreshlayout()
         viewModel.dataset.observe(viewLifecycleOwner) { mediaLibraryItems ->
             adapter.update(mediaLibraryItems!!)
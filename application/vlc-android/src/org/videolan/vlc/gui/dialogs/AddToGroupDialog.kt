@@ -39,7 +39,7 @@ import org.videolan.medialibrary.interfaces.media.MediaWrapper
 import org.videolan.medialibrary.interfaces.media.VideoGroup
 import org.videolan.medialibrary.media.DummyItem
 import org.videolan.resources.DUMMY_NEW_GROUP
-import org.videolan.resources.util.parcelableArray
+import org.videolan.resources.util.mediaList
 import org.videolan.tools.AppScope
 import org.videolan.tools.CoroutineContextProvider
 import org.videolan.tools.DependencyProvider
@@ -85,9 +85,7 @@ class AddToGroupDialog : VLCBottomSheetDialogFragment(), SimpleAdapter.ClickHand
         medialibrary = Medialibrary.getInstance()
         adapter = SimpleAdapter(this)
         newTrack = try {
-            @Suppress("UNCHECKED_CAST")
-            val tracks = requireArguments().parcelableArray<MediaWrapper>(KEY_TRACKS) as Array<MediaWrapper>
-            tracks
+            requireArguments().mediaList(KEY_TRACKS)!!.toTypedArray()
         } catch (e: Exception) {
             emptyArray()
         }
@@ -159,7 +157,8 @@ class AddToGroupDialog : VLCBottomSheetDialogFragment(), SimpleAdapter.ClickHand
     override fun onClick(position: Int) {
         when (val item = adapter.currentList[position]) {
             is DummyItem -> {
-                setFragmentResult(CONFIRM_ADD_TO_GROUP_RESULT, bundleOf(KEY_TRACKS to newTrack))
+                // Only the ids are needed to create the group
+                setFragmentResult(CONFIRM_ADD_TO_GROUP_RESULT, bundleOf(KEY_TRACK_IDS to LongArray(newTrack.size) { newTrack[it].id }, KEY_GROUP_TITLE to newTrack.first().title))
                 dismiss()
             }
             else -> addToGroup(item as VideoGroup)
@@ -172,6 +171,8 @@ class AddToGroupDialog : VLCBottomSheetDialogFragment(), SimpleAdapter.ClickHand
         const val TAG = "VLC/SavePlaylistDialog"
 
         const val KEY_TRACKS = "ADD_TO_GROUP_TRACKS"
+        const val KEY_TRACK_IDS = "ADD_TO_GROUP_TRACK_IDS"
+        const val KEY_GROUP_TITLE = "ADD_TO_GROUP_TITLE"
         const val FORBID_NEW_GROUP = "FORBID_NEW_GROUP"
     }
 }
@@ -20,7 +20,6 @@
 package org.videolan.vlc.gui.helpers
 
 import android.graphics.Bitmap
-import android.graphics.BitmapFactory
 import android.media.RingtoneManager
 import android.net.Uri
 import android.os.Build
@@ -33,12 +32,10 @@ import androidx.core.content.contentValuesOf
 import androidx.fragment.app.FragmentActivity
 import androidx.lifecycle.lifecycleScope
 import kotlinx.coroutines.Dispatchers
-import kotlinx.coroutines.runBlocking
 import kotlinx.coroutines.withContext
 import org.videolan.libvlc.util.AndroidUtil
 import org.videolan.medialibrary.interfaces.media.MediaWrapper
-import org.videolan.tools.BitmapCache
-import org.videolan.tools.HttpImageLoader
+import org.videolan.tools.ArtworkLoader
 import org.videolan.tools.removeFileScheme
 import org.videolan.vlc.R
 import org.videolan.vlc.gui.helpers.UiTools.snackerConfirm
@@ -128,41 +125,21 @@ object AudioUtil {
         }
     }
 
-    //TODO Make it a suspend function to get rid of runBlocking {... }
     @WorkerThread
     fun readCoverBitmap(requestedPath: String?, width: Int): Bitmap? {
         val path = requestedPath ?: return null
-        if (isSchemeHttpOrHttps(path)) return runBlocking(Dispatchers.Main) {
-            HttpImageLoader.downloadBitmap(path)
-        }
-        return BitmapCache.getBitmapFromMemCache(path.removeFileScheme() + "_$width") ?: fetchCoverBitmap(path, width)
+        if (isSchemeHttpOrHttps(path)) return ArtworkLoader.loadRemote(path, width)
+        return ArtworkLoader.getCached(path, width) ?: fetchCoverBitmap(path, width)
     }
 
+    /**
+     * Decodes the cover at [requestedPath] for the [ArtworkLoader] width bucket of [width].
+     * Concurrent requests of the same cover share a single decoding.
+     */
     @WorkerThread
     fun fetchCoverBitmap(requestedPath: String, width: Int): Bitmap? {
         val path = requestedPath.removeFileScheme()
         if (path.isEmpty() || !File(path).exists()) return null
-        var cover: Bitmap? = null
-        val options = BitmapFactory.Options()
-
-        /* Get the resolution of the bitmap without allocating the memory */
-        options.inJustDecodeBounds = true
-        BitmapFactory.decodeFile(path, options)
-
-        if (options.outWidth > 0 && options.outHeight > 0) {
-            options.inJustDecodeBounds = false
-            options.inSampleSize = 1
-
-            // Find the best decoding scale for the bitmap
-            if (width > 0) {
-                while (options.outWidth / (options.inSampleSize + 1) > width)
-                    options.inSampleSize = options.inSampleSize * 2
-            }
-
-            // Decode the file (with memory allocation this time)
-            cover = BitmapFactory.decodeFile(path, options)
-            BitmapCache.addBitmapToMemCache(path.removeFileScheme() + "_$width", cover)
-        }
-        return cover
+        return ArtworkLoader.load(path, width) { bucket -> ArtworkLoader.decodeFile(path, bucket) }
     }
 }
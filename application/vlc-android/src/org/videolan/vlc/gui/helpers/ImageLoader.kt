@@ -39,6 +39,7 @@ import org.videolan.medialibrary.media.MediaLibraryItem
 import org.videolan.resources.DUMMY_NEW_GROUP
 import org.videolan.resources.HEADER_MOVIES
 import org.videolan.resources.HEADER_TV_SHOW
+import org.videolan.tools.ArtworkLoader
 import org.videolan.tools.BitmapCache
 import org.videolan.tools.HttpImageLoader
 import org.videolan.tools.Settings
@@ -78,12 +79,11 @@ fun loadImage(v: View, item: MediaLibraryItem?, imageWidth: Int = 0, tv: Boolean
     val isGroup = isMedia && item.itemType == MediaLibraryItem.TYPE_VIDEO_GROUP
     val isFolder = !isMedia && item.itemType == MediaLibraryItem.TYPE_FOLDER
     val cacheWidth = if (imageWidth != 0) imageWidth else v.width
-    val cacheKey = when {
-        isGroup -> "videogroup:${item.title}"
-        isFolder -> "folder:${(item as Folder).mMrl.sanitizePath()}"
-        else -> ThumbnailsProvider.getMediaCacheKey(isMedia, item, cacheWidth.toString())
+    val bitmap = when {
+        isGroup -> BitmapCache.getBitmapFromMemCache("videogroup:${item.title}")
+        isFolder -> BitmapCache.getBitmapFromMemCache("folder:${(item as Folder).mMrl.sanitizePath()}")
+        else -> ArtworkLoader.getCached(ThumbnailsProvider.getMediaCacheKey(isMedia, item), cacheWidth)
     }
-    val bitmap = if (cacheKey !== null) BitmapCache.getBitmapFromMemCache(cacheKey) else null
     if (bitmap !== null) updateImageView(bitmap, v, binding, tv = tv, card = card)
     else {
         v.scope.takeIf { it.isActive }?.launch { getImage(v, findInLibrary(item, isMedia), binding, imageWidth, tv = tv, card = card) }
@@ -48,7 +48,7 @@ object MediaComparators {
         buildComparableTitle(item1.title).compareTo(buildComparableTitle(item2.title))
     }
 
-    private fun buildComparableTitle(origTitle: String): String {
+    fun buildComparableTitle(origTitle: String): String {
         val tTitle = origTitle.trim()
         if (tTitle.isEmpty()) return tTitle
         /* Remove invalid leading characters and articles */
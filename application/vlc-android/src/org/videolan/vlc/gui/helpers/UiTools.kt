@@ -132,7 +132,8 @@ import org.videolan.resources.ID_SPONSOR
 import org.videolan.resources.TAG_ITEM
 import org.videolan.resources.TV_CONFIRMATION_ACTIVITY
 import org.videolan.resources.util.launchForeground
-import org.videolan.tools.BitmapCache
+import org.videolan.resources.util.putMediaList
+import org.videolan.tools.ArtworkLoader
 import org.videolan.tools.KEY_APP_THEME
 import org.videolan.tools.KEY_INCLUDE_MISSING
 import org.videolan.tools.KEY_INCOGNITO
@@ -622,7 +623,7 @@ object UiTools {
     fun FragmentActivity.addToPlaylist(tracks: Array<MediaWrapper>, key: String) {
         if (!isStarted()) return
         val savePlaylistDialog = SavePlaylistDialog()
-        savePlaylistDialog.arguments = bundleOf(key to tracks)
+        savePlaylistDialog.arguments = Bundle().apply { putMediaList(key, tracks.asList()) }
         savePlaylistDialog.show(supportFragmentManager, "fragment_add_to_playlist")
     }
 
@@ -652,7 +653,7 @@ object UiTools {
     fun FragmentActivity.addToGroup(tracks: List<MediaWrapper>, forbidNewGroup:Boolean) {
         if (!isStarted()) return
         val addToGroupDialog = AddToGroupDialog()
-        addToGroupDialog.arguments = bundleOf(AddToGroupDialog.KEY_TRACKS to tracks.toTypedArray(), AddToGroupDialog.FORBID_NEW_GROUP to forbidNewGroup)
+        addToGroupDialog.arguments = bundleOf(AddToGroupDialog.FORBID_NEW_GROUP to forbidNewGroup).apply { putMediaList(AddToGroupDialog.KEY_TRACKS, tracks) }
         addToGroupDialog.show(supportFragmentManager, "fragment_add_to_group")
     }
 
@@ -669,7 +670,7 @@ object UiTools {
             val iconBitmap = if (mediaLibraryItem is Genre || mediaLibraryItem is Playlist)
                 ThumbnailsProvider.getPlaylistOrGenreImage("playlist:${mediaLibraryItem.id}_${48.dp}", mediaLibraryItem.tracks.toList(), 48.dp)
             else
-                BitmapCache.getBitmapFromMemCache(ThumbnailsProvider.getMediaCacheKey(mediaLibraryItem is MediaWrapper, mediaLibraryItem, 48.dp.toString()))
+                ArtworkLoader.getCached(ThumbnailsProvider.getMediaCacheKey(mediaLibraryItem is MediaWrapper, mediaLibraryItem), 48.dp)
                         ?: ThumbnailsProvider.obtainBitmap(mediaLibraryItem, 48.dp)
 
 
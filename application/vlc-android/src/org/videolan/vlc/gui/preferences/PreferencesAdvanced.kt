@@ -101,6 +101,7 @@ import org.videolan.vlc.gui.helpers.hf.StoragePermissionsDelegate.Companion.getW
 import org.videolan.vlc.gui.helpers.restartMediaPlayer
 import org.videolan.vlc.gui.preferences.search.PreferenceParser
 import org.videolan.vlc.isVLC4
+import org.videolan.vlc.media.PlaylistManager
 import org.videolan.vlc.providers.PickerType
 import org.videolan.vlc.util.AutoUpdate
 import org.videolan.vlc.util.FileUtils
@@ -156,6 +157,7 @@ class PreferencesAdvanced : BasePreferenceFragment(), SharedPreferences.OnShared
                         .remove(KEY_CURRENT_AUDIO_RESUME_ARTIST)
                         .remove(KEY_CURRENT_AUDIO_RESUME_THUMB)
                         .apply()
+                    PlaylistManager.deleteSavedQueues()
                 }
                 RESULT_VALUE_CLEAR_MEDIA_DATABASE -> {
                     val medialibrary = Medialibrary.getInstance()
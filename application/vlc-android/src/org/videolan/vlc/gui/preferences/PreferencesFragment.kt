@@ -63,6 +63,7 @@ import org.videolan.vlc.gui.dialogs.PREFERENCE_KEY
 import org.videolan.vlc.gui.dialogs.PermissionListDialog
 import org.videolan.vlc.gui.helpers.UiTools
 import org.videolan.vlc.gui.preferences.search.PreferenceItem
+import org.videolan.vlc.media.PlaylistManager
 import org.videolan.vlc.util.Permissions
 
 class PreferencesFragment : BasePreferenceFragment(), SharedPreferences.OnSharedPreferenceChangeListener {
@@ -137,6 +138,7 @@ class PreferencesFragment : BasePreferenceFragment(), SharedPreferences.OnShared
                         .remove(KEY_CURRENT_MEDIA)
                         .remove(KEY_CURRENT_MEDIA_RESUME)
                         .apply()
+                    PlaylistManager.deleteSavedQueues()
                     val activity = activity
                     activity?.setResult(RESULT_RESTART)
                     audioResumePref.isChecked = false
@@ -206,6 +208,7 @@ class PreferencesFragment : BasePreferenceFragment(), SharedPreferences.OnShared
                         .remove(KEY_CURRENT_MEDIA_RESUME)
                         .remove(KEY_CURRENT_MEDIA)
                         .apply()
+                PlaylistManager.deleteSavedQueues(audio = false)
                 val activity = activity
                 activity?.setResult(RESULT_RESTART)
                 return true
@@ -0,0 +1,141 @@
+/*
+ * ************************************************************************
+ *  PlaybackTelemetry.kt
+ * *************************************************************************
+ * Copyright © 2026 VLC authors and VideoLAN
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston MA 02110-1301, USA.
+ * **************************************************************************
+ *
+ *
+ */
+
+package org.videolan.vlc.gui.video
+
+import org.videolan.libvlc.interfaces.IMedia
+import org.videolan.liveplotgraph.TimeSeries
+import java.io.Writer
+import java.util.Locale
+
+/**
+ * Samples the playback statistics of a media into fixed size ring buffers.
+ *
+ * libvlc counters are cumulative since the media was opened: each sample stores the rates derived from the
+ * previous one. A counter going backward means the media was reopened, and the rates restart from this sample.
+ * All the metrics are sampled together, so their series share their timestamps.
+ */
+class PlaybackTelemetry(capacity: Int = DEFAULT_CAPACITY) {
+
+    enum class Metric(val csvName: String) {
+        INPUT_BITRATE("input_kbps"),
+        DEMUX_BITRATE("demux_kbps"),
+        DECODED_FPS("decoded_fps"),
+        DISPLAYED_FPS("displayed_fps"),
+        DROPPED_FPS("dropped_fps"),
+        LOST_AUDIO_BUFFERS("lost_audio_buffers_per_s"),
+        DEMUX_CORRUPTED("demux_corrupted_per_s"),
+        DEMUX_DISCONTINUITIES("demux_discontinuities_per_s")
+    }
+
+    /**
+     * Cumulative counters of a sample
+     */
+    class Counters(val decodedVideo: Int, val displayedPictures: Int, val lostPictures: Int, val lostAudioBuffers: Int, val demuxCorrupted: Int, val demuxDiscontinuities: Int) {
+        constructor(stats: IMedia.Stats) : this(stats.decodedVideo, stats.displayedPictures, stats.lostPictures, stats.lostAbuffers, stats.demuxCorrupted, stats.demuxDiscontinuity)
+
+        fun isAfter(other: Counters) = decodedVideo >= other.decodedVideo && displayedPictures >= other.displayedPictures
+                && lostPictures >= other.lostPictures && lostAudioBuffers >= other.lostAudioBuffers
+                && demuxCorrupted >= other.demuxCorrupted && demuxDiscontinuities >= other.demuxDiscontinuities
+    }
+
+    private val series = Array(Metric.values().size) { TimeSeries(capacity) }
+    private var previous: Counters? = null
+    private var previousTimestamp = 0L
+
+    val size: Int
+        get() = series[0].size
+
+    fun get(metric: Metric) = series[metric.ordinal]
+
+    /**
+     * @param timestamp the sample time, in ms
+     */
+    fun sample(timestamp: Long, stats: IMedia.Stats) = sample(timestamp, stats.inputBitrate * 8 * 1024, stats.demuxBitrate * 8 * 1024, Counters(stats))
+
+    /**
+     * @param inputBitrate the input bitrate, in kb/s
+     * @param demuxBitrate the demux bitrate, in kb/s
+     */
+    fun sample(timestamp: Long, inputBitrate: Float, demuxBitrate: Float, counters: Counters) {
+        if (size > 0 && timestamp <= get(Metric.INPUT_BITRATE).lastTimestamp) return
+        val last = previous?.takeIf { counters.isAfter(it) && timestamp > previousTimestamp }
+        val seconds = (timestamp - previousTimestamp) / 1000f
+        fun rate(current: Int, previous: Int?) = if (previous == null) 0f else (current - previous) / seconds
+
+        add(Metric.INPUT_BITRATE, timestamp, inputBitrate)
+        add(Metric.DEMUX_BITRATE, timestamp, demuxBitrate)
+        add(Metric.DECODED_FPS, timestamp, rate(counters.decodedVideo, last?.decodedVideo))
+        add(Metric.DISPLAYED_FPS, timestamp, rate(counters.displayedPictures, last?.displayedPictures))
+        add(Metric.DROPPED_FPS, timestamp, rate(counters.lostPictures, last?.lostPictures))
+        add(Metric.LOST_AUDIO_BUFFERS, timestamp, rate(counters.lostAudioBuffers, last?.lostAudioBuffers))
+        add(Metric.DEMUX_CORRUPTED, timestamp, rate(counters.demuxCorrupted, last?.demuxCorrupted))
+        add(Metric.DEMUX_DISCONTINUITIES, timestamp, rate(counters.demuxDiscontinuities, last?.demuxDiscontinuities))
+        previous = counters
+        previousTimestamp = timestamp
+    }
+
+    fun clear() {
+        series.forEach { it.clear() }
+        previous = null
+        previousTimestamp = 0L
+    }
+
+    /**
+     * Copy of the sampled series, oldest first, which can be written while the sampling goes on
+     */
+    class Snapshot(val timestamps: LongArray, val values: Array<FloatArray>) {
+
+        /**
+         * Writes the series with a column per [Metric]
+         */
+        fun writeCsv(writer: Writer) {
+            writer.write("time_ms")
+            Metric.values().forEach { writer.write(",${it.csvName}") }
+            writer.write("\n")
+            for (i in timestamps.indices) {
+                writer.write(timestamps[i].toString())
+                values.forEach { writer.write(String.format(Locale.US, ",%.2f", it[i])) }
+                writer.write("\n")
+            }
+            writer.flush()
+        }
+    }
+
+    /**
+     * Copies the series, on the sampling thread as they are not thread safe
+     */
+    fun snapshot(): Snapshot {
+        val timestamps = get(Metric.INPUT_BITRATE)
+        return Snapshot(LongArray(size) { timestamps.timestampAt(it) }, Array(series.size) { metric -> FloatArray(size) { series[metric].valueAt(it) } })
+    }
+
+    fun writeCsv(writer: Writer) = snapshot().writeCsv(writer)
+
+    private fun add(metric: Metric, timestamp: Long, value: Float) = series[metric.ordinal].add(timestamp, value)
+
+    companion object {
+        // 10 minutes of samples, at the stats refresh rate
+        const val DEFAULT_CAPACITY = 2000
+    }
+}
@@ -64,7 +64,6 @@ import org.videolan.resources.MOVIEPEDIA_MEDIA
 import org.videolan.resources.PLAYLIST_TYPE_VIDEO
 import org.videolan.resources.UPDATE_SEEN
 import org.videolan.resources.util.parcelable
-import org.videolan.resources.util.parcelableArray
 import org.videolan.resources.util.waitForML
 import org.videolan.tools.KEY_CASTING_AUDIO_ONLY
 import org.videolan.tools.KEY_GROUP_VIDEOS
@@ -332,8 +331,8 @@ class VideoGridFragment : MediaBrowserFragment<VideosViewModel>(), SwipeRefreshL
         (parentFragment as? VideoBrowserFragment)?.videoGridOnlyFavorites = viewModel.provider.onlyFavorites
         requireActivity().supportFragmentManager.setFragmentResultListener(CONFIRM_ADD_TO_GROUP_RESULT, viewLifecycleOwner) { requestKey, bundle ->
             lifecycleScope.launch {
-                val selection = bundle.parcelableArray<MediaWrapper>(AddToGroupDialog.KEY_TRACKS) ?: arrayOf()
-                viewModel.createGroup(selection.toList())?.let {
+                val ids = bundle.getLongArray(AddToGroupDialog.KEY_TRACK_IDS) ?: return@launch
+                viewModel.createGroup(ids, bundle.getString(AddToGroupDialog.KEY_GROUP_TITLE))?.let {
                     // we already are in a group. Finishing to avoid stacking multiple group activities
                     if (viewModel.groupingType == VideoGroupingType.NONE) requireActivity().finish()
                     activity?.open(it)
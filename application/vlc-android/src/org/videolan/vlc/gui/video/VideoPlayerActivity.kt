@@ -138,7 +138,8 @@ import org.videolan.resources.PLAY_FROM_VIDEOGRID
 import org.videolan.resources.TV_AUDIOPLAYER_ACTIVITY
 import org.videolan.resources.buildPkgString
 import org.videolan.resources.util.parcelable
-import org.videolan.resources.util.parcelableList
+import org.videolan.resources.util.mediaList
+import org.videolan.resources.util.putMediaList
 import org.videolan.tools.BRIGHTNESS_VALUE
 import org.videolan.tools.DISPLAY_UNDER_NOTCH
 import org.videolan.tools.ENABLE_BRIGHTNESS_GESTURE
@@ -625,7 +626,7 @@ open class VideoPlayerActivity : AppCompatActivity(), PlaybackService.Callback,
         UiTools.setRotationAnimation(this)
         if (savedInstanceState != null) {
             savedTime = savedInstanceState.getLong(KEY_TIME)
-            savedMediaList = savedInstanceState.parcelableList(KEY_MEDIA_LIST)
+            savedMediaList = savedInstanceState.mediaList(KEY_MEDIA_LIST)?.let { ArrayList(it) }
             savedMediaIndex = savedInstanceState.getInt(KEY_MEDIA_INDEX)
             val list = savedInstanceState.getBoolean(KEY_LIST, false)
             if (list) {
@@ -827,7 +828,7 @@ open class VideoPlayerActivity : AppCompatActivity(), PlaybackService.Callback,
         val mediaList = service?.playlistManager?.getMediaList() ?: savedMediaList
         val mediaIndex = service?.playlistManager?.currentIndex ?: savedMediaIndex
         if (mediaList != null) {
-            outState.putParcelableArrayList(KEY_MEDIA_LIST, ArrayList(mediaList))
+            outState.putMediaList(KEY_MEDIA_LIST, mediaList)
             outState.putInt(KEY_MEDIA_INDEX, mediaIndex)
             savedMediaList = null
         }
@@ -604,6 +604,7 @@ class VideoPlayerOverlayDelegate (private val player: VideoPlayerActivity) {
                     if (it) player.statsDelegate.start() else player.statsDelegate.stop()
                 }
                 hudBinding.statsClose.setOnClickListener { service.playlistManager.videoStatsOn.postValue(false) }
+                hudBinding.statsExport.setOnClickListener { player.statsDelegate.exportCsv() }
 
                 hudBinding.lifecycleOwner = player
                 updateOrientationIcon()
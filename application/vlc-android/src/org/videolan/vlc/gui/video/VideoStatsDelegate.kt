@@ -39,6 +39,10 @@ import androidx.constraintlayout.widget.ConstraintLayout
 import androidx.constraintlayout.widget.ConstraintSet
 import androidx.core.content.ContextCompat
 import androidx.core.widget.NestedScrollView
+import androidx.lifecycle.lifecycleScope
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.launch
+import kotlinx.coroutines.withContext
 import org.videolan.libvlc.Media
 import org.videolan.libvlc.interfaces.IMedia
 import org.videolan.liveplotgraph.LineGraph
@@ -50,6 +54,12 @@ import org.videolan.vlc.databinding.PlayerHudBinding
 import org.videolan.vlc.getAllTracks
 import org.videolan.vlc.gui.helpers.UiTools.isTablet
 import org.videolan.vlc.util.LocaleUtil
+import org.videolan.vlc.util.share
+import java.io.File
+import java.io.IOException
+import java.text.SimpleDateFormat
+import java.util.Date
+import java.util.Locale
 
 class VideoStatsDelegate(private val player: VideoPlayerActivity, val scrolling: () -> Unit, val idle: () -> Unit) {
     lateinit var container: ConstraintLayout
@@ -60,12 +70,14 @@ class VideoStatsDelegate(private val player: VideoPlayerActivity, val scrolling:
     lateinit var binding: PlayerHudBinding
     private lateinit var constraintSet: ConstraintSet
     private lateinit var constraintSetLarge: ConstraintSet
+    private val telemetry = PlaybackTelemetry()
 
     fun stop() {
         started = false
         plotHandler.removeCallbacks(runnable)
         container.visibility = View.GONE
         binding.plotView.clear()
+        binding.framesPlotView.clear()
     }
 
     fun start() {
@@ -90,6 +102,9 @@ class VideoStatsDelegate(private val player: VideoPlayerActivity, val scrolling:
         binding.statsScrollview.scrollState({ idle() }, { scrolling() })
         binding.plotView.addLine(LineGraph(StatIndex.DEMUX_BITRATE.ordinal, player.getString(R.string.demux_bitrate), ContextCompat.getColor(player, R.color.material_blue)))
         binding.plotView.addLine(LineGraph(StatIndex.INPUT_BITRATE.ordinal, player.getString(R.string.input_bitrate), ContextCompat.getColor(player, R.color.material_pink)))
+        binding.framesPlotView.addLine(LineGraph(StatIndex.DECODED_FPS.ordinal, player.getString(R.string.decoded_fps), ContextCompat.getColor(player, R.color.material_blue), unit = "fps"))
+        binding.framesPlotView.addLine(LineGraph(StatIndex.DROPPED_FPS.ordinal, player.getString(R.string.dropped_fps), ContextCompat.getColor(player, R.color.material_pink), unit = "fps"))
+        binding.framesPlotView.addLine(LineGraph(StatIndex.DEMUX_CORRUPTED.ordinal, player.getString(R.string.demux_corrupted_rate), ContextCompat.getColor(player, R.color.orange500), unit = "/s"))
         setupLayout()
     }
 
@@ -100,11 +115,14 @@ class VideoStatsDelegate(private val player: VideoPlayerActivity, val scrolling:
         val stats = media.stats
         if (BuildConfig.DEBUG) Log.i(this::class.java.simpleName, "Stats: demuxBitrate: ${stats?.demuxBitrate} demuxCorrupted: ${stats?.demuxCorrupted} demuxDiscontinuity: ${stats?.demuxDiscontinuity} demuxReadBytes: ${stats?.demuxReadBytes}")
         val now = System.currentTimeMillis() - firstTimecode
-        stats?.demuxBitrate?.let {
-            binding.plotView.addData(StatIndex.DEMUX_BITRATE.ordinal, Pair(now, it * 8 * 1024))
-        }
-        stats?.inputBitrate?.let {
-            binding.plotView.addData(StatIndex.INPUT_BITRATE.ordinal, Pair(now, it * 8 * 1024))
+        if (lastMediaUri != null && lastMediaUri != media.uri) telemetry.clear()
+        stats?.let {
+            telemetry.sample(now, it)
+            binding.plotView.addData(StatIndex.DEMUX_BITRATE.ordinal, now, telemetry.get(PlaybackTelemetry.Metric.DEMUX_BITRATE).lastValue)
+            binding.plotView.addData(StatIndex.INPUT_BITRATE.ordinal, now, telemetry.get(PlaybackTelemetry.Metric.INPUT_BITRATE).lastValue)
+            binding.framesPlotView.addData(StatIndex.DECODED_FPS.ordinal, now, telemetry.get(PlaybackTelemetry.Metric.DECODED_FPS).lastValue)
+            binding.framesPlotView.addData(StatIndex.DROPPED_FPS.ordinal, now, telemetry.get(PlaybackTelemetry.Metric.DROPPED_FPS).lastValue)
+            binding.framesPlotView.addData(StatIndex.DEMUX_CORRUPTED.ordinal, now, telemetry.get(PlaybackTelemetry.Metric.DEMUX_CORRUPTED).lastValue)
         }
 
         if (lastMediaUri != media.uri) {
@@ -174,6 +192,27 @@ class VideoStatsDelegate(private val player: VideoPlayerActivity, val scrolling:
         grid.addView(value)
     }
 
+    /**
+     * Writes the statistics sampled for the current media in a CSV file, and shares it
+     */
+    fun exportCsv() = player.lifecycleScope.launch {
+        // Copied on the main thread, where the samples are added
+        val snapshot = telemetry.snapshot()
+        val file = withContext(Dispatchers.IO) {
+            val directory = File(player.filesDir, "stats")
+            if (!directory.exists() && !directory.mkdirs()) return@withContext null
+            val file = File(directory, "stats_${SimpleDateFormat("yyyyMMdd_HHmmss", Locale.US).format(Date())}.csv")
+            try {
+                file.bufferedWriter().use { snapshot.writeCsv(it) }
+                file
+            } catch (e: IOException) {
+                Log.e(this::class.java.simpleName, "Unable to export the statistics", e)
+                null
+            }
+        }
+        file?.let { player.share(it) }
+    }
+
     fun onConfigurationChanged() {
         setupLayout()
     }
@@ -189,7 +228,7 @@ class VideoStatsDelegate(private val player: VideoPlayerActivity, val scrolling:
 }
 
 enum class StatIndex {
-    INPUT_BITRATE, DEMUX_BITRATE
+    INPUT_BITRATE, DEMUX_BITRATE, DECODED_FPS, DROPPED_FPS, DEMUX_CORRUPTED
 }
 
 inline fun NestedScrollView.scrollState(crossinline idle: () -> Unit, crossinline scrolling: () -> Unit) {
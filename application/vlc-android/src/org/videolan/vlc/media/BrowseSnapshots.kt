@@ -0,0 +1,163 @@
+/*
+ * ************************************************************************
+ *  BrowseSnapshots.kt
+ * *************************************************************************
+ * Copyright © 2026 VLC authors and VideoLAN
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston MA 02110-1301, USA.
+ * **************************************************************************
+ *
+ *
+ */
+
+package org.videolan.vlc.media
+
+import android.os.SystemClock
+import androidx.annotation.WorkerThread
+import org.videolan.medialibrary.interfaces.Medialibrary
+import org.videolan.medialibrary.media.MediaLibraryItem
+import org.videolan.vlc.gui.helpers.MediaComparators
+import java.util.concurrent.atomic.AtomicIntegerArray
+import java.util.concurrent.atomic.AtomicReferenceArray
+
+/**
+ * Sorted snapshots of the library categories browsed by the media session.
+ *
+ * A snapshot keeps the ids of a category in the [MediaComparators.ANDROID_AUTO] order, and the range labels of
+ * its pages. It is built on the first browse of its category and kept until the medialibrary reports an addition or
+ * a deletion in it, so that browsing a page only loads the items of this page.
+ * The modifications are also reported for the playback progress and play counts, they only mark the snapshot as
+ * stale: it is rebuilt when browsed at least [MODIFIED_REBUILD_DELAY] ms after its build.
+ */
+object BrowseSnapshots : Medialibrary.MediaCb, Medialibrary.ArtistsCb, Medialibrary.AlbumsCb, Medialibrary.GenresCb {
+
+    enum class Category { ARTISTS, ALL_ARTISTS, ALBUMS, TRACKS, GENRES }
+
+    class Snapshot(val ids: LongArray, val rangeLabels: List<String>, internal val generation: Int, internal val time: Long = SystemClock.elapsedRealtime()) {
+        val size: Int
+            get() = ids.size
+
+        fun page(page: Int, pageSize: Int): LongArray {
+            val offset = (page * pageSize).coerceIn(0, ids.size)
+            return ids.copyOfRange(offset, (offset + pageSize).coerceAtMost(ids.size))
+        }
+    }
+
+    private const val MODIFIED_REBUILD_DELAY = 60_000L
+
+    private val generations = AtomicIntegerArray(Category.values().size)
+    private val modified = AtomicIntegerArray(Category.values().size)
+    private val snapshots = AtomicReferenceArray<Snapshot?>(Category.values().size)
+    private var registered = false
+
+    @WorkerThread
+    fun get(category: Category, pageSize: Int): Snapshot {
+        register()
+        snapshots[category.ordinal]?.let { if (isValid(category, it)) return it }
+        synchronized(category) {
+            snapshots[category.ordinal]?.let { if (isValid(category, it)) return it }
+            val generation = generations[category.ordinal]
+            modified[category.ordinal] = 0
+            return build(category, generation, pageSize).also { snapshots[category.ordinal] = it }
+        }
+    }
+
+    private fun isValid(category: Category, snapshot: Snapshot) = snapshot.generation == generations[category.ordinal]
+            && (modified[category.ordinal] == 0 || SystemClock.elapsedRealtime() - snapshot.time < MODIFIED_REBUILD_DELAY)
+
+    /**
+     * Loads the items of [ids], skipping the ones deleted since the snapshot was built
+     */
+    @WorkerThread
+    fun load(category: Category, ids: LongArray): Array<MediaLibraryItem> {
+        val ml = Medialibrary.getInstance()
+        val items = ArrayList<MediaLibraryItem>(ids.size)
+        for (id in ids) {
+            val item: MediaLibraryItem? = when (category) {
+                Category.ARTISTS, Category.ALL_ARTISTS -> ml.getArtist(id)
+                Category.ALBUMS -> ml.getAlbum(id)
+                Category.TRACKS -> ml.getMedia(id)
+                Category.GENRES -> ml.getGenre(id)
+            }
+            item?.let { items.add(it) }
+        }
+        return items.toTypedArray()
+    }
+
+    private fun build(category: Category, generation: Int, pageSize: Int): Snapshot {
+        val ml = Medialibrary.getInstance()
+        val items: Array<out MediaLibraryItem> = when (category) {
+            Category.ARTISTS -> ml.getArtists(false, Medialibrary.SORT_ALPHA, false, false, false)
+            Category.ALL_ARTISTS -> ml.getArtists(true, Medialibrary.SORT_ALPHA, false, false, false)
+            Category.ALBUMS -> ml.getAlbums(Medialibrary.SORT_ALPHA, false, false, false)
+            Category.TRACKS -> ml.getAudio(Medialibrary.SORT_ALPHA, false, false, false)
+            Category.GENRES -> ml.getGenres(Medialibrary.SORT_ALPHA, false, false, false)
+        }
+        // Compute the comparable titles once, instead of for each comparison
+        val titles = Array(items.size) { MediaComparators.buildComparableTitle(items[it].title) }
+        val order = items.indices.sortedBy { titles[it] }
+        val ids = LongArray(items.size) { items[order[it]].id }
+        val rangeLabels = pageBounds(items.size, pageSize).map { (first, last) ->
+            MediaSessionBrowser.buildRangeLabel(items[order[first]].title, items[order[last]].title)
+        }
+        return Snapshot(ids, rangeLabels, generation)
+    }
+
+    /**
+     * @return the first and last positions of the labeled pages. A last page of a single item is not labeled,
+     * and there are at most [pageSize] pages.
+     */
+    internal fun pageBounds(size: Int, pageSize: Int): List<Pair<Int, Int>> {
+        val bounds = ArrayList<Pair<Int, Int>>()
+        for (page in 0..(size / pageSize)) {
+            val offset = page * pageSize
+            val lastOffset = (offset + pageSize - 1).coerceAtMost(size - 1)
+            if (offset >= lastOffset || bounds.size == pageSize) break
+            bounds.add(offset to lastOffset)
+        }
+        return bounds
+    }
+
+    @Synchronized
+    private fun register() {
+        if (registered) return
+        val ml = Medialibrary.getInstance()
+        ml.addMediaCb(this)
+        ml.addArtistsCb(this)
+        ml.addAlbumsCb(this)
+        ml.addGenreCb(this)
+        registered = true
+    }
+
+    private fun invalidate(vararg categories: Category) = categories.forEach {
+        generations.incrementAndGet(it.ordinal)
+        snapshots[it.ordinal] = null
+    }
+
+    private fun markModified(vararg categories: Category) = categories.forEach { modified[it.ordinal] = 1 }
+
+    override fun onMediaAdded() = invalidate(Category.TRACKS)
+    override fun onMediaModified() = markModified(Category.TRACKS)
+    override fun onMediaDeleted(id: LongArray?) = invalidate(Category.TRACKS)
+    override fun onMediaConvertedToExternal(id: LongArray?) = invalidate(Category.TRACKS)
+    override fun onArtistsAdded() = invalidate(Category.ARTISTS, Category.ALL_ARTISTS)
+    override fun onArtistsModified() = markModified(Category.ARTISTS, Category.ALL_ARTISTS)
+    override fun onArtistsDeleted() = invalidate(Category.ARTISTS, Category.ALL_ARTISTS)
+    override fun onAlbumsAdded() = invalidate(Category.ALBUMS)
+    override fun onAlbumsModified() = markModified(Category.ALBUMS)
+    override fun onAlbumsDeleted() = invalidate(Category.ALBUMS)
+    override fun onGenresAdded() = invalidate(Category.GENRES)
+    override fun onGenresModified() = markModified(Category.GENRES)
+    override fun onGenresDeleted() = invalidate(Category.GENRES)
+}
@@ -46,7 +46,10 @@ import org.videolan.resources.CONTENT_STYLE_LIST_ITEM_HINT_VALUE
 import org.videolan.resources.CONTENT_STYLE_PLAYABLE_HINT
 import org.videolan.resources.EXTRA_BROWSER_ICON_SIZE
 import org.videolan.resources.EXTRA_CONTENT_STYLE_SINGLE_ITEM
+import org.videolan.resources.EXTRA_MEDIA_LIST
+import org.videolan.resources.EXTRA_MEDIA_LIST_POSITION
 import org.videolan.resources.EXTRA_RELATIVE_MEDIA_ID
+import org.videolan.resources.util.putMediaList
 import org.videolan.tools.KEY_ARTISTS_SHOW_ALL
 import org.videolan.tools.PLAYBACK_HISTORY
 import org.videolan.tools.Settings
@@ -156,7 +159,7 @@ class MediaSessionBrowser {
             val ml = Medialibrary.getInstance()
             val parentIdUri = parentId.toUri()
             val page = parentIdUri.getQueryParameter("p")
-            val pageOffset = page?.toInt()?.times(MAX_RESULT_SIZE) ?: 0
+            val pageIndex = page?.toInt() ?: 0
             val isAndroidAuto = rootHints?.containsKey(EXTRA_BROWSER_ICON_SIZE) ?: false
             when (parentIdUri.removeQuery().toString()) {
                 ID_ROOT -> {
@@ -272,32 +275,29 @@ class MediaSessionBrowser {
                 }
                 ID_ARTIST -> {
                     val artistsShowAll = Settings.getInstance(context).getBoolean(KEY_ARTISTS_SHOW_ALL, false)
-                    val artists = ml.getArtists(artistsShowAll, Medialibrary.SORT_ALPHA, false, false, false)
-                    artists.sortWith(MediaComparators.ANDROID_AUTO)
-                    if (page == null && artists.size > MAX_RESULT_SIZE)
-                        return paginateLibrary(artists, parentIdUri, res.getResourceUri(R.drawable.ic_auto_artist))
-                    list = artists.copyOfRange(pageOffset.coerceAtMost(artists.size), (pageOffset + MAX_RESULT_SIZE).coerceAtMost(artists.size))
+                    val category = if (artistsShowAll) BrowseSnapshots.Category.ALL_ARTISTS else BrowseSnapshots.Category.ARTISTS
+                    val snapshot = BrowseSnapshots.get(category, MAX_RESULT_SIZE)
+                    if (page == null && snapshot.size > MAX_RESULT_SIZE)
+                        return paginateLibrary(snapshot, parentIdUri, res.getResourceUri(R.drawable.ic_auto_artist))
+                    list = BrowseSnapshots.load(category, snapshot.page(pageIndex, MAX_RESULT_SIZE))
                 }
                 ID_ALBUM -> {
-                    val albums = ml.getAlbums(Medialibrary.SORT_ALPHA, false, false, false)
-                    albums.sortWith(MediaComparators.ANDROID_AUTO)
-                    if (page == null && albums.size > MAX_RESULT_SIZE)
-                        return paginateLibrary(albums, parentIdUri, res.getResourceUri(R.drawable.ic_auto_album), getContentStyle(CONTENT_STYLE_GRID_ITEM_HINT_VALUE))
-                    list = albums.copyOfRange(pageOffset.coerceAtMost(albums.size), (pageOffset + MAX_RESULT_SIZE).coerceAtMost(albums.size))
+                    val snapshot = BrowseSnapshots.get(BrowseSnapshots.Category.ALBUMS, MAX_RESULT_SIZE)
+                    if (page == null && snapshot.size > MAX_RESULT_SIZE)
+                        return paginateLibrary(snapshot, parentIdUri, res.getResourceUri(R.drawable.ic_auto_album), getContentStyle(CONTENT_STYLE_GRID_ITEM_HINT_VALUE))
+                    list = BrowseSnapshots.load(BrowseSnapshots.Category.ALBUMS, snapshot.page(pageIndex, MAX_RESULT_SIZE))
                 }
                 ID_TRACK -> {
-                    val tracks = ml.getAudio(Medialibrary.SORT_ALPHA, false, false, false)
-                    tracks.sortWith(MediaComparators.ANDROID_AUTO)
-                    if (page == null && tracks.size > MAX_RESULT_SIZE)
-                        return paginateLibrary(tracks, parentIdUri, res.getResourceUri(R.drawable.ic_auto_audio))
-                    list = tracks.copyOfRange(pageOffset.coerceAtMost(tracks.size), (pageOffset + MAX_RESULT_SIZE).coerceAtMost(tracks.size))
+                    val snapshot = BrowseSnapshots.get(BrowseSnapshots.Category.TRACKS, MAX_RESULT_SIZE)
+                    if (page == null && snapshot.size > MAX_RESULT_SIZE)
+                        return paginateLibrary(snapshot, parentIdUri, res.getResourceUri(R.drawable.ic_auto_audio))
+                    list = BrowseSnapshots.load(BrowseSnapshots.Category.TRACKS, snapshot.page(pageIndex, MAX_RESULT_SIZE))
                 }
                 ID_GENRE -> {
-                    val genres = ml.getGenres(Medialibrary.SORT_ALPHA, false, false, false)
-                    genres.sortWith(MediaComparators.ANDROID_AUTO)
-                    if (page == null && genres.size > MAX_RESULT_SIZE)
-                        return paginateLibrary(genres, parentIdUri, res.getResourceUri(R.drawable.ic_auto_genre))
-                    list = genres.copyOfRange(pageOffset.coerceAtMost(genres.size), (pageOffset + MAX_RESULT_SIZE).coerceAtMost(genres.size))
+                    val snapshot = BrowseSnapshots.get(BrowseSnapshots.Category.GENRES, MAX_RESULT_SIZE)
+                    if (page == null && snapshot.size > MAX_RESULT_SIZE)
+                        return paginateLibrary(snapshot, parentIdUri, res.getResourceUri(R.drawable.ic_auto_genre))
+                    list = BrowseSnapshots.load(BrowseSnapshots.Category.GENRES, snapshot.page(pageIndex, MAX_RESULT_SIZE))
                 }
                 ID_PLAYLIST -> {
                     list = ml.getPlaylists(Playlist.Type.All, false).toMutableList().filter { it.nbAudio > 0 || it.nbUnknown > 0}.toTypedArray()
@@ -630,6 +630,18 @@ class MediaSessionBrowser {
             }
         }
 
+        /**
+         * The whole play queue in the compact media list format, for the browser clients: the session queue items
+         * only carry a description of each media, and would not fit in a single binder transaction for large queues
+         *
+         * @param queue the media of the play queue
+         * @param position the index of the current media
+         */
+        fun buildPlayQueue(queue: List<MediaWrapper>, position: Int) = Bundle().apply {
+            putMediaList(EXTRA_MEDIA_LIST, queue, allowFileDescriptors = true)
+            putInt(EXTRA_MEDIA_LIST_POSITION, position)
+        }
+
         fun generateMediaId(libraryItem: MediaLibraryItem): String {
             val prefix = when (libraryItem.itemType) {
                 MediaLibraryItem.TYPE_ALBUM -> ID_ALBUM
@@ -650,26 +662,22 @@ class MediaSessionBrowser {
          * to avoid returning a parcel which exceeds the size limitations. We break the results into another
          * layer of browsable drill-downs labeled "start - finish" for each entry type.
          */
-        private fun paginateLibrary(mediaList: Array<out MediaLibraryItem>, parentIdUri: Uri, iconUri: Uri, extras: Bundle? = null): List<MediaBrowserCompat.MediaItem> {
-            val results: MutableList<MediaBrowserCompat.MediaItem> = ArrayList()
-            /* Build menu items per group */
-            for (page in 0..(mediaList.size / MAX_RESULT_SIZE)) {
-                val offset = (page * MAX_RESULT_SIZE)
-                val lastOffset = (offset + MAX_RESULT_SIZE - 1).coerceAtMost(mediaList.size - 1)
-                if (offset >= lastOffset) break
+        private fun paginateLibrary(snapshot: BrowseSnapshots.Snapshot, parentIdUri: Uri, iconUri: Uri, extras: Bundle? = null): List<MediaBrowserCompat.MediaItem> {
+            val results: MutableList<MediaBrowserCompat.MediaItem> = ArrayList(snapshot.rangeLabels.size)
+            /* Build menu items per group, labeled when the snapshot was built */
+            snapshot.rangeLabels.forEachIndexed { page, label ->
                 val mediaDesc = MediaDescriptionCompat.Builder()
-                        .setTitle(buildRangeLabel(mediaList[offset].title, mediaList[lastOffset].title))
+                        .setTitle(label)
                         .setMediaId(parentIdUri.buildUpon().appendQueryParameter("p", "$page").toString())
                         .setIconUri(iconUri)
                         .setExtras(extras)
                         .build()
                 results.add(MediaBrowserCompat.MediaItem(mediaDesc, MediaBrowserCompat.MediaItem.FLAG_BROWSABLE))
-                if (results.size == MAX_RESULT_SIZE) break
             }
             return results
         }
 
-        private fun buildRangeLabel(firstTitle: String, lastTitle: String): String {
+        internal fun buildRangeLabel(firstTitle: String, lastTitle: String): String {
             val beginTitle = formatArticles(firstTitle, true)
             val endTitle = formatArticles(lastTitle, true)
             var beginTitleSize = beginTitle.length
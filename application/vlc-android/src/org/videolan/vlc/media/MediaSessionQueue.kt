@@ -0,0 +1,172 @@
+/*
+ * ************************************************************************
+ *  MediaSessionQueue.kt
+ * *************************************************************************
+ * Copyright © 2026 VLC authors and VideoLAN
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston MA 02110-1301, USA.
+ * **************************************************************************
+ *
+ *
+ */
+
+package org.videolan.vlc.media
+
+import android.content.Context
+import android.net.Uri
+import android.util.Log
+import android.support.v4.media.MediaDescriptionCompat
+import android.support.v4.media.session.MediaSessionCompat
+import androidx.annotation.WorkerThread
+import org.videolan.medialibrary.interfaces.media.MediaWrapper
+import org.videolan.resources.util.VLCCrashHandler
+import org.videolan.tools.getResourceUri
+import org.videolan.vlc.ArtworkProvider
+import org.videolan.vlc.R
+import org.videolan.vlc.isPathValid
+import org.videolan.vlc.util.ThumbnailsProvider
+import org.videolan.vlc.util.isSchemeHttpOrHttps
+
+private const val TAG = "VLC/MediaSessionQueue"
+
+/**
+ * Media session queue items of the play queue.
+ *
+ * The descriptions are kept in a list aligned with the play queue, which is patched by the [MediaWrapperList]
+ * events, so that only the added or modified media are described again when the queue changes.
+ * The artwork uris are memoized by artwork mrl: the media sharing an artwork share its uri, and the
+ * [ArtworkProvider] caches it once.
+ */
+class MediaSessionQueue(private val context: Context) : MediaWrapperList.EventListener {
+
+    private class Entry(val media: MediaWrapper, val title: String?, val artist: String?, val album: String?, val artworkMrl: String?, val description: MediaDescriptionCompat) {
+        fun isValid(media: MediaWrapper) = media === this.media && title == (media.nowPlaying ?: media.title)
+                && artist == media.artist && album == media.album && artworkMrl == media.artworkMrl
+    }
+
+    private val entries = ArrayList<Entry?>()
+    private val artworks = HashMap<String, Uri>()
+    // Incremented on each change of the entries positions
+    private var version = 0
+    // Whether the entries are aligned with the play queue. They are aligned again on the next build after
+    // the queue has been replaced.
+    private var aligned = false
+
+    /**
+     * Builds the queue items of the [mediaList] from [fromIndex] to [toIndex], describing only the media which
+     * are not cached yet
+     */
+    @WorkerThread
+    fun build(mediaList: List<MediaWrapper>, fromIndex: Int = 0, toIndex: Int = mediaList.size): List<MediaSessionCompat.QueueItem> {
+        val (cached, version) = synchronized(this) {
+            if (!aligned) {
+                reset(mediaList.size)
+                aligned = true
+            }
+            // The list is older or newer than the entries, nothing can be reused
+            if (entries.size != mediaList.size) null to -1
+            else entries.subList(fromIndex, toIndex).toTypedArray() to version
+        }
+        val built = arrayOfNulls<Entry>(toIndex - fromIndex)
+        val queue = ArrayList<MediaSessionCompat.QueueItem>(toIndex - fromIndex)
+        for (position in fromIndex until toIndex) {
+            val media = mediaList[position]
+            val entry = cached?.get(position - fromIndex)?.takeIf { it.isValid(media) } ?: describe(media).also { built[position - fromIndex] = it }
+            queue.add(MediaSessionCompat.QueueItem(entry.description, position.toLong()))
+        }
+        synchronized(this) {
+            if (version == this.version) built.forEachIndexed { index, entry -> entry?.let { entries[fromIndex + index] = it } }
+        }
+        return queue
+    }
+
+    /**
+     * @return the memoized artwork uri of the [media], or null if it has no valid artwork
+     */
+    fun artworkUri(media: MediaWrapper): Uri? = try {
+        val artworkMrl = media.artworkMrl
+        if (artworkMrl.isNullOrEmpty() || !isPathValid(artworkMrl)) null
+        else synchronized(this) { artworks.getOrPut(artworkMrl) { ArtworkProvider.buildMediaUri(context, media) } }
+    } catch (e: NullPointerException) {
+        Log.e(TAG, "Caught NullPointerException", e)
+        VLCCrashHandler.saveLog(e, "NullPointerException in MediaSessionQueue artworkUri")
+        null
+    }
+
+    private fun describe(media: MediaWrapper): Entry {
+        val title: String? = media.nowPlaying ?: media.title
+        val iconUri = when {
+            isSchemeHttpOrHttps(media.artworkMrl) -> {
+                //ArtworkProvider will cache remote images
+                ArtworkProvider.buildUri(context, Uri.Builder()
+                        .appendPath(ArtworkProvider.REMOTE)
+                        .appendQueryParameter(ArtworkProvider.PATH, media.artworkMrl)
+                        .build())
+            }
+            ThumbnailsProvider.isMediaVideo(media) -> ArtworkProvider.buildMediaUri(context, media)
+            else -> artworkUri(media) ?: context.resources.getResourceUri(R.drawable.ic_auto_nothumb)
+        }
+        val description = MediaDescriptionCompat.Builder()
+                .setTitle(title)
+                .setSubtitle(MediaUtils.getMediaArtist(context, media))
+                .setDescription(MediaUtils.getMediaAlbum(context, media))
+                .setIconUri(iconUri)
+                .setMediaUri(media.uri)
+                .setMediaId(MediaSessionBrowser.generateMediaId(media))
+                .build()
+        return Entry(media, title, media.artist, media.album, media.artworkMrl, description)
+    }
+
+    private fun reset(size: Int = 0) {
+        ++version
+        aligned = false
+        entries.clear()
+        entries.addAll(arrayOfNulls<Entry>(size))
+        artworks.clear()
+    }
+
+    @Synchronized
+    override fun onItemAdded(index: Int, mrl: String) = onItemsAdded(index, listOf(mrl))
+
+    @Synchronized
+    override fun onItemsAdded(index: Int, mrls: List<String>) {
+        ++version
+        entries.addAll(index.coerceAtMost(entries.size), arrayOfNulls<Entry>(mrls.size).asList())
+    }
+
+    override fun onItemRemoved(index: Int, mrl: String) = onItemsRemoved(index, listOf(mrl))
+
+    @Synchronized
+    override fun onItemsRemoved(index: Int, mrls: List<String>) {
+        ++version
+        if (index + mrls.size > entries.size) return reset()
+        entries.subList(index, index + mrls.size).clear()
+        if (entries.isEmpty()) artworks.clear()
+    }
+
+    override fun onItemMoved(indexBefore: Int, indexAfter: Int, mrl: String) = onItemsMoved(indexBefore, 1, indexAfter, listOf(mrl))
+
+    @Synchronized
+    override fun onItemsMoved(indexBefore: Int, count: Int, indexAfter: Int, mrls: List<String>) {
+        ++version
+        if (indexBefore + count > entries.size || indexAfter > entries.size) return reset()
+        val range = entries.subList(indexBefore, indexBefore + count)
+        val moved = range.toList()
+        range.clear()
+        entries.addAll(if (indexAfter > indexBefore) indexAfter - count else indexAfter, moved)
+    }
+
+    @Synchronized
+    override fun onListReplaced() = reset()
+}
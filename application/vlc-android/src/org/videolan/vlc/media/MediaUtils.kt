@@ -273,18 +273,16 @@ object MediaUtils {
                         it.media(provider.type, Medialibrary.SORT_DEFAULT, false, Settings.includeMissing, false, it.mediaCount(provider.type), 0).toList()
                     }
                 })
-                else -> {
-                    var index = 0
-                    while (index < count) {
-                        val pageCount = min(MEDIALIBRARY_PAGE_SIZE, count - index)
+                else -> provider.cursor().use { cursor ->
+                    while (true) {
+                        val first = cursor.position == 0
                         val list = withContext(Dispatchers.IO) {
-                            provider.getPage(pageCount, index).flatMap {
+                            if (cursor.hasNext()) cursor.next().flatMap {
                                 it.media(provider.type, Medialibrary.SORT_DEFAULT, false, Settings.includeMissing, false, it.mediaCount(provider.type), 0).toList()
-                            }
-                        }
-                        if (index == 0) play(list)
+                            } else null
+                        } ?: break
+                        if (first) play(list)
                         else service.append(list)
-                        index += pageCount
                     }
                 }
             }
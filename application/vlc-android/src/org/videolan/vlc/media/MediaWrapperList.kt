@@ -21,82 +21,156 @@
 package org.videolan.vlc.media
 
 import org.videolan.medialibrary.interfaces.media.MediaWrapper
-import java.util.*
+import java.util.concurrent.CopyOnWriteArrayList
 
+/**
+ * Play queue content.
+ *
+ * The content is held in an immutable [Snapshot] replaced on each modification: reads never lock
+ * nor copy, and a snapshot indexes its locations on first lookup.
+ * Modifications are serialized on the list monitor, which is also held while listeners are signaled.
+ */
 class MediaWrapperList {
 
-    /* TODO: add locking */
-    private val internalList = ArrayList<MediaWrapper>()
-    private val eventListenerList = ArrayList<EventListener>()
+    @Volatile
+    private var current = Snapshot(EMPTY)
+    private val eventListenerList = CopyOnWriteArrayList<EventListener>()
+    @Volatile
     private var videoCount = 0
 
+    /**
+     * Mutable copy of the content, prefer [snapshot] for reading
+     */
     val copy: MutableList<MediaWrapper>
-        @Synchronized get() = ArrayList(internalList)
+        get() = ArrayList(current)
+
+    /**
+     * Current content, not affected by the following modifications
+     */
+    val snapshot: Snapshot
+        get() = current
 
     val isAudioList: Boolean
-        @Synchronized get() = videoCount == 0
+        get() = videoCount == 0
 
     interface EventListener {
         fun onItemAdded(index: Int, mrl: String)
         fun onItemRemoved(index: Int, mrl: String)
         fun onItemMoved(indexBefore: Int, indexAfter: Int, mrl: String)
+
+        /**
+         * [mrls] were inserted at [index]
+         */
+        fun onItemsAdded(index: Int, mrls: List<String>) {
+            for (i in mrls.indices) onItemAdded(index + i, mrls[i])
+        }
+
+        /**
+         * The [mrls] range starting at [index] was removed
+         */
+        fun onItemsRemoved(index: Int, mrls: List<String>) {
+            for (mrl in mrls) onItemRemoved(index, mrl)
+        }
+
+        /**
+         * [count] items starting at [indexBefore] were moved before the item at [indexAfter] (index before the move)
+         */
+        fun onItemsMoved(indexBefore: Int, count: Int, indexAfter: Int, mrls: List<String>) {
+            if (indexAfter <= indexBefore) for (i in 0 until count) onItemMoved(indexBefore + i, indexAfter + i, mrls[i])
+            else for (i in 0 until count) onItemMoved(indexBefore, indexAfter, mrls[i])
+        }
+
+        /**
+         * The whole content changed without per item events
+         */
+        fun onListReplaced() {}
     }
 
-    @Synchronized
-    fun add(media: MediaWrapper) {
-        internalList.add(media)
-        signalEventListeners(EVENT_ADDED, internalList.size - 1, -1, media.location)
-        if (media.type == MediaWrapper.TYPE_VIDEO)
-            ++videoCount
+    /**
+     * Immutable content of the list, with a location index built on first lookup
+     */
+    class Snapshot internal constructor(private val items: Array<MediaWrapper>) : AbstractList<MediaWrapper>(), RandomAccess {
+        @Volatile
+        private var index: HashMap<String, IntArray>? = null
+
+        override val size: Int
+            get() = items.size
+
+        override fun get(index: Int) = items[index]
+
+        /**
+         * @return the positions of [location], in ascending order
+         */
+        fun positionsOf(location: String): IntArray = (index ?: buildIndex())[location] ?: NO_POSITION
+
+        fun contains(location: String) = positionsOf(location).isNotEmpty()
+
+        internal fun array() = items
+
+        private fun buildIndex(): HashMap<String, IntArray> {
+            val positions = HashMap<String, IntArray>(items.size * 4 / 3 + 1)
+            for (i in items.indices) {
+                val location = items[i].location
+                val previous = positions[location]
+                positions[location] = if (previous == null) intArrayOf(i) else previous + i
+            }
+            index = positions
+            return positions
+        }
     }
 
+    fun add(media: MediaWrapper) = addAll(listOf(media))
+
+    fun addAll(list: List<MediaWrapper>) = insertAll(Int.MAX_VALUE, list)
+
+    fun insert(position: Int, media: MediaWrapper) = insertAll(position, listOf(media))
+
+    /**
+     * Insert [list] at [position], or at the end of the list if [position] is greater than the list size
+     */
     @Synchronized
+    fun insertAll(position: Int, list: List<MediaWrapper>) {
+        if (position < 0 || list.isEmpty()) return
+        val items = current.array()
+        val index = position.coerceAtMost(items.size)
+        val result = arrayOfNulls<MediaWrapper>(items.size + list.size)
+        System.arraycopy(items, 0, result, 0, index)
+        for (i in list.indices) result[index + i] = list[i]
+        System.arraycopy(items, index, result, index + list.size, items.size - index)
+        update(result, videoCount + list.count { it.type == MediaWrapper.TYPE_VIDEO })
+        val mrls = list.map { it.location }
+        if (mrls.size == 1) signal { onItemAdded(index, mrls[0]) } else signal { onItemsAdded(index, mrls) }
+    }
+
     fun addEventListener(listener: EventListener) {
-        if (!eventListenerList.contains(listener))
-            eventListenerList.add(listener)
+        eventListenerList.addIfAbsent(listener)
     }
 
-    @Synchronized
     fun removeEventListener(listener: EventListener) {
         eventListenerList.remove(listener)
     }
 
-    @Synchronized
-    private fun signalEventListeners(event: Int, arg1: Int, arg2: Int, mrl: String) {
-        for (listener in eventListenerList) {
-            when (event) {
-                EVENT_ADDED -> listener.onItemAdded(arg1, mrl)
-                EVENT_REMOVED -> listener.onItemRemoved(arg1, mrl)
-                EVENT_MOVED -> listener.onItemMoved(arg1, arg2, mrl)
-            }
-        }
+    private inline fun signal(event: EventListener.() -> Unit) {
+        for (listener in eventListenerList) listener.event()
+    }
+
+    @Suppress("UNCHECKED_CAST")
+    private fun update(items: Array<out MediaWrapper?>, videos: Int) {
+        current = Snapshot(items as Array<MediaWrapper>)
+        videoCount = videos
     }
 
     /**
      * Clear the media list. (remove all media)
+     * The removal is signaled as one range, followed by [EventListener.onListReplaced].
      */
     @Synchronized
     fun clear() {
-        // Signal to observers of media being deleted.
-        for (i in internalList.indices)
-            signalEventListeners(EVENT_REMOVED, i, -1, internalList[i].location)
-        internalList.clear()
-        videoCount = 0
+        removeRange(0, current.size)
+        signal { onListReplaced() }
     }
 
-    @Synchronized
-    private fun isValid(position: Int): Boolean {
-        return position >= 0 && position < internalList.size
-    }
-
-    @Synchronized
-    fun insert(position: Int, media: MediaWrapper) {
-        if (position < 0) return
-        internalList.add(position.coerceAtMost(internalList.size), media)
-        signalEventListeners(EVENT_ADDED, position, -1, media.location)
-        if (media.type == MediaWrapper.TYPE_VIDEO)
-            ++videoCount
-    }
+    private fun isValid(position: Int) = position >= 0 && position < current.size
 
     /**
      * Move a media from one position to another
@@ -105,86 +179,97 @@ class MediaWrapperList {
      * @param endPosition end position
      * @throws IndexOutOfBoundsException
      */
+    fun move(startPosition: Int, endPosition: Int) = moveRange(startPosition, 1, endPosition)
+
+    /**
+     * Move [count] media starting at [startPosition] before the media at [endPosition]
+     *
+     * @throws IndexOutOfBoundsException
+     */
     @Synchronized
-    fun move(startPosition: Int, endPosition: Int) {
-        if (!(isValid(startPosition)
-                        && endPosition >= 0 && endPosition <= internalList.size))
+    fun moveRange(startPosition: Int, count: Int, endPosition: Int) {
+        val items = current.array()
+        if (count < 1 || startPosition < 0 || startPosition + count > items.size || endPosition < 0 || endPosition > items.size
+                || endPosition in startPosition + 1 until startPosition + count)
             throw IndexOutOfBoundsException("Indexes out of range")
-
-        val toMove = internalList[startPosition]
-        internalList.removeAt(startPosition)
-        if (startPosition >= endPosition)
-            internalList.add(endPosition, toMove)
-        else
-            internalList.add(endPosition - 1, toMove)
-        signalEventListeners(EVENT_MOVED, startPosition, endPosition, toMove.location)
+        val moved = items.copyOfRange(startPosition, startPosition + count)
+        val result = items.copyOf()
+        if (endPosition <= startPosition) {
+            System.arraycopy(items, endPosition, result, endPosition + count, startPosition - endPosition)
+            System.arraycopy(moved, 0, result, endPosition, count)
+        } else {
+            System.arraycopy(items, startPosition + count, result, startPosition, endPosition - startPosition - count)
+            System.arraycopy(moved, 0, result, endPosition - count, count)
+        }
+        update(result, videoCount)
+        if (count == 1) signal { onItemMoved(startPosition, endPosition, moved[0].location) }
+        else {
+            val mrls = moved.map { it.location }
+            signal { onItemsMoved(startPosition, count, endPosition, mrls) }
+        }
     }
 
-    @Synchronized
     fun remove(position: Int) {
-        if (!isValid(position)) return
-        if (internalList[position].type == MediaWrapper.TYPE_VIDEO)
-            --videoCount
-        val uri = internalList[position].location
-        internalList.removeAt(position)
-        signalEventListeners(EVENT_REMOVED, position, -1, uri)
+        if (isValid(position)) removeRange(position, 1)
     }
 
+    /**
+     * Remove [count] media starting at [position]
+     */
     @Synchronized
-    fun remove(location: String) {
-        var i = 0
-        while (i < internalList.size) {
-            val uri = internalList[i].location
-            if (uri == location) {
-                if (internalList[i].type == MediaWrapper.TYPE_VIDEO)
-                    --videoCount
-                internalList.removeAt(i)
-                signalEventListeners(EVENT_REMOVED, i, -1, uri)
-                i--
-            }
-            ++i
+    fun removeRange(position: Int, count: Int) {
+        val items = current.array()
+        if (count < 1 || position < 0 || position + count > items.size) return
+        val removed = items.copyOfRange(position, position + count)
+        val result = arrayOfNulls<MediaWrapper>(items.size - count)
+        System.arraycopy(items, 0, result, 0, position)
+        System.arraycopy(items, position + count, result, position, items.size - position - count)
+        update(result, videoCount - removed.count { it.type == MediaWrapper.TYPE_VIDEO })
+        if (count == 1) signal { onItemRemoved(position, removed[0].location) }
+        else {
+            val mrls = removed.map { it.location }
+            signal { onItemsRemoved(position, mrls) }
         }
     }
 
+    /**
+     * Remove all the media at [location], with one event per contiguous range, last range first
+     */
     @Synchronized
-    fun size(): Int {
-        return internalList.size
+    fun remove(location: String) {
+        val positions = current.positionsOf(location)
+        var end = positions.size - 1
+        while (end >= 0) {
+            var start = end
+            while (start > 0 && positions[start - 1] == positions[start] - 1) --start
+            removeRange(positions[start], end - start + 1)
+            end = start - 1
+        }
     }
 
-    @Synchronized
+    fun size() = current.size
+
     fun getMedia(position: Int): MediaWrapper? {
-        return if (isValid(position)) internalList[position] else null
+        val items = current.array()
+        return if (position >= 0 && position < items.size) items[position] else null
     }
 
     @Synchronized
     fun replaceWith(list: List<MediaWrapper>) {
-        internalList.clear()
-        internalList.addAll(list)
-        videoCount = internalList.count { it.type == MediaWrapper.TYPE_VIDEO }
-    }
-
-    @Synchronized
-    fun map(list: List<MediaWrapper>) {
-        internalList.addAll(list)
-        videoCount = internalList.count { it.type == MediaWrapper.TYPE_VIDEO }
+        update(list.toTypedArray(), list.count { it.type == MediaWrapper.TYPE_VIDEO })
+        signal { onListReplaced() }
     }
 
-    /**
-     * @param position The index of the media in the list
-     * @return null if not found
-     */
     @Synchronized
-    private fun getMRL(position: Int): String? {
-        return if (!isValid(position)) null else internalList[position].location
-    }
+    fun map(list: List<MediaWrapper>) = addAll(list)
 
     override fun toString(): String {
         val sb = StringBuilder()
         sb.append("LibVLC Media List: {")
-        for (i in 0 until size()) {
+        for ((i, media) in current.withIndex()) {
             sb.append(i.toString())
             sb.append(": ")
-            sb.append(getMRL(i))
+            sb.append(media.location)
             sb.append(", ")
         }
         sb.append("}")
@@ -193,9 +278,7 @@ class MediaWrapperList {
 
     companion object {
         private const val TAG = "VLC/MediaWrapperList"
-
-        private const val EVENT_ADDED = 0
-        private const val EVENT_REMOVED = 1
-        private const val EVENT_MOVED = 2
+        private val EMPTY = emptyArray<MediaWrapper>()
+        private val NO_POSITION = IntArray(0)
     }
 }
@@ -0,0 +1,372 @@
+/*****************************************************************************
+ * PlayQueueStore.kt
+ *****************************************************************************
+ * Copyright © 2026 VLC authors and VideoLAN
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston MA 02110-1301, USA.
+ *****************************************************************************/
+
+package org.videolan.vlc.media
+
+import android.util.Log
+import androidx.annotation.WorkerThread
+import org.videolan.medialibrary.MediaWrapperCodec
+import java.io.BufferedInputStream
+import java.io.BufferedOutputStream
+import java.io.DataInputStream
+import java.io.DataOutputStream
+import java.io.EOFException
+import java.io.File
+import java.io.FileInputStream
+import java.io.FileOutputStream
+import java.io.IOException
+
+private const val TAG = "VLC/PlayQueueStore"
+
+/**
+ * Persists the play queue as a snapshot of its locations followed by a journal of the
+ * [MediaWrapperList] add/remove/move events.
+ *
+ * Events are recorded in memory and only appended to the journal on [save], which rewrites
+ * the snapshot when the list was replaced, when another queue is saved, or when the journal
+ * grows past the compaction threshold.
+ * Each journal starts with the generation of its snapshot, a journal left by an interrupted
+ * compaction is ignored.
+ */
+class PlayQueueStore(private val directory: File) : MediaWrapperList.EventListener {
+
+    private sealed class Operation {
+        class Add(val index: Int, val mrl: String) : Operation()
+        class Remove(val index: Int) : Operation()
+        class Move(val from: Int, val to: Int) : Operation()
+        class AddRange(val index: Int, val mrls: List<String>) : Operation()
+        class RemoveRange(val index: Int, val count: Int) : Operation()
+    }
+
+    private val ioLock = Any()
+    private val pending = ArrayList<Operation>()
+    /* Size of the list once the pending operations are applied, -1 when a snapshot is needed */
+    private var trackedSize = -1
+    private var activeQueue: String? = null
+    private var journalSize = 0
+    private var generation = 0L
+
+    @Synchronized
+    override fun onItemAdded(index: Int, mrl: String) {
+        if (trackedSize < 0) return
+        if (index !in 0..trackedSize) return invalidate()
+        record(Operation.Add(index, mrl))
+        ++trackedSize
+    }
+
+    @Synchronized
+    override fun onItemRemoved(index: Int, mrl: String) {
+        if (trackedSize < 0) return
+        if (index !in 0 until trackedSize) return invalidate()
+        record(Operation.Remove(index))
+        --trackedSize
+    }
+
+    @Synchronized
+    override fun onItemsAdded(index: Int, mrls: List<String>) {
+        if (trackedSize < 0) return
+        if (index !in 0..trackedSize) return invalidate()
+        record(Operation.AddRange(index, mrls))
+        trackedSize += mrls.size
+    }
+
+    @Synchronized
+    override fun onItemsRemoved(index: Int, mrls: List<String>) {
+        if (trackedSize < 0) return
+        if (index < 0 || index + mrls.size > trackedSize) return invalidate()
+        record(Operation.RemoveRange(index, mrls.size))
+        trackedSize -= mrls.size
+    }
+
+    @Synchronized
+    override fun onItemMoved(indexBefore: Int, indexAfter: Int, mrl: String) {
+        if (trackedSize < 0) return
+        if (indexBefore !in 0 until trackedSize || indexAfter !in 0..trackedSize) return invalidate()
+        record(Operation.Move(indexBefore, indexAfter))
+    }
+
+    @Synchronized
+    override fun onListReplaced() = invalidate()
+
+    private fun record(operation: Operation) {
+        pending.add(operation)
+        // Nothing saves the queue meanwhile (incognito, fd media...), the next save will be a snapshot
+        if (pending.size > MAX_PENDING_OPERATIONS) invalidate()
+    }
+
+    private fun invalidate() {
+        pending.clear()
+        trackedSize = -1
+    }
+
+    /**
+     * Saves the content of [list] in [queue].
+     * Only the events received since the previous save are written when possible.
+     */
+    @WorkerThread
+    fun save(queue: String, list: MediaWrapperList) = synchronized(ioLock) {
+        var snapshot: List<String>? = null
+        var operations: List<Operation>? = null
+        // The list lock guarantees no event is signaled between the copy and the pending operations reset
+        synchronized(list) {
+            synchronized(this) {
+                if (queue != activeQueue || trackedSize < 0 || journalSize + pending.size > compactionThreshold()) {
+                    snapshot = list.copy.map { it.location }
+                    trackedSize = snapshot!!.size
+                    activeQueue = queue
+                    journalSize = 0
+                } else if (pending.isNotEmpty()) {
+                    operations = ArrayList(pending)
+                    journalSize += pending.size
+                }
+                pending.clear()
+            }
+        }
+        try {
+            snapshot?.let { writeSnapshot(queue, it) }
+            operations?.let { appendJournal(queue, it) }
+        } catch (e: IOException) {
+            Log.e(TAG, "Unable to save the $queue queue", e)
+            synchronized(this) { invalidate() }
+        }
+    }
+
+    /**
+     * @return the locations of the media saved in [queue], null if there is none
+     */
+    @WorkerThread
+    fun load(queue: String): List<String>? = synchronized(ioLock) {
+        val snapshotFile = snapshotFile(queue)
+        if (!snapshotFile.exists()) return null
+        val (snapshotGeneration, locations) = try {
+            readSnapshot(snapshotFile)
+        } catch (e: IOException) {
+            Log.e(TAG, "Unable to read the $queue queue", e)
+            null
+        } ?: return null
+        replayJournal(queue, snapshotGeneration, locations)
+        return locations
+    }
+
+    /**
+     * Saves the shuffle order of [queue]
+     */
+    @WorkerThread
+    fun saveShuffle(queue: String, state: ShuffleOrder.State) = synchronized(ioLock) {
+        try {
+            if (!directory.exists() && !directory.mkdirs()) throw IOException("Unable to create $directory")
+            val tmpFile = File(directory, "$queue.shuffle.tmp")
+            DataOutputStream(BufferedOutputStream(FileOutputStream(tmpFile))).use { output ->
+                output.writeInt(SHUFFLE_MAGIC)
+                output.writeByte(VERSION)
+                output.writeLong(state.seed)
+                output.writeInt(state.cursor)
+                output.writeInt(state.order.size)
+                for (index in state.order) output.writeInt(index)
+            }
+            if (!tmpFile.renameTo(shuffleFile(queue))) throw IOException("Unable to replace the $queue shuffle order")
+        } catch (e: IOException) {
+            Log.e(TAG, "Unable to save the $queue shuffle order", e)
+        }
+    }
+
+    /**
+     * @return the shuffle order saved for [queue], null if there is none
+     */
+    @WorkerThread
+    fun loadShuffle(queue: String): ShuffleOrder.State? = synchronized(ioLock) {
+        val file = shuffleFile(queue)
+        if (!file.exists()) return null
+        try {
+            DataInputStream(BufferedInputStream(FileInputStream(file))).use { input ->
+                if (input.readInt() != SHUFFLE_MAGIC || input.readByte().toInt() != VERSION) return null
+                val seed = input.readLong()
+                val cursor = input.readInt()
+                val size = input.readInt()
+                if (size < 0 || size > file.length() / 4) return null
+                val order = IntArray(size)
+                for (i in order.indices) order[i] = input.readInt()
+                ShuffleOrder.State(seed, cursor, order)
+            }
+        } catch (e: IOException) {
+            Log.e(TAG, "Unable to read the $queue shuffle order", e)
+            null
+        }
+    }
+
+    /**
+     * Removes [queue] from the storage
+     */
+    @WorkerThread
+    fun delete(queue: String) = synchronized(ioLock) {
+        synchronized(this) { if (queue == activeQueue) activeQueue = null }
+        snapshotFile(queue).delete()
+        journalFile(queue).delete()
+        shuffleFile(queue).delete()
+    }
+
+    private fun compactionThreshold() = (trackedSize / 2).coerceAtLeast(MIN_COMPACTION_THRESHOLD)
+
+    private fun writeSnapshot(queue: String, locations: List<String>) {
+        if (!directory.exists() && !directory.mkdirs()) throw IOException("Unable to create $directory")
+        val tmpFile = File(directory, "$queue.queue.tmp")
+        generation = (generation + 1).coerceAtLeast(System.currentTimeMillis())
+        DataOutputStream(BufferedOutputStream(FileOutputStream(tmpFile))).use { output ->
+            output.writeInt(SNAPSHOT_MAGIC)
+            output.writeByte(VERSION)
+            output.writeLong(generation)
+            output.writeInt(locations.size)
+            for (location in locations) MediaWrapperCodec.writeString(output, location)
+        }
+        if (!tmpFile.renameTo(snapshotFile(queue))) throw IOException("Unable to replace the $queue snapshot")
+        journalFile(queue).delete()
+    }
+
+    private fun readSnapshot(file: File): Pair<Long, MutableList<String>>? = DataInputStream(BufferedInputStream(FileInputStream(file))).use { input ->
+        if (input.readInt() != SNAPSHOT_MAGIC || input.readByte().toInt() != VERSION) return null
+        val snapshotGeneration = input.readLong()
+        val count = input.readInt()
+        val locations = ArrayList<String>(count)
+        repeat(count) { locations.add(MediaWrapperCodec.readString(input) ?: return null) }
+        Pair(snapshotGeneration, locations)
+    }
+
+    private fun appendJournal(queue: String, operations: List<Operation>) {
+        val journalFile = journalFile(queue)
+        val newJournal = !journalFile.exists()
+        DataOutputStream(BufferedOutputStream(FileOutputStream(journalFile, true))).use { output ->
+            if (newJournal) {
+                output.writeInt(JOURNAL_MAGIC)
+                output.writeLong(generation)
+            }
+            for (operation in operations) when (operation) {
+                is Operation.Add -> {
+                    output.writeByte(OP_ADD)
+                    output.writeInt(operation.index)
+                    MediaWrapperCodec.writeString(output, operation.mrl)
+                }
+                is Operation.Remove -> {
+                    output.writeByte(OP_REMOVE)
+                    output.writeInt(operation.index)
+                }
+                is Operation.Move -> {
+                    output.writeByte(OP_MOVE)
+                    output.writeInt(operation.from)
+                    output.writeInt(operation.to)
+                }
+                is Operation.AddRange -> {
+                    output.writeByte(OP_ADD_RANGE)
+                    output.writeInt(operation.index)
+                    output.writeInt(operation.mrls.size)
+                    for (mrl in operation.mrls) MediaWrapperCodec.writeString(output, mrl)
+                }
+                is Operation.RemoveRange -> {
+                    output.writeByte(OP_REMOVE_RANGE)
+                    output.writeInt(operation.index)
+                    output.writeInt(operation.count)
+                }
+            }
+        }
+    }
+
+    private fun replayJournal(queue: String, snapshotGeneration: Long, locations: MutableList<String>) {
+        val journalFile = journalFile(queue)
+        if (!journalFile.exists()) return
+        try {
+            DataInputStream(BufferedInputStream(FileInputStream(journalFile))).use { input ->
+                if (input.readInt() != JOURNAL_MAGIC || input.readLong() != snapshotGeneration) return
+                while (true) {
+                    val op = try {
+                        input.readByte().toInt()
+                    } catch (e: EOFException) {
+                        return
+                    }
+                    when (op) {
+                        OP_ADD -> {
+                            val index = input.readInt()
+                            val mrl = MediaWrapperCodec.readString(input) ?: return
+                            if (index !in 0..locations.size) return
+                            locations.add(index, mrl)
+                        }
+                        OP_REMOVE -> {
+                            val index = input.readInt()
+                            if (index !in locations.indices) return
+                            locations.removeAt(index)
+                        }
+                        OP_MOVE -> {
+                            val from = input.readInt()
+                            val to = input.readInt()
+                            if (from !in locations.indices || to !in 0..locations.size) return
+                            // Same semantics as MediaWrapperList.move
+                            val location = locations.removeAt(from)
+                            locations.add(if (from >= to) to else to - 1, location)
+                        }
+                        OP_ADD_RANGE -> {
+                            val index = input.readInt()
+                            val count = input.readInt()
+                            if (index !in 0..locations.size || count < 0) return
+                            val mrls = ArrayList<String>(count)
+                            repeat(count) { mrls.add(MediaWrapperCodec.readString(input) ?: return) }
+                            locations.addAll(index, mrls)
+                        }
+                        OP_REMOVE_RANGE -> {
+                            val index = input.readInt()
+                            val count = input.readInt()
+                            if (index < 0 || count < 0 || index + count > locations.size) return
+                            locations.subList(index, index + count).clear()
+                        }
+                        else -> return
+                    }
+                }
+            }
+        } catch (e: IOException) {
+            // A truncated record ends the journal, what was read before is valid
+            Log.w(TAG, "Incomplete $queue journal", e)
+        }
+    }
+
+    private fun snapshotFile(queue: String) = File(directory, "$queue.queue")
+
+    private fun journalFile(queue: String) = File(directory, "$queue.journal")
+
+    private fun shuffleFile(queue: String) = File(directory, "$queue.shuffle")
+
+    companion object {
+        const val QUEUE_AUDIO = "audio"
+        const val QUEUE_VIDEO = "video"
+
+        /**
+         * Prefix of the preference values pointing to a stored queue instead of a list of locations
+         */
+        const val PREFERENCE_PREFIX = "queue:"
+
+        private const val SNAPSHOT_MAGIC = 0x564C5153 // VLQS
+        private const val JOURNAL_MAGIC = 0x564C514A // VLQJ
+        private const val SHUFFLE_MAGIC = 0x564C5152 // VLQR
+        private const val VERSION = 1
+        private const val OP_ADD = 0
+        private const val OP_REMOVE = 1
+        private const val OP_MOVE = 2
+        private const val OP_ADD_RANGE = 3
+        private const val OP_REMOVE_RANGE = 4
+        private const val MIN_COMPACTION_THRESHOLD = 64
+        private const val MAX_PENDING_OPERATIONS = 4096
+    }
+}
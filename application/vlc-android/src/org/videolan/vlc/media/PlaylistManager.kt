@@ -97,9 +97,8 @@ import org.videolan.vlc.util.setResumeProgram
 import org.videolan.vlc.util.updateNextProgramAfterThumbnailGeneration
 import org.videolan.vlc.util.updateWithMLMeta
 import org.videolan.vlc.util.validateLocation
-import java.security.SecureRandom
+import java.io.File
 import java.util.Calendar
-import java.util.Stack
 import kotlin.math.max
 
 private const val TAG = "VLC/PlaylistManager"
@@ -120,7 +119,21 @@ class PlaylistManager(val service: PlaybackService) : MediaWrapperList.EventList
         // On slow devices, it will trigger an unwanted "refresh animation". This flag prevents it
         var skipMediaUpdateRefresh = false
         private val mediaList = MediaWrapperList()
+        private val queueStore by lazy(LazyThreadSafetyMode.SYNCHRONIZED) {
+            PlayQueueStore(File(AppContextProvider.appContext.filesDir, "play_queue")).also { mediaList.addEventListener(it) }
+        }
+        private val shuffleOrder by lazy(LazyThreadSafetyMode.SYNCHRONIZED) {
+            ShuffleOrder().also { mediaList.addEventListener(it) }
+        }
         fun hasMedia() = mediaList.size() != 0
+
+        /**
+         * Deletes the stored play queues, to be called when their preferences are cleared
+         */
+        fun deleteSavedQueues(audio: Boolean = true, video: Boolean = true) = AppScope.launch(Dispatchers.IO) {
+            if (audio) queueStore.delete(PlayQueueStore.QUEUE_AUDIO)
+            if (video) queueStore.delete(PlayQueueStore.QUEUE_VIDEO)
+        }
         val repeating = MutableStateFlow(PlaybackStateCompat.REPEAT_MODE_NONE)
         val shuffling = MutableStateFlow(false)
         var playingAsAudio = false
@@ -137,7 +150,9 @@ class PlaylistManager(val service: PlaybackService) : MediaWrapperList.EventList
         }
     private var nextIndex = -1
     private var prevIndex = -1
-    private var previous = Stack<Int>()
+    private val previous
+        get() = shuffleOrder.history
+    private var savedShuffleVersion = -1L
     var stopAfter = -1
     var shuffling: Boolean = false
         set(value) {
@@ -154,7 +169,6 @@ class PlaylistManager(val service: PlaybackService) : MediaWrapperList.EventList
     private var preBrowserVolume = -1
     private var parsed = false
     var savedTime = 0L
-    private var random = SecureRandom()
     private var newMedia = false
     @Volatile
     private var expanding = false
@@ -184,6 +198,9 @@ class PlaylistManager(val service: PlaybackService) : MediaWrapperList.EventList
 
     init {
         AppScope.launch { repeating.emit(settings.getInt(PLAYLIST_AUDIO_REPEAT_MODE_KEY, PlaybackStateCompat.REPEAT_MODE_NONE)) }
+        // Start recording the queue changes
+        queueStore
+        shuffleOrder
         resetResumeStatus()
     }
 
@@ -246,6 +263,7 @@ class PlaylistManager(val service: PlaybackService) : MediaWrapperList.EventList
         savePosition()
         mediaList.removeEventListener(this@PlaylistManager)
         previous.clear()
+        shuffleOrder.invalidate()
         videoBackground = false
         if (BuildConfig.BETA) {
             Log.d(TAG, "load with values: ", Exception("Call stack"))
@@ -276,11 +294,11 @@ class PlaylistManager(val service: PlaybackService) : MediaWrapperList.EventList
         service.onPlaylistLoaded()
         if (mlUpdate) {
             service.awaitMedialibraryStarted()
-            mediaList.replaceWith(withContext(Dispatchers.IO) { mediaList.copy.updateWithMLMeta() })
+            mediaList.replaceWith(withContext(Dispatchers.IO) { mediaList.snapshot.updateWithMLMeta() })
             getCurrentMedia()?.let { refreshTrackMeta(it) }
             if (BuildConfig.BETA) {
                 Log.d(TAG, "load after ml update with values: ")
-                mediaList.copy.forEach { Log.d(TAG, "Media location: ${it.uri}") }
+                mediaList.snapshot.forEach { Log.d(TAG, "Media location: ${it.uri}") }
             }
             service.onMediaListChanged()
             service.showNotification()
@@ -317,18 +335,27 @@ class PlaylistManager(val service: PlaybackService) : MediaWrapperList.EventList
             loadingLastPlaylist = false
             return false
         }
-        val locations = settings.getString(locationsKey, null)
-                ?.split(" ".toRegex())?.dropLastWhile { it.isEmpty() }?.toTypedArray()
-        if (locations.isNullOrEmpty()) {
+        val savedQueue = settings.getString(locationsKey, null)
+        if (savedQueue.isNullOrEmpty()) {
             loadingLastPlaylist = false
             return false
         }
         launch {
-            val playList = withContext(Dispatchers.Default) {
-                locations.asSequence().mapTo(ArrayList(locations.size)) {
+            val queue = if (savedQueue.startsWith(PlayQueueStore.PREFERENCE_PREFIX)) savedQueue.substring(PlayQueueStore.PREFERENCE_PREFIX.length) else null
+            val playList = withContext(Dispatchers.IO) {
+                val locations = if (queue != null) queueStore.load(queue)
+                // Queue saved as space separated locations by a previous version
+                else savedQueue.split(" ".toRegex()).dropLastWhile { it.isEmpty() }
+                locations?.mapTo(ArrayList(locations.size)) {
                     MLServiceLocator.getAbstractMediaWrapper(it.toUri())
                 }
             }
+            if (playList.isNullOrEmpty()) {
+                loadingLastPlaylist = false
+                service.showToast(service.getString(R.string.resume_playback_error), Toast.LENGTH_LONG)
+                service.stopService(Intent(service.applicationContext, PlaybackService::class.java))
+                return@launch
+            }
             // load playlist
             shuffling = settings.getBoolean(if (audio) AUDIO_SHUFFLING else MEDIA_SHUFFLING, false)
             val position = max(0, settings.getInt(if (audio) POSITION_IN_AUDIO_LIST else POSITION_IN_MEDIA_LIST, 0))
@@ -338,6 +365,12 @@ class PlaylistManager(val service: PlaybackService) : MediaWrapperList.EventList
             }
             if (audio && position < playList.size) playList[position].addFlags(MediaWrapper.MEDIA_FORCE_AUDIO)
             load(playList, position, mlUpdate = true, avoidErasingStop = true)
+            if (shuffling && queue != null) withContext(Dispatchers.IO) { queueStore.loadShuffle(queue) }?.let {
+                if (shuffleOrder.restore(it, mediaList.size())) {
+                    savedShuffleVersion = shuffleOrder.version
+                    determinePrevAndNextIndices()
+                }
+            }
             loadingLastPlaylist = false
             if (!audio) {
                 val rate = settings.getFloat(VIDEO_SPEED, player.getRate())
@@ -406,6 +439,7 @@ class PlaylistManager(val service: PlaybackService) : MediaWrapperList.EventList
         service.setSleepTimer(null)
         mediaList.removeEventListener(this)
         previous.clear()
+        shuffleOrder.invalidate()
         currentIndex = -1
         if (systemExit) player.release()
         else player.restart()
@@ -446,6 +480,7 @@ class PlaylistManager(val service: PlaybackService) : MediaWrapperList.EventList
     @MainThread
     fun shuffle() {
         if (shuffling) previous.clear()
+        else shuffleOrder.reset(mediaList.size(), currentIndex)
         shuffling = !shuffling
         savePosition()
         launch { determinePrevAndNextIndices() }
@@ -643,6 +678,13 @@ class PlaylistManager(val service: PlaybackService) : MediaWrapperList.EventList
         addUpdateActor.trySend(Unit)
     }
 
+    @MainThread
+    override fun onItemsAdded(index: Int, mrls: List<String>) {
+        if (BuildConfig.DEBUG) Log.i(TAG, "CustomMediaListItemsAdded")
+        if (currentIndex >= index && !expanding) currentIndex += mrls.size
+        addUpdateActor.trySend(Unit)
+    }
+
     @OptIn(ObsoleteCoroutinesApi::class)
     private val addUpdateActor = actor<Unit>(capacity = Channel.CONFLATED) {
         for (update in channel) {
@@ -653,10 +695,18 @@ class PlaylistManager(val service: PlaybackService) : MediaWrapperList.EventList
     }
 
     @MainThread
-    override fun onItemRemoved(index: Int, mrl: String) {
+    override fun onItemRemoved(index: Int, mrl: String) = onRangeRemoved(index, 1)
+
+    @MainThread
+    override fun onItemsRemoved(index: Int, mrls: List<String>) = onRangeRemoved(index, mrls.size)
+
+    private fun onRangeRemoved(index: Int, count: Int) {
         if (BuildConfig.DEBUG) Log.i(TAG, "CustomMediaListItemDeleted")
-        val currentRemoved = currentIndex == index
-        if (currentIndex >= index && !expanding) --currentIndex
+        val currentRemoved = currentIndex in index until index + count
+        if (!expanding) when {
+            currentIndex >= index + count -> currentIndex -= count
+            currentRemoved -> currentIndex = index - 1
+        }
         launch {
             determinePrevAndNextIndices()
             if (currentRemoved && !expanding) {
@@ -833,23 +883,20 @@ class PlaylistManager(val service: PlaybackService) : MediaWrapperList.EventList
         if (settings.getBoolean(KEY_INCOGNITO, false)) return
         val currentMedia = getCurrentMedia() ?: return
         if (currentMedia.uri.scheme.isSchemeFD()) return
-        val locations = StringBuilder()
         val isAudio = isAudioList() || forceVideo
-        withContext(Dispatchers.Default) {
-            val list = mediaList.copy.takeIf { it.isNotEmpty() } ?: return@withContext
-            for (mw in list) locations.append(" ").append(mw.uri.toString())
-            //We save a concatenated String because putStringSet is APIv11.
-            if (isAudio) {
-                if (settings.getBoolean(AUDIO_RESUME_PLAYBACK, true)) {
-                    settings.putSingle(KEY_MEDIA_LAST_PLAYLIST_RESUME, locations.toString().trim())
-                    settings.putSingle(KEY_AUDIO_LAST_PLAYLIST, locations.toString().trim())
-                }
-            } else {
-                if (settings.getBoolean(VIDEO_RESUME_PLAYBACK, true)) {
-                    settings.putSingle(KEY_MEDIA_LAST_PLAYLIST_RESUME, locations.toString().trim())
-                    settings.putSingle(KEY_MEDIA_LAST_PLAYLIST, locations.toString().trim())
-                }
+        if (!settings.getBoolean(if (isAudio) AUDIO_RESUME_PLAYBACK else VIDEO_RESUME_PLAYBACK, true)) return
+        val queue = if (isAudio) PlayQueueStore.QUEUE_AUDIO else PlayQueueStore.QUEUE_VIDEO
+        withContext(Dispatchers.IO) {
+            if (!hasMedia()) return@withContext
+            // Only the changes since the last save are written, the preferences just point to the stored queue
+            queueStore.save(queue, mediaList)
+            if (shuffling) shuffleOrder.takeIf { it.version != savedShuffleVersion }?.let { order ->
+                savedShuffleVersion = order.version
+                order.getState()?.let { queueStore.saveShuffle(queue, it) }
             }
+            val savedQueue = PlayQueueStore.PREFERENCE_PREFIX + queue
+            for (key in arrayOf(KEY_MEDIA_LAST_PLAYLIST_RESUME, if (isAudio) KEY_AUDIO_LAST_PLAYLIST else KEY_MEDIA_LAST_PLAYLIST))
+                if (settings.getString(key, null) != savedQueue) settings.putSingle(key, savedQueue)
         }
     }
 
@@ -865,9 +912,6 @@ class PlaylistManager(val service: PlaybackService) : MediaWrapperList.EventList
             in (indexBefore + 1) until indexAfter -> --currentIndex
         }
 
-        // If we are in random mode, we completely reset the stored previous track
-        // as their indices changed.
-        previous.clear()
         addUpdateActor.trySend(Unit)
     }
 
@@ -888,31 +932,17 @@ class PlaylistManager(val service: PlaybackService) : MediaWrapperList.EventList
             shuffling = shuffling and (size > 2)
 
             if (shuffling) {
-                if (!previous.isEmpty()) {
-                    prevIndex = previous.peek()
-                    while (!isValidPosition(prevIndex)) {
-                        previous.removeAt(previous.size - 1)
-                        if (previous.isEmpty()) {
-                            prevIndex = -1
-                            break
-                        }
-                        prevIndex = previous.peek()
-                    }
-                }
+                while (!previous.isEmpty() && !isValidPosition(previous.peek())) previous.pop()
+                prevIndex = previous.peek()
+                if (shuffleOrder.isValid(size)) shuffleOrder.select(currentIndex)
+                else shuffleOrder.reset(size, currentIndex)
+                nextIndex = shuffleOrder.peekNext()
                 // If we've played all songs already in shuffle, then either
                 // reshuffle or stop (depending on RepeatType).
-                if (previous.size + 1 == size) {
-                    if (repeating.value == PlaybackStateCompat.REPEAT_MODE_NONE) {
-                        nextIndex = -1
-                        return
-                    } else {
-                        previous.clear()
-                    }
+                if (nextIndex == -1 && repeating.value != PlaybackStateCompat.REPEAT_MODE_NONE) {
+                    shuffleOrder.reset(size, currentIndex)
+                    nextIndex = shuffleOrder.peekNext()
                 }
-                // Find a new index not in previous.
-                do {
-                    nextIndex = random.nextInt(size)
-                } while (nextIndex == currentIndex || previous.contains(nextIndex))
             } else {
                 // normal playback
                 if (currentIndex > 0) prevIndex = currentIndex - 1
@@ -923,20 +953,18 @@ class PlaylistManager(val service: PlaybackService) : MediaWrapperList.EventList
                 }
             }
         }
+        service.prefetchTrackInfo(listOfNotNull(getPrevMedia(), getCurrentMedia(), getNextMedia()))
     }
 
     fun previousTotalTime(): Long {
         val index = currentIndex
-        val copy = mediaList.copy
+        val copy = mediaList.snapshot
         return when {
             copy.size == 0 || index < 0 -> {
                 0
             }
             shuffling -> {
-                copy.asSequence()
-                        .filterIndexed { prevIndex, _ -> previous.contains(prevIndex) }
-                        .map { it.length }
-                        .sum()
+                shuffleOrder.played().sumOf { if (it < copy.size) copy[it].length else 0L }
             }
             else -> {
                 copy.asSequence()
@@ -965,6 +993,7 @@ class PlaylistManager(val service: PlaybackService) : MediaWrapperList.EventList
             val mrl = if (updateHistory) expandedMedia?.location else null
             mediaList.removeEventListener(this)
             mediaList.remove(index)
+            val children = ArrayList<MediaWrapper>(ml.count)
             for (i in 0 until ml.count) {
                 val child = ml.getMediaAt(i)
                 //fixme workaround to prevent the issue described in https://code.videolan.org/videolan/vlc-android/-/issues/2106
@@ -974,12 +1003,13 @@ class PlaylistManager(val service: PlaybackService) : MediaWrapperList.EventList
                 if (!skipNextParsing)
                     withContext(Dispatchers.IO) { child.parse() }
                 if (BuildConfig.BETA)  Log.d(TAG, "inserting: ${child.uri}")
-                mediaList.insert(index + i, MLServiceLocator.getAbstractMediaWrapper(child).apply {
+                children.add(MLServiceLocator.getAbstractMediaWrapper(child).apply {
                     if (skipNextParsing)
                         addFlags(MediaWrapper.MEDIA_NO_PARSE)
                 })
                 child.release()
             }
+            mediaList.insertAll(index, children)
             mediaList.addEventListener(this)
             addUpdateActor.trySend(Unit)
             service.onMediaListChanged()
@@ -1058,7 +1088,7 @@ class PlaylistManager(val service: PlaybackService) : MediaWrapperList.EventList
         }
         val newList = withContext(Dispatchers.IO) { list.updateWithMLMeta() }
         mediaList.removeEventListener(this)
-        for (media in newList) mediaList.add(media)
+        mediaList.addAll(newList)
         if (BuildConfig.BETA) newList.forEach {
             try {
                 Log.d(TAG, "Media location: ${it.uri}")
@@ -1084,7 +1114,7 @@ class PlaylistManager(val service: PlaybackService) : MediaWrapperList.EventList
             return
         }
         val startIndex = currentIndex + 1
-        for ((index, mw) in list.withIndex()) mediaList.insert(startIndex + index, mw)
+        mediaList.insertAll(startIndex, list)
     }
 
     /**
@@ -1109,7 +1139,11 @@ class PlaylistManager(val service: PlaybackService) : MediaWrapperList.EventList
 
     fun getMediaListSize()= mediaList.size()
 
-    fun getMediaList(): List<MediaWrapper> = mediaList.copy
+    fun getMediaList(): List<MediaWrapper> = mediaList.snapshot
+
+    fun addMediaListEventListener(listener: MediaWrapperList.EventListener) = mediaList.addEventListener(listener)
+
+    fun removeMediaListEventListener(listener: MediaWrapperList.EventListener) = mediaList.removeEventListener(listener)
 
     fun setABRepeatValue(media: MediaWrapper?, time: Long) {
         val value = abRepeat.value ?: ABRepeat()
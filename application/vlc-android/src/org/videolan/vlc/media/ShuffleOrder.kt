@@ -0,0 +1,284 @@
+/*****************************************************************************
+ * ShuffleOrder.kt
+ *****************************************************************************
+ * Copyright © 2026 VLC authors and VideoLAN
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston MA 02110-1301, USA.
+ *****************************************************************************/
+
+package org.videolan.vlc.media
+
+import java.util.Random
+
+private const val HISTORY_SIZE = 256
+
+/**
+ * Shuffled play order of the queue.
+ *
+ * The order is a permutation of the queue indexes computed once with a seeded Fisher-Yates shuffle.
+ * Places before the cursor have been played during this round. Media inserted in the queue are
+ * shuffled among the places not played yet, and removed or moved media are remapped, so the
+ * order follows the [MediaWrapperList] events instead of being recomputed.
+ * [history] keeps the last played indexes for the previous action.
+ */
+class ShuffleOrder : MediaWrapperList.EventListener {
+
+    class State(val seed: Long, val cursor: Int, val order: IntArray)
+
+    private var order = IntArray(0)
+    private var places = IntArray(0)
+    private var cursor = -1
+    private var seed = 0L
+    private var random = Random(0L)
+    val history = IndexHistory(HISTORY_SIZE)
+
+    /**
+     * Incremented on each change of the order, to know if it needs to be saved
+     */
+    @Volatile
+    var version = 0L
+        private set
+
+    @Synchronized
+    fun isValid(size: Int) = size > 0 && order.size == size
+
+    /**
+     * Computes a new order for a queue of [size] media, starting with [current]
+     */
+    @Synchronized
+    fun reset(size: Int, current: Int, seed: Long = System.nanoTime()) {
+        this.seed = seed
+        random = Random(seed)
+        order = IntArray(size) { it }
+        for (i in size - 1 downTo 1) swap(i, random.nextInt(i + 1))
+        updatePlaces()
+        cursor = -1
+        if (current in 0 until size) select(current)
+        ++version
+    }
+
+    @Synchronized
+    fun invalidate() {
+        order = IntArray(0)
+        places = order
+        cursor = -1
+        ++version
+    }
+
+    /**
+     * Restores a saved order, if it matches a queue of [size] media
+     */
+    @Synchronized
+    fun restore(state: State, size: Int): Boolean {
+        if (state.order.size != size || state.cursor >= size) return false
+        val seen = BooleanArray(size)
+        for (index in state.order) {
+            if (index !in 0 until size || seen[index]) return false
+            seen[index] = true
+        }
+        seed = state.seed
+        random = Random(seed xor size.toLong())
+        order = state.order.copyOf()
+        cursor = state.cursor
+        updatePlaces()
+        ++version
+        return true
+    }
+
+    @Synchronized
+    fun getState() = if (order.isEmpty()) null else State(seed, cursor, order.copyOf())
+
+    /**
+     * Sets the cursor on [index]: a media not played yet becomes the next place,
+     * a played media is moved to the cursor place so that the round goes on with the media not played yet.
+     */
+    @Synchronized
+    fun select(index: Int) {
+        if (index !in places.indices) return
+        val place = places[index]
+        when {
+            place == cursor -> return
+            place > cursor -> {
+                if (place > cursor + 1) {
+                    swap(place, cursor + 1)
+                    places[order[place]] = place
+                    places[order[cursor + 1]] = cursor + 1
+                }
+                ++cursor
+            }
+            else -> {
+                System.arraycopy(order, place + 1, order, place, cursor - place)
+                order[cursor] = index
+                for (i in place..cursor) places[order[i]] = i
+            }
+        }
+        ++version
+    }
+
+    /**
+     * @return the index to play after the current one, -1 if all the media have been played
+     */
+    @Synchronized
+    fun peekNext() = if (cursor + 1 < order.size) order[cursor + 1] else -1
+
+    /**
+     * @return the indexes played before the current one during this round
+     */
+    @Synchronized
+    fun played(): IntArray = if (cursor > 0) order.copyOfRange(0, cursor) else IntArray(0)
+
+    override fun onItemAdded(index: Int, mrl: String) = insert(index, 1)
+
+    override fun onItemsAdded(index: Int, mrls: List<String>) = insert(index, mrls.size)
+
+    override fun onItemRemoved(index: Int, mrl: String) = remove(index, 1)
+
+    override fun onItemsRemoved(index: Int, mrls: List<String>) = remove(index, mrls.size)
+
+    override fun onItemMoved(indexBefore: Int, indexAfter: Int, mrl: String) = move(indexBefore, 1, indexAfter)
+
+    override fun onItemsMoved(indexBefore: Int, count: Int, indexAfter: Int, mrls: List<String>) = move(indexBefore, count, indexAfter)
+
+    @Synchronized
+    private fun insert(index: Int, count: Int) {
+        history.remap { if (it >= index) it + count else it }
+        if (order.isEmpty()) return
+        val size = order.size
+        val result = order.copyOf(size + count)
+        for (i in 0 until size) if (result[i] >= index) result[i] += count
+        // Inside-out Fisher-Yates on the places not played yet
+        val start = cursor + 1
+        for (i in 0 until count) {
+            val length = size + i
+            val place = start + random.nextInt(length - start + 1)
+            result[length] = result[place]
+            result[place] = index + i
+        }
+        order = result
+        updatePlaces()
+        ++version
+    }
+
+    @Synchronized
+    private fun remove(index: Int, count: Int) {
+        val end = index + count
+        history.remap { if (it >= end) it - count else if (it >= index) -1 else it }
+        if (order.isEmpty()) return
+        val result = IntArray(order.size - count)
+        var length = 0
+        var cursorShift = 0
+        for (place in order.indices) {
+            val value = order[place]
+            when {
+                value >= end -> result[length++] = value - count
+                value >= index -> if (place <= cursor) ++cursorShift
+                else -> result[length++] = value
+            }
+        }
+        order = result
+        cursor -= cursorShift
+        updatePlaces()
+        ++version
+    }
+
+    @Synchronized
+    private fun move(from: Int, count: Int, to: Int) {
+        val transform: (Int) -> Int = if (to <= from) { index ->
+            when (index) {
+                in from until from + count -> index - from + to
+                in to until from -> index + count
+                else -> index
+            }
+        } else { index ->
+            when (index) {
+                in from until from + count -> index - from + to - count
+                in from + count until to -> index - count
+                else -> index
+            }
+        }
+        history.remap(transform)
+        if (order.isEmpty()) return
+        for (place in order.indices) order[place] = transform(order[place])
+        updatePlaces()
+        ++version
+    }
+
+    private fun swap(i: Int, j: Int) {
+        val tmp = order[i]
+        order[i] = order[j]
+        order[j] = tmp
+    }
+
+    private fun updatePlaces() {
+        if (places.size != order.size) places = IntArray(order.size)
+        for (place in order.indices) places[order[place]] = place
+    }
+
+    /**
+     * Bounded stack of the last played indexes, the oldest ones are dropped
+     */
+    class IndexHistory(private val capacity: Int) {
+        private val indexes = IntArray(capacity)
+        private var head = 0
+        var size = 0
+            private set
+
+        @Synchronized
+        fun push(index: Int) {
+            indexes[head] = index
+            head = (head + 1) % capacity
+            if (size < capacity) ++size
+        }
+
+        @Synchronized
+        fun pop(): Int {
+            if (size == 0) return -1
+            head = (head - 1 + capacity) % capacity
+            --size
+            return indexes[head]
+        }
+
+        @Synchronized
+        fun peek() = if (size == 0) -1 else indexes[(head - 1 + capacity) % capacity]
+
+        fun isEmpty() = size == 0
+
+        @Synchronized
+        fun clear() {
+            size = 0
+        }
+
+        @Synchronized
+        operator fun contains(index: Int): Boolean {
+            for (i in 1..size) if (indexes[(head - i + capacity) % capacity] == index) return true
+            return false
+        }
+
+        /**
+         * Applies [transform] to the stored indexes, the ones transformed to -1 are dropped
+         */
+        @Synchronized
+        fun remap(transform: (Int) -> Int) {
+            val start = (head - size + capacity) % capacity
+            var kept = 0
+            for (i in 0 until size) {
+                val index = transform(indexes[(start + i) % capacity])
+                if (index != -1) indexes[(start + kept++) % capacity] = index
+            }
+            size = kept
+            head = (start + kept) % capacity
+        }
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * ************************************************************************
+ *  TrackInfoCache.kt
+ * *************************************************************************
+ * Copyright © 2026 VLC authors and VideoLAN
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston MA 02110-1301, USA.
+ * **************************************************************************
+ *
+ *
+ */
+
+package org.videolan.vlc.media
+
+import android.util.Log
+import android.util.LruCache
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Deferred
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.async
+import org.videolan.medialibrary.interfaces.media.MediaWrapper
+
+private const val TAG = "VLC/TrackInfoCache"
+
+/**
+ * Bounded cache of the track descriptors of the media, parsed in the background.
+ *
+ * The media are keyed by their mrl and modification time, so that a modified file is parsed again.
+ * [PlaylistManager] prefetches the previous, current and next media when they change, so that reading their
+ * descriptor doesn't parse them. The concurrent requests for a media share the same parsing.
+ *
+ * @param parse parses a media, on an IO thread
+ */
+class TrackInfoCache<T : Any>(private val scope: CoroutineScope, capacity: Int = CAPACITY, private val parse: (MediaWrapper) -> T?) {
+    private val entries = LruCache<String, Deferred<T?>>(capacity)
+
+    fun prefetch(medias: List<MediaWrapper>) {
+        medias.forEach { load(it) }
+    }
+
+    suspend fun get(media: MediaWrapper): T? = load(media).await()
+
+    fun clear() = entries.evictAll()
+
+    private fun load(media: MediaWrapper): Deferred<T?> {
+        val key = "${media.location}|${media.lastModified}"
+        synchronized(entries) {
+            entries.get(key)?.let { return it }
+            return scope.async(Dispatchers.IO) {
+                try {
+                    parse(media)
+                } catch (e: Exception) {
+                    Log.w(TAG, "Unable to parse ${media.location}", e)
+                    null
+                }
+            }.also { entries.put(key, it) }
+        }
+    }
+
+    companion object {
+        const val CAPACITY = 32
+    }
+}
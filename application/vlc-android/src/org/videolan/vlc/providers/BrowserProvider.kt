@@ -24,8 +24,10 @@ import android.content.Context
 import android.os.Handler
 import android.os.HandlerThread
 import android.os.Process
+import android.os.SystemClock
 import android.text.format.Formatter
 import android.util.Log
+import androidx.annotation.VisibleForTesting
 import androidx.collection.SimpleArrayMap
 import androidx.core.net.toUri
 import androidx.lifecycle.MutableLiveData
@@ -43,6 +45,7 @@ import kotlinx.coroutines.channels.SendChannel
 import kotlinx.coroutines.channels.actor
 import kotlinx.coroutines.channels.awaitClose
 import kotlinx.coroutines.coroutineScope
+import kotlinx.coroutines.currentCoroutineContext
 import kotlinx.coroutines.flow.buffer
 import kotlinx.coroutines.flow.channelFlow
 import kotlinx.coroutines.flow.mapNotNull
@@ -66,12 +69,13 @@ import org.videolan.tools.CoroutineContextProvider
 import org.videolan.tools.DependencyProvider
 import org.videolan.tools.Settings
 import org.videolan.tools.livedata.LiveDataset
+import org.videolan.vlc.BuildConfig
 import org.videolan.vlc.R
 import org.videolan.vlc.util.ModelsHelper
+import org.videolan.vlc.util.SectionIndex
 import org.videolan.vlc.util.TextUtils
 import org.videolan.vlc.util.ascComp
 import org.videolan.vlc.util.descComp
-import org.videolan.vlc.util.determineMaxNbOfDigits
 import org.videolan.vlc.util.fileReplacementMarker
 import org.videolan.vlc.util.folderReplacementMarker
 import org.videolan.vlc.util.getFilenameAscComp
@@ -96,28 +100,27 @@ abstract class BrowserProvider(val context: Context, val dataset: LiveDataset<Me
     private var discoveryJob : Job? = null
 
     private val foldersContentMap = SimpleArrayMap<MediaLibraryItem, MutableList<MediaLibraryItem>>()
+    @Volatile private var visibleRange = 0..0
     private var showOnlyMultimedia = Settings.getInstance(context).getBoolean(BROWSER_SHOW_ONLY_MULTIMEDIA, false)
 
     val descriptionUpdate = MutableLiveData<Pair<Int, String>>()
     internal val medialibrary = Medialibrary.getInstance()
-    fun isComparatorAboutFilename() = when {
-        Settings.showTvUi && sort == Medialibrary.SORT_ALPHA && desc -> false
-        Settings.showTvUi && sort == Medialibrary.SORT_ALPHA && !desc -> false
-        sort == Medialibrary.SORT_ALPHA && desc -> false
-        sort == Medialibrary.SORT_ALPHA && !desc -> false
-        (sort == Medialibrary.SORT_FILENAME || sort == Medialibrary.SORT_DEFAULT) && desc -> true
-        else -> true
-    }
-    fun getComparator(nbOfDigits: Int): Comparator<MediaLibraryItem>? = when {
+    fun getComparator(): Comparator<MediaLibraryItem>? = when {
             Settings.showTvUi && sort in arrayOf(Medialibrary.SORT_ALPHA, Medialibrary.SORT_DEFAULT) && desc -> getTvDescComp(Settings.tvFoldersFirst)
             Settings.showTvUi && sort in arrayOf(Medialibrary.SORT_ALPHA, Medialibrary.SORT_DEFAULT) && !desc -> getTvAscComp(Settings.tvFoldersFirst)
             url != null && url.toUri().scheme == "upnp" -> null
             sort == Medialibrary.SORT_ALPHA && desc -> descComp
             sort == Medialibrary.SORT_ALPHA && !desc -> ascComp
-            (sort == Medialibrary.SORT_FILENAME || sort == Medialibrary.SORT_DEFAULT) && desc -> getFilenameDescComp(nbOfDigits)
-            else -> getFilenameAscComp(nbOfDigits)
+            (sort == Medialibrary.SORT_FILENAME || sort == Medialibrary.SORT_DEFAULT) && desc -> getFilenameDescComp()
+            else -> getFilenameAscComp()
         }
 
+    /**
+     * Whether the directories listings are kept in the [ListingCache]
+     */
+    protected open val cacheListings = true
+    private val listingCache by lazy(LazyThreadSafetyMode.NONE) { ListingCache.getInstance(context) }
+
     init {
         registerCreator { CoroutineContextProvider() }
         coroutineContextProvider = get(this)
@@ -170,20 +173,17 @@ abstract class BrowserProvider(val context: Context, val dataset: LiveDataset<Me
     protected abstract suspend fun requestBrowsing(url: String?, eventListener: EventListener, interact : Boolean) : Unit?
 
     open fun fetch() {
-        val list by lazy(LazyThreadSafetyMode.NONE) { prefetchLists[url] }
-        when {
-            url === null -> {
-                browseRoot()
-                parseSubDirectories()
-            }
-            !list.isNullOrEmpty() -> {
-                dataset.value = list ?: return
-                prefetchLists.remove(url)
-                computeHeaders(list!!)
-                parseSubDirectories()
-            }
-            else -> browse(url)
+        val url = url ?: run {
+            browseRoot()
+            parseSubDirectories()
+            return
         }
+        val list = getList(url)
+        if (!list.isNullOrEmpty()) {
+            dataset.value = list
+            computeHeaders(list)
+            parseSubDirectories()
+        } else browse(url)
     }
 
     protected open fun browse(url: String? = null) {
@@ -195,15 +195,52 @@ abstract class BrowserProvider(val context: Context, val dataset: LiveDataset<Me
         if (url == null) coroutineScope {
             discoveryJob = launch(coroutineContextProvider.Main) { filesFlow(url).collect { findMedia(it)?.let { item -> addMedia(item) } } }
         } else {
+            val cached = if (cacheListings) withContext(coroutineContextProvider.IO) { listingCache.get(listingKey(url), url.toUri()) } else null
+            if (cached != null) {
+                val files = cached.items.toMutableList<MediaLibraryItem>()
+                sort(files)
+                dataset.value = files
+                computeHeaders(files)
+                loading.postValue(false)
+                if (cached.fresh) {
+                    parseSubDirectories(files)
+                    return
+                }
+            }
+            // browse the directory, to revalidate a stale listing
             val files = filesFlow(url).mapNotNull { findMedia(it) }.toList().toMutableList()
+            // An unreachable share browses as an empty directory: keep the cached listing
+            if (cached != null && files.isEmpty() && cached.items.isNotEmpty()) {
+                Log.w(TAG, "Unable to revalidate $url, keeping the cached listing")
+                parseSubDirectories()
+                loading.postValue(false)
+                return
+            }
             sort(files)
-            dataset.value = files
-            computeHeaders(files)
-            parseSubDirectories(files)
+            if (cached == null || files.map { (it as? MediaWrapper)?.location } != dataset.value.map { (it as? MediaWrapper)?.location }) {
+                dataset.value = files
+                computeHeaders(files)
+                parseSubDirectories(files)
+            } else parseSubDirectories()
+            saveListing(url, files)
         }
         if (url != null ) loading.postValue(false)
     }
 
+    private fun listingKey(url: String) = "$url|${javaClass.simpleName}|$showOnlyMultimedia|${Settings.showHiddenFiles}"
+
+    /**
+     * Caches the listing of [url]. An empty result is not cached, as it can't be told apart from a failed browse.
+     */
+    private suspend fun saveListing(url: String, files: List<MediaLibraryItem>) {
+        if (!cacheListings || files.any { it !is MediaWrapper }) return
+        @Suppress("UNCHECKED_CAST")
+        withContext(coroutineContextProvider.IO) {
+            if (files.isEmpty()) listingCache.remove(listingKey(url))
+            else listingCache.put(listingKey(url), url.toUri(), files as List<MediaWrapper>)
+        }
+    }
+
     /**
      * Sort the files using the comparator. If the comparator is null (UPnP) it keeps the
      * files order (or reverse it in desc mode)
@@ -211,7 +248,7 @@ abstract class BrowserProvider(val context: Context, val dataset: LiveDataset<Me
      * @param files the files to sort
      */
     fun sort(files: MutableList<MediaLibraryItem>) {
-        getComparator(if (isComparatorAboutFilename())  files.determineMaxNbOfDigits() else 0)?.let { files.apply { this.sortWith(it) } } ?: if (desc) files.apply { reverse() } else { }
+        getComparator()?.let { files.apply { this.sortWith(it) } } ?: if (desc) files.apply { reverse() } else { }
     }
 
     suspend fun browseUrl(url: String): List<MediaLibraryItem> {
@@ -242,11 +279,15 @@ abstract class BrowserProvider(val context: Context, val dataset: LiveDataset<Me
         dataset.value = files
         computeHeaders(files)
         parseSubDirectories(files)
+        url?.let { saveListing(it, files) }
         loading.postValue(false)
     }
 
+    /**
+     * @param browser the [MediaBrowser] to use instead of [mediabrowser], for the parallel prefetch
+     */
     @OptIn(ExperimentalCoroutinesApi::class)
-    private fun filesFlow(url: String? = this.url, interact : Boolean = true) = channelFlow<IMedia> {
+    private fun filesFlow(url: String? = this.url, interact : Boolean = true, browser: MediaBrowser? = null) = channelFlow<IMedia> {
         val listener = object : EventListener {
             override fun onMediaAdded(index: Int, media: IMedia) {
                 if (!isClosedForSend) trySend(media.apply { retain() })
@@ -258,14 +299,17 @@ abstract class BrowserProvider(val context: Context, val dataset: LiveDataset<Me
 
             override fun onMediaRemoved(index: Int, media: IMedia) {}
         }
-        requestBrowsing(url, listener, interact)
-        awaitClose { if (url != null) AppScope.launch(coroutineContextProvider.IO) {
+        if (browser != null && url != null) withContext(coroutineContextProvider.IO) {
+            browser.changeEventListener(listener)
+            browser.browse(url.toUri(), getFlags(interact))
+        } else requestBrowsing(url, listener, interact)
+        awaitClose { if (url != null && browser == null) AppScope.launch(coroutineContextProvider.IO) {
             mediabrowser?.changeEventListener(null) }
         }
     }.buffer(Channel.UNLIMITED)
 
     open fun addMedia(media: MediaLibraryItem) {
-        getComparator(if (isComparatorAboutFilename())  dataset.value.determineMaxNbOfDigits() else 0)?.let { dataset.add(media, it) } ?: dataset.add(media)
+        getComparator()?.let { dataset.add(media, it) } ?: dataset.add(media)
     }
 
     open fun refresh() {
@@ -275,42 +319,38 @@ abstract class BrowserProvider(val context: Context, val dataset: LiveDataset<Me
         }
         parsingJob?.cancel()
         parsingJob = null
+        removeList(url)
         loading.postValue(true)
         browserActor.post(Refresh)
     }
 
     open fun computeHeaders(value: List<MediaLibraryItem>) {
-        privateHeaders.clear()
-        for ((position, item) in value.withIndex()) {
-            val previous = when {
-                position > 0 -> value[position - 1]
-                else -> null
-            }
-            ModelsHelper.getHeader(context, Medialibrary.SORT_ALPHA, item, previous)?.let {
-                privateHeaders.put(position, it)
-            }
-        }
-        (liveHeaders as MutableLiveData).postValue(privateHeaders.clone())
+        val index = SectionIndex().apply { patch(value, 0) { ModelsHelper.getSectionKey(context, Medialibrary.SORT_ALPHA, it) } }
+        (liveHeaders as MutableLiveData).postValue(index.toHeaders())
     }
 
     internal open fun parseSubDirectories(list : List<MediaLibraryItem>? = null) {
         browserActor.post(ParseSubDirectories(list))
     }
 
+    /**
+     * Set the positions currently displayed, their subdirectories are parsed first
+     */
+    fun setVisibleRange(first: Int, last: Int) {
+        if (first >= 0 && last >= first) visibleRange = first..last
+    }
+
     private suspend fun parseSubDirectoriesImpl(list : List<MediaLibraryItem>? = null) {
         if (list === null && dataset.value.isEmpty()) return
         val currentMediaList = list ?: withContext(coroutineContextProvider.Main) { dataset.value.toList() }
-        val directories: MutableList<MediaWrapper> = ArrayList()
-        val files: MutableList<MediaWrapper> = ArrayList()
         foldersContentMap.clear()
         coroutineScope { // allow child coroutine to be cancelled without closing the actor.
             parsingJob = launch (coroutineContextProvider.IO) {
                 initBrowser()
-                var currentParsedPosition = -1
-                loop@ while (++currentParsedPosition < currentMediaList.size) {
-                    if (!isActive) break@loop
+                val pending = PrefetchQueue()
+                for ((position, item) in currentMediaList.withIndex()) {
+                    if (!isActive) return@launch
                     //skip media that are not browsable
-                    val item = currentMediaList[currentParsedPosition]
                     val current = when (item.itemType) {
                         MediaLibraryItem.TYPE_MEDIA -> {
                             val mw = item as MediaWrapper
@@ -319,50 +359,79 @@ abstract class BrowserProvider(val context: Context, val dataset: LiveDataset<Me
                                     parseMediaSize(mw)?.let {
                                         withContext(coroutineContextProvider.Main) {
                                             item.description = if (it == 0L) "" else Formatter.formatFileSize(context, it)
-                                            descriptionUpdate.value = Pair(currentParsedPosition, item.description)
+                                            descriptionUpdate.value = Pair(position, item.description)
                                         }
                                     }
 
                                 }
-                                continue@loop
+                                continue
                             }
-                            if (mw.uri.scheme == "otg" || mw.uri.scheme == "content") continue@loop
+                            if (mw.uri.scheme == "otg" || mw.uri.scheme == "content") continue
                             mw
                         }
                         MediaLibraryItem.TYPE_STORAGE ->
                             MLServiceLocator.getAbstractMediaWrapper((item as Storage).uri).apply { type = MediaWrapper.TYPE_DIR }
-                        else -> continue@loop
+                        else -> continue
                     }
-                    // retrieve subitems
-                    val mediaList = filesFlow(current.uri.toString(), false).toList()
-                    for (media in mediaList) {
-                        val mw = findMedia(media) ?: continue
-                        if (mw is MediaWrapper) {
-                            val type = mw.type
-                            if (type == MediaWrapper.TYPE_DIR) directories.add(mw)
-                            else files.add(mw)
-                        } else if (mw is Storage) directories.add(MLServiceLocator.getAbstractMediaWrapper(media))
-                    }
-                    // all subitems are in
-                    getDescription(directories.size, files.size).takeIf { it.isNotEmpty() }?.let {
-                        val position = currentParsedPosition
-                        withContext(coroutineContextProvider.Main) {
-                            item.description = it
-                            descriptionUpdate.value = Pair(position, it)
+                    pending.add(position, current)
+                }
+                val workers = minOf(prefetchConcurrency[url?.toUri()?.scheme] ?: DEFAULT_PREFETCH_CONCURRENCY, pending.size)
+                // The first worker uses the provider browser, the others their own one
+                for (worker in 0 until workers) launch {
+                    val browser = if (worker == 0) null else prefetchBrowserCreator(context)?.apply {
+                        if (!showOnlyMultimedia) setIgnoreFileTypes(".")
+                    } ?: return@launch
+                    try {
+                        while (isActive) {
+                            val (position, current) = pending.poll(visibleRange) ?: break
+                            parseDirectory(currentMediaList[position], position, current, browser)
+                        }
+                    } finally {
+                        if (browser != null) AppScope.launch(coroutineContextProvider.IO) {
+                            try {
+                                browser.release()
+                            } catch (e: IllegalStateException) {
+                            }
                         }
-                        directories.addAll(files)
-                        @Suppress("UNCHECKED_CAST")
-                        sort(directories as MutableList<MediaLibraryItem>)
-                        withContext(coroutineContextProvider.Main) { foldersContentMap.put(item, directories.toMutableList()) }
                     }
-                    directories.clear()
-                    files.clear()
                 }
             }
         }
         parsingJob = null
     }
 
+    /**
+     * Retrieve the content of a directory, from the prefetched lists if it has been browsed recently
+     */
+    private suspend fun parseDirectory(item: MediaLibraryItem, position: Int, current: MediaWrapper, browser: MediaBrowser?) {
+        val location = current.location
+        val content = getList(location) ?: run {
+            val directories: MutableList<MediaLibraryItem> = ArrayList()
+            val files: MutableList<MediaLibraryItem> = ArrayList()
+            for (media in filesFlow(location, false, browser).toList()) {
+                val mw = findMedia(media) ?: continue
+                if (mw is MediaWrapper) {
+                    val type = mw.type
+                    if (type == MediaWrapper.TYPE_DIR) directories.add(mw)
+                    else files.add(mw)
+                } else if (mw is Storage) directories.add(MLServiceLocator.getAbstractMediaWrapper(media))
+            }
+            if (!currentCoroutineContext().isActive) return
+            directories.addAll(files)
+            sort(directories)
+            directories.also { putList(location, it) }
+        }
+        // all subitems are in
+        val folderCount = content.count { it is MediaWrapper && it.type == MediaWrapper.TYPE_DIR }
+        getDescription(folderCount, content.size - folderCount).takeIf { it.isNotEmpty() }?.let {
+            withContext(coroutineContextProvider.Main) {
+                item.description = it
+                descriptionUpdate.value = Pair(position, it)
+                foldersContentMap.put(item, content.toMutableList())
+            }
+        }
+    }
+
     private fun parseMediaSize(mw:MediaWrapper):Long? {
         mw.uri?.path?.let {
             return File(it).length()
@@ -425,6 +494,9 @@ abstract class BrowserProvider(val context: Context, val dataset: LiveDataset<Me
     open fun release() {
         cancel()
         if (url != null) loading.postValue(false)
+        if (BuildConfig.DEBUG && url != null && cacheListings) listingCache.stats().let { (hits, staleHits, misses) ->
+            Log.d(TAG, "Listing cache: $hits hits, $staleHits stale hits, $misses misses")
+        }
     }
 
     fun updateShowAllFiles(value: Boolean) {
@@ -432,11 +504,16 @@ abstract class BrowserProvider(val context: Context, val dataset: LiveDataset<Me
         refresh()
     }
 
-    protected fun getList(url: String) =  prefetchLists[url]
+    /**
+     * @return a copy of the content of [url] if it has been browsed less than [PREFETCH_TTL] ms ago
+     */
+    protected fun getList(url: String) = prefetchLists.get(url)
+
+    protected fun removeList(url: String) = prefetchLists.remove(url)
 
-    protected fun removeList(url: String) =  prefetchLists.remove(url)
+    private fun putList(url: String, list: List<MediaLibraryItem>) = prefetchLists.put(url, list)
 
-    fun saveList(media: MediaWrapper) = foldersContentMap[media]?.let { if (it.isNotEmpty()) prefetchLists[media.location] = it }
+    fun saveList(media: MediaWrapper) = foldersContentMap[media]?.let { if (it.isNotEmpty()) putList(media.location, it) }
 
     fun isFolderEmpty(mw: MediaWrapper) = foldersContentMap[mw]?.isEmpty() != false
 
@@ -446,7 +523,105 @@ abstract class BrowserProvider(val context: Context, val dataset: LiveDataset<Me
             handlerThread.start()
             Handler(handlerThread.looper)
         }
-        private val prefetchLists = mutableMapOf<String, MutableList<MediaLibraryItem>>()
+
+        private const val PREFETCH_TTL = 120_000L
+        private const val PREFETCH_MAX_LISTS = 200
+        private const val DEFAULT_PREFETCH_CONCURRENCY = 4
+
+        /**
+         * Number of directories browsed at once while parsing the subdirectories, by scheme.
+         * Browsing a network share is bound by the latency, a local storage by the disk.
+         */
+        val prefetchConcurrency = mutableMapOf("file" to 2, "smb" to 4, "upnp" to 4)
+
+        /**
+         * Creates the additional browsers used by the parallel parsing. Returning null limits the parsing to the provider browser.
+         */
+        var prefetchBrowserCreator: (Context) -> MediaBrowser? = ::createPrefetchBrowser
+
+        private fun createPrefetchBrowser(context: Context): MediaBrowser? = MediaBrowser(VLCInstance.getInstance(context), null, browserHandler)
+
+        @VisibleForTesting
+        fun resetPrefetchBrowserCreator() {
+            prefetchBrowserCreator = ::createPrefetchBrowser
+        }
+
+        /**
+         * Recently browsed directories contents, by location
+         */
+        private val prefetchLists = PrefetchedLists(PREFETCH_MAX_LISTS, PREFETCH_TTL)
+    }
+
+    /**
+     * Directories contents by location, kept [ttl] ms. The least recently used ones are dropped above [maxLists] entries.
+     */
+    @VisibleForTesting
+    internal class PrefetchedLists(private val maxLists: Int, private val ttl: Long, private val clock: () -> Long = SystemClock::elapsedRealtime) {
+        private class PrefetchedList(val list: List<MediaLibraryItem>, val time: Long)
+
+        private val lists = object : LinkedHashMap<String, PrefetchedList>(16, 0.75f, true) {
+            override fun removeEldestEntry(eldest: MutableMap.MutableEntry<String, PrefetchedList>?) = size > maxLists
+        }
+
+        /**
+         * @return a copy of the content of [url], or null if it is unknown or expired
+         */
+        @Synchronized
+        fun get(url: String): MutableList<MediaLibraryItem>? {
+            val prefetched = lists[url] ?: return null
+            return if (clock() - prefetched.time > ttl) {
+                lists.remove(url)
+                null
+            } else prefetched.list.toMutableList()
+        }
+
+        @Synchronized
+        fun put(url: String, list: List<MediaLibraryItem>) {
+            lists[url] = PrefetchedList(list.toList(), clock())
+        }
+
+        @Synchronized
+        fun remove(url: String) {
+            lists.remove(url)
+        }
+    }
+
+    /**
+     * Directories waiting to be parsed, the closest to the visible positions are polled first
+     */
+    @VisibleForTesting
+    internal class PrefetchQueue {
+        private val positions = ArrayList<Int>()
+        private val directories = ArrayList<MediaWrapper>()
+
+        val size: Int
+            get() = synchronized(this) { positions.size }
+
+        @Synchronized
+        fun add(position: Int, directory: MediaWrapper) {
+            positions.add(position)
+            directories.add(directory)
+        }
+
+        @Synchronized
+        fun poll(visible: IntRange): Pair<Int, MediaWrapper>? {
+            if (positions.isEmpty()) return null
+            var best = 0
+            var bestDistance = Int.MAX_VALUE
+            for ((index, position) in positions.withIndex()) {
+                val distance = when {
+                    position < visible.first -> visible.first - position
+                    position > visible.last -> position - visible.last
+                    else -> 0
+                }
+                if (distance < bestDistance) {
+                    best = index
+                    bestDistance = distance
+                    if (distance == 0) break
+                }
+            }
+            return positions.removeAt(best) to directories.removeAt(best)
+        }
     }
 
     @OptIn(ExperimentalCoroutinesApi::class)
@@ -33,6 +33,8 @@ import org.videolan.vlc.util.isSoundFont
 
 class FilePickerProvider(context: Context, dataset: LiveDataset<MediaLibraryItem>, url: String?, showDummyCategory: Boolean = false, private val pickerType:PickerType = PickerType.SUBTITLE) : FileBrowserProvider(context, dataset, url, true, showDummyCategory, Medialibrary.SORT_FILENAME, false) {
 
+    override val cacheListings = false
+
     override fun getFlags(interact : Boolean) = if (interact) MediaBrowser.Flag.NoSlavesAutodetect
     else MediaBrowser.Flag.Interact or MediaBrowser.Flag.NoSlavesAutodetect
 
@@ -0,0 +1,146 @@
+/*****************************************************************************
+ * ListingCache.kt
+ *****************************************************************************
+ * Copyright © 2026 VLC authors and VideoLAN
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston MA 02110-1301, USA.
+ *****************************************************************************/
+
+package org.videolan.vlc.providers
+
+import android.content.Context
+import android.net.Uri
+import android.util.Log
+import androidx.annotation.WorkerThread
+import org.videolan.medialibrary.MediaWrapperCodec
+import org.videolan.medialibrary.interfaces.Medialibrary
+import org.videolan.medialibrary.interfaces.media.MediaWrapper
+import org.videolan.tools.SingletonHolder
+import java.io.BufferedInputStream
+import java.io.BufferedOutputStream
+import java.io.DataInputStream
+import java.io.DataOutputStream
+import java.io.File
+import java.io.FileInputStream
+import java.io.FileOutputStream
+import java.io.IOException
+import java.security.MessageDigest
+import java.util.concurrent.atomic.AtomicInteger
+
+private const val MAGIC = 0x564C4C43 // VLLC
+private const val MAX_LISTINGS = 500
+private const val NO_VALIDATOR = -1L
+
+/**
+ * On disk cache of the directories contents, keyed by their location and the browsing options.
+ *
+ * Local directories are validated with their modification date, which changes when an entry is added,
+ * renamed or removed: a listing is only served if it is still up to date.
+ * Other schemes can't be validated without browsing them, so their listing is served as stale and
+ * the caller is expected to browse the directory again and [put] the result.
+ */
+class ListingCache(private val directory: File) {
+
+    class Listing(val items: List<MediaWrapper>, val fresh: Boolean)
+
+    private val hits = AtomicInteger()
+    private val staleHits = AtomicInteger()
+    private val misses = AtomicInteger()
+
+    /**
+     * @return the cached content of [uri], or null if it's unknown or outdated
+     */
+    @WorkerThread
+    fun get(key: String, uri: Uri): Listing? {
+        val file = fileOf(key)
+        if (!file.exists()) return miss()
+        val currentValidator = validatorOf(uri)
+        val items = try {
+            DataInputStream(BufferedInputStream(FileInputStream(file))).use { input ->
+                if (input.readInt() != MAGIC || input.readUTF() != key) return miss()
+                val validator = input.readLong()
+                if (validator != NO_VALIDATOR && validator != currentValidator) {
+                    file.delete()
+                    return miss()
+                }
+                MediaWrapperCodec.decode(input, resolver)
+            }
+        } catch (e: IOException) {
+            Log.w(TAG, "Unable to read the cached listing of $uri", e)
+            file.delete()
+            return miss()
+        }
+        file.setLastModified(System.currentTimeMillis())
+        val fresh = currentValidator != NO_VALIDATOR
+        (if (fresh) hits else staleHits).incrementAndGet()
+        return Listing(items, fresh)
+    }
+
+    @WorkerThread
+    fun put(key: String, uri: Uri, items: List<MediaWrapper>) {
+        if (!directory.exists() && !directory.mkdirs()) return
+        val file = fileOf(key)
+        val tmp = File(directory, "${file.name}.tmp")
+        try {
+            DataOutputStream(BufferedOutputStream(FileOutputStream(tmp))).use { output ->
+                output.writeInt(MAGIC)
+                output.writeUTF(key)
+                output.writeLong(validatorOf(uri))
+                MediaWrapperCodec.encode(items, true, output)
+            }
+            if (!tmp.renameTo(file)) tmp.delete()
+        } catch (e: IOException) {
+            Log.w(TAG, "Unable to cache the listing of $uri", e)
+            tmp.delete()
+            return
+        }
+        trim()
+    }
+
+    @WorkerThread
+    fun remove(key: String) {
+        fileOf(key).delete()
+    }
+
+    /**
+     * @return the number of up to date listings served, of stale listings served and of unknown listings
+     */
+    fun stats() = Triple(hits.get(), staleHits.get(), misses.get())
+
+    private fun miss(): Listing? {
+        misses.incrementAndGet()
+        return null
+    }
+
+    /**
+     * Keep the most recently used listings
+     */
+    private fun trim() {
+        val files = directory.listFiles() ?: return
+        if (files.size <= MAX_LISTINGS) return
+        files.sortedByDescending { it.lastModified() }.drop(MAX_LISTINGS * 3 / 4).forEach { it.delete() }
+    }
+
+    private fun validatorOf(uri: Uri) = if (uri.scheme == "file") uri.path?.let { File(it).lastModified().takeIf { date -> date > 0L } } ?: NO_VALIDATOR else NO_VALIDATOR
+
+    private fun fileOf(key: String) = File(directory, MessageDigest.getInstance("SHA-1").digest(key.toByteArray()).joinToString("") { "%02x".format(it) })
+
+    companion object : SingletonHolder<ListingCache, Context>({ ListingCache(File(it.applicationContext.cacheDir, "browser_listings")) }) {
+        private const val TAG = "VLC/ListingCache"
+        private val resolver = MediaWrapperCodec.Resolver { id ->
+            Medialibrary.getInstance().let { if (it.isInitiated) it.getMedia(id) else null }
+        }
+    }
+}
@@ -68,23 +68,6 @@ class NetworkProvider(context: Context, dataset: LiveDataset<MediaLibraryItem>,
         }
     }
 
-    override fun refresh() {
-        val list by lazy(LazyThreadSafetyMode.NONE) { getList(url!!) }
-        when {
-            url == null -> {
-                browseRoot()
-            }
-            list !== null -> {
-                dataset.value = list as MutableList<MediaLibraryItem>
-                removeList(url)
-                parseSubDirectories()
-                computeHeaders(list as MutableList<MediaLibraryItem>)
-            }
-            else -> super.refresh()
-        }
-
-    }
-
     override fun parseSubDirectories(list : List<MediaLibraryItem>?) {
         if (url != null) super.parseSubDirectories(list)
     }
@@ -36,6 +36,8 @@ import java.io.File
 
 class StorageProvider(context: Context, dataset: LiveDataset<MediaLibraryItem>, url: String?) : FileBrowserProvider(context, dataset, url, false, sort = Medialibrary.SORT_FILENAME, desc = false) {
 
+    override val cacheListings = false
+
     // the ML doesn't index hidden files. no need to display them here
     override fun getFlags(interact: Boolean) = if (interact) MediaBrowser.Flag.NoSlavesAutodetect else 0
 
@@ -30,6 +30,7 @@ import androidx.paging.toLiveData
 import kotlinx.coroutines.CompletableDeferred
 import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.withContext
+import org.videolan.medialibrary.MediaCursor
 import org.videolan.medialibrary.interfaces.Medialibrary
 import org.videolan.medialibrary.interfaces.media.MediaWrapper
 import org.videolan.medialibrary.media.MediaLibraryItem
@@ -40,9 +41,9 @@ import org.videolan.vlc.PlaybackService
 import org.videolan.vlc.media.MediaUtils
 import org.videolan.vlc.util.ModelsHelper
 import org.videolan.vlc.util.Permissions
+import org.videolan.vlc.util.SectionIndex
 import org.videolan.vlc.util.SortModule
 import org.videolan.vlc.viewmodels.SortableModel
-import kotlin.math.min
 
 abstract class MedialibraryProvider<T : MediaLibraryItem>(val context: Context, val model: SortableModel) : HeaderProvider(),
         SortModule
@@ -79,6 +80,11 @@ abstract class MedialibraryProvider<T : MediaLibraryItem>(val context: Context,
             maxSize = MEDIALIBRARY_PAGE_SIZE *2
     )
 
+    /**
+     * Sections of the current sort, cleared on refresh and completed page by page
+     */
+    private val sectionIndex = SectionIndex()
+
     val pagedList by lazy(LazyThreadSafetyMode.NONE) { MLDatasourceFactory().toLiveData(pagingConfig) }
 
     /**
@@ -95,13 +101,9 @@ abstract class MedialibraryProvider<T : MediaLibraryItem>(val context: Context,
                 when (val count = getTotalCount()) {
                     0 -> listOf()
                     in 1..MEDIALIBRARY_PAGE_SIZE -> pageSizeLambda(service)
-                    else -> mutableListOf<MediaWrapper>().apply {
-                        var index = 0
-                        while (index < count) {
-                            val pageCount = min(MEDIALIBRARY_PAGE_SIZE, count - index)
-                            val page = getPage(pageCount, index)
-                            for (item in page) addAll(item.tracks)
-                            index += pageCount
+                    else -> ArrayList<MediaWrapper>(count).apply {
+                        cursor().use { cursor ->
+                            while (cursor.hasNext()) for (item in cursor.next()) addAll(item.tracks)
                         }
                     }
                 }
@@ -110,6 +112,11 @@ abstract class MedialibraryProvider<T : MediaLibraryItem>(val context: Context,
         }
     }
 
+    /**
+     * Walks the whole provider content, [MEDIALIBRARY_PAGE_SIZE] items at a time
+     */
+    fun cursor() = MediaCursor({ nbItems, offset -> getPage(nbItems, offset) }, MEDIALIBRARY_PAGE_SIZE)
+
     abstract fun getTotalCount(): Int
     abstract fun getPage(loadSize: Int, startposition: Int): Array<T>
     abstract fun getAll(): Array<out T>
@@ -158,7 +165,7 @@ abstract class MedialibraryProvider<T : MediaLibraryItem>(val context: Context,
             loading.postValue(false)
             return false
         }
-        privateHeaders.clear()
+        synchronized(sectionIndex) { sectionIndex.clear() }
         if (!dataSource.isInvalid) {
             isRefreshing = true
             dataSource.invalidate()
@@ -168,18 +175,15 @@ abstract class MedialibraryProvider<T : MediaLibraryItem>(val context: Context,
 
     fun isEmpty() = pagedList.value.isNullOrEmpty()
 
+    /**
+     * Patches the [sectionIndex] with a page loaded at [startposition]
+     */
     fun completeHeaders(list: Array<T>, startposition: Int) {
-        for ((position, item) in list.withIndex()) {
-            val previous = when {
-                position > 0 -> list[position - 1]
-                startposition > 0 -> pagedList.value?.getOrNull(startposition + position - 1)
-                else -> null
-            }
-            ModelsHelper.getHeader(context, sort, item, previous)?.let {
-                privateHeaders.put(startposition + position, it)
-            }
+        val headers = synchronized(sectionIndex) {
+            sectionIndex.patch(list.asList(), startposition) { ModelsHelper.getSectionKey(context, sort, it) }
+            sectionIndex.toHeaders()
         }
-        (liveHeaders as MutableLiveData).postValue(privateHeaders.clone())
+        (liveHeaders as MutableLiveData).postValue(headers)
     }
 
     inner class MLDataSource : PositionalDataSource<T>() {
@@ -449,25 +449,30 @@ fun <T> Flow<T>.launchWhenStarted(scope: LifecycleCoroutineScope): Job = scope.l
 }
 
 /**
- * Sanitize a string by adding enough "0" at the start
- * to make a "natural" alphanumeric comparison (1, 2, 10, 11, 20) instead of a strict one (1, 10, 11, 21, 20)
+ * Compute a key giving a "natural" alphanumeric order (1, 2, 10, 11, 20) instead of a strict one (1, 10, 11, 2, 20)
+ * when compared with [String.compareTo].
+ * The key is lowercased and each number is prefixed with its number of digits, leading zeros excluded.
  *
- * @param nbOfDigits the number of digits to reach
- * @return a string having exactly [nbOfDigits] digits at the start
+ * @return the natural sort key of this String
  */
-fun String?.sanitizeStringForAlphaCompare(nbOfDigits: Int): String? {
-    if (isNullOrEmpty()) return this
-    if (first().isDigit()) return buildString {
-        var numberOfPrependingZeros =0
-        for (c in this@sanitizeStringForAlphaCompare) {
-            if (c.isDigit() && c.digitToInt() == 0) numberOfPrependingZeros++ else break
+fun String.naturalSortKey(): String {
+    val lowercase = lowercase(Locale.getDefault())
+    val key = StringBuilder(lowercase.length + 4)
+    var i = 0
+    while (i < lowercase.length) {
+        if (lowercase[i] !in '0'..'9') {
+            key.append(lowercase[i++])
+            continue
         }
-        for (i in 0 until (nbOfDigits - numberOfPrependingZeros - (getStartingNumber()?.numberOfDigits() ?: 0))) {
-            append("0")
-        }
-        append(this@sanitizeStringForAlphaCompare)
+        var end = i
+        while (end < lowercase.length && lowercase[end] in '0'..'9') end++
+        //we exclude starting "0" to prevent bad sorts, but keep a digit for zero
+        while (i < end - 1 && lowercase[i] == '0') i++
+        // the length marker stays below the letters
+        key.append('0' + (end - i).coerceAtMost('Z' - '0')).append(lowercase, i, end)
+        i = end
     }
-    return this
+    return key.toString()
 }
 
 /**
@@ -499,21 +504,6 @@ fun String.getStartingNumber(): Int? {
     }
 }
 
-/**
- * Determine the max number of digits iat the start of
- * this lit items' filename
- *
- * @return a max number of digits
- */
-fun List<MediaLibraryItem>.determineMaxNbOfDigits(): Int {
-    var numberOfPrepending = 0
-    forEach {
-        numberOfPrepending = max((it as? MediaWrapper)?.fileName?.getStartingNumber()?.numberOfDigits()
-                ?: 0, numberOfPrepending)
-    }
-    return numberOfPrepending
-}
-
 fun Fragment.showParentFolder(media: MediaWrapper) {
     val parent = MLServiceLocator.getAbstractMediaWrapper(media.uri.retrieveParent()).apply {
         type = MediaWrapper.TYPE_DIR
@@ -0,0 +1,102 @@
+/*
+ * ************************************************************************
+ *  LogRingBuffer.kt
+ * *************************************************************************
+ * Copyright © 2026 VLC authors and VideoLAN
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston MA 02110-1301, USA.
+ * **************************************************************************
+ *
+ *
+ */
+
+package org.videolan.vlc.util
+
+import kotlin.math.max
+import kotlin.math.min
+
+/**
+ * Preallocated ring buffer of the last [capacity] log lines, for a single writer thread and any number of readers.
+ *
+ * The lines are identified by their sequence number. The writer stores a line in its slot before publishing it
+ * by incrementing the volatile [written] count, so that it never blocks.
+ * Readers don't block it either: they check the count again after reading a slot, and skip the lines which have
+ * been overwritten meanwhile.
+ */
+class LogRingBuffer(val capacity: Int) {
+    private val lines = arrayOfNulls<String>(capacity)
+
+    /**
+     * Number of lines added since the creation of the buffer, which is the sequence number of the next line
+     */
+    @Volatile
+    var written = 0L
+        private set
+
+    // Sequence number of the first line since the last clear
+    @Volatile
+    private var start = 0L
+
+    val size: Int
+        get() = (written - firstSequence()).toInt()
+
+    /**
+     * Adds a line, overwriting the oldest one if the buffer is full. Must always be called from the same thread.
+     */
+    fun add(line: String) {
+        val sequence = written
+        lines[slot(sequence)] = line
+        written = sequence + 1
+    }
+
+    fun clear() {
+        start = written
+    }
+
+    /**
+     * Reads the lines from the [from] sequence number, or from the oldest available line, without copying them
+     *
+     * @param maxCount the maximum number of lines to read
+     * @return the sequence number of the next line to read
+     */
+    inline fun read(from: Long, maxCount: Int = Int.MAX_VALUE, action: (String) -> Unit): Long {
+        var sequence = max(from, firstSequence())
+        val end = min(written, sequence + maxCount)
+        while (sequence < end) {
+            val line = lineAt(sequence)
+            // The line has been overwritten while reading it
+            if (written - sequence >= capacity) {
+                sequence = firstSequence()
+                continue
+            }
+            line?.let(action)
+            ++sequence
+        }
+        return sequence
+    }
+
+    fun toList() = ArrayList<String>(size).also { list -> read(0L) { list.add(it) } }
+
+    /**
+     * @return the sequence number of the oldest line which can be read. The slot of the last line of the previous
+     * turn is left out, as it may be being overwritten.
+     */
+    @PublishedApi
+    internal fun firstSequence() = max(start, written - capacity + 1)
+
+    @PublishedApi
+    internal fun lineAt(sequence: Long) = lines[slot(sequence)]
+
+    private fun slot(sequence: Long) = (sequence % capacity).toInt()
+}
@@ -28,7 +28,6 @@ import org.videolan.resources.util.getTimeCategory
 import org.videolan.resources.util.getTimeCategoryString
 import org.videolan.resources.util.getYear
 import org.videolan.resources.util.isSpecialItem
-import org.videolan.tools.Settings
 import org.videolan.vlc.PlaybackService
 import java.util.Locale
 import kotlin.Boolean
@@ -44,175 +43,65 @@ import kotlin.toString
 
 object ModelsHelper {
 
-    suspend fun generateSections(sort: Int, items: List<MediaLibraryItem>) = withContext(Dispatchers.IO) {
-        val array = splitList(sort, items)
-        val datalist = mutableListOf<MediaLibraryItem>()
-        for ((key, list) in array) {
-            datalist.add(DummyItem(key))
-            datalist.addAll(list)
+    /**
+     * @return the [items] with a [DummyItem] header before each section. The name sorts sections are sorted by key.
+     */
+    suspend fun generateSections(context: Context, sort: Int, items: List<MediaLibraryItem>) = withContext(Dispatchers.IO) {
+        val entries = items.filter { it.itemType != MediaLibraryItem.TYPE_DUMMY }
+        val keys = Array(entries.size) { getSectionKey(context, sort, entries[it]) }
+        val sorted = if (sort == SORT_DEFAULT || sort == SORT_FILENAME || sort == SORT_ALPHA)
+            entries.indices.sortedBy { keys[it] }
+        else entries.indices.toList()
+        val index = SectionIndex().apply { patch(sorted, 0) { keys[it] } }
+        val datalist = ArrayList<MediaLibraryItem>(entries.size + index.size)
+        var section = 0
+        for ((position, item) in sorted.withIndex()) {
+            if (section < index.size && index.positionAt(section) == position) datalist.add(DummyItem(index.titleAt(section++)))
+            datalist.add(entries[item])
         }
         datalist
     }
 
-    internal suspend fun splitList(sort: Int, items: Collection<MediaLibraryItem>) = withContext(Dispatchers.IO) {
-        val array = mutableMapOf<String, MutableList<MediaLibraryItem>>()
-        when (sort) {
-            SORT_DEFAULT,
-            SORT_FILENAME,
-            SORT_ALPHA -> {
-                var currentLetter: String? = null
-                for (item in items) {
-                    if (item.itemType == MediaLibraryItem.TYPE_DUMMY) continue
-                    val title = item.title
-                    val letter = if (title.isEmpty() || !Character.isLetter(title[0]) || item.isSpecialItem()) "#" else title.substring(0, 1).uppercase(Locale.getDefault())
-                    if (currentLetter === null || currentLetter != letter) {
-                        currentLetter = letter
-                        if (array[letter].isNullOrEmpty()) array[letter] = mutableListOf()
-                    }
-                    array[letter]?.add(item)
-                }
-            }
-            SORT_DURATION -> {
-                var currentLengthCategory: String? = null
-                for (item in items) {
-                    if (item.itemType == MediaLibraryItem.TYPE_DUMMY) continue
-                    val lengthCategory = item.getLength().lengthToCategory()
-                    if (currentLengthCategory == null || currentLengthCategory != lengthCategory) {
-                        currentLengthCategory = lengthCategory
-                        if (array[currentLengthCategory].isNullOrEmpty()) array[currentLengthCategory] = mutableListOf()
-                    }
-                    array[currentLengthCategory]?.add(item)
-                }
-            }
-            SORT_RELEASEDATE -> {
-                var currentYear: String? = null
-                for (item in items) {
-                    if (item.itemType == MediaLibraryItem.TYPE_DUMMY) continue
-                    val year = item.getYear()
-                    if (currentYear === null || currentYear != year) {
-                        currentYear = year
-                        if (array[currentYear].isNullOrEmpty()) array[currentYear] = mutableListOf()
-                    }
-                    array[currentYear]?.add(item)
-                }
-            }
-            SORT_ARTIST -> {
-                var currentArtist: String? = null
-                for (item in items) {
-                    if (item.itemType == MediaLibraryItem.TYPE_DUMMY) continue
-                    val artist = (item as MediaWrapper).artistName ?: ""
-                    if (currentArtist === null || currentArtist != artist) {
-                        currentArtist = artist
-                        if (array[currentArtist].isNullOrEmpty()) array[currentArtist] = mutableListOf()
-                    }
-                    array[currentArtist]?.add(item)
-                }
-            }
-            SORT_ALBUM -> {
-                var currentAlbum: String? = null
-                for (item in items) {
-                    if (item.itemType == MediaLibraryItem.TYPE_DUMMY) continue
-                    val album = (item as MediaWrapper).albumName ?: ""
-                    if (currentAlbum === null || currentAlbum != album) {
-                        currentAlbum = album
-                        if (array[currentAlbum].isNullOrEmpty()) array[currentAlbum] = mutableListOf()
-                    }
-                    array[currentAlbum]?.add(item)
-                }
-            }
+    private class Initials(val locale: Locale) {
+        val letters = Array(128) { it.toChar().toString().uppercase(locale) }
+    }
+    @Volatile private var initials = Initials(Locale.getDefault())
+
+    /**
+     * @return the initial of [title] as displayed in the headers, without allocating for ASCII titles
+     */
+    private fun MediaLibraryItem.getInitial(title: String) = when {
+        title.isEmpty() || !Character.isLetter(title[0]) || isSpecialItem() -> "#"
+        title[0].code < 128 -> {
+            val locale = Locale.getDefault()
+            val current = initials.takeIf { it.locale == locale } ?: Initials(locale).also { initials = it }
+            current.letters[title[0].code]
         }
-        if (sort == SORT_DEFAULT || sort == SORT_FILENAME || sort == SORT_ALPHA)
-            array.toSortedMap()
-        else array
+        else -> title.substring(0, 1).uppercase(Locale.getDefault())
     }
 
+    /**
+     * @return the title of the section of [item] for the [sort], or null if it doesn't belong to any section
+     */
+    fun getSectionKey(context: Context, sort: Int, item: MediaLibraryItem): String? = when (sort) {
+        SORT_DEFAULT,
+        SORT_ALPHA -> item.getInitial(item.title)
+        TrackId -> item.getDiscNumberString()
+        SORT_DURATION -> item.getLength().lengthToCategory()
+        SORT_RELEASEDATE -> item.getYear()
+        SORT_LASTMODIFICATIONDATE -> (item as? MediaWrapper)?.let { getTimeCategoryString(context, getTimeCategory(it.lastModified)) }
+        SORT_INSERTIONDATE -> (item as? MediaWrapper)?.let { getTimeCategoryString(context, getTimeCategory(it.insertionDate)) }
+        SORT_ARTIST -> (item as? MediaWrapper)?.artistName ?: (item as? Album)?.albumArtist ?: ""
+        SORT_ALBUM -> (item as? MediaWrapper)?.albumName ?: ""
+        SORT_FILENAME -> item.getInitial(FileUtils.getFileNameFromPath((item as? MediaWrapper)?.uri.toString()))
+        else -> null
+    }
 
     fun MediaLibraryItem.getDiscNumberString(): String? = if (this is MediaWrapper && this.discNumber != 0) "Disc ${this.discNumber}" else null
 
-    fun getHeader(context: Context?, sort: Int, item: MediaLibraryItem?, aboveItem: MediaLibraryItem?) = if (context !== null && item != null) when (sort) {
-        SORT_DEFAULT,
-        SORT_ALPHA -> {
-            val letter = if (item.title.isEmpty() || !Character.isLetter(item.title[0]) || item.isSpecialItem()) "#" else item.title.substring(0, 1).uppercase(Locale.getDefault())
-            if (aboveItem == null) letter
-            else {
-                val previous = if (aboveItem.title.isEmpty() || !Character.isLetter(aboveItem.title[0]) || aboveItem.isSpecialItem()) "#" else aboveItem.title.substring(0, 1).uppercase(Locale.getDefault())
-                letter.takeIf { it != previous }
-            }
-        }
-        TrackId -> {
-            val disc = item.getDiscNumberString()
-            if (aboveItem == null) disc
-            else {
-                val previousDisc = aboveItem.getDiscNumberString()
-                disc.takeIf { it != previousDisc }
-            }
-        }
-        SORT_DURATION -> {
-            val length = item.getLength()
-            val lengthCategory = length.lengthToCategory()
-            if (aboveItem == null) lengthCategory
-            else {
-                val previous = aboveItem.getLength().lengthToCategory()
-                lengthCategory.takeIf { it != previous }
-            }
-        }
-        SORT_RELEASEDATE -> {
-            val year = item.getYear()
-            if (aboveItem == null) year
-            else {
-                val previous = aboveItem.getYear()
-                year.takeIf { it != previous }
-            }
-        }
-        SORT_LASTMODIFICATIONDATE -> {
-            if (item is MediaWrapper) {
-                val timestamp = (item as? MediaWrapper)?.lastModified ?: 0
-                val category = getTimeCategory(timestamp)
-                if (aboveItem == null) getTimeCategoryString(context, category)
-                else {
-                    val prevCat = getTimeCategory((aboveItem as? MediaWrapper)?.lastModified ?: -1)
-                    if (prevCat != category) getTimeCategoryString(context, category) else null
-                }
-            } else null
-        }
-        SORT_INSERTIONDATE -> {
-            if (item is MediaWrapper) {
-                val timestamp = (item as? MediaWrapper)?.insertionDate ?: 0L
-                val category = getTimeCategory(timestamp)
-                if (aboveItem == null) getTimeCategoryString(context, category)
-                else {
-                    val prevCat = getTimeCategory((aboveItem as? MediaWrapper)?.insertionDate ?: -1)
-                    if (prevCat != category) getTimeCategoryString(context, category) else null
-                }
-            } else null
-        }
-        SORT_ARTIST -> {
-            val artist = (item as? MediaWrapper)?.artistName ?: (item as? Album)?.albumArtist ?: ""
-            if (aboveItem == null) artist
-            else {
-                val previous = (aboveItem as? MediaWrapper)?.artistName ?: (aboveItem as? Album)?.albumArtist ?: ""
-                artist.takeIf { it != previous }
-            }
-        }
-        SORT_ALBUM -> {
-            val album = (item as MediaWrapper).albumName ?: ""
-            if (aboveItem == null) album
-            else {
-                val previous = (aboveItem as MediaWrapper).albumName ?: ""
-                album.takeIf { it != previous }
-            }
-        }
-        SORT_FILENAME -> {
-            val title = FileUtils.getFileNameFromPath((item as? MediaWrapper)?.uri.toString())
-            val aboveTitle = FileUtils.getFileNameFromPath((aboveItem as? MediaWrapper)?.uri.toString())
-            val letter = if (title.isEmpty() || !Character.isLetter(title[0]) || item.isSpecialItem()) "#" else title.substring(0, 1).uppercase(Locale.getDefault())
-            if (aboveItem == null) letter
-            else {
-                val previous = if (aboveTitle.isEmpty() || !Character.isLetter(aboveTitle[0]) || aboveItem.isSpecialItem()) "#" else aboveTitle.substring(0, 1).uppercase(Locale.getDefault())
-                letter.takeIf { it != previous }
-            }
-        }
-        else -> null
+    fun getHeader(context: Context?, sort: Int, item: MediaLibraryItem?, aboveItem: MediaLibraryItem?) = if (context !== null && item != null) {
+        val key = getSectionKey(context, sort, item)
+        if (aboveItem == null) key else key.takeIf { it != getSectionKey(context, sort, aboveItem) }
     } else null
 }
 
@@ -320,36 +209,30 @@ fun getTvDescComp(foldersFirst: Boolean): Comparator<MediaLibraryItem> = Compara
             ?: "") ?: -1
 }
 
-fun getFilenameAscComp(nbOfDigits: Int): Comparator<MediaLibraryItem> = Comparator<MediaLibraryItem> { item1, item2 ->
-    if (Settings.showTvUi && Settings.tvFoldersFirst) {
-        val type1 = (item1 as? MediaWrapper)?.type
-        val type2 = (item2 as? MediaWrapper)?.type
-        if (type1 == MediaWrapper.TYPE_DIR && type2 != MediaWrapper.TYPE_DIR) return@Comparator -1
-        else if (type1 != MediaWrapper.TYPE_DIR && type2 == MediaWrapper.TYPE_DIR) return@Comparator 1
+/**
+ * Natural sort key of a filename, cached in the item with the filename it has been computed from
+ */
+private class FilenameSortKey(val filename: String, val key: String)
+
+val MediaLibraryItem.filenameSortKey: String?
+    get() {
+        val filename = (this as? MediaWrapper)?.fileName ?: (this as? Storage)?.title ?: return null
+        (sortKey as? FilenameSortKey)?.let { if (it.filename === filename) return it.key }
+        return filename.naturalSortKey().also { sortKey = FilenameSortKey(filename, it) }
     }
+
+fun getFilenameAscComp(): Comparator<MediaLibraryItem> = Comparator<MediaLibraryItem> { item1, item2 ->
     val type1 = (item1 as? MediaWrapper)?.type
     val type2 = (item2 as? MediaWrapper)?.type
     if (type1 == MediaWrapper.TYPE_DIR && type2 != MediaWrapper.TYPE_DIR) return@Comparator -1
     else if (type1 != MediaWrapper.TYPE_DIR && type2 == MediaWrapper.TYPE_DIR) return@Comparator 1
-    val filename1 = (item1 as? MediaWrapper)?.fileName ?: (item1 as? Storage)?.title
-    val filename2 = (item2 as? MediaWrapper)?.fileName ?: (item2 as? Storage)?.title
-    filename1?.lowercase(Locale.getDefault()).sanitizeStringForAlphaCompare(nbOfDigits)?.compareTo(filename2?.lowercase(Locale.getDefault()).sanitizeStringForAlphaCompare(nbOfDigits)
-            ?: "") ?: -1
+    item1?.filenameSortKey?.compareTo(item2?.filenameSortKey ?: "") ?: -1
 }
 
-fun getFilenameDescComp(nbOfDigits: Int): Comparator<MediaLibraryItem> = Comparator<MediaLibraryItem> { item1, item2 ->
-    if (Settings.showTvUi && Settings.tvFoldersFirst) {
-        val type1 = (item1 as? MediaWrapper)?.type
-        val type2 = (item2 as? MediaWrapper)?.type
-        if (type1 == MediaWrapper.TYPE_DIR && type2 != MediaWrapper.TYPE_DIR) return@Comparator -1
-        else if (type1 != MediaWrapper.TYPE_DIR && type2 == MediaWrapper.TYPE_DIR) return@Comparator 1
-    }
+fun getFilenameDescComp(): Comparator<MediaLibraryItem> = Comparator<MediaLibraryItem> { item1, item2 ->
     val type1 = (item1 as? MediaWrapper)?.type
     val type2 = (item2 as? MediaWrapper)?.type
     if (type1 == MediaWrapper.TYPE_DIR && type2 != MediaWrapper.TYPE_DIR) return@Comparator -1
     else if (type1 != MediaWrapper.TYPE_DIR && type2 == MediaWrapper.TYPE_DIR) return@Comparator 1
-    val filename1 = (item1 as? MediaWrapper)?.fileName ?: (item1 as? Storage)?.title
-    val filename2 = (item2 as? MediaWrapper)?.fileName ?: (item2 as? Storage)?.title
-    filename2?.lowercase(Locale.getDefault()).sanitizeStringForAlphaCompare(nbOfDigits)?.compareTo(filename1?.lowercase(Locale.getDefault()).sanitizeStringForAlphaCompare(nbOfDigits)
-            ?: "") ?: -1
-}
\ No newline at end of file
+    item2?.filenameSortKey?.compareTo(item1?.filenameSortKey ?: "") ?: -1
+}
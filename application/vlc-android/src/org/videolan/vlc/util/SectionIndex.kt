@@ -0,0 +1,134 @@
+/*
+ * ************************************************************************
+ *  SectionIndex.kt
+ * *************************************************************************
+ * Copyright © 2026 VLC authors and VideoLAN
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston MA 02110-1301, USA.
+ * **************************************************************************
+ *
+ *
+ */
+
+package org.videolan.vlc.util
+
+import androidx.collection.SparseArrayCompat
+import org.videolan.resources.util.HeadersIndex
+
+/**
+ * Index of the sections of a sorted list: the positions of the sections first items, kept sorted in an int array,
+ * and their titles.
+ *
+ * The section key of each item is computed once. A paged list is indexed page by page with [patch], in any order:
+ * the keys of the pages bounds are kept to fix the header of a page first item when its previous page is loaded.
+ * Until then, the first item of a page gets a header, as when its previous item is unknown.
+ */
+class SectionIndex {
+    private var positions = IntArray(INITIAL_CAPACITY)
+    private var titles = arrayOfNulls<String>(INITIAL_CAPACITY)
+    var size = 0
+        private set
+
+    /**
+     * Section keys of the first and last items of the patched pages
+     */
+    private val boundKeys = SparseArrayCompat<String>()
+
+    fun clear() {
+        size = 0
+        titles.fill(null)
+        boundKeys.clear()
+    }
+
+    /**
+     * Indexes the [items] loaded at [start], replacing the headers previously found in this range
+     *
+     * @param key the section key of an item, null if it has no section
+     */
+    fun <T> patch(items: List<T>, start: Int, key: (T) -> String?) {
+        if (items.isEmpty()) return
+        val end = start + items.size
+        removeRange(start, end)
+        var previous = if (start > 0) boundKeys.get(start - 1, UNKNOWN) else null
+        for ((index, item) in items.withIndex()) {
+            val current = key(item)
+            if (current != null && (previous === UNKNOWN || previous === NO_KEY || current != previous)) insert(start + index, current)
+            if (index == 0) boundKeys.put(start, current ?: NO_KEY)
+            if (index == items.lastIndex) boundKeys.put(end - 1, current ?: NO_KEY)
+            previous = current ?: NO_KEY
+        }
+        // The next page has already been indexed without knowing its previous item
+        val next = boundKeys.get(end, UNKNOWN)
+        if (next !== UNKNOWN && next !== NO_KEY) {
+            val last = boundKeys.get(end - 1)
+            if (last !== NO_KEY && next == last) remove(end) else insert(end, next)
+        }
+    }
+
+    fun positionAt(index: Int) = positions[index]
+
+    fun titleAt(index: Int) = titles[index]!!
+
+    fun toHeaders() = HeadersIndex(size).also { headers ->
+        for (index in 0 until size) headers.append(positions[index], titles[index]!!)
+    }
+
+    /**
+     * @return the index of [position] in [positions], or -(insertion point) - 1
+     */
+    private fun indexOf(position: Int) = positions.binarySearch(position, 0, size)
+
+    private fun insert(position: Int, title: String) {
+        var index = indexOf(position)
+        if (index >= 0) {
+            titles[index] = title
+            return
+        }
+        index = -index - 1
+        if (size == positions.size) {
+            positions = positions.copyOf(size * 2)
+            titles = titles.copyOf(size * 2)
+        }
+        positions.copyInto(positions, index + 1, index, size)
+        titles.copyInto(titles, index + 1, index, size)
+        positions[index] = position
+        titles[index] = title
+        ++size
+    }
+
+    private fun remove(position: Int) {
+        val index = indexOf(position)
+        if (index >= 0) removeIndexes(index, index + 1)
+    }
+
+    private fun removeRange(start: Int, end: Int) {
+        val from = indexOf(start).let { if (it >= 0) it else -it - 1 }
+        val to = indexOf(end).let { if (it >= 0) it else -it - 1 }
+        if (from < to) removeIndexes(from, to)
+    }
+
+    private fun removeIndexes(from: Int, to: Int) {
+        positions.copyInto(positions, from, to, size)
+        titles.copyInto(titles, from, to, size)
+        titles.fill(null, size - (to - from), size)
+        size -= to - from
+    }
+
+    private companion object {
+        const val INITIAL_CAPACITY = 32
+        // Markers compared by identity
+        val UNKNOWN = String(charArrayOf('?'))
+        val NO_KEY = String(charArrayOf('-'))
+    }
+}
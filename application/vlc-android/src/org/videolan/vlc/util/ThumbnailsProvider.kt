@@ -18,6 +18,7 @@ import org.videolan.medialibrary.interfaces.media.MediaWrapper
 import org.videolan.medialibrary.interfaces.media.VideoGroup
 import org.videolan.medialibrary.media.MediaLibraryItem
 import org.videolan.resources.AppContextProvider
+import org.videolan.tools.ArtworkLoader
 import org.videolan.tools.BitmapCache
 import org.videolan.tools.sanitizePath
 import org.videolan.vlc.BuildConfig
@@ -70,7 +71,10 @@ object ThumbnailsProvider {
         return item.artworkMrl
     }
 
-    fun getMediaCacheKey(isMedia: Boolean, item: MediaLibraryItem, width: String = "") = if (width.isEmpty()) getMediaThumbnailPath(isMedia, item) else "${getMediaThumbnailPath(isMedia, item)}_$width"
+    /**
+     * @return the path the [ArtworkLoader] caches the thumbnail of [item] with
+     */
+    fun getMediaCacheKey(isMedia: Boolean, item: MediaLibraryItem) = getMediaThumbnailPath(isMedia, item)?.let { if (it == item.artworkMrl) Uri.decode(it) else it }
 
     @WorkerThread
     fun getVideoThumbnail(media: MediaWrapper, width: Int): Bitmap? {
@@ -78,7 +82,7 @@ object ThumbnailsProvider {
         if (appDir == null) appDir = AppContextProvider.appContext.getExternalFilesDir(null)
         val hasCache = appDir?.exists() == true
         val thumbPath = getMediaThumbnailPath(true, media) ?: return null
-        val cacheBM = if (hasCache) BitmapCache.getBitmapFromMemCache(getMediaCacheKey(true, media, width.toString())) else null
+        val cacheBM = if (hasCache) ArtworkLoader.getCached(thumbPath, width) else null
         if (cacheBM != null) return cacheBM
         if (hasCache && File(thumbPath).exists()) return readCoverBitmap(thumbPath, width)
         if (media.isThumbnailGenerated) return null
@@ -94,7 +98,7 @@ object ThumbnailsProvider {
             }
         }
         if (bitmap != null) {
-            BitmapCache.addBitmapToMemCache(getMediaCacheKey(true, media, width.toString()), bitmap)
+            ArtworkLoader.put(thumbPath, width, bitmap)
             if (hasCache) {
                 media.setThumbnail(thumbPath)
                 if (media.id > 0) {
@@ -200,13 +200,16 @@ class VideosViewModel(context: Context, type: VideoGroupingType, val folder: Fol
         }
     }
 
-    suspend fun createGroup(medias: List<MediaWrapper>): VideoGroup? {
-        if (medias.size < 2) return null
+    /**
+     * Creates a group of the media [ids], named [title] if the medialibrary doesn't find a common name
+     */
+    suspend fun createGroup(ids: LongArray, title: String?): VideoGroup? {
+        if (ids.size < 2) return null
         return withContext(Dispatchers.IO) {
-            val newGroup = medialibrary.createVideoGroup(medias.map { it.id }.toLongArray())
-            if (newGroup.title.isNullOrBlank()) {
-                newGroup.rename(medias[0].title)
-                newGroup.title = medias[0].title
+            val newGroup = medialibrary.createVideoGroup(ids)
+            if (newGroup.title.isNullOrBlank() && title != null) {
+                newGroup.rename(title)
+                newGroup.title = title
             }
             newGroup
         }
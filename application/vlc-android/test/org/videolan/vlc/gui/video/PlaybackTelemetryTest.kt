@@ -0,0 +1,65 @@
+package org.videolan.vlc.gui.video
+
+import org.junit.Assert.assertEquals
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.junit.runners.JUnit4
+import org.videolan.vlc.gui.video.PlaybackTelemetry.Counters
+import org.videolan.vlc.gui.video.PlaybackTelemetry.Metric
+import java.io.StringWriter
+
+@RunWith(JUnit4::class)
+class PlaybackTelemetryTest {
+
+    private fun counters(decoded: Int, lost: Int, corrupted: Int = 0) = Counters(decoded, decoded - lost, lost, 0, corrupted, 0)
+
+    @Test
+    fun whenCountersIncrease_checkRatesArePerSecond() {
+        val telemetry = PlaybackTelemetry()
+        telemetry.sample(0L, 100f, 90f, counters(0, 0))
+        telemetry.sample(500L, 100f, 90f, counters(15, 2, 1))
+        telemetry.sample(1000L, 100f, 90f, counters(30, 2, 1))
+
+        val decoded = telemetry.get(Metric.DECODED_FPS)
+        assertEquals(listOf(0f, 30f, 30f), (0 until decoded.size).map { decoded.valueAt(it) })
+        val dropped = telemetry.get(Metric.DROPPED_FPS)
+        assertEquals(listOf(0f, 4f, 0f), (0 until dropped.size).map { dropped.valueAt(it) })
+        assertEquals(2f, telemetry.get(Metric.DEMUX_CORRUPTED).valueAt(1))
+    }
+
+    @Test
+    fun whenCountersGoBackward_checkRatesRestart() {
+        val telemetry = PlaybackTelemetry()
+        telemetry.sample(0L, 0f, 0f, counters(100, 10))
+        telemetry.sample(1000L, 0f, 0f, counters(5, 0))
+        telemetry.sample(2000L, 0f, 0f, counters(30, 1))
+
+        val decoded = telemetry.get(Metric.DECODED_FPS)
+        assertEquals(listOf(0f, 0f, 25f), (0 until decoded.size).map { decoded.valueAt(it) })
+    }
+
+    @Test
+    fun whenExported_checkCsvHasARowPerSample() {
+        val telemetry = PlaybackTelemetry(capacity = 2)
+        for (i in 0..3) telemetry.sample(i * 1000L, i.toFloat(), 0f, counters(i * 25, 0))
+
+        val lines = StringWriter().also { telemetry.writeCsv(it) }.toString().trim().lines()
+        assertEquals(3, lines.size)
+        assertEquals("time_ms,${Metric.values().joinToString(",") { it.csvName }}", lines[0])
+        assertEquals("2000,2.00,0.00,25.00,25.00,0.00,0.00,0.00,0.00", lines[1])
+        assertEquals("3000", lines[2].substringBefore(','))
+    }
+
+    @Test
+    fun whenSamplingAfterSnapshot_checkSnapshotIsUnchanged() {
+        val telemetry = PlaybackTelemetry(capacity = 2)
+        for (i in 0..1) telemetry.sample(i * 1000L, i.toFloat(), 0f, counters(i * 25, 0))
+        val snapshot = telemetry.snapshot()
+        // Wraps the ring buffers over the copied slots
+        for (i in 2..3) telemetry.sample(i * 1000L, i.toFloat(), 0f, counters(i * 25, 0))
+
+        assertEquals(listOf(0L, 1000L), snapshot.timestamps.toList())
+        assertEquals(listOf(0f, 1f), snapshot.values[Metric.INPUT_BITRATE.ordinal].toList())
+        assertEquals(listOf(0f, 25f), snapshot.values[Metric.DECODED_FPS.ordinal].toList())
+    }
+}
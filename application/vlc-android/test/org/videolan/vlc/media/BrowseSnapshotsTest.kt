@@ -0,0 +1,36 @@
+package org.videolan.vlc.media
+
+import org.junit.Assert.assertArrayEquals
+import org.junit.Assert.assertEquals
+import org.junit.Test
+import org.videolan.vlc.BaseTest
+
+class BrowseSnapshotsTest : BaseTest() {
+
+    private fun snapshot(size: Int) = BrowseSnapshots.Snapshot(LongArray(size) { it + 1L }, emptyList(), 0)
+
+    @Test
+    fun whenPaging_checkPagesCoverTheSnapshot() {
+        val snapshot = snapshot(25)
+        assertArrayEquals(LongArray(10) { it + 1L }, snapshot.page(0, 10))
+        assertArrayEquals(LongArray(10) { it + 11L }, snapshot.page(1, 10))
+        assertArrayEquals(LongArray(5) { it + 21L }, snapshot.page(2, 10))
+        assertEquals(0, snapshot.page(3, 10).size)
+    }
+
+    @Test
+    fun whenLabelingPages_checkBoundsMatchThePages() {
+        assertEquals(listOf(0 to 9, 10 to 19, 20 to 24), BrowseSnapshots.pageBounds(25, 10))
+        assertEquals(listOf(0 to 9, 10 to 19), BrowseSnapshots.pageBounds(20, 10))
+        // A last page of a single item is not labeled
+        assertEquals(listOf(0 to 9, 10 to 19), BrowseSnapshots.pageBounds(21, 10))
+        assertEquals(emptyList<Pair<Int, Int>>(), BrowseSnapshots.pageBounds(0, 10))
+    }
+
+    @Test
+    fun whenLibraryIsHuge_checkPageCountIsBounded() {
+        val bounds = BrowseSnapshots.pageBounds(1000, 10)
+        assertEquals(10, bounds.size)
+        assertEquals(90 to 99, bounds.last())
+    }
+}
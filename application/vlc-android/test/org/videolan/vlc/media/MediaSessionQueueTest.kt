@@ -0,0 +1,107 @@
+package org.videolan.vlc.media
+
+import android.support.v4.media.MediaDescriptionCompat
+import androidx.core.net.toUri
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNotSame
+import org.junit.Assert.assertSame
+import org.junit.Test
+import org.videolan.medialibrary.MLServiceLocator
+import org.videolan.medialibrary.interfaces.media.MediaWrapper
+import org.videolan.vlc.BaseTest
+import java.util.IdentityHashMap
+
+class MediaSessionQueueTest : BaseTest() {
+
+    private val list = MediaWrapperList()
+    private val queue by lazy { MediaSessionQueue(application).also { list.addEventListener(it) } }
+    private val descriptions = IdentityHashMap<MediaWrapper, MediaDescriptionCompat>()
+
+    private fun media(index: Int) = MLServiceLocator.getAbstractMediaWrapper("file:///sdcard/Music/$index.mp3".toUri()).apply {
+        type = MediaWrapper.TYPE_AUDIO
+        title = "Track $index"
+    }
+
+    /**
+     * Builds the queue and checks that the media described by a previous build reuse their description
+     *
+     * @return the number of media described again
+     */
+    private fun buildAndCountDescribed(): Int {
+        val items = queue.build(list.snapshot)
+        assertEquals(list.size(), items.size)
+        var described = 0
+        items.forEachIndexed { position, item ->
+            assertEquals(position.toLong(), item.queueId)
+            val media = list.getMedia(position)!!
+            assertEquals(media.uri, item.description.mediaUri)
+            val previous = descriptions[media]
+            if (previous == null) ++described else assertSame(previous, item.description)
+            descriptions[media] = item.description
+        }
+        return described
+    }
+
+    @Test
+    fun whenItemsAreAdded_checkOnlyNewItemsAreDescribed() {
+        list.replaceWith((0 until 10).map { media(it) })
+        assertEquals(10, buildAndCountDescribed())
+        list.insertAll(3, listOf(media(10), media(11)))
+        list.add(media(12))
+        list.insert(0, media(13))
+        assertEquals(4, buildAndCountDescribed())
+    }
+
+    @Test
+    fun whenItemsAreRemoved_checkRemainingItemsAreReused() {
+        list.replaceWith((0 until 10).map { media(it) })
+        buildAndCountDescribed()
+        list.removeRange(0, 2)
+        list.remove(4)
+        list.removeRange(5, 2)
+        assertEquals(0, buildAndCountDescribed())
+    }
+
+    @Test
+    fun whenItemsAreMoved_checkItemsAreReused() {
+        list.replaceWith((0 until 10).map { media(it) })
+        buildAndCountDescribed()
+        list.moveRange(1, 3, 8)
+        list.moveRange(6, 2, 0)
+        list.move(9, 2)
+        list.move(0, 10)
+        assertEquals(0, buildAndCountDescribed())
+    }
+
+    @Test
+    fun whenListIsReplaced_checkItemsAreDescribedAgain() {
+        val medias = (0 until 5).map { media(it) }
+        list.replaceWith(medias)
+        buildAndCountDescribed()
+        list.replaceWith(medias.reversed())
+        val items = queue.build(list.snapshot)
+        items.forEachIndexed { position, item -> assertNotSame(descriptions[list.getMedia(position)], item.description) }
+        list.clear()
+        assertEquals(0, queue.build(list.snapshot).size)
+    }
+
+    @Test
+    fun whenMetadataChanges_checkItemIsDescribedAgain() {
+        list.replaceWith((0 until 5).map { media(it) })
+        buildAndCountDescribed()
+        list.getMedia(2)!!.title = "Renamed"
+        descriptions.remove(list.getMedia(2))
+        assertEquals(1, buildAndCountDescribed())
+    }
+
+    @Test
+    fun whenBuildingAWindow_checkQueueIdsArePositions() {
+        list.replaceWith((0 until 20).map { media(it) })
+        val items = queue.build(list.snapshot, 5, 12)
+        assertEquals((5L until 12L).toList(), items.map { it.queueId })
+        items.forEachIndexed { index, item -> descriptions[list.getMedia(5 + index)] = item.description }
+        list.insert(0, media(20))
+        // The window items are reused, the other ones and the inserted one are described
+        assertEquals(14, buildAndCountDescribed())
+    }
+}
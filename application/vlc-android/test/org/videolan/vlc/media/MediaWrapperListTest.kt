@@ -0,0 +1,58 @@
+package org.videolan.vlc.media
+
+import androidx.core.net.toUri
+import org.junit.Assert.assertArrayEquals
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import org.videolan.medialibrary.MLServiceLocator
+import org.videolan.medialibrary.interfaces.media.MediaWrapper
+import org.videolan.vlc.BaseTest
+
+class MediaWrapperListTest : BaseTest() {
+
+    private fun media(index: Int, type: Int = MediaWrapper.TYPE_AUDIO) = MLServiceLocator.getAbstractMediaWrapper("file:///sdcard/Music/$index.mp3".toUri()).apply { this.type = type }
+
+    private fun createList(count: Int) = MediaWrapperList().apply { replaceWith((0 until count).map { media(it) }) }
+
+    private fun MediaWrapperList.names() = snapshot.map { it.uri.lastPathSegment!!.removeSuffix(".mp3").toInt() }
+
+    @Test
+    fun whenMovingRanges_checkOrderMatchesSingleMoves() {
+        val list = createList(10)
+        val reference = createList(10)
+        list.moveRange(6, 3, 1)
+        for (i in 0 until 3) reference.move(6 + i, 1 + i)
+        assertEquals(reference.names(), list.names())
+        list.moveRange(0, 2, 9)
+        for (i in 0 until 2) reference.move(0, 9)
+        assertEquals(reference.names(), list.names())
+    }
+
+    @Test
+    fun whenRemovingLocation_checkOneEventPerRange() {
+        val list = MediaWrapperList().apply { replaceWith(listOf(media(1), media(0), media(0), media(2), media(0))) }
+        val events = mutableListOf<Pair<Int, Int>>()
+        list.addEventListener(object : MediaWrapperList.EventListener {
+            override fun onItemAdded(index: Int, mrl: String) {}
+            override fun onItemRemoved(index: Int, mrl: String) { events.add(index to 1) }
+            override fun onItemMoved(indexBefore: Int, indexAfter: Int, mrl: String) {}
+            override fun onItemsRemoved(index: Int, mrls: List<String>) { events.add(index to mrls.size) }
+        })
+        assertArrayEquals(intArrayOf(1, 2, 4), list.snapshot.positionsOf(media(0).location))
+        list.remove(media(0).location)
+        assertEquals(listOf(4 to 1, 1 to 2), events)
+        assertEquals(listOf(1, 2), list.names())
+    }
+
+    @Test
+    fun whenModifyingList_checkSnapshotIsUnchanged() {
+        val list = createList(5)
+        val snapshot = list.snapshot
+        list.insertAll(2, listOf(media(10, MediaWrapper.TYPE_VIDEO), media(11)))
+        list.clear()
+        assertEquals(5, snapshot.size)
+        assertEquals(0, list.size())
+        assertTrue(list.isAudioList)
+    }
+}
@@ -0,0 +1,104 @@
+package org.videolan.vlc.media
+
+import androidx.core.net.toUri
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertTrue
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+import org.videolan.medialibrary.MLServiceLocator
+import org.videolan.vlc.BaseTest
+import java.io.File
+
+class PlayQueueStoreTest : BaseTest() {
+    @get:Rule
+    val folder = TemporaryFolder()
+
+    private fun media(index: Int) = MLServiceLocator.getAbstractMediaWrapper("file:///sdcard/Music/$index.mp3".toUri())
+
+    private fun createList(store: PlayQueueStore, count: Int) = MediaWrapperList().apply {
+        addEventListener(store)
+        replaceWith((0 until count).map { media(it) })
+    }
+
+    private fun MediaWrapperList.locations() = copy.map { it.location }
+
+    @Test
+    fun whenNothingWasSaved_checkLoadReturnsNull() {
+        assertNull(PlayQueueStore(folder.root).load(PlayQueueStore.QUEUE_AUDIO))
+    }
+
+    @Test
+    fun whenListIsModifiedAfterSnapshot_checkJournalIsReplayed() {
+        val store = PlayQueueStore(folder.root)
+        val list = createList(store, 10)
+        store.save(PlayQueueStore.QUEUE_AUDIO, list)
+        list.add(media(10))
+        list.insert(0, media(11))
+        list.remove(5)
+        list.move(2, 8)
+        list.move(9, 1)
+        list.moveRange(0, 3, 7)
+        list.insertAll(4, (20 until 25).map { media(it) })
+        list.removeRange(2, 4)
+        store.save(PlayQueueStore.QUEUE_AUDIO, list)
+        assertTrue(File(folder.root, "audio.journal").exists())
+        assertEquals(list.locations(), PlayQueueStore(folder.root).load(PlayQueueStore.QUEUE_AUDIO))
+    }
+
+    @Test
+    fun whenListIsCleared_checkSnapshotIsRewritten() {
+        val store = PlayQueueStore(folder.root)
+        val list = createList(store, 10)
+        store.save(PlayQueueStore.QUEUE_AUDIO, list)
+        list.remove(0)
+        list.clear()
+        list.add(media(42))
+        store.save(PlayQueueStore.QUEUE_AUDIO, list)
+        assertFalse(File(folder.root, "audio.journal").exists())
+        assertEquals(list.locations(), PlayQueueStore(folder.root).load(PlayQueueStore.QUEUE_AUDIO))
+    }
+
+    @Test
+    fun whenListIsReplaced_checkSnapshotIsRewritten() {
+        val store = PlayQueueStore(folder.root)
+        val list = createList(store, 10)
+        store.save(PlayQueueStore.QUEUE_AUDIO, list)
+        list.remove(0)
+        list.replaceWith(listOf(media(42)))
+        store.save(PlayQueueStore.QUEUE_AUDIO, list)
+        assertFalse(File(folder.root, "audio.journal").exists())
+        assertEquals(list.locations(), PlayQueueStore(folder.root).load(PlayQueueStore.QUEUE_AUDIO))
+    }
+
+    @Test
+    fun whenJournalIsTooLong_checkItIsCompacted() {
+        val store = PlayQueueStore(folder.root)
+        val list = createList(store, 10)
+        store.save(PlayQueueStore.QUEUE_VIDEO, list)
+        for (i in 0 until 100) {
+            list.add(media(100 + i))
+            store.save(PlayQueueStore.QUEUE_VIDEO, list)
+        }
+        assertEquals(list.locations(), PlayQueueStore(folder.root).load(PlayQueueStore.QUEUE_VIDEO))
+        assertNull(PlayQueueStore(folder.root).load(PlayQueueStore.QUEUE_AUDIO))
+    }
+
+    @Test
+    fun whenQueueIsDeleted_checkItIsNotLoaded() {
+        val store = PlayQueueStore(folder.root)
+        val list = createList(store, 10)
+        store.save(PlayQueueStore.QUEUE_AUDIO, list)
+        list.add(media(10))
+        store.save(PlayQueueStore.QUEUE_AUDIO, list)
+        store.delete(PlayQueueStore.QUEUE_AUDIO)
+        assertNull(PlayQueueStore(folder.root).load(PlayQueueStore.QUEUE_AUDIO))
+        assertTrue(folder.root.listFiles().isNullOrEmpty())
+        // The next save writes a new snapshot instead of a journal of the deleted one
+        list.add(media(11))
+        store.save(PlayQueueStore.QUEUE_AUDIO, list)
+        assertEquals(list.locations(), PlayQueueStore(folder.root).load(PlayQueueStore.QUEUE_AUDIO))
+    }
+}
@@ -0,0 +1,73 @@
+package org.videolan.vlc.media
+
+import org.junit.Assert.assertArrayEquals
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.junit.runners.JUnit4
+
+@RunWith(JUnit4::class)
+class ShuffleOrderTest {
+
+    private fun ShuffleOrder.playAll(): List<Int> {
+        val played = mutableListOf<Int>()
+        var index = peekNext()
+        while (index != -1) {
+            played.add(index)
+            select(index)
+            index = peekNext()
+        }
+        return played
+    }
+
+    @Test
+    fun whenPlayingWholeOrder_checkEveryIndexIsPlayedOnce() {
+        val order = ShuffleOrder().apply { reset(1000, 42, 1234L) }
+        val played = order.playAll()
+        assertEquals(999, played.size)
+        assertEquals((0 until 1000).toSet() - 42, played.toSet())
+    }
+
+    @Test
+    fun whenUsingSameSeed_checkOrderIsReproducible() {
+        val first = ShuffleOrder().apply { reset(500, 0, 99L) }
+        val second = ShuffleOrder().apply { reset(500, 0, 99L) }
+        assertEquals(first.playAll(), second.playAll())
+    }
+
+    @Test
+    fun whenGoingBackToPlayedMedia_checkPlayedMediaAreNotReplayed() {
+        val order = ShuffleOrder().apply { reset(100, 0, 5L) }
+        val firstPlayed = List(10) { order.peekNext().also { index -> order.select(index) } }
+        order.select(firstPlayed[2])
+        val remaining = order.playAll()
+        assertEquals(89, remaining.size)
+        assertEquals((0 until 100).toSet() - 0 - firstPlayed.toSet(), remaining.toSet())
+    }
+
+    @Test
+    fun whenItemsAreInsertedAndRemoved_checkOrderStaysAPermutation() {
+        val order = ShuffleOrder().apply { reset(100, 10, 7L) }
+        repeat(20) { order.select(order.peekNext()) }
+        order.onItemsAdded(50, List(30) { "new$it" })
+        order.onItemsRemoved(0, List(5) { "old$it" })
+        order.onItemsMoved(10, 4, 60, List(4) { "moved$it" })
+        val state = order.getState()!!
+        assertEquals(125, state.order.size)
+        assertEquals((0 until 125).toSet(), state.order.toSet())
+        assertTrue(ShuffleOrder().restore(state, 125))
+        assertFalse(ShuffleOrder().restore(state, 124))
+    }
+
+    @Test
+    fun whenItemsAreRemoved_checkHistoryIsRemapped() {
+        val order = ShuffleOrder()
+        listOf(1, 5, 9, 12).forEach { order.history.push(it) }
+        order.onItemsRemoved(4, List(2) { "removed$it" })
+        order.onItemAdded(0, "added")
+        val history = IntArray(order.history.size) { order.history.pop() }
+        assertArrayEquals(intArrayOf(11, 8, 2), history)
+    }
+}
@@ -0,0 +1,85 @@
+package org.videolan.vlc.media
+
+import androidx.core.net.toUri
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.SupervisorJob
+import kotlinx.coroutines.cancel
+import kotlinx.coroutines.runBlocking
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNull
+import org.junit.Test
+import org.videolan.medialibrary.MLServiceLocator
+import org.videolan.vlc.BaseTest
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+
+class TrackInfoCacheTest : BaseTest() {
+
+    private val scope = CoroutineScope(SupervisorJob())
+    private val parsed = AtomicInteger()
+
+    private fun media(index: Int, lastModified: Long = 0L) = MLServiceLocator.getAbstractMediaWrapper("file:///sdcard/Music/$index.mp3".toUri()).apply { this.lastModified = lastModified }
+
+    @After
+    fun cancelScope() = scope.cancel()
+
+    @Test
+    fun whenPrefetched_mediaAreParsedOnce() = runBlocking {
+        val cache = TrackInfoCache(scope) { parsed.incrementAndGet(); it.uri.lastPathSegment }
+        val medias = listOf(media(0), media(1), media(2))
+        cache.prefetch(medias)
+        cache.prefetch(medias)
+
+        assertEquals("1.mp3", cache.get(media(1)))
+        assertEquals("0.mp3", cache.get(media(0)))
+        assertEquals(3, parsed.get())
+    }
+
+    @Test
+    fun whenRequestedConcurrently_parsingIsShared() = runBlocking {
+        val started = CountDownLatch(1)
+        val release = CountDownLatch(1)
+        val cache = TrackInfoCache(scope) {
+            parsed.incrementAndGet()
+            started.countDown()
+            release.await(1, TimeUnit.SECONDS)
+            "track"
+        }
+        cache.prefetch(listOf(media(0)))
+        started.await(1, TimeUnit.SECONDS)
+        cache.prefetch(listOf(media(0)))
+        release.countDown()
+
+        assertEquals("track", cache.get(media(0)))
+        assertEquals(1, parsed.get())
+    }
+
+    @Test
+    fun whenModified_mediaIsParsedAgain() = runBlocking {
+        val cache = TrackInfoCache(scope) { "${parsed.incrementAndGet()}" }
+
+        assertEquals("1", cache.get(media(0, 1000L)))
+        assertEquals("1", cache.get(media(0, 1000L)))
+        assertEquals("2", cache.get(media(0, 2000L)))
+    }
+
+    @Test
+    fun whenFull_oldestMediaAreEvicted() = runBlocking {
+        val cache = TrackInfoCache(scope, capacity = 2) { parsed.incrementAndGet(); it.uri.lastPathSegment }
+        cache.get(media(0))
+        cache.get(media(1))
+        cache.get(media(2))
+        cache.get(media(0))
+
+        assertEquals(4, parsed.get())
+    }
+
+    @Test
+    fun whenParsingFails_infoIsNull() = runBlocking {
+        val cache = TrackInfoCache<String>(scope) { throw IllegalStateException("Unable to parse") }
+
+        assertNull(cache.get(media(0)))
+    }
+}
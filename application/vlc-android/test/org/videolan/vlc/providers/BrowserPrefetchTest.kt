@@ -0,0 +1,93 @@
+package org.videolan.vlc.providers
+
+import androidx.core.net.toUri
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNotNull
+import org.junit.Assert.assertNull
+import org.junit.Test
+import org.videolan.medialibrary.MLServiceLocator
+import org.videolan.medialibrary.interfaces.media.MediaWrapper
+import org.videolan.vlc.BaseTest
+
+class BrowserPrefetchTest : BaseTest() {
+
+    private fun directory(name: String) = MLServiceLocator.getAbstractMediaWrapper("smb://server/share/$name".toUri()).apply { type = MediaWrapper.TYPE_DIR }
+
+    private fun listing(count: Int) = List(count) {
+        MLServiceLocator.getAbstractMediaWrapper("smb://server/share/file$it.mkv".toUri()).apply { type = MediaWrapper.TYPE_VIDEO }
+    }
+
+    private fun BrowserProvider.PrefetchQueue.pollAll(visible: IntRange) = generateSequence { poll(visible)?.first }.toList()
+
+    @Test
+    fun whenPollingWithVisibleRange_checkVisiblePositionsComeFirst() {
+        val queue = BrowserProvider.PrefetchQueue()
+        for (position in 0 until 10) queue.add(position, directory("dir$position"))
+        assertEquals(listOf(5, 6, 4, 7, 3, 8, 2, 9, 1, 0), queue.pollAll(5..6))
+        assertNull(queue.poll(0..0))
+    }
+
+    @Test
+    fun whenVisibleRangeMoves_checkNextPollFollowsIt() {
+        val queue = BrowserProvider.PrefetchQueue()
+        for (position in 0 until 20) queue.add(position, directory("dir$position"))
+        assertEquals(0, queue.poll(0..2)?.first)
+        assertEquals(15, queue.poll(15..16)?.first)
+        assertEquals(16, queue.poll(15..16)?.first)
+        // At the same distance, the lowest position comes first
+        assertEquals(14, queue.poll(15..16)?.first)
+        assertEquals(17, queue.poll(15..16)?.first)
+        assertEquals(15, queue.size)
+    }
+
+    @Test
+    fun whenPolling_checkDirectoryMatchesPosition() {
+        val queue = BrowserProvider.PrefetchQueue()
+        queue.add(3, directory("three"))
+        queue.add(8, directory("eight"))
+        val (position, media) = queue.poll(8..8)!!
+        assertEquals(8, position)
+        assertEquals("smb://server/share/eight", media.location)
+    }
+
+    @Test
+    fun whenListIsOlderThanTtl_checkItIsDropped() {
+        var now = 0L
+        val lists = BrowserProvider.PrefetchedLists(10, 1_000L) { now }
+        lists.put("smb://server/share", listing(3))
+        now = 1_000L
+        assertEquals(3, lists.get("smb://server/share")?.size)
+        now = 1_001L
+        assertNull(lists.get("smb://server/share"))
+        now = 0L
+        assertNull(lists.get("smb://server/share"))
+    }
+
+    @Test
+    fun whenListIsRead_checkACopyIsReturned() {
+        val lists = BrowserProvider.PrefetchedLists(10, 1_000L) { 0L }
+        lists.put("smb://server/share", listing(3))
+        lists.get("smb://server/share")!!.clear()
+        assertEquals(listing(3).map { it.location }, lists.get("smb://server/share")!!.map { (it as MediaWrapper).location })
+    }
+
+    @Test
+    fun whenMaxListsIsReached_checkLeastRecentlyUsedIsDropped() {
+        val lists = BrowserProvider.PrefetchedLists(2, 1_000L) { 0L }
+        lists.put("a", listing(1))
+        lists.put("b", listing(1))
+        assertNotNull(lists.get("a"))
+        lists.put("c", listing(1))
+        assertNull(lists.get("b"))
+        assertNotNull(lists.get("a"))
+        assertNotNull(lists.get("c"))
+    }
+
+    @Test
+    fun whenListIsRemoved_checkItIsNotServed() {
+        val lists = BrowserProvider.PrefetchedLists(2, 1_000L) { 0L }
+        lists.put("a", listing(1))
+        lists.remove("a")
+        assertNull(lists.get("a"))
+    }
+}
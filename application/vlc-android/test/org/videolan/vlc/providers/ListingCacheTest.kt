@@ -0,0 +1,55 @@
+package org.videolan.vlc.providers
+
+import androidx.core.net.toUri
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertTrue
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+import org.videolan.medialibrary.MLServiceLocator
+import org.videolan.medialibrary.interfaces.media.MediaWrapper
+import org.videolan.vlc.BaseTest
+
+class ListingCacheTest : BaseTest() {
+
+    @get:Rule
+    val temporaryFolder = TemporaryFolder()
+
+    private fun listing(count: Int) = List(count) {
+        MLServiceLocator.getAbstractMediaWrapper("smb://server/share/file$it.mkv".toUri()).apply { type = MediaWrapper.TYPE_VIDEO }
+    }
+
+    @Test
+    fun whenListingIsUnknown_checkMissIsCounted() {
+        val cache = ListingCache(temporaryFolder.newFolder("cache"))
+        assertNull(cache.get("smb://server/share", "smb://server/share".toUri()))
+        assertEquals(Triple(0, 0, 1), cache.stats())
+    }
+
+    @Test
+    fun whenNetworkListingIsCached_checkItIsServedAsStale() {
+        val cache = ListingCache(temporaryFolder.newFolder("cache"))
+        val uri = "smb://server/share".toUri()
+        cache.put("key", uri, listing(20))
+        val cached = cache.get("key", uri)!!
+        assertFalse(cached.fresh)
+        assertEquals(listing(20).map { it.location }, cached.items.map { it.location })
+        assertEquals(Triple(0, 1, 0), cache.stats())
+    }
+
+    @Test
+    fun whenLocalDirectoryChanges_checkListingIsInvalidated() {
+        val cache = ListingCache(temporaryFolder.newFolder("cache"))
+        val directory = temporaryFolder.newFolder("movies")
+        val uri = "file://${directory.path}".toUri()
+        directory.setLastModified(1_000_000L)
+        cache.put("key", uri, listing(3))
+        assertTrue(cache.get("key", uri)!!.fresh)
+
+        directory.setLastModified(2_000_000L)
+        assertNull(cache.get("key", uri))
+        assertEquals(Triple(1, 0, 1), cache.stats())
+    }
+}
@@ -0,0 +1,42 @@
+package org.videolan.vlc.util
+
+import org.junit.Assert.assertEquals
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.junit.runners.JUnit4
+
+@RunWith(JUnit4::class)
+class LogRingBufferTest {
+
+    @Test
+    fun whenFull_checkOldestLinesAreOverwritten() {
+        val buffer = LogRingBuffer(4)
+        for (i in 0 until 10) buffer.add("line $i")
+        // The slot of the oldest line is left out, as the next line will overwrite it
+        assertEquals(listOf("line 7", "line 8", "line 9"), buffer.toList())
+        assertEquals(10L, buffer.written)
+    }
+
+    @Test
+    fun whenReadingByBatches_checkEachLineIsReadOnce() {
+        val buffer = LogRingBuffer(100)
+        val read = ArrayList<String>()
+        var next = 0L
+        for (i in 0 until 50) {
+            buffer.add("line $i")
+            if (i % 7 == 0) next = buffer.read(next, 3) { read.add(it) }
+        }
+        while (next < buffer.written) next = buffer.read(next, 3) { read.add(it) }
+        assertEquals(List(50) { "line $it" }, read)
+    }
+
+    @Test
+    fun whenCleared_checkOnlyNewLinesAreRead() {
+        val buffer = LogRingBuffer(10)
+        buffer.add("old")
+        buffer.clear()
+        buffer.add("new")
+        assertEquals(listOf("new"), buffer.toList())
+        assertEquals(1, buffer.size)
+    }
+}
@@ -1,9 +1,11 @@
 package org.videolan.vlc.util
 
+import kotlinx.coroutines.runBlocking
 import org.junit.Assert.assertEquals
 import org.junit.Test
 import org.videolan.medialibrary.MLServiceLocator
 import org.videolan.medialibrary.interfaces.Medialibrary
+import org.videolan.medialibrary.media.MediaLibraryItem
 import org.videolan.medialibrary.stubs.StubDataSource
 import org.videolan.vlc.BaseTest
 import org.videolan.vlc.util.ModelsHelper.getHeader
@@ -119,4 +121,32 @@ class ModelsHelperTest : BaseTest() {
         val aboveItem = MLServiceLocator.getAbstractAlbum(dataSource.uuid, "dEF", 2020, "Artwork", "Dummy", 9, 1, 1, 0)
         assertEquals("2019", getHeader(context, Medialibrary.SORT_RELEASEDATE, item, aboveItem))
     }
-}
\ No newline at end of file
+
+    @Test
+    fun whenPagesArePatchedInAnyOrder_checkSectionsMatchSinglePass() {
+        val titles = listOf("abc", "Adef", "9ab", "bcd", "Bar", "cat", "Cow", "car", "dog", "Eel", "egg", "fig")
+        val items = titles.map { dataSource.createFolder(it) }
+        val key = { item: MediaLibraryItem -> ModelsHelper.getSectionKey(context, Medialibrary.SORT_ALPHA, item) }
+        val singlePass = SectionIndex().apply { patch(items, 0, key) }.toHeaders()
+
+        val paged = SectionIndex()
+        for (start in listOf(8, 0, 4)) paged.patch(items.subList(start, start + 4), start, key)
+        val headers = paged.toHeaders()
+
+        assertEquals(singlePass.size(), headers.size())
+        for (i in 0 until headers.size()) {
+            assertEquals(singlePass.keyAt(i), headers.keyAt(i))
+            assertEquals(singlePass.valueAt(i), headers.valueAt(i))
+        }
+        for ((position, item) in items.withIndex()) {
+            assertEquals(getHeader(context, Medialibrary.SORT_ALPHA, item, items.getOrNull(position - 1)), headers.get(position))
+        }
+    }
+
+    @Test
+    fun withAlphaSorting_checkGeneratedSectionsAreSortedAndGrouped() = runBlocking {
+        val items = listOf("bcd", "abc", "9ab", "Bar").map { dataSource.createFolder(it) }
+        val sections = ModelsHelper.generateSections(context, Medialibrary.SORT_ALPHA, items).map { it.title }
+        assertEquals(listOf("#", "9ab", "A", "abc", "B", "bcd", "Bar"), sections)
+    }
+}
@@ -0,0 +1,106 @@
+package org.videolan.vlc.util
+
+import androidx.core.net.toUri
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertSame
+import org.junit.Ignore
+import org.junit.Test
+import org.videolan.medialibrary.MLServiceLocator
+import org.videolan.medialibrary.interfaces.media.MediaWrapper
+import org.videolan.medialibrary.media.MediaLibraryItem
+import org.videolan.vlc.BaseTest
+import java.util.Locale
+import java.util.Random
+
+class NaturalSortTest : BaseTest() {
+
+    private fun file(name: String, type: Int = MediaWrapper.TYPE_VIDEO) = MLServiceLocator.getAbstractMediaWrapper("file:///sdcard/Movies/$name".toUri()).apply { this.type = type }
+
+    private fun createListing(count: Int): List<MediaLibraryItem> {
+        val random = Random(42L)
+        val prefixes = arrayOf("Episode ", "track", "IMG_", "", "Season 1 - ", "0")
+        return List(count) {
+            val name = "${prefixes[random.nextInt(prefixes.size)]}${random.nextInt(count)}.mkv"
+            file(name, if (random.nextInt(10) == 0) MediaWrapper.TYPE_DIR else MediaWrapper.TYPE_VIDEO)
+        }
+    }
+
+    /**
+     * Previous comparator: pads the starting number on each comparison
+     */
+    private fun legacyComparator(nbOfDigits: Int) = Comparator<MediaLibraryItem> { item1, item2 ->
+        val type1 = (item1 as? MediaWrapper)?.type
+        val type2 = (item2 as? MediaWrapper)?.type
+        if (type1 == MediaWrapper.TYPE_DIR && type2 != MediaWrapper.TYPE_DIR) return@Comparator -1
+        else if (type1 != MediaWrapper.TYPE_DIR && type2 == MediaWrapper.TYPE_DIR) return@Comparator 1
+        fun String.pad() = if (first().isDigit()) buildString {
+            val zeros = this@pad.takeWhile { it == '0' }.length
+            repeat(nbOfDigits - zeros - (this@pad.getStartingNumber()?.numberOfDigits() ?: 0)) { append('0') }
+            append(this@pad)
+        } else this
+        (item1 as MediaWrapper).fileName.lowercase(Locale.getDefault()).pad().compareTo((item2 as MediaWrapper).fileName.lowercase(Locale.getDefault()).pad())
+    }
+
+    @Test
+    fun whenSortingNumbers_checkOrderIsNatural() {
+        val names = listOf("10.mkv", "Episode 10.mkv", "2.mkv", "episode 2.mkv", "001.mkv", "0.mkv", "a.mkv", "Episode 9b.mkv")
+        val sorted = names.map { file(it) }.sortedWith(getFilenameAscComp()).map { (it as MediaWrapper).fileName }
+        assertEquals(listOf("0.mkv", "001.mkv", "2.mkv", "10.mkv", "a.mkv", "episode 2.mkv", "Episode 9b.mkv", "Episode 10.mkv"), sorted)
+        val reversed = names.map { file(it) }.sortedWith(getFilenameDescComp()).map { (it as MediaWrapper).fileName }
+        assertEquals(sorted.reversed(), reversed)
+    }
+
+    @Test
+    fun whenSortingFoldersAndFiles_checkFoldersAreFirst() {
+        val items = listOf(file("1.mkv"), file("b", MediaWrapper.TYPE_DIR), file("a", MediaWrapper.TYPE_DIR))
+        val sorted = items.sortedWith(getFilenameAscComp()).map { (it as MediaWrapper).fileName }
+        assertEquals(listOf("a", "b", "1.mkv"), sorted)
+    }
+
+    @Test
+    fun whenSortingTwice_checkKeyIsComputedOnce() {
+        val item = file("Episode 1.mkv")
+        val key = item.filenameSortKey
+        assertSame(key, item.filenameSortKey)
+    }
+
+    @Test
+    fun whenNamesStartWithNumbers_checkOrderMatchesLegacyComparator() {
+        val names = (1..30).map { "$it.mkv" } + listOf("a.mkv", "b.mkv", "track.mkv")
+        val items = (names.map { file(it) } + listOf(file("music", MediaWrapper.TYPE_DIR), file("films", MediaWrapper.TYPE_DIR))).shuffled(Random(42L))
+        val expected = items.sortedWith(legacyComparator(5)).map { (it as MediaWrapper).fileName }
+        assertEquals(expected, items.sortedWith(getFilenameAscComp()).map { (it as MediaWrapper).fileName })
+    }
+
+    /**
+     * Compares the legacy comparator with the natural sort keys on synthetic listings.
+     * Timings are meaningless in the unit test run, run it manually.
+     */
+    @Ignore("Benchmark, run manually")
+    @Test
+    fun benchmarkAgainstLegacyComparator() {
+        val listing = createListing(20000)
+        val rounds = 5
+        repeat(2) {
+            listing.sortedWith(legacyComparator(5))
+            createListing(20000).sortedWith(getFilenameAscComp())
+        }
+
+        var start = System.nanoTime()
+        repeat(rounds) { listing.sortedWith(legacyComparator(5)) }
+        val legacyTime = (System.nanoTime() - start) / rounds
+
+        // Fresh listings: the keys are computed during each sort, as when browsing a folder
+        val listings = List(rounds) { createListing(20000) }
+        start = System.nanoTime()
+        listings.forEach { it.sortedWith(getFilenameAscComp()) }
+        val keyTime = (System.nanoTime() - start) / rounds
+
+        start = System.nanoTime()
+        listings.forEach { it.sortedWith(getFilenameDescComp()) }
+        val cachedTime = (System.nanoTime() - start) / rounds
+
+        println("Legacy comparator: ${legacyTime / 1000} µs per sort of 20000 items")
+        println("Natural sort keys: ${keyTime / 1000} µs per sort, ${cachedTime / 1000} µs with cached keys")
+    }
+}
@@ -8,6 +8,7 @@ import io.mockk.every
 import io.mockk.mockk
 import io.mockk.spyk
 import junit.framework.Assert.*
+import org.junit.After
 import org.junit.Rule
 import org.junit.Test
 import org.junit.rules.TemporaryFolder
@@ -44,6 +45,9 @@ class FileBrowserModelTest : BaseTest() {
     private val countVideos = 2
     private val countDirs = 4
 
+    @After
+    fun resetPrefetchBrowsers() = BrowserProvider.resetPrefetchBrowserCreator()
+
     init {
         BrowserFavRepository.applyMock(mockedFavoritesRepo)
 
@@ -51,6 +55,7 @@ class FileBrowserModelTest : BaseTest() {
         val handler: Handler = mockk()
 
         BrowserProvider.overrideCreator = false
+        BrowserProvider.prefetchBrowserCreator = { null }
         BrowserProvider.registerCreator {
             this@FileBrowserModelTest.mediaBrowser = spyk(MediaBrowser(mockedLibVlc, null, handler))
             mediaBrowser
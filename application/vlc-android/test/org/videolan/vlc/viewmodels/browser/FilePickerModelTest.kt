@@ -5,6 +5,7 @@ import com.jraska.livedata.test
 import io.mockk.mockk
 import io.mockk.spyk
 import junit.framework.Assert.assertEquals
+import org.junit.After
 import org.junit.Rule
 import org.junit.Test
 import org.junit.rules.TemporaryFolder
@@ -33,11 +34,15 @@ class FilePickerModelTest : BaseTest() {
     private val countVideos = 2
     private val countDirs = 4
 
+    @After
+    fun resetPrefetchBrowsers() = BrowserProvider.resetPrefetchBrowserCreator()
+
     init {
         // BrowserHandler mocked.
         val handler: Handler = mockk()
 
         BrowserProvider.overrideCreator = false
+        BrowserProvider.prefetchBrowserCreator = { null }
         BrowserProvider.registerCreator {
             mediaBrowser = spyk(MediaBrowser(mockedLibVlc, null, handler))
             mediaBrowser
@@ -8,6 +8,7 @@ import io.mockk.every
 import io.mockk.mockk
 import io.mockk.spyk
 import junit.framework.Assert.assertEquals
+import org.junit.After
 import org.junit.Rule
 import org.junit.Test
 import org.junit.rules.TemporaryFolder
@@ -37,6 +38,9 @@ class NetworkModelTest : BaseTest() {
     private lateinit var browserModel: BrowserModel
     private lateinit var browserProvider: BrowserProvider
 
+    @After
+    fun resetPrefetchBrowsers() = BrowserProvider.resetPrefetchBrowserCreator()
+
     init {
         BrowserFavRepository.applyMock(mockedFavoritesRepo)
 
@@ -44,6 +48,7 @@ class NetworkModelTest : BaseTest() {
         val handler: Handler = mockk()
 
         BrowserProvider.overrideCreator = false
+        BrowserProvider.prefetchBrowserCreator = { null }
         BrowserProvider.registerCreator {
             mediaBrowser = spyk(MediaBrowser(mockedLibVlc, null, handler))
             mediaBrowser
@@ -8,6 +8,7 @@ import io.mockk.mockk
 import io.mockk.spyk
 import junit.framework.Assert.assertEquals
 import org.junit.Assert.assertNotEquals
+import org.junit.After
 import org.junit.Rule
 import org.junit.Test
 import org.junit.rules.TemporaryFolder
@@ -47,6 +48,9 @@ class StorageModelTest : BaseTest() {
     private val countDirs = 4
     private val countHiddenDirs = 2
 
+    @After
+    fun resetPrefetchBrowsers() = BrowserProvider.resetPrefetchBrowserCreator()
+
     init {
         DirectoryRepository.applyMock(mockedDirectoryRepo)
 
@@ -54,6 +58,7 @@ class StorageModelTest : BaseTest() {
         val handler: Handler = mockk()
 
         BrowserProvider.overrideCreator = false
+        BrowserProvider.prefetchBrowserCreator = { null }
         BrowserProvider.registerCreator {
             mediaBrowser = spyk(MediaBrowser(mockedLibVlc, null, handler))
             mediaBrowser
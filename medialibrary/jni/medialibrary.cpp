@@ -433,6 +433,113 @@ getPagedAudio(JNIEnv* env, jobject thiz, jint sortingCriteria, jboolean desc, jb
     return getInternalAudio(env, thiz, &params, nbItems, offset);
 }
 
+/*
+ * Projections: only primitive fields are sent back, no MediaWrapper is created
+ */
+#define PROJECTION_STRIDE 3
+
+static std::vector<medialibrary::MediaPtr>
+queryMedia(medialibrary::Query<medialibrary::IMedia> const& query, jint nbItems, jint offset)
+{
+    if (query == nullptr)
+        return {};
+    return nbItems != 0 ? query->items(nbItems, offset) : query->all();
+}
+
+// Same filter as mediaToMediaWrapper: media without files are not sent
+static bool
+isPlayable(medialibrary::MediaPtr const& media)
+{
+    return media != nullptr && !media->files().empty();
+}
+
+static jlongArray
+mediaIdArray(JNIEnv* env, std::vector<medialibrary::MediaPtr> const& mediaList)
+{
+    std::vector<jlong> ids;
+    ids.reserve(mediaList.size());
+    for(medialibrary::MediaPtr const& media : mediaList) {
+        if (isPlayable(media))
+            ids.push_back(media->id());
+    }
+    jlongArray results = env->NewLongArray(ids.size());
+    env->SetLongArrayRegion(results, 0, ids.size(), ids.data());
+    return results;
+}
+
+// Packs id, duration and MediaWrapper type for each media
+static jlongArray
+mediaProjectionArray(JNIEnv* env, std::vector<medialibrary::MediaPtr> const& mediaList)
+{
+    std::vector<jlong> projections;
+    projections.reserve(mediaList.size() * PROJECTION_STRIDE);
+    for(medialibrary::MediaPtr const& media : mediaList) {
+        if (!isPlayable(media))
+            continue;
+        jlong type;
+        switch (media->type()) {
+        case medialibrary::IMedia::Type::Audio:
+            type = 1; //MediaWrapper.TYPE_AUDIO
+            break;
+        case medialibrary::IMedia::Type::Video:
+            type = 0; //MediaWrapper.TYPE_VIDEO
+            break;
+        default:
+            type = -1; //MediaWrapper.TYPE_ALL
+            break;
+        }
+        projections.push_back(media->id());
+        projections.push_back(media->duration());
+        projections.push_back(type);
+    }
+    jlongArray results = env->NewLongArray(projections.size());
+    env->SetLongArrayRegion(results, 0, projections.size(), projections.data());
+    return results;
+}
+
+jlongArray
+getVideoIds(JNIEnv* env, jobject thiz, jint sortingCriteria, jboolean desc, jboolean includeMissing, jboolean onlyFavorites, jint nbItems,  jint offset)
+{
+    AndroidMediaLibrary *aml = MediaLibrary_getInstance(env, thiz);
+    medialibrary::QueryParameters params = generateParams(sortingCriteria, desc, includeMissing, onlyFavorites);
+    return mediaIdArray(env, queryMedia(aml->videoFiles(&params), nbItems, offset));
+}
+
+jlongArray
+getAudioIds(JNIEnv* env, jobject thiz, jint sortingCriteria, jboolean desc, jboolean includeMissing, jboolean onlyFavorites, jint nbItems,  jint offset)
+{
+    AndroidMediaLibrary *aml = MediaLibrary_getInstance(env, thiz);
+    medialibrary::QueryParameters params = generateParams(sortingCriteria, desc, includeMissing, onlyFavorites);
+    return mediaIdArray(env, queryMedia(aml->audioFiles(&params), nbItems, offset));
+}
+
+jlongArray
+getVideoProjections(JNIEnv* env, jobject thiz, jint sortingCriteria, jboolean desc, jboolean includeMissing, jboolean onlyFavorites, jint nbItems,  jint offset)
+{
+    AndroidMediaLibrary *aml = MediaLibrary_getInstance(env, thiz);
+    medialibrary::QueryParameters params = generateParams(sortingCriteria, desc, includeMissing, onlyFavorites);
+    return mediaProjectionArray(env, queryMedia(aml->videoFiles(&params), nbItems, offset));
+}
+
+jlongArray
+getAudioProjections(JNIEnv* env, jobject thiz, jint sortingCriteria, jboolean desc, jboolean includeMissing, jboolean onlyFavorites, jint nbItems,  jint offset)
+{
+    AndroidMediaLibrary *aml = MediaLibrary_getInstance(env, thiz);
+    medialibrary::QueryParameters params = generateParams(sortingCriteria, desc, includeMissing, onlyFavorites);
+    return mediaProjectionArray(env, queryMedia(aml->audioFiles(&params), nbItems, offset));
+}
+
+jlongArray
+searchMediaIds(JNIEnv* env, jobject thiz, jstring filterQuery, jint sortingCriteria, jboolean desc, jboolean includeMissing, jboolean onlyFavorites, jint nbItems,  jint offset)
+{
+    AndroidMediaLibrary *aml = MediaLibrary_getInstance(env, thiz);
+    medialibrary::QueryParameters params = generateParams(sortingCriteria, desc, includeMissing, onlyFavorites);
+    const char *queryChar = env->GetStringUTFChars(filterQuery, JNI_FALSE);
+    jlongArray ids = mediaIdArray(env, queryMedia(aml->searchMedia(queryChar, &params), nbItems, offset));
+    env->ReleaseStringUTFChars(filterQuery, queryChar);
+    return ids;
+}
+
 jobject
 search(JNIEnv* env, jobject thiz, jstring query, jboolean includeMissing, jboolean onlyFavorites)
 {
@@ -2503,6 +2610,11 @@ static JNINativeMethod methods[] = {
     {"nativeGetSortedAudio", "(IZZZ)[Lorg/videolan/medialibrary/interfaces/media/MediaWrapper;", (void*)getSortedAudio },
     {"nativeGetSortedPagedAudio", "(IZZZII)[Lorg/videolan/medialibrary/interfaces/media/MediaWrapper;", (void*)getPagedAudio },
     {"nativeGetRecentAudio", "()[Lorg/videolan/medialibrary/interfaces/media/MediaWrapper;", (void*)getRecentAudio },
+    {"nativeGetVideoIds", "(IZZZII)[J", (void*)getVideoIds },
+    {"nativeGetAudioIds", "(IZZZII)[J", (void*)getAudioIds },
+    {"nativeGetVideoProjections", "(IZZZII)[J", (void*)getVideoProjections },
+    {"nativeGetAudioProjections", "(IZZZII)[J", (void*)getAudioProjections },
+    {"nativeSearchMediaIds", "(Ljava/lang/String;IZZZII)[J", (void*)searchMediaIds },
     {"nativeSearch", "(Ljava/lang/String;ZZ)Lorg/videolan/medialibrary/media/SearchAggregate;", (void*)search},
     {"nativeSearchMedia", "(Ljava/lang/String;)[Lorg/videolan/medialibrary/interfaces/media/MediaWrapper;", (void*)searchMedia},
     {"nativeSearchPagedMedia", "(Ljava/lang/String;IZZZII)[Lorg/videolan/medialibrary/interfaces/media/MediaWrapper;", (void*)searchPagedMedia},
@@ -32,6 +32,9 @@ import org.videolan.medialibrary.stubs.StubMedialibrary;
 import org.videolan.medialibrary.stubs.StubPlaylist;
 import org.videolan.medialibrary.stubs.StubVideoGroup;
 
+import java.io.DataInput;
+import java.io.IOException;
+
 public class MLServiceLocator {
 
     private static LocatorMode sMode = LocatorMode.VLC_ANDROID;
@@ -125,6 +128,14 @@ public class MLServiceLocator {
         }
     }
 
+    public static MediaWrapper getAbstractMediaWrapper(DataInput in) throws IOException {
+        if (sMode == LocatorMode.VLC_ANDROID) {
+            return new MediaWrapperImpl(in);
+        } else {
+            return new StubMediaWrapper(in);
+        }
+    }
+
     //Artist
     public static Artist getAbstractArtist(long id, String name, String shortBio, String artworkMrl, String musicBrainzId, int albumsCount, int tracksCount, int presentTracksCount, boolean isFavorite) {
         if (sMode == LocatorMode.VLC_ANDROID) {
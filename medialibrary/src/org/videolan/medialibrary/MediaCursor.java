@@ -0,0 +1,171 @@
+/*****************************************************************************
+ * MediaCursor.java
+ *****************************************************************************
+ * Copyright © 2026 VLC authors and VideoLAN
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston MA 02110-1301, USA.
+ *****************************************************************************/
+
+package org.videolan.medialibrary;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+
+import org.videolan.medialibrary.media.MediaLibraryItem;
+
+import java.io.Closeable;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * Walks a medialibrary collection in fixed-size windows.
+ *
+ * Only one window is alive at a time, so the heap usage is bounded by the window size
+ * whatever the size of the library.
+ * Each window is requested with a one item overlap on the last item of the previous one, and
+ * iteration resumes right after the last item of the previous window found in the new one.
+ * When none is found, because items were removed before the cursor position, the window is
+ * requested again with the previous window range included.
+ * So when items are added or removed before the cursor position while it is being iterated,
+ * no item is skipped or repeated as long as the cursor position moved by less than a window size
+ * and one item of the previous window is still in the collection. Otherwise the walk resumes at the
+ * previous offset. The items added before the cursor position are not returned.
+ */
+public final class MediaCursor<T extends MediaLibraryItem> implements Closeable {
+
+    public static final int DEFAULT_WINDOW_SIZE = 500;
+
+    public interface WindowFetcher<T> {
+        @Nullable
+        T[] fetch(int nbItems, int offset);
+    }
+
+    private final WindowFetcher<T> mFetcher;
+    private final int mWindowSize;
+    private int mOffset = 0;
+    private int mPosition = 0;
+    private long[] mPreviousIds = null;
+    private T[] mPending = null;
+    private boolean mExhausted = false;
+
+    public MediaCursor(@NonNull WindowFetcher<T> fetcher, int windowSize) {
+        if (windowSize < 1) throw new IllegalArgumentException("windowSize must be positive");
+        mFetcher = fetcher;
+        mWindowSize = windowSize;
+    }
+
+    public MediaCursor(@NonNull WindowFetcher<T> fetcher) {
+        this(fetcher, DEFAULT_WINDOW_SIZE);
+    }
+
+    @WorkerThread
+    public boolean hasNext() {
+        if (mPending == null && !mExhausted) mPending = fetchWindow();
+        return mPending != null;
+    }
+
+    /**
+     * @return the next window of items, never empty
+     */
+    @NonNull
+    @WorkerThread
+    public T[] next() {
+        if (!hasNext()) throw new NoSuchElementException();
+        final T[] window = mPending;
+        mPending = null;
+        mPosition += window.length;
+        return window;
+    }
+
+    /**
+     * @return the number of items already returned by this cursor
+     */
+    public int getPosition() {
+        return mPosition;
+    }
+
+    public int getWindowSize() {
+        return mWindowSize;
+    }
+
+    @Override
+    public void close() {
+        mExhausted = true;
+        mPending = null;
+    }
+
+    @Nullable
+    private T[] fetchWindow() {
+        while (!mExhausted) {
+            if (mPreviousIds == null) return take(mFetcher.fetch(mWindowSize, mOffset), mOffset, mWindowSize, 0);
+            final T[] window = fetchAfterPrevious();
+            if (window == null || window.length > 0) return window;
+        }
+        return null;
+    }
+
+    /**
+     * @return the items following the previous window, an empty array if the request must be done again
+     */
+    @Nullable
+    private T[] fetchAfterPrevious() {
+        int start = mOffset - 1;
+        int requested = mWindowSize + 1;
+        T[] raw = mFetcher.fetch(requested, start);
+        int found = raw != null ? lastIndexOfPrevious(raw) : -1;
+        if (found == -1 && start > 0) {
+            // Items were removed before the cursor, look for the previous window in the preceding range
+            final int back = Math.min(mWindowSize, start);
+            start -= back;
+            requested += back;
+            raw = mFetcher.fetch(requested, start);
+            found = raw != null ? lastIndexOfPrevious(raw) : -1;
+            if (found == -1) found = back;
+            else found += 1;
+        } else found += 1;
+        return take(raw, start, requested, found);
+    }
+
+    /**
+     * @return up to mWindowSize items of raw, starting at skip. An empty array if they were all skipped
+     * but the collection goes on, null if it is exhausted.
+     */
+    @Nullable
+    private T[] take(@Nullable T[] raw, int start, int requested, int skip) {
+        if (raw == null || raw.length == 0 || (raw.length <= skip && raw.length < requested)) {
+            mExhausted = true;
+            return null;
+        }
+        if (raw.length <= skip) {
+            // Many items were inserted before the cursor, keep the previous window to find it further
+            mOffset = start + raw.length;
+            return Arrays.copyOfRange(raw, raw.length, raw.length);
+        }
+        final int end = Math.min(raw.length, skip + mWindowSize);
+        if (raw.length < requested && end == raw.length) mExhausted = true;
+        mOffset = start + end;
+        final T[] window = skip == 0 && end == raw.length ? raw : Arrays.copyOfRange(raw, skip, end);
+        mPreviousIds = new long[window.length];
+        for (int i = 0; i < window.length; ++i) mPreviousIds[i] = window[i].getId();
+        Arrays.sort(mPreviousIds);
+        return window;
+    }
+
+    private int lastIndexOfPrevious(MediaLibraryItem[] items) {
+        for (int i = items.length - 1; i >= 0; --i) if (Arrays.binarySearch(mPreviousIds, items[i].getId()) >= 0) return i;
+        return -1;
+    }
+}
@@ -0,0 +1,168 @@
+/*****************************************************************************
+ * MediaWrapperCodec.java
+ *****************************************************************************
+ * Copyright © 2026 VLC authors and VideoLAN
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston MA 02110-1301, USA.
+ *****************************************************************************/
+
+package org.videolan.medialibrary;
+
+import android.net.Uri;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+
+import org.videolan.medialibrary.interfaces.Medialibrary;
+import org.videolan.medialibrary.interfaces.media.MediaWrapper;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compact binary serialization of media lists, lighter than the Parcelable path.
+ *
+ * Media known by the medialibrary are written as references (id, mrl and playback flags)
+ * and resolved back from the medialibrary when decoding. Other media are fully written.
+ * Pictures are never serialized.
+ */
+public final class MediaWrapperCodec {
+    private static final int MAGIC = 0x564D5743; // VMWC
+    public static final int VERSION = 1;
+
+    private static final byte MODE_REFERENCE = 0;
+    private static final byte MODE_FULL = 1;
+
+    public interface Resolver {
+        @Nullable
+        MediaWrapper getMedia(long id);
+    }
+
+    private MediaWrapperCodec() {}
+
+    @NonNull
+    public static byte[] encode(@NonNull List<MediaWrapper> list) {
+        return encode(list, true);
+    }
+
+    /**
+     * @param useReferences write medialibrary media as references instead of their full content
+     */
+    @NonNull
+    public static byte[] encode(@NonNull List<MediaWrapper> list, boolean useReferences) {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 * list.size() + 16);
+        try {
+            encode(list, useReferences, bytes);
+        } catch (IOException e) {
+            // ByteArrayOutputStream does not throw
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    public static void encode(@NonNull List<MediaWrapper> list, boolean useReferences, @NonNull OutputStream out) throws IOException {
+        final DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        data.writeByte(VERSION);
+        data.writeInt(list.size());
+        for (MediaWrapper media : list) {
+            if (useReferences && media.getId() > 0L) {
+                data.writeByte(MODE_REFERENCE);
+                data.writeLong(media.getId());
+                writeString(data, media.getUri().toString());
+                data.writeInt(media.getFlags());
+                writeString(data, media.getTag());
+            } else {
+                data.writeByte(MODE_FULL);
+                media.writeTo(data);
+            }
+        }
+        data.flush();
+    }
+
+    @NonNull
+    @WorkerThread
+    public static List<MediaWrapper> decode(@NonNull byte[] bytes) throws IOException {
+        return decode(new ByteArrayInputStream(bytes), getMedialibraryResolver());
+    }
+
+    @NonNull
+    @WorkerThread
+    public static List<MediaWrapper> decode(@NonNull byte[] bytes, @NonNull Resolver resolver) throws IOException {
+        return decode(new ByteArrayInputStream(bytes), resolver);
+    }
+
+    @NonNull
+    @WorkerThread
+    public static List<MediaWrapper> decode(@NonNull InputStream in, @NonNull Resolver resolver) throws IOException {
+        final DataInputStream data = new DataInputStream(in);
+        if (data.readInt() != MAGIC) throw new IOException("Not a media list");
+        final int version = data.readByte();
+        if (version > VERSION) throw new IOException("Unsupported media list version " + version);
+        final int count = data.readInt();
+        final List<MediaWrapper> list = new ArrayList<>(count);
+        for (int i = 0; i < count; ++i) {
+            final byte mode = data.readByte();
+            if (mode == MODE_REFERENCE) {
+                final long id = data.readLong();
+                final String mrl = readString(data);
+                MediaWrapper media = resolver.getMedia(id);
+                if (media == null) media = MLServiceLocator.getAbstractMediaWrapper(Uri.parse(mrl));
+                media.setFlags(data.readInt());
+                media.setTag(readString(data));
+                list.add(media);
+            } else if (mode == MODE_FULL) {
+                list.add(MLServiceLocator.getAbstractMediaWrapper(data));
+            } else throw new IOException("Unknown media mode " + mode);
+        }
+        return list;
+    }
+
+    @NonNull
+    private static Resolver getMedialibraryResolver() {
+        final Medialibrary ml = Medialibrary.getInstance();
+        return id -> ml.isInitiated() ? ml.getMedia(id) : null;
+    }
+
+    public static void writeString(@NonNull DataOutput out, @Nullable String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    @Nullable
+    public static String readString(@NonNull DataInput in) throws IOException {
+        final int length = in.readInt();
+        if (length < 0) return null;
+        final byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
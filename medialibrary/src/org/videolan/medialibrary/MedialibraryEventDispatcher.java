@@ -0,0 +1,232 @@
+/*****************************************************************************
+ * MedialibraryEventDispatcher.java
+ *****************************************************************************
+ * Copyright © 2026 VLC authors and VideoLAN
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston MA 02110-1301, USA.
+ *****************************************************************************/
+
+package org.videolan.medialibrary;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Coalesces the medialibrary change events and delivers them off the native callback thread.
+ *
+ * Each entity type (media, artists, albums...) has its own coalescing window, started by its first event:
+ * events of the type posted during the window are merged into one delivery, and a burst of events of one type
+ * doesn't delay the others. Ids carried by media deletion/conversion events are concatenated.
+ * Deliveries happen on a single dedicated thread, in the order the windows end: with the same window for all
+ * the types, the types are delivered in the order of their first event.
+ */
+public final class MedialibraryEventDispatcher {
+    private static final String TAG = "VLC/MLEventDispatcher";
+
+    public static final int MEDIA_ADDED         = 1;
+    public static final int MEDIA_MODIFIED      = 1 << 1;
+    public static final int MEDIA_DELETED       = 1 << 2;
+    public static final int MEDIA_CONVERTED     = 1 << 3;
+    public static final int ARTISTS_ADDED       = 1 << 4;
+    public static final int ARTISTS_MODIFIED    = 1 << 5;
+    public static final int ARTISTS_DELETED     = 1 << 6;
+    public static final int ALBUMS_ADDED        = 1 << 7;
+    public static final int ALBUMS_MODIFIED     = 1 << 8;
+    public static final int ALBUMS_DELETED      = 1 << 9;
+    public static final int GENRES_ADDED        = 1 << 10;
+    public static final int GENRES_MODIFIED     = 1 << 11;
+    public static final int GENRES_DELETED      = 1 << 12;
+    public static final int PLAYLISTS_ADDED     = 1 << 13;
+    public static final int PLAYLISTS_MODIFIED  = 1 << 14;
+    public static final int PLAYLISTS_DELETED   = 1 << 15;
+    public static final int HISTORY_MODIFIED    = 1 << 16;
+    public static final int GROUPS_ADDED        = 1 << 17;
+    public static final int GROUPS_MODIFIED     = 1 << 18;
+    public static final int GROUPS_DELETED      = 1 << 19;
+    public static final int FOLDERS_ADDED       = 1 << 20;
+    public static final int FOLDERS_MODIFIED    = 1 << 21;
+    public static final int FOLDERS_DELETED     = 1 << 22;
+
+    public static final int ENTITY_MEDIA        = 0;
+    public static final int ENTITY_ARTISTS      = 1;
+    public static final int ENTITY_ALBUMS       = 2;
+    public static final int ENTITY_GENRES       = 3;
+    public static final int ENTITY_PLAYLISTS    = 4;
+    public static final int ENTITY_HISTORY      = 5;
+    public static final int ENTITY_GROUPS       = 6;
+    public static final int ENTITY_FOLDERS      = 7;
+
+    // Events of each entity type, indexed by the ENTITY_* constants
+    private static final int[] ENTITY_EVENTS = {
+            MEDIA_ADDED | MEDIA_MODIFIED | MEDIA_DELETED | MEDIA_CONVERTED,
+            ARTISTS_ADDED | ARTISTS_MODIFIED | ARTISTS_DELETED,
+            ALBUMS_ADDED | ALBUMS_MODIFIED | ALBUMS_DELETED,
+            GENRES_ADDED | GENRES_MODIFIED | GENRES_DELETED,
+            PLAYLISTS_ADDED | PLAYLISTS_MODIFIED | PLAYLISTS_DELETED,
+            HISTORY_MODIFIED,
+            GROUPS_ADDED | GROUPS_MODIFIED | GROUPS_DELETED,
+            FOLDERS_ADDED | FOLDERS_MODIFIED | FOLDERS_DELETED
+    };
+
+    public static final long DEFAULT_WINDOW_MS = 100L;
+
+    public interface Receiver {
+        /**
+         * @param events bitmask of the coalesced events, all of the same entity type
+         * @param deletedMediaIds ids of all the media deleted during the window
+         * @param convertedMediaIds ids of all the media converted to external during the window
+         */
+        void onEvents(int events, @NonNull long[] deletedMediaIds, @NonNull long[] convertedMediaIds);
+    }
+
+    /**
+     * Pending state of an entity type, guarded by the dispatcher lock
+     */
+    private static final class Window {
+        int pendingEvents = 0;
+        boolean scheduled = false;
+        volatile long windowMs = DEFAULT_WINDOW_MS;
+    }
+
+    private final Receiver mReceiver;
+    private final ScheduledExecutorService mExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        final Thread thread = new Thread(runnable, "VLC/MLEvents");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Object mLock = new Object();
+    private final Window[] mWindows = new Window[ENTITY_EVENTS.length];
+    private final IdAccumulator mDeletedIds = new IdAccumulator();
+    private final IdAccumulator mConvertedIds = new IdAccumulator();
+
+    private final AtomicLong mRawEvents = new AtomicLong();
+    private final AtomicLong mDeliveredEvents = new AtomicLong();
+
+    public MedialibraryEventDispatcher(@NonNull Receiver receiver) {
+        mReceiver = receiver;
+        for (int i = 0; i < mWindows.length; ++i) mWindows[i] = new Window();
+    }
+
+    /**
+     * Sets the coalescing window of all the entity types
+     */
+    public void setCoalescingWindow(long windowMs) {
+        for (int entity = 0; entity < mWindows.length; ++entity) setCoalescingWindow(entity, windowMs);
+    }
+
+    /**
+     * @param entity one of the ENTITY_* constants
+     */
+    public void setCoalescingWindow(int entity, long windowMs) {
+        mWindows[entity].windowMs = Math.max(0L, windowMs);
+    }
+
+    public long getCoalescingWindow(int entity) {
+        return mWindows[entity].windowMs;
+    }
+
+    /**
+     * @return the number of events received from the medialibrary
+     */
+    public long getRawEventCount() {
+        return mRawEvents.get();
+    }
+
+    /**
+     * @return the number of events actually delivered to the listeners, after coalescing
+     */
+    public long getDeliveredEventCount() {
+        return mDeliveredEvents.get();
+    }
+
+    public void post(int event) {
+        post(event, null);
+    }
+
+    public void post(int event, @Nullable long[] ids) {
+        mRawEvents.incrementAndGet();
+        final int entity = entityOf(event);
+        final Window window = mWindows[entity];
+        synchronized (mLock) {
+            window.pendingEvents |= event;
+            if (ids != null) {
+                if (event == MEDIA_DELETED) mDeletedIds.add(ids);
+                else if (event == MEDIA_CONVERTED) mConvertedIds.add(ids);
+            }
+            if (window.scheduled) return;
+            window.scheduled = true;
+        }
+        mExecutor.schedule(() -> flush(entity), window.windowMs, TimeUnit.MILLISECONDS);
+    }
+
+    private void flush(int entity) {
+        final Window window = mWindows[entity];
+        final int events;
+        long[] deletedIds = IdAccumulator.EMPTY;
+        long[] convertedIds = IdAccumulator.EMPTY;
+        synchronized (mLock) {
+            events = window.pendingEvents;
+            if (entity == ENTITY_MEDIA) {
+                deletedIds = mDeletedIds.drain();
+                convertedIds = mConvertedIds.drain();
+            }
+            window.pendingEvents = 0;
+            window.scheduled = false;
+        }
+        if (events == 0) return;
+        mDeliveredEvents.addAndGet(Integer.bitCount(events));
+        try {
+            mReceiver.onEvents(events, deletedIds, convertedIds);
+        } catch (RuntimeException e) {
+            Log.e(TAG, "Medialibrary event listener failed", e);
+        }
+    }
+
+    private static int entityOf(int event) {
+        for (int entity = 0; entity < ENTITY_EVENTS.length; ++entity) {
+            if ((ENTITY_EVENTS[entity] & event) != 0) return entity;
+        }
+        throw new IllegalArgumentException("Unknown event " + event);
+    }
+
+    private static final class IdAccumulator {
+        private static final long[] EMPTY = new long[0];
+        private long[] mIds = EMPTY;
+        private int mSize = 0;
+
+        void add(long[] ids) {
+            if (mSize + ids.length > mIds.length)
+                mIds = Arrays.copyOf(mIds, Math.max(mSize + ids.length, mIds.length * 2));
+            System.arraycopy(ids, 0, mIds, mSize, ids.length);
+            mSize += ids.length;
+        }
+
+        long[] drain() {
+            if (mSize == 0) return EMPTY;
+            final long[] ids = Arrays.copyOf(mIds, mSize);
+            mIds = EMPTY;
+            mSize = 0;
+            return ids;
+        }
+    }
+}
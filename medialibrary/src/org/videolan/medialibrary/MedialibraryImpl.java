@@ -227,6 +227,30 @@ public class MedialibraryImpl extends Medialibrary {
         return mIsInitiated ? nativeGetRecentAudio() : new MediaWrapper[0];
     }
 
+    @NonNull
+    @WorkerThread
+    public long[] getVideoIds(int sort, boolean desc, boolean includeMissing, boolean onlyFavorites, int nbItems, int offset) {
+        return mIsInitiated ? nativeGetVideoIds(sort, desc, includeMissing, onlyFavorites, nbItems, offset) : EMPTY_IDS;
+    }
+
+    @NonNull
+    @WorkerThread
+    public long[] getAudioIds(int sort, boolean desc, boolean includeMissing, boolean onlyFavorites, int nbItems, int offset) {
+        return mIsInitiated ? nativeGetAudioIds(sort, desc, includeMissing, onlyFavorites, nbItems, offset) : EMPTY_IDS;
+    }
+
+    @NonNull
+    @WorkerThread
+    public long[] getVideoProjections(int sort, boolean desc, boolean includeMissing, boolean onlyFavorites, int nbItems, int offset) {
+        return mIsInitiated ? nativeGetVideoProjections(sort, desc, includeMissing, onlyFavorites, nbItems, offset) : EMPTY_IDS;
+    }
+
+    @NonNull
+    @WorkerThread
+    public long[] getAudioProjections(int sort, boolean desc, boolean includeMissing, boolean onlyFavorites, int nbItems, int offset) {
+        return mIsInitiated ? nativeGetAudioProjections(sort, desc, includeMissing, onlyFavorites, nbItems, offset) : EMPTY_IDS;
+    }
+
     @WorkerThread
     public int getVideoCount() {
         return mIsInitiated ? nativeGetVideoCount() : 0;
@@ -540,6 +564,12 @@ public class MedialibraryImpl extends Medialibrary {
         return mIsInitiated && !TextUtils.isEmpty(query) ? nativeSearchPagedMedia(query, sort, desc, includeMissing, onlyFavorites, nbItems, offset) : null;
     }
 
+    @NonNull
+    @WorkerThread
+    public long[] searchMediaIds(String query, int sort, boolean desc, boolean includeMissing, boolean onlyFavorites, int nbItems, int offset) {
+        return mIsInitiated && !TextUtils.isEmpty(query) ? nativeSearchMediaIds(query, sort, desc, includeMissing, onlyFavorites, nbItems, offset) : EMPTY_IDS;
+    }
+
     public int getMediaCount(String query) {
         return mIsInitiated ? nativeGetSearchMediaCount(query) : 0;
     }
@@ -692,6 +722,10 @@ public class MedialibraryImpl extends Medialibrary {
     private native MediaWrapper[] nativeGetSortedPagedAudio(int sort, boolean desc, boolean includeMissing, boolean onlyFavorites, int nbItems, int offset);
     private native MediaWrapper[] nativeGetSortedPagedVideos(int sort, boolean desc, boolean includeMissing, boolean onlyFavorites, int nbItems, int offset);
     private native MediaWrapper[] nativeGetRecentAudio();
+    private native long[] nativeGetVideoIds(int sort, boolean desc, boolean includeMissing, boolean onlyFavorites, int nbItems, int offset);
+    private native long[] nativeGetAudioIds(int sort, boolean desc, boolean includeMissing, boolean onlyFavorites, int nbItems, int offset);
+    private native long[] nativeGetVideoProjections(int sort, boolean desc, boolean includeMissing, boolean onlyFavorites, int nbItems, int offset);
+    private native long[] nativeGetAudioProjections(int sort, boolean desc, boolean includeMissing, boolean onlyFavorites, int nbItems, int offset);
     private native int nativeGetVideoCount();
     private native int nativeGetAudioCount();
     private native VideoGroup[] nativeGetVideoGroups(int sort, boolean desc, boolean includeMissing, boolean onlyFavorites, int nbItems, int offset);
@@ -739,6 +773,7 @@ public class MedialibraryImpl extends Medialibrary {
     private native SearchAggregate nativeSearch(String query, boolean includeMissing, boolean onlyFavorites);
     private native MediaWrapper[] nativeSearchMedia(String query);
     private native MediaWrapper[] nativeSearchPagedMedia(String query, int sort, boolean desc, boolean includeMissing, boolean onlyFavorites, int nbItems, int offset);
+    private native long[] nativeSearchMediaIds(String query, int sort, boolean desc, boolean includeMissing, boolean onlyFavorites, int nbItems, int offset);
     private native int nativeGetSearchMediaCount(String query);
     private native MediaWrapper[] nativeSearchPagedAudio(String query, int sort, boolean desc, boolean includeMissing, boolean onlyFavorites, int nbItems, int offset);
     private native int nativeGetSearchAudioCount(String query);
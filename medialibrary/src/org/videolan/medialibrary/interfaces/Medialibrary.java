@@ -36,6 +36,8 @@ import androidx.lifecycle.MutableLiveData;
 
 import org.videolan.medialibrary.EventTools;
 import org.videolan.medialibrary.MLServiceLocator;
+import org.videolan.medialibrary.MediaCursor;
+import org.videolan.medialibrary.MedialibraryEventDispatcher;
 import org.videolan.medialibrary.Tools;
 import org.videolan.medialibrary.interfaces.media.Album;
 import org.videolan.medialibrary.interfaces.media.Artist;
@@ -51,6 +53,7 @@ import java.io.File;
 import java.lang.ref.WeakReference;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 abstract public class Medialibrary {
 
@@ -99,6 +102,13 @@ abstract public class Medialibrary {
     public static final int HISTORY_TYPE_NETWORK = 2;
 
     public static final MediaWrapper[] EMPTY_COLLECTION = {};
+    public static final long[] EMPTY_IDS = {};
+
+    // Media projections are packed as [id, length, type] for each media
+    public static final int PROJECTION_STRIDE = 3;
+    public static final int PROJECTION_ID = 0;
+    public static final int PROJECTION_LENGTH = 1;
+    public static final int PROJECTION_TYPE = 2;
     public static final String VLC_MEDIA_DB_NAME = "/vlc_media.db";
     public static final String THUMBS_FOLDER_NAME = "/thumbs";
     public static final String MEDIALIB_FOLDER_NAME = "/medialib";
@@ -107,20 +117,21 @@ abstract public class Medialibrary {
     protected volatile boolean mIsWorking = false;
     protected static final MutableLiveData<Boolean> sRunning = new MutableLiveData<>();
 
-    protected final List<ArtistsCb> mArtistsCbs = new ArrayList<>();
-    protected final List<AlbumsCb> mAlbumsCbs = new ArrayList<>();
-    protected final List<MediaCb> mMediaCbs = new ArrayList<>();
-    protected final List<GenresCb> mGenreCbs = new ArrayList<>();
-    protected final List<PlaylistsCb> mPlaylistCbs = new ArrayList<>();
-    protected final List<HistoryCb> mHistoryCbs = new ArrayList<>();
-    protected final List<MediaGroupCb> mMediaGroupCbs = new ArrayList<>();
-    protected final List<FoldersCb> mFoldersCbs = new ArrayList<>();
+    protected final List<ArtistsCb> mArtistsCbs = new CopyOnWriteArrayList<>();
+    protected final List<AlbumsCb> mAlbumsCbs = new CopyOnWriteArrayList<>();
+    protected final List<MediaCb> mMediaCbs = new CopyOnWriteArrayList<>();
+    protected final List<GenresCb> mGenreCbs = new CopyOnWriteArrayList<>();
+    protected final List<PlaylistsCb> mPlaylistCbs = new CopyOnWriteArrayList<>();
+    protected final List<HistoryCb> mHistoryCbs = new CopyOnWriteArrayList<>();
+    protected final List<MediaGroupCb> mMediaGroupCbs = new CopyOnWriteArrayList<>();
+    protected final List<FoldersCb> mFoldersCbs = new CopyOnWriteArrayList<>();
     protected final List<OnMedialibraryReadyListener> onMedialibraryReadyListeners = new ArrayList<>();
     protected final List<OnDeviceChangeListener> onDeviceChangeListeners = new ArrayList<>();
     protected volatile boolean isMedialibraryStarted = false;
     protected final List<DevicesDiscoveryCb> devicesDiscoveryCbList = new ArrayList<>();
     protected final List<RootsEventsCb> rootsEventsCbList = new ArrayList<>();
     private MedialibraryExceptionHandler mExceptionHandler;
+    protected final MedialibraryEventDispatcher mEventDispatcher = new MedialibraryEventDispatcher(this::dispatchEvents);
 
     protected static final Medialibrary instance = MLServiceLocator.getAbstractMedialibrary();
 
@@ -293,163 +304,151 @@ abstract public class Medialibrary {
 
     @SuppressWarnings("unused")
     public void onMediaAdded(MediaWrapper[] mediaList) {
-        synchronized (mMediaCbs) {
-            for (MediaCb cb : mMediaCbs) cb.onMediaAdded();
-        }
+        mEventDispatcher.post(MedialibraryEventDispatcher.MEDIA_ADDED);
     }
 
     @SuppressWarnings("unused")
     public void onMediaUpdated() {
-        synchronized (mMediaCbs) {
-            for (MediaCb cb : mMediaCbs) cb.onMediaModified();
-        }
+        mEventDispatcher.post(MedialibraryEventDispatcher.MEDIA_MODIFIED);
     }
 
     @SuppressWarnings("unused")
     public void onMediaDeleted(long[] ids) {
-        synchronized (mMediaCbs) {
-            for (MediaCb cb : mMediaCbs) cb.onMediaDeleted(ids);
-        }
+        mEventDispatcher.post(MedialibraryEventDispatcher.MEDIA_DELETED, ids);
     }
 
     @SuppressWarnings("unused")
     public void onMediaConvertedToExternal(long[] ids) {
-        synchronized (mMediaCbs) {
-            for (MediaCb cb : mMediaCbs) cb.onMediaConvertedToExternal(ids);
-        }
+        mEventDispatcher.post(MedialibraryEventDispatcher.MEDIA_CONVERTED, ids);
     }
 
     @SuppressWarnings("unused")
     public void onArtistsAdded() {
-        synchronized (mArtistsCbs) {
-            for (ArtistsCb cb : mArtistsCbs) cb.onArtistsAdded();
-        }
+        mEventDispatcher.post(MedialibraryEventDispatcher.ARTISTS_ADDED);
     }
 
     @SuppressWarnings("unused")
     public void onArtistsModified() {
-        synchronized (mArtistsCbs) {
-            for (ArtistsCb cb : mArtistsCbs) cb.onArtistsModified();
-        }
+        mEventDispatcher.post(MedialibraryEventDispatcher.ARTISTS_MODIFIED);
     }
 
     @SuppressWarnings("unused")
     public void onArtistsDeleted() {
-        synchronized (mArtistsCbs) {
-            for (ArtistsCb cb : mArtistsCbs) cb.onArtistsDeleted();
-        }
+        mEventDispatcher.post(MedialibraryEventDispatcher.ARTISTS_DELETED);
     }
 
     @SuppressWarnings("unused")
     public void onAlbumsAdded() {
-        synchronized (mAlbumsCbs) {
-            for (AlbumsCb cb : mAlbumsCbs) cb.onAlbumsAdded();
-        }
+        mEventDispatcher.post(MedialibraryEventDispatcher.ALBUMS_ADDED);
     }
 
     @SuppressWarnings("unused")
     public void onAlbumsModified() {
-        synchronized (mAlbumsCbs) {
-            for (AlbumsCb cb : mAlbumsCbs) cb.onAlbumsModified();
-        }
+        mEventDispatcher.post(MedialibraryEventDispatcher.ALBUMS_MODIFIED);
     }
 
     @SuppressWarnings("unused")
     public void onAlbumsDeleted() {
-        synchronized (mAlbumsCbs) {
-            for (AlbumsCb cb : mAlbumsCbs) cb.onAlbumsDeleted();
-        }
+        mEventDispatcher.post(MedialibraryEventDispatcher.ALBUMS_DELETED);
     }
 
     @SuppressWarnings("unused")
     public void onGenresAdded() {
-        synchronized (mGenreCbs) {
-            for (GenresCb cb : mGenreCbs) cb.onGenresAdded();
-        }
+        mEventDispatcher.post(MedialibraryEventDispatcher.GENRES_ADDED);
     }
 
     @SuppressWarnings("unused")
     public void onGenresModified() {
-        synchronized (mGenreCbs) {
-            for (GenresCb cb : mGenreCbs) cb.onGenresModified();
-        }
+        mEventDispatcher.post(MedialibraryEventDispatcher.GENRES_MODIFIED);
     }
 
     @SuppressWarnings("unused")
     public void onGenresDeleted() {
-        synchronized (mGenreCbs) {
-            for (GenresCb cb : mGenreCbs) cb.onGenresDeleted();
-        }
+        mEventDispatcher.post(MedialibraryEventDispatcher.GENRES_DELETED);
     }
 
     @SuppressWarnings("unused")
     public void onPlaylistsAdded() {
-        synchronized (mPlaylistCbs) {
-            for (PlaylistsCb cb : mPlaylistCbs) cb.onPlaylistsAdded();
-        }
+        mEventDispatcher.post(MedialibraryEventDispatcher.PLAYLISTS_ADDED);
     }
 
     @SuppressWarnings("unused")
     public void onPlaylistsModified() {
-        synchronized (mPlaylistCbs) {
-            for (PlaylistsCb cb : mPlaylistCbs) cb.onPlaylistsModified();
-        }
+        mEventDispatcher.post(MedialibraryEventDispatcher.PLAYLISTS_MODIFIED);
     }
 
     @SuppressWarnings("unused")
     public void onPlaylistsDeleted() {
-        synchronized (mPlaylistCbs) {
-            for (PlaylistsCb cb : mPlaylistCbs) cb.onPlaylistsDeleted();
-        }
+        mEventDispatcher.post(MedialibraryEventDispatcher.PLAYLISTS_DELETED);
     }
 
     @SuppressWarnings("unused")
     public void onHistoryChanged(int type) {
-        synchronized (mHistoryCbs) {
-            for (HistoryCb cb : mHistoryCbs) cb.onHistoryModified();
-        }
+        mEventDispatcher.post(MedialibraryEventDispatcher.HISTORY_MODIFIED);
     }
 
     @SuppressWarnings("unused")
     public void onMediaGroupAdded() {
-        synchronized (mMediaGroupCbs) {
-            for (MediaGroupCb cb : mMediaGroupCbs) cb.onMediaGroupsAdded();
-        }
+        mEventDispatcher.post(MedialibraryEventDispatcher.GROUPS_ADDED);
     }
 
     @SuppressWarnings("unused")
     public void onMediaGroupModified() {
-        synchronized (mMediaGroupCbs) {
-            for (MediaGroupCb cb : mMediaGroupCbs) cb.onMediaGroupsModified();
-        }
+        mEventDispatcher.post(MedialibraryEventDispatcher.GROUPS_MODIFIED);
     }
 
     @SuppressWarnings("unused")
     public void onMediaGroupDeleted() {
-        synchronized (mMediaGroupCbs) {
-            for (MediaGroupCb cb : mMediaGroupCbs) cb.onMediaGroupsDeleted();
-        }
+        mEventDispatcher.post(MedialibraryEventDispatcher.GROUPS_DELETED);
     }
 
     @SuppressWarnings("unused")
     public void onFoldersAdded() {
-        synchronized (mFoldersCbs) {
-            for (FoldersCb cb : mFoldersCbs) cb.onFoldersAdded();
-        }
+        mEventDispatcher.post(MedialibraryEventDispatcher.FOLDERS_ADDED);
     }
 
     @SuppressWarnings("unused")
     public void onFoldersModified() {
-        synchronized (mFoldersCbs) {
-            for (FoldersCb cb : mFoldersCbs) cb.onFoldersModified();
-        }
+        mEventDispatcher.post(MedialibraryEventDispatcher.FOLDERS_MODIFIED);
     }
 
     @SuppressWarnings("unused")
     public void onFoldersDeleted() {
-        synchronized (mFoldersCbs) {
-            for (FoldersCb cb : mFoldersCbs) cb.onFoldersDeleted();
-        }
+        mEventDispatcher.post(MedialibraryEventDispatcher.FOLDERS_DELETED);
+    }
+
+    public MedialibraryEventDispatcher getEventDispatcher() {
+        return mEventDispatcher;
+    }
+
+    private void dispatchEvents(int events, @NonNull long[] deletedIds, @NonNull long[] convertedIds) {
+        if (hasEvent(events, MedialibraryEventDispatcher.MEDIA_ADDED)) for (MediaCb cb : mMediaCbs) cb.onMediaAdded();
+        if (hasEvent(events, MedialibraryEventDispatcher.MEDIA_MODIFIED)) for (MediaCb cb : mMediaCbs) cb.onMediaModified();
+        if (hasEvent(events, MedialibraryEventDispatcher.MEDIA_DELETED)) for (MediaCb cb : mMediaCbs) cb.onMediaDeleted(deletedIds);
+        if (hasEvent(events, MedialibraryEventDispatcher.MEDIA_CONVERTED)) for (MediaCb cb : mMediaCbs) cb.onMediaConvertedToExternal(convertedIds);
+        if (hasEvent(events, MedialibraryEventDispatcher.ARTISTS_ADDED)) for (ArtistsCb cb : mArtistsCbs) cb.onArtistsAdded();
+        if (hasEvent(events, MedialibraryEventDispatcher.ARTISTS_MODIFIED)) for (ArtistsCb cb : mArtistsCbs) cb.onArtistsModified();
+        if (hasEvent(events, MedialibraryEventDispatcher.ARTISTS_DELETED)) for (ArtistsCb cb : mArtistsCbs) cb.onArtistsDeleted();
+        if (hasEvent(events, MedialibraryEventDispatcher.ALBUMS_ADDED)) for (AlbumsCb cb : mAlbumsCbs) cb.onAlbumsAdded();
+        if (hasEvent(events, MedialibraryEventDispatcher.ALBUMS_MODIFIED)) for (AlbumsCb cb : mAlbumsCbs) cb.onAlbumsModified();
+        if (hasEvent(events, MedialibraryEventDispatcher.ALBUMS_DELETED)) for (AlbumsCb cb : mAlbumsCbs) cb.onAlbumsDeleted();
+        if (hasEvent(events, MedialibraryEventDispatcher.GENRES_ADDED)) for (GenresCb cb : mGenreCbs) cb.onGenresAdded();
+        if (hasEvent(events, MedialibraryEventDispatcher.GENRES_MODIFIED)) for (GenresCb cb : mGenreCbs) cb.onGenresModified();
+        if (hasEvent(events, MedialibraryEventDispatcher.GENRES_DELETED)) for (GenresCb cb : mGenreCbs) cb.onGenresDeleted();
+        if (hasEvent(events, MedialibraryEventDispatcher.PLAYLISTS_ADDED)) for (PlaylistsCb cb : mPlaylistCbs) cb.onPlaylistsAdded();
+        if (hasEvent(events, MedialibraryEventDispatcher.PLAYLISTS_MODIFIED)) for (PlaylistsCb cb : mPlaylistCbs) cb.onPlaylistsModified();
+        if (hasEvent(events, MedialibraryEventDispatcher.PLAYLISTS_DELETED)) for (PlaylistsCb cb : mPlaylistCbs) cb.onPlaylistsDeleted();
+        if (hasEvent(events, MedialibraryEventDispatcher.HISTORY_MODIFIED)) for (HistoryCb cb : mHistoryCbs) cb.onHistoryModified();
+        if (hasEvent(events, MedialibraryEventDispatcher.GROUPS_ADDED)) for (MediaGroupCb cb : mMediaGroupCbs) cb.onMediaGroupsAdded();
+        if (hasEvent(events, MedialibraryEventDispatcher.GROUPS_MODIFIED)) for (MediaGroupCb cb : mMediaGroupCbs) cb.onMediaGroupsModified();
+        if (hasEvent(events, MedialibraryEventDispatcher.GROUPS_DELETED)) for (MediaGroupCb cb : mMediaGroupCbs) cb.onMediaGroupsDeleted();
+        if (hasEvent(events, MedialibraryEventDispatcher.FOLDERS_ADDED)) for (FoldersCb cb : mFoldersCbs) cb.onFoldersAdded();
+        if (hasEvent(events, MedialibraryEventDispatcher.FOLDERS_MODIFIED)) for (FoldersCb cb : mFoldersCbs) cb.onFoldersModified();
+        if (hasEvent(events, MedialibraryEventDispatcher.FOLDERS_DELETED)) for (FoldersCb cb : mFoldersCbs) cb.onFoldersDeleted();
+    }
+
+    private static boolean hasEvent(int events, int event) {
+        return (events & event) != 0;
     }
 
     public void onDiscoveryStarted() {
@@ -589,99 +588,67 @@ abstract public class Medialibrary {
     }
 
     public void addMediaCb(MediaCb mediaUpdatedCb) {
-        synchronized (mMediaCbs) {
-            mMediaCbs.add(mediaUpdatedCb);
-        }
+        mMediaCbs.add(mediaUpdatedCb);
     }
 
     public void removeMediaCb(MediaCb mediaUpdatedCb) {
-        synchronized (mMediaCbs) {
-            mMediaCbs.remove(mediaUpdatedCb);
-        }
+        mMediaCbs.remove(mediaUpdatedCb);
     }
 
     public void addArtistsCb(ArtistsCb artistsAddedCb) {
-        synchronized (mArtistsCbs) {
-            mArtistsCbs.add(artistsAddedCb);
-        }
+        mArtistsCbs.add(artistsAddedCb);
     }
 
     public void removeArtistsCb(ArtistsCb artistsAddedCb) {
-        synchronized (mArtistsCbs) {
-            mArtistsCbs.remove(artistsAddedCb);
-        }
+        mArtistsCbs.remove(artistsAddedCb);
     }
 
     public void addAlbumsCb(AlbumsCb AlbumsAddedCb) {
-        synchronized (mAlbumsCbs) {
-            mAlbumsCbs.add(AlbumsAddedCb);
-        }
+        mAlbumsCbs.add(AlbumsAddedCb);
     }
 
     public void removeAlbumsCb(AlbumsCb AlbumsAddedCb) {
-        synchronized (mAlbumsCbs) {
-            mAlbumsCbs.remove(AlbumsAddedCb);
-        }
+        mAlbumsCbs.remove(AlbumsAddedCb);
     }
 
     public void addGenreCb(GenresCb GenreCb) {
-        synchronized (mGenreCbs) {
-            this.mGenreCbs.add(GenreCb);
-        }
+        this.mGenreCbs.add(GenreCb);
     }
 
     public void removeGenreCb(GenresCb GenreCb) {
-        synchronized (mGenreCbs) {
-            this.mGenreCbs.remove(GenreCb);
-        }
+        this.mGenreCbs.remove(GenreCb);
     }
 
     public void addPlaylistCb(PlaylistsCb playlistCb) {
-        synchronized (mPlaylistCbs) {
-            this.mPlaylistCbs.add(playlistCb);
-        }
+        this.mPlaylistCbs.add(playlistCb);
     }
 
     public void removePlaylistCb(PlaylistsCb playlistCb) {
-        synchronized (mPlaylistCbs) {
-            this.mPlaylistCbs.remove(playlistCb);
-        }
+        this.mPlaylistCbs.remove(playlistCb);
     }
 
     public void addHistoryCb(HistoryCb historyCb) {
-        synchronized (mHistoryCbs) {
-            this.mHistoryCbs.add(historyCb);
-        }
+        this.mHistoryCbs.add(historyCb);
     }
 
     public void removeHistoryCb(HistoryCb historyCb) {
-        synchronized (mHistoryCbs) {
-            this.mHistoryCbs.remove(historyCb);
-        }
+        this.mHistoryCbs.remove(historyCb);
     }
 
     public void addMediaGroupCb(MediaGroupCb mediaGroupCb) {
-        synchronized (mMediaGroupCbs) {
-            this.mMediaGroupCbs.add(mediaGroupCb);
-        }
+        this.mMediaGroupCbs.add(mediaGroupCb);
     }
 
     public void removeMediaGroupCb(MediaGroupCb mediaGroupCb) {
-        synchronized (mMediaGroupCbs) {
-            this.mMediaGroupCbs.remove(mediaGroupCb);
-        }
+        this.mMediaGroupCbs.remove(mediaGroupCb);
     }
 
     public void addFoldersCb(FoldersCb foldersCb) {
-        synchronized (mFoldersCbs) {
-            this.mFoldersCbs.add(foldersCb);
-        }
+        this.mFoldersCbs.add(foldersCb);
     }
 
     public void removeFoldersCb(FoldersCb foldersCb) {
-        synchronized (mFoldersCbs) {
-            this.mFoldersCbs.remove(foldersCb);
-        }
+        this.mFoldersCbs.remove(foldersCb);
     }
 
     public void addDeviceDiscoveryCb(DevicesDiscoveryCb cb) {
@@ -736,6 +703,47 @@ abstract public class Medialibrary {
         }
     }
 
+    // Cursors, walking whole collections in bounded windows
+    @NonNull
+    public MediaCursor<MediaWrapper> getVideosCursor(int sort, boolean desc, boolean includeMissing, boolean onlyFavorites, int windowSize) {
+        return new MediaCursor<>((nbItems, offset) -> getPagedVideos(sort, desc, includeMissing, onlyFavorites, nbItems, offset), windowSize);
+    }
+
+    @NonNull
+    public MediaCursor<MediaWrapper> getAudioCursor(int sort, boolean desc, boolean includeMissing, boolean onlyFavorites, int windowSize) {
+        return new MediaCursor<>((nbItems, offset) -> getPagedAudio(sort, desc, includeMissing, onlyFavorites, nbItems, offset), windowSize);
+    }
+
+    @NonNull
+    public MediaCursor<Album> getAlbumsCursor(int sort, boolean desc, boolean includeMissing, boolean onlyFavorites, int windowSize) {
+        return new MediaCursor<>((nbItems, offset) -> getPagedAlbums(sort, desc, includeMissing, onlyFavorites, nbItems, offset), windowSize);
+    }
+
+    @NonNull
+    public MediaCursor<Artist> getArtistsCursor(boolean all, int sort, boolean desc, boolean includeMissing, boolean onlyFavorites, int windowSize) {
+        return new MediaCursor<>((nbItems, offset) -> getPagedArtists(all, sort, desc, includeMissing, onlyFavorites, nbItems, offset), windowSize);
+    }
+
+    @NonNull
+    public MediaCursor<Genre> getGenresCursor(int sort, boolean desc, boolean includeMissing, boolean onlyFavorites, int windowSize) {
+        return new MediaCursor<>((nbItems, offset) -> getPagedGenres(sort, desc, includeMissing, onlyFavorites, nbItems, offset), windowSize);
+    }
+
+    @NonNull
+    public MediaCursor<Playlist> getPlaylistsCursor(Playlist.Type type, int sort, boolean desc, boolean includeMissing, boolean onlyFavorites, int windowSize) {
+        return new MediaCursor<>((nbItems, offset) -> getPagedPlaylists(type, sort, desc, includeMissing, onlyFavorites, nbItems, offset), windowSize);
+    }
+
+    @NonNull
+    public MediaCursor<Folder> getFoldersCursor(int type, int sort, boolean desc, boolean includeMissing, boolean onlyFavorites, int windowSize) {
+        return new MediaCursor<>((nbItems, offset) -> getFolders(type, sort, desc, includeMissing, onlyFavorites, nbItems, offset), windowSize);
+    }
+
+    @NonNull
+    public MediaCursor<MediaWrapper> searchMediaCursor(String query, int sort, boolean desc, boolean includeMissing, boolean onlyFavorites, int windowSize) {
+        return new MediaCursor<>((nbItems, offset) -> searchMedia(query, sort, desc, includeMissing, onlyFavorites, nbItems, offset), windowSize);
+    }
+
     abstract public boolean construct(Context context);
     abstract public int init(Context context);
     abstract public void start();
@@ -760,6 +768,10 @@ abstract public class Medialibrary {
     abstract public MediaWrapper[] getAudio(int sort, boolean desc, boolean includeMissing, boolean onlyFavorites);
     abstract public MediaWrapper[] getPagedAudio(int sort, boolean desc, boolean includeMissing, boolean onlyFavorites, int nbitems, int offset);
     abstract public MediaWrapper[] getRecentAudio();
+    abstract public long[] getVideoIds(int sort, boolean desc, boolean includeMissing, boolean onlyFavorites, int nbItems, int offset);
+    abstract public long[] getAudioIds(int sort, boolean desc, boolean includeMissing, boolean onlyFavorites, int nbItems, int offset);
+    abstract public long[] getVideoProjections(int sort, boolean desc, boolean includeMissing, boolean onlyFavorites, int nbItems, int offset);
+    abstract public long[] getAudioProjections(int sort, boolean desc, boolean includeMissing, boolean onlyFavorites, int nbItems, int offset);
     abstract public int getVideoCount();
     abstract public int getAudioCount();
     abstract public VideoGroup[] getVideoGroups(int sort, boolean desc, boolean includeMissing, boolean onlyFavorites, int nbItems, int offset);
@@ -825,6 +837,7 @@ abstract public class Medialibrary {
     abstract public SearchAggregate search(String query, boolean includeMissing, boolean onlyFavorites);
     abstract public MediaWrapper[] searchMedia(String query);
     abstract public MediaWrapper[] searchMedia(String query, int sort, boolean desc, boolean includeMissing, boolean onlyFavorites, int nbItems, int offset);
+    abstract public long[] searchMediaIds(String query, int sort, boolean desc, boolean includeMissing, boolean onlyFavorites, int nbItems, int offset);
     abstract public int getMediaCount(String query);
     abstract public MediaWrapper[] searchAudio(String query, int sort, boolean desc, boolean includeMissing, boolean onlyFavorites, int nbItems, int offset);
     abstract public int getAudioCount(String query);
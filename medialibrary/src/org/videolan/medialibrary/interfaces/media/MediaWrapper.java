@@ -35,10 +35,14 @@ import org.videolan.libvlc.interfaces.IMedia;
 import org.videolan.libvlc.util.Extensions;
 import org.videolan.libvlc.util.VLCUtil;
 import org.videolan.medialibrary.MLServiceLocator;
+import org.videolan.medialibrary.MediaWrapperCodec;
 import org.videolan.medialibrary.Tools;
 import org.videolan.medialibrary.media.MediaLibraryItem;
 import org.videolan.vlc.VlcMigrationHelper;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.List;
 import java.util.Locale;
 
@@ -854,6 +858,92 @@ public abstract class MediaWrapper extends MediaLibraryItem implements Parcelabl
         dest.writeString(mTag);
     }
 
+    /**
+     * Reads a media written by {@link #writeTo(DataOutput)}, see {@link MediaWrapperCodec}
+     */
+    public MediaWrapper(DataInput in) throws IOException {
+        super(in.readLong(), MediaWrapperCodec.readString(in));
+        mUri = Uri.parse(MediaWrapperCodec.readString(in));
+        final long time = in.readLong();
+        final float position = in.readFloat();
+        final long length = in.readLong();
+        final int type = in.readInt();
+        final long artistId = in.readLong();
+        final long albumArtistId = in.readLong();
+        final String artist = MediaWrapperCodec.readString(in);
+        final String genre = MediaWrapperCodec.readString(in);
+        final long albumId = in.readLong();
+        final String album = MediaWrapperCodec.readString(in);
+        final String albumArtist = MediaWrapperCodec.readString(in);
+        final int width = in.readInt();
+        final int height = in.readInt();
+        final String artworkURL = MediaWrapperCodec.readString(in);
+        final int audio = in.readInt();
+        final int spu = in.readInt();
+        final int trackNumber = in.readInt();
+        final int discNumber = in.readInt();
+        final long lastModified = in.readLong();
+        final long seen = in.readLong();
+        final boolean isPresent = in.readBoolean();
+        final int slavesCount = in.readInt();
+        IMedia.Slave[] slaves = null;
+        if (slavesCount >= 0) {
+            slaves = new IMedia.Slave[slavesCount];
+            for (int i = 0; i < slavesCount; ++i)
+                slaves[i] = new IMedia.Slave(in.readInt(), in.readInt(), MediaWrapperCodec.readString(in));
+        }
+        final boolean isFavorite = in.readBoolean();
+        final long insertionDate = in.readLong();
+        final String tag = MediaWrapperCodec.readString(in);
+        init(time, position, length, type, null, mTitle, artistId, albumArtistId, artist, genre, albumId, album,
+                albumArtist, width, height, artworkURL, audio, spu, trackNumber, discNumber, lastModified,
+                seen, isPresent, slaves, isFavorite, insertionDate, tag);
+        mFlags = in.readInt();
+    }
+
+    /**
+     * Compact counterpart of {@link #writeToParcel(Parcel, int)}, the picture is not written.
+     */
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeLong(getId());
+        MediaWrapperCodec.writeString(out, getTitle());
+        MediaWrapperCodec.writeString(out, mUri.toString());
+        out.writeLong(getTime());
+        out.writeFloat(getPosition());
+        out.writeLong(getLength());
+        out.writeInt(getType());
+        out.writeLong(getArtistId());
+        out.writeLong(getAlbumArtistId());
+        MediaWrapperCodec.writeString(out, getArtistName());
+        MediaWrapperCodec.writeString(out, getGenre());
+        out.writeLong(getAlbumId());
+        MediaWrapperCodec.writeString(out, getAlbumName());
+        MediaWrapperCodec.writeString(out, getAlbumArtistName());
+        out.writeInt(getWidth());
+        out.writeInt(getHeight());
+        MediaWrapperCodec.writeString(out, getArtworkURL());
+        out.writeInt(getAudioTrack());
+        out.writeInt(getSpuTrack());
+        out.writeInt(getTrackNumber());
+        out.writeInt(getDiscNumber());
+        out.writeLong(getLastModified());
+        out.writeLong(getSeen());
+        out.writeBoolean(isPresent());
+        if (mSlaves != null) {
+            out.writeInt(mSlaves.length);
+            for (IMedia.Slave slave : mSlaves) {
+                out.writeInt(slave.type);
+                out.writeInt(slave.priority);
+                MediaWrapperCodec.writeString(out, slave.uri);
+            }
+        } else
+            out.writeInt(-1);
+        out.writeBoolean(mFavorite);
+        out.writeLong(mInsertionDate);
+        MediaWrapperCodec.writeString(out, mTag);
+        out.writeInt(mFlags);
+    }
+
     public static final Parcelable.Creator<MediaWrapper> CREATOR = new Parcelable.Creator<MediaWrapper>() {
         @Override
         public MediaWrapper createFromParcel(Parcel in) {
@@ -43,6 +43,7 @@ public abstract class MediaLibraryItem implements Parcelable {
     protected String mDescription;
     private int mFlags;
     protected boolean mFavorite;
+    private Object mSortKey;
 
     protected MediaLibraryItem() {}
 
@@ -108,6 +109,17 @@ public abstract class MediaLibraryItem implements Parcelable {
         mFlags &= ~flags;
     }
 
+    /**
+     * Key cached by the comparators sorting this item, it is not parceled
+     */
+    public Object getSortKey() {
+        return mSortKey;
+    }
+
+    public void setSortKey(Object sortKey) {
+        mSortKey = sortKey;
+    }
+
     @Override
     public void writeToParcel(Parcel parcel, int i) {
         parcel.writeLong(mId);
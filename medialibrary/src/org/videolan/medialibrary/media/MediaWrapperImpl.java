@@ -34,6 +34,8 @@ import org.videolan.medialibrary.interfaces.media.Artist;
 import org.videolan.medialibrary.interfaces.media.Bookmark;
 import org.videolan.medialibrary.interfaces.media.MediaWrapper;
 
+import java.io.DataInput;
+import java.io.IOException;
 import java.util.Locale;
 
 @SuppressWarnings("JniMissingFunction")
@@ -63,6 +65,7 @@ public class MediaWrapperImpl extends MediaWrapper {
     public MediaWrapperImpl(Uri uri) { super(uri); }
     public MediaWrapperImpl(IMedia media) { super(media); }
     public MediaWrapperImpl(Parcel in) { super(in); }
+    public MediaWrapperImpl(DataInput in) throws IOException { super(in); }
 
     public void rename(String name) {
         final Medialibrary ml = Medialibrary.getInstance();
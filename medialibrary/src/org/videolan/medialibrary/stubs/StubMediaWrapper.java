@@ -12,6 +12,9 @@ import org.videolan.medialibrary.interfaces.media.Artist;
 import org.videolan.medialibrary.interfaces.media.Bookmark;
 import org.videolan.medialibrary.interfaces.media.MediaWrapper;
 
+import java.io.DataInput;
+import java.io.IOException;
+
 public class StubMediaWrapper extends MediaWrapper {
     public StubMediaWrapper(long id, String mrl, long time, float position, long length, int type, String title,
                         String filename, long artistId, long albumArtistId, String artist, String genre, long albumId, String album, String albumArtist,
@@ -57,6 +60,7 @@ public class StubMediaWrapper extends MediaWrapper {
     public StubMediaWrapper(Uri uri) { super(uri); }
     public StubMediaWrapper(IMedia media) { super(media); }
     public StubMediaWrapper(Parcel in) { super(in); }
+    public StubMediaWrapper(DataInput in) throws IOException { super(in); }
 
     private SparseArray<Long> mMetaLong = new SparseArray<>();
     private SparseArray<String> mMetaString = new SparseArray<>();
@@ -9,6 +9,7 @@ import androidx.annotation.Nullable;
 
 import org.videolan.medialibrary.MLContextTools;
 import org.videolan.medialibrary.MLServiceLocator;
+import org.videolan.medialibrary.MediaCursor;
 import org.videolan.medialibrary.Tools;
 import org.videolan.medialibrary.interfaces.Medialibrary;
 import org.videolan.medialibrary.interfaces.media.Album;
@@ -155,6 +156,43 @@ public class StubMedialibrary extends Medialibrary {
         return results.toArray(new MediaWrapper[0]);
     }
 
+    public long[] getVideoIds(int sort, boolean desc, boolean includeMissing, boolean onlyFavorites, int nbItems, int offset) {
+        return toIds(projectionWindow(dt.sortMedia(dt.mVideoMediaWrappers, sort, desc), nbItems, offset));
+    }
+
+    public long[] getAudioIds(int sort, boolean desc, boolean includeMissing, boolean onlyFavorites, int nbItems, int offset) {
+        return toIds(projectionWindow(dt.sortMedia(dt.mAudioMediaWrappers, sort, desc), nbItems, offset));
+    }
+
+    public long[] getVideoProjections(int sort, boolean desc, boolean includeMissing, boolean onlyFavorites, int nbItems, int offset) {
+        return toProjections(projectionWindow(dt.sortMedia(dt.mVideoMediaWrappers, sort, desc), nbItems, offset));
+    }
+
+    public long[] getAudioProjections(int sort, boolean desc, boolean includeMissing, boolean onlyFavorites, int nbItems, int offset) {
+        return toProjections(projectionWindow(dt.sortMedia(dt.mAudioMediaWrappers, sort, desc), nbItems, offset));
+    }
+
+    // Like the native queries, 0 items means the whole collection
+    private static MediaWrapper[] projectionWindow(MediaWrapper[] media, int nbItems, int offset) {
+        return nbItems == 0 ? media : window(media, nbItems, offset);
+    }
+
+    private static long[] toIds(MediaWrapper[] media) {
+        final long[] ids = new long[media.length];
+        for (int i = 0; i < media.length; ++i) ids[i] = media[i].getId();
+        return ids;
+    }
+
+    private static long[] toProjections(MediaWrapper[] media) {
+        final long[] projections = new long[media.length * PROJECTION_STRIDE];
+        for (int i = 0; i < media.length; ++i) {
+            projections[i * PROJECTION_STRIDE + PROJECTION_ID] = media[i].getId();
+            projections[i * PROJECTION_STRIDE + PROJECTION_LENGTH] = media[i].getLength();
+            projections[i * PROJECTION_STRIDE + PROJECTION_TYPE] = media[i].getType();
+        }
+        return projections;
+    }
+
     public int getVideoCount() {
         return dt.mVideoMediaWrappers.size();
     }
@@ -550,6 +588,10 @@ public class StubMedialibrary extends Medialibrary {
         return dt.sortMedia(dt.secureSublist(results, offset, offset + nbItems), sort, desc);
     }
 
+    public long[] searchMediaIds(String query, int sort, boolean desc, boolean includeMissing, boolean onlyFavorites, int nbItems, int offset) {
+        return toIds(projectionWindow(dt.sortMedia(Arrays.asList(searchMedia(query)), sort, desc), nbItems, offset));
+    }
+
     public int getMediaCount(String query) {
         int count = 0;
         for (MediaWrapper media : dt.mVideoMediaWrappers) {
@@ -735,4 +777,45 @@ public class StubMedialibrary extends Medialibrary {
     public boolean refreshAllSubscriptions() {
         return false;
     }
+
+    // Cursors walk a sorted snapshot, paged getters only sort inside the requested page
+    @NonNull
+    @Override
+    public MediaCursor<MediaWrapper> getVideosCursor(int sort, boolean desc, boolean includeMissing, boolean onlyFavorites, int windowSize) {
+        final MediaWrapper[] sorted = dt.sortMedia(dt.mVideoMediaWrappers, sort, desc);
+        return new MediaCursor<>((nbItems, offset) -> window(sorted, nbItems, offset), windowSize);
+    }
+
+    @NonNull
+    @Override
+    public MediaCursor<MediaWrapper> getAudioCursor(int sort, boolean desc, boolean includeMissing, boolean onlyFavorites, int windowSize) {
+        final MediaWrapper[] sorted = dt.sortMedia(dt.mAudioMediaWrappers, sort, desc);
+        return new MediaCursor<>((nbItems, offset) -> window(sorted, nbItems, offset), windowSize);
+    }
+
+    @NonNull
+    @Override
+    public MediaCursor<Album> getAlbumsCursor(int sort, boolean desc, boolean includeMissing, boolean onlyFavorites, int windowSize) {
+        final Album[] sorted = dt.sortAlbum(dt.mAlbums, sort, desc);
+        return new MediaCursor<>((nbItems, offset) -> window(sorted, nbItems, offset), windowSize);
+    }
+
+    @NonNull
+    @Override
+    public MediaCursor<Artist> getArtistsCursor(boolean all, int sort, boolean desc, boolean includeMissing, boolean onlyFavorites, int windowSize) {
+        final Artist[] sorted = getArtists(all, sort, desc, includeMissing, onlyFavorites);
+        return new MediaCursor<>((nbItems, offset) -> window(sorted, nbItems, offset), windowSize);
+    }
+
+    @NonNull
+    @Override
+    public MediaCursor<Genre> getGenresCursor(int sort, boolean desc, boolean includeMissing, boolean onlyFavorites, int windowSize) {
+        final Genre[] sorted = dt.sortGenre(dt.mGenres, sort, desc);
+        return new MediaCursor<>((nbItems, offset) -> window(sorted, nbItems, offset), windowSize);
+    }
+
+    private static <T> T[] window(T[] array, int nbItems, int offset) {
+        final int start = Math.min(Math.max(offset, 0), array.length);
+        return Arrays.copyOfRange(array, start, Math.min(start + nbItems, array.length));
+    }
 }
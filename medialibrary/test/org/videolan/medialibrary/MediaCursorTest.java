@@ -0,0 +1,131 @@
+package org.videolan.medialibrary;
+
+import org.junit.Test;
+import org.videolan.medialibrary.media.DummyItem;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class MediaCursorTest {
+
+    private static List<DummyItem> createItems(int count) {
+        final List<DummyItem> items = new ArrayList<>(count);
+        for (int i = 1; i <= count; ++i) items.add(new DummyItem(i, "item " + i, null));
+        return items;
+    }
+
+    private static DummyItem[] window(List<DummyItem> items, int nbItems, int offset) {
+        final int start = Math.min(offset, items.size());
+        return items.subList(start, Math.min(start + nbItems, items.size())).toArray(new DummyItem[0]);
+    }
+
+    private static List<Long> walk(MediaCursor<DummyItem> cursor) {
+        final List<Long> ids = new ArrayList<>();
+        while (cursor.hasNext()) for (DummyItem item : cursor.next()) ids.add(item.getId());
+        return ids;
+    }
+
+    @Test
+    public void testWalksWholeCollection() {
+        final List<DummyItem> items = createItems(1003);
+        final MediaCursor<DummyItem> cursor = new MediaCursor<>((nbItems, offset) -> window(items, nbItems, offset), 100);
+        final List<Long> ids = walk(cursor);
+        assertEquals(1003, ids.size());
+        for (int i = 0; i < ids.size(); ++i) assertEquals(i + 1, (long) ids.get(i));
+        assertEquals(1003, cursor.getPosition());
+    }
+
+    @Test
+    public void testWindowSizeIsBounded() {
+        final List<DummyItem> items = createItems(250);
+        final MediaCursor<DummyItem> cursor = new MediaCursor<>((nbItems, offset) -> {
+            assertTrue(nbItems <= 101);
+            return window(items, nbItems, offset);
+        }, 100);
+        while (cursor.hasNext()) assertTrue(cursor.next().length <= 100);
+    }
+
+    @Test
+    public void testEmptyCollection() {
+        final MediaCursor<DummyItem> cursor = new MediaCursor<>((nbItems, offset) -> new DummyItem[0], 100);
+        assertFalse(cursor.hasNext());
+        final MediaCursor<DummyItem> nullCursor = new MediaCursor<>((nbItems, offset) -> null, 100);
+        assertFalse(nullCursor.hasNext());
+    }
+
+    @Test
+    public void testInsertionBeforeCursor() {
+        final List<DummyItem> items = createItems(300);
+        final MediaCursor<DummyItem> cursor = new MediaCursor<>((nbItems, offset) -> window(items, nbItems, offset), 100);
+        final List<Long> ids = new ArrayList<>();
+        for (DummyItem item : cursor.next()) ids.add(item.getId());
+        items.add(0, new DummyItem(1000, "inserted", null));
+        items.add(0, new DummyItem(1001, "inserted", null));
+        ids.addAll(walk(cursor));
+        assertEquals(300, ids.size());
+        for (int i = 0; i < ids.size(); ++i) assertEquals(i + 1, (long) ids.get(i));
+    }
+
+    @Test
+    public void testDeletionOfAnchor() {
+        final List<DummyItem> items = createItems(300);
+        final MediaCursor<DummyItem> cursor = new MediaCursor<>((nbItems, offset) -> window(items, nbItems, offset), 100);
+        final List<Long> ids = new ArrayList<>();
+        for (DummyItem item : cursor.next()) ids.add(item.getId());
+        items.remove(99);
+        ids.addAll(walk(cursor));
+        assertEquals(300, ids.size());
+        assertEquals(101L, (long) ids.get(100));
+    }
+
+    @Test
+    public void testDeletionsBeforeCursor() {
+        final List<DummyItem> items = createItems(300);
+        final MediaCursor<DummyItem> cursor = new MediaCursor<>((nbItems, offset) -> window(items, nbItems, offset), 100);
+        final List<Long> ids = new ArrayList<>();
+        for (DummyItem item : cursor.next()) ids.add(item.getId());
+        items.subList(10, 15).clear();
+        ids.addAll(walk(cursor));
+        assertEquals(300, ids.size());
+        for (int i = 0; i < ids.size(); ++i) assertEquals(i + 1, (long) ids.get(i));
+    }
+
+    @Test
+    public void testDeletionOfAnchorWithInsertions() {
+        final List<DummyItem> items = createItems(300);
+        final MediaCursor<DummyItem> cursor = new MediaCursor<>((nbItems, offset) -> window(items, nbItems, offset), 100);
+        final List<Long> ids = new ArrayList<>();
+        for (DummyItem item : cursor.next()) ids.add(item.getId());
+        items.remove(99);
+        items.add(0, new DummyItem(1000, "inserted", null));
+        items.add(0, new DummyItem(1001, "inserted", null));
+        ids.addAll(walk(cursor));
+        assertEquals(300, ids.size());
+        for (int i = 0; i < ids.size(); ++i) assertEquals(i + 1, (long) ids.get(i));
+    }
+
+    @Test
+    public void testInsertionOfMoreThanAWindowBeforeCursor() {
+        final List<DummyItem> items = createItems(300);
+        final MediaCursor<DummyItem> cursor = new MediaCursor<>((nbItems, offset) -> window(items, nbItems, offset), 100);
+        final List<Long> ids = new ArrayList<>();
+        for (DummyItem item : cursor.next()) ids.add(item.getId());
+        for (int i = 0; i < 150; ++i) items.add(0, new DummyItem(1000 + i, "inserted", null));
+        ids.addAll(walk(cursor));
+        assertEquals(300, ids.size());
+        for (int i = 0; i < ids.size(); ++i) assertEquals(i + 1, (long) ids.get(i));
+    }
+
+    @Test
+    public void testClose() {
+        final List<DummyItem> items = createItems(300);
+        final MediaCursor<DummyItem> cursor = new MediaCursor<>((nbItems, offset) -> window(items, nbItems, offset), 100);
+        cursor.next();
+        cursor.close();
+        assertFalse(cursor.hasNext());
+    }
+}
@@ -0,0 +1,79 @@
+package org.videolan.medialibrary;
+
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.videolan.medialibrary.interfaces.Medialibrary;
+import org.videolan.medialibrary.interfaces.media.MediaWrapper;
+import org.videolan.medialibrary.stubs.StubDataSource;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class MediaIdsTest {
+    private Medialibrary medialibrary;
+
+    @BeforeClass
+    public static void setUpLocator() {
+        MLServiceLocator.setLocatorMode(MLServiceLocator.LocatorMode.TESTS);
+    }
+
+    @Before
+    public void setUp() {
+        medialibrary = MLServiceLocator.getAbstractMedialibrary();
+        StubDataSource.getInstance().resetData();
+        StubDataSource.getInstance().setVideoByCount(30, "videos");
+        StubDataSource.getInstance().setAudioByCount(40, "tracks");
+    }
+
+    private static long[] idsOf(MediaWrapper[] media, int from, int to) {
+        final long[] ids = new long[to - from];
+        for (int i = from; i < to; ++i) ids[i - from] = media[i].getId();
+        return ids;
+    }
+
+    @Test
+    public void testVideoIdsMatchMedia() {
+        final MediaWrapper[] videos = medialibrary.getVideos(Medialibrary.SORT_ALPHA, false, false, false);
+        assertArrayEquals(idsOf(videos, 0, videos.length), medialibrary.getVideoIds(Medialibrary.SORT_ALPHA, false, false, false, 0, 0));
+        assertArrayEquals(idsOf(videos, 10, 20), medialibrary.getVideoIds(Medialibrary.SORT_ALPHA, false, false, false, 10, 10));
+        // The last window is truncated
+        assertArrayEquals(idsOf(videos, 25, 30), medialibrary.getVideoIds(Medialibrary.SORT_ALPHA, false, false, false, 10, 25));
+    }
+
+    @Test
+    public void testAudioIdsAreSorted() {
+        final MediaWrapper[] tracks = medialibrary.getAudio(Medialibrary.SORT_ALPHA, true, false, false);
+        assertArrayEquals(idsOf(tracks, 0, tracks.length), medialibrary.getAudioIds(Medialibrary.SORT_ALPHA, true, false, false, 0, 0));
+    }
+
+    @Test
+    public void testProjectionsArePacked() {
+        final MediaWrapper[] tracks = medialibrary.getAudio(Medialibrary.SORT_ALPHA, false, false, false);
+        final long[] projections = medialibrary.getAudioProjections(Medialibrary.SORT_ALPHA, false, false, false, 5, 3);
+        assertEquals(5 * Medialibrary.PROJECTION_STRIDE, projections.length);
+        for (int i = 0; i < 5; ++i) {
+            final MediaWrapper media = tracks[i + 3];
+            assertEquals(media.getId(), projections[i * Medialibrary.PROJECTION_STRIDE + Medialibrary.PROJECTION_ID]);
+            assertEquals(media.getLength(), projections[i * Medialibrary.PROJECTION_STRIDE + Medialibrary.PROJECTION_LENGTH]);
+            assertEquals(MediaWrapper.TYPE_AUDIO, projections[i * Medialibrary.PROJECTION_STRIDE + Medialibrary.PROJECTION_TYPE]);
+        }
+        final long[] videoProjections = medialibrary.getVideoProjections(Medialibrary.SORT_ALPHA, false, false, false, 0, 0);
+        assertEquals(30 * Medialibrary.PROJECTION_STRIDE, videoProjections.length);
+        assertEquals(MediaWrapper.TYPE_VIDEO, videoProjections[Medialibrary.PROJECTION_TYPE]);
+    }
+
+    @Test
+    public void testSearchIdsMatchSearchMedia() {
+        final MediaWrapper[] results = medialibrary.searchMedia("Show Me", Medialibrary.SORT_ALPHA, false, false, false, 100, 0);
+        assertEquals(40, results.length);
+        assertArrayEquals(idsOf(results, 0, 40), medialibrary.searchMediaIds("Show Me", Medialibrary.SORT_ALPHA, false, false, false, 0, 0));
+        assertArrayEquals(idsOf(results, 5, 10), medialibrary.searchMediaIds("Show Me", Medialibrary.SORT_ALPHA, false, false, false, 5, 5));
+        assertEquals(0, medialibrary.searchMediaIds("nothing matches", Medialibrary.SORT_DEFAULT, false, false, false, 0, 0).length);
+    }
+}
@@ -0,0 +1,158 @@
+package org.videolan.medialibrary;
+
+import android.net.Uri;
+import android.os.Parcel;
+
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Ignore;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.videolan.medialibrary.interfaces.Medialibrary;
+import org.videolan.medialibrary.interfaces.media.MediaWrapper;
+import org.videolan.medialibrary.stubs.StubDataSource;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class MediaWrapperCodecTest {
+    private Medialibrary medialibrary;
+
+    @BeforeClass
+    public static void setUpLocator() {
+        MLServiceLocator.setLocatorMode(MLServiceLocator.LocatorMode.TESTS);
+    }
+
+    @Before
+    public void setUp() {
+        medialibrary = MLServiceLocator.getAbstractMedialibrary();
+        StubDataSource.getInstance().resetData();
+    }
+
+    private List<MediaWrapper> createMediaList(int count) {
+        StubDataSource.getInstance().setAudioByCount(count, "codec");
+        return new ArrayList<>(Arrays.asList(medialibrary.getAudio()));
+    }
+
+    private static byte[] parcel(List<MediaWrapper> list) {
+        final Parcel parcel = Parcel.obtain();
+        try {
+            parcel.writeTypedList(list);
+            return parcel.marshall();
+        } finally {
+            parcel.recycle();
+        }
+    }
+
+    private static List<MediaWrapper> unparcel(byte[] bytes) {
+        final Parcel parcel = Parcel.obtain();
+        try {
+            parcel.unmarshall(bytes, 0, bytes.length);
+            parcel.setDataPosition(0);
+            return parcel.createTypedArrayList(MediaWrapper.CREATOR);
+        } finally {
+            parcel.recycle();
+        }
+    }
+
+    private static void assertSameMedia(List<MediaWrapper> expected, List<MediaWrapper> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); ++i) {
+            final MediaWrapper media = expected.get(i);
+            final MediaWrapper decoded = actual.get(i);
+            assertEquals(media.getId(), decoded.getId());
+            assertEquals(media.getUri(), decoded.getUri());
+            assertEquals(media.getTitle(), decoded.getTitle());
+            assertEquals(media.getLength(), decoded.getLength());
+            assertEquals(media.getType(), decoded.getType());
+            assertEquals(media.getArtistName(), decoded.getArtistName());
+            assertEquals(media.getAlbumName(), decoded.getAlbumName());
+            assertEquals(media.getFlags(), decoded.getFlags());
+        }
+    }
+
+    @Test
+    public void testFullMediaRoundTrip() throws IOException {
+        final List<MediaWrapper> list = createMediaList(50);
+        list.get(3).addFlags(MediaWrapper.MEDIA_VIDEO);
+        list.get(4).setTag("tag");
+        final List<MediaWrapper> decoded = MediaWrapperCodec.decode(MediaWrapperCodec.encode(list, false), id -> null);
+        assertSameMedia(list, decoded);
+        assertEquals("tag", decoded.get(4).getTag());
+    }
+
+    @Test
+    public void testReferencesAreResolved() throws IOException {
+        final List<MediaWrapper> list = createMediaList(50);
+        list.get(7).addFlags(MediaWrapper.MEDIA_PAUSED);
+        final List<MediaWrapper> decoded = MediaWrapperCodec.decode(MediaWrapperCodec.encode(list), medialibrary::getMedia);
+        assertSameMedia(list, decoded);
+    }
+
+    @Test
+    public void testUnresolvedReferenceFallsBackToUri() throws IOException {
+        final List<MediaWrapper> list = createMediaList(5);
+        final List<MediaWrapper> decoded = MediaWrapperCodec.decode(MediaWrapperCodec.encode(list), id -> null);
+        assertEquals(list.size(), decoded.size());
+        for (int i = 0; i < list.size(); ++i) assertEquals(list.get(i).getUri(), decoded.get(i).getUri());
+    }
+
+    @Test
+    public void testStreamsAreFullyWritten() throws IOException {
+        final List<MediaWrapper> list = Collections.singletonList(MLServiceLocator.getAbstractMediaWrapper(Uri.parse("http://example.com/stream.mp3")));
+        final List<MediaWrapper> decoded = MediaWrapperCodec.decode(MediaWrapperCodec.encode(list), id -> {
+            throw new AssertionError("Not a medialibrary media");
+        });
+        assertSameMedia(list, decoded);
+    }
+
+    /**
+     * Compares the size and round trip time of the codec with the Parcelable path.
+     * Timings are meaningless in the unit test run, run it manually.
+     */
+    @Ignore("Benchmark, run manually")
+    @Test
+    public void benchmarkAgainstParcelable() throws IOException {
+        final List<MediaWrapper> list = createMediaList(2000);
+        final int rounds = 20;
+        // warm up
+        for (int i = 0; i < 3; ++i) {
+            unparcel(parcel(list));
+            MediaWrapperCodec.decode(MediaWrapperCodec.encode(list, false), id -> null);
+        }
+
+        byte[] parcelBytes = new byte[0];
+        long start = System.nanoTime();
+        for (int i = 0; i < rounds; ++i) {
+            parcelBytes = parcel(list);
+            unparcel(parcelBytes);
+        }
+        final long parcelTime = (System.nanoTime() - start) / rounds;
+
+        byte[] codecBytes = new byte[0];
+        start = System.nanoTime();
+        for (int i = 0; i < rounds; ++i) {
+            codecBytes = MediaWrapperCodec.encode(list, false);
+            MediaWrapperCodec.decode(codecBytes, id -> null);
+        }
+        final long codecTime = (System.nanoTime() - start) / rounds;
+
+        final byte[] referenceBytes = MediaWrapperCodec.encode(list);
+        start = System.nanoTime();
+        for (int i = 0; i < rounds; ++i) MediaWrapperCodec.decode(referenceBytes, medialibrary::getMedia);
+        final long referenceTime = (System.nanoTime() - start) / rounds;
+
+        System.out.println("Parcelable: " + parcelBytes.length + " bytes, " + parcelTime / 1000 + " µs per round trip");
+        System.out.println("Codec (full): " + codecBytes.length + " bytes, " + codecTime / 1000 + " µs per round trip");
+        System.out.println("Codec (references): " + referenceBytes.length + " bytes, " + referenceTime / 1000 + " µs per decoding");
+    }
+}
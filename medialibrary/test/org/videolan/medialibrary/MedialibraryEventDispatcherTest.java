@@ -0,0 +1,106 @@
+package org.videolan.medialibrary;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+public class MedialibraryEventDispatcherTest {
+
+    @Test
+    public void testEventsAreCoalescedPerEntity() throws InterruptedException {
+        final CountDownLatch latch = new CountDownLatch(2);
+        final List<Integer> receivedEvents = Collections.synchronizedList(new ArrayList<>());
+        final AtomicReference<long[]> receivedIds = new AtomicReference<>();
+        final MedialibraryEventDispatcher dispatcher = new MedialibraryEventDispatcher((events, deletedIds, convertedIds) -> {
+            receivedEvents.add(events);
+            if ((events & MedialibraryEventDispatcher.MEDIA_DELETED) != 0) receivedIds.set(deletedIds);
+            latch.countDown();
+        });
+        dispatcher.setCoalescingWindow(50L);
+        for (int i = 0; i < 1000; ++i) dispatcher.post(MedialibraryEventDispatcher.MEDIA_ADDED);
+        dispatcher.post(MedialibraryEventDispatcher.ALBUMS_MODIFIED);
+        dispatcher.post(MedialibraryEventDispatcher.MEDIA_DELETED, new long[] {1L, 2L});
+        dispatcher.post(MedialibraryEventDispatcher.MEDIA_DELETED, new long[] {3L});
+        assertTrue(latch.await(2, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList(MedialibraryEventDispatcher.MEDIA_ADDED | MedialibraryEventDispatcher.MEDIA_DELETED,
+                MedialibraryEventDispatcher.ALBUMS_MODIFIED), receivedEvents);
+        assertArrayEquals(new long[] {1L, 2L, 3L}, receivedIds.get());
+        assertEquals(1003L, dispatcher.getRawEventCount());
+        assertEquals(3L, dispatcher.getDeliveredEventCount());
+    }
+
+    @Test
+    public void testEntitiesAreDeliveredInOrderOfFirstEvent() throws InterruptedException {
+        final CountDownLatch latch = new CountDownLatch(3);
+        final List<Integer> receivedEvents = Collections.synchronizedList(new ArrayList<>());
+        final MedialibraryEventDispatcher dispatcher = new MedialibraryEventDispatcher((events, deletedIds, convertedIds) -> {
+            receivedEvents.add(events);
+            latch.countDown();
+        });
+        dispatcher.setCoalescingWindow(50L);
+        dispatcher.post(MedialibraryEventDispatcher.PLAYLISTS_ADDED);
+        Thread.sleep(5L);
+        dispatcher.post(MedialibraryEventDispatcher.ARTISTS_ADDED);
+        Thread.sleep(5L);
+        dispatcher.post(MedialibraryEventDispatcher.MEDIA_ADDED);
+        dispatcher.post(MedialibraryEventDispatcher.PLAYLISTS_MODIFIED);
+        assertTrue(latch.await(2, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList(MedialibraryEventDispatcher.PLAYLISTS_ADDED | MedialibraryEventDispatcher.PLAYLISTS_MODIFIED,
+                MedialibraryEventDispatcher.ARTISTS_ADDED, MedialibraryEventDispatcher.MEDIA_ADDED), receivedEvents);
+    }
+
+    @Test
+    public void testMediaBurstDoesNotDelayOtherEntities() throws InterruptedException {
+        final CountDownLatch albumsLatch = new CountDownLatch(1);
+        final AtomicInteger mediaDeliveries = new AtomicInteger();
+        final MedialibraryEventDispatcher dispatcher = new MedialibraryEventDispatcher((events, deletedIds, convertedIds) -> {
+            if ((events & MedialibraryEventDispatcher.MEDIA_ADDED) != 0) mediaDeliveries.incrementAndGet();
+            if ((events & MedialibraryEventDispatcher.ALBUMS_ADDED) != 0) albumsLatch.countDown();
+        });
+        dispatcher.setCoalescingWindow(MedialibraryEventDispatcher.ENTITY_MEDIA, 10_000L);
+        dispatcher.setCoalescingWindow(MedialibraryEventDispatcher.ENTITY_ALBUMS, 0L);
+        assertEquals(10_000L, dispatcher.getCoalescingWindow(MedialibraryEventDispatcher.ENTITY_MEDIA));
+        for (int i = 0; i < 1000; ++i) dispatcher.post(MedialibraryEventDispatcher.MEDIA_ADDED);
+        dispatcher.post(MedialibraryEventDispatcher.ALBUMS_ADDED);
+        assertTrue(albumsLatch.await(2, TimeUnit.SECONDS));
+        assertEquals(0, mediaDeliveries.get());
+    }
+
+    @Test
+    public void testDeliveredOffCallerThread() throws InterruptedException {
+        final CountDownLatch latch = new CountDownLatch(1);
+        final AtomicReference<Thread> deliveryThread = new AtomicReference<>();
+        final MedialibraryEventDispatcher dispatcher = new MedialibraryEventDispatcher((events, deletedIds, convertedIds) -> {
+            deliveryThread.set(Thread.currentThread());
+            latch.countDown();
+        });
+        dispatcher.setCoalescingWindow(0L);
+        dispatcher.post(MedialibraryEventDispatcher.HISTORY_MODIFIED);
+        assertTrue(latch.await(2, TimeUnit.SECONDS));
+        assertNotSame(Thread.currentThread(), deliveryThread.get());
+    }
+
+    @Test
+    public void testSuccessiveWindows() throws InterruptedException {
+        final CountDownLatch latch = new CountDownLatch(2);
+        final MedialibraryEventDispatcher dispatcher = new MedialibraryEventDispatcher((events, deletedIds, convertedIds) -> latch.countDown());
+        dispatcher.setCoalescingWindow(10L);
+        dispatcher.post(MedialibraryEventDispatcher.FOLDERS_ADDED);
+        Thread.sleep(100L);
+        dispatcher.post(MedialibraryEventDispatcher.FOLDERS_ADDED);
+        assertTrue(latch.await(2, TimeUnit.SECONDS));
+        assertEquals(2L, dispatcher.getDeliveredEventCount());
+    }
+}